@@ -0,0 +1,93 @@
+package org.alltiny.math.vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures the operations of {@link Matrix} for square matrices of several sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatrixBenchmark {
+
+    @Param({"16", "256", "1024", "2048"})
+    private int size;
+
+    private Matrix a;
+    private Matrix b;
+    private Vector v;
+    private StrassenMultiplier strassen;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        a = randomMatrix(random, size);
+        b = randomMatrix(random, size);
+        v = VectorBenchmark.randomVector(random, size);
+        strassen = new StrassenMultiplier(StrassenMultiplier.DEFAULT_CROSSOVER, Parallelism.sequential());
+    }
+
+    @Benchmark
+    public Vector mulVector() {
+        return a.mul(v);
+    }
+
+    @Benchmark
+    public Matrix mulMatrix() {
+        return a.mul(b);
+    }
+
+    @Benchmark
+    public Vector mulVectorTransposed() {
+        return a.transpose().mul(v);
+    }
+
+    @Benchmark
+    public Vector mulVectorTransposeView() {
+        return a.transposeView().mul(v);
+    }
+
+    @Benchmark
+    public Matrix mulMatrixStrassen() {
+        return strassen.multiply(a, b);
+    }
+
+    @Benchmark
+    public Matrix mulMatrixTransposeView() {
+        return a.mul(b.transposeView());
+    }
+
+    @Benchmark
+    public Matrix transpose() {
+        return a.transpose();
+    }
+
+    @Benchmark
+    public Vector getColumn() {
+        return a.getColumn(size / 2);
+    }
+
+    private static Matrix randomMatrix(Random random, int size) {
+        double[] values = new double[size * size];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() * 2 - 1;
+        }
+        return new Matrix(size, size, values);
+    }
+}
@@ -0,0 +1,116 @@
+package org.alltiny.math.vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures the operations of {@link Vector} for several dimensions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VectorBenchmark {
+
+    @Param({"3", "16", "256", "4096"})
+    private int dimension;
+
+    private Vector a;
+    private Vector b;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        a = randomVector(random, dimension);
+        b = randomVector(random, dimension);
+    }
+
+    @Benchmark
+    public Vector add() {
+        return a.add(b);
+    }
+
+    @Benchmark
+    public Vector sub() {
+        return a.sub(b);
+    }
+
+    @Benchmark
+    public Vector scale() {
+        return a.scale(1.5);
+    }
+
+    @Benchmark
+    public double scalar() {
+        return a.scalar(b);
+    }
+
+    @Benchmark
+    public double scalarCompensated() {
+        return a.scalar(b, Summation.COMPENSATED);
+    }
+
+    @Benchmark
+    public Vector normalize() {
+        return a.normalize();
+    }
+
+    @Benchmark
+    public Vector project() {
+        return a.project(b);
+    }
+
+    @Benchmark
+    public double eagerChain() {
+        return a.add(b).sub(a).scale(1.5).scalar(b);
+    }
+
+    @Benchmark
+    public double lazyChain() {
+        return a.lazy().add(b).sub(a).scale(1.5).scalar(b);
+    }
+
+    @Benchmark
+    public Vector cross(CrossState state) {
+        return state.a.cross(state.b);
+    }
+
+    static Vector randomVector(Random random, int dimension) {
+        double[] values = new double[dimension];
+        for (int i = 0; i < dimension; i++) {
+            values[i] = random.nextDouble() * 2 - 1;
+        }
+        return new Vector(values);
+    }
+
+    /**
+     * The cross product is only defined for three dimensions, so it gets its own state.
+     */
+    @State(Scope.Benchmark)
+    public static class CrossState {
+
+        private Vector a;
+        private Vector b;
+
+        @Setup
+        public void setUp() {
+            Random random = new Random(42);
+            a = randomVector(random, 3);
+            b = randomVector(random, 3);
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package org.alltiny.math.vector;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Executes many small operations asynchronously and coalesces them into batches. Pending
+ * multiplications with the same {@link Matrix} instance are executed as one multiplication of the
+ * matrix with a {@link VectorBatch}, which passes over the matrix once for all vectors; pending
+ * scalar products with the same left {@link Vector} instance are batched likewise.
+ *
+ * A batch is executed as soon as it holds the maximal number of requests, or when its first
+ * request has waited for the maximal delay. Batches are executed by the given executor; the
+ * deadlines are watched by one dispatcher thread created by the given thread factory. Both may
+ * create platform or virtual threads; the executor blocks only on {@link ReentrantLock}s, which do
+ * not pin virtual threads. The executor has to be closed to stop the dispatcher thread.
+ *
+ * The operands must not be changed until the returned future is completed. Because batched
+ * products are summed in another order, their results may differ from the ones of
+ * {@link Matrix#mul(Vector)} and {@link Vector#scalar(Vector)} in the last bits.
+ * @since 1.2
+ */
+public final class BatchingExecutor implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+    public static final long DEFAULT_MAX_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final Executor executor;
+    private final Thread dispatcher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    /** The open batch per operand instance. */
+    private final Map<Object, Batch> open = new IdentityHashMap<Object, Batch>();
+    /** The open batches in the order of their deadlines; batches executed early are skipped. */
+    private final ArrayDeque<Batch> deadlines = new ArrayDeque<Batch>();
+    private boolean closed;
+
+    /** Creates the daemon dispatcher threads of executors built without a thread factory. */
+    private static final ThreadFactory DAEMON_THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "BatchingExecutor-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    /**
+     * Creates an executor with {@link #DEFAULT_MAX_BATCH_SIZE} and {@link #DEFAULT_MAX_DELAY_NANOS},
+     * which executes the batches on {@link ForkJoinPool#commonPool()}. The dispatcher is a daemon
+     * thread, so an executor which is not closed does not keep the JVM from exiting.
+     */
+    public BatchingExecutor() {
+        this(DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY_NANOS, TimeUnit.NANOSECONDS, ForkJoinPool.commonPool(), DAEMON_THREAD_FACTORY);
+    }
+
+    /**
+     * @param maxBatchSize number of requests at which a batch is executed at once
+     * @param maxDelay time the first request of a batch waits at most for further requests
+     * @param unit of the maximal delay
+     * @param executor which executes the batches
+     * @param threadFactory which creates the dispatcher thread watching the deadlines; it decides
+     * whether the dispatcher is a daemon thread, and a non-daemon dispatcher keeps the JVM from
+     * exiting until the executor is closed
+     * @throws IllegalArgumentException if the batch size is not positive, the delay is negative or an argument is null.
+     */
+    public BatchingExecutor(int maxBatchSize, long maxDelay, TimeUnit unit, Executor executor, ThreadFactory threadFactory) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maximal batch size must be positive");
+        }
+        if (maxDelay < 0) {
+            throw new IllegalArgumentException("maximal delay can not be negative");
+        }
+        if (unit == null || executor == null || threadFactory == null) {
+            throw new IllegalArgumentException("unit, executor and thread factory can not be null");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.executor = executor;
+        this.dispatcher = threadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                dispatch();
+            }
+        });
+        if (dispatcher == null) {
+            throw new IllegalArgumentException("thread factory did not create a thread");
+        }
+        dispatcher.start();
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public long getMaxDelay(TimeUnit unit) {
+        return unit.convert(maxDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Multiplies the given vector with the given matrix asynchronously.
+     * @return a future completed with a new vector holding the product
+     * @throws IllegalDimensionException if the vector's dimension does not match the columns of the matrix.
+     * @throws RejectedExecutionException if this executor is closed.
+     */
+    public CompletableFuture<Vector> mul(Matrix matrix, Vector vector) {
+        if (matrix.getColumns() != vector.getDimension()) {
+            throw new IllegalDimensionException("vector with " + vector.getDimension() + " dimensions can not be multiplied with matrix with " + matrix.getColumns() + " columns");
+        }
+        final CompletableFuture<Vector> future = new CompletableFuture<Vector>();
+        submit(matrix, new Request(vector, future));
+        return future;
+    }
+
+    /**
+     * Calculates the scalar product of the given vectors asynchronously.
+     * Requests with the same first vector are batched.
+     * @return a future completed with the scalar product
+     * @throws IllegalDimensionException if the vectors have unequal dimensions.
+     * @throws RejectedExecutionException if this executor is closed.
+     */
+    public CompletableFuture<Double> scalar(Vector vector, Vector other) {
+        if (vector.getDimension() != other.getDimension()) {
+            throw new IllegalDimensionException("both vectors must have the same dimension");
+        }
+        final CompletableFuture<Double> future = new CompletableFuture<Double>();
+        submit(vector, new Request(other, future));
+        return future;
+    }
+
+    /**
+     * Stops accepting requests and executes the pending batches at once. Returns when all of them
+     * have been handed to the executor; it does not wait for their results.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (Thread.currentThread() == dispatcher) {
+            return;
+        }
+        boolean interrupted = false;
+        while (dispatcher.isAlive()) {
+            try {
+                dispatcher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(Object operand, Request request) {
+        Batch full = null;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new RejectedExecutionException("executor is closed");
+            }
+            Batch batch = open.get(operand);
+            if (batch == null) {
+                batch = new Batch(operand, System.nanoTime() + maxDelayNanos);
+                open.put(operand, batch);
+                deadlines.addLast(batch);
+                if (deadlines.size() == 1) {
+                    changed.signal();
+                }
+            }
+            batch.requests.add(request);
+            if (batch.requests.size() >= maxBatchSize) {
+                open.remove(operand);
+                batch.taken = true;
+                full = batch;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full != null) {
+            execute(full);
+        }
+    }
+
+    /** Runs on the dispatcher thread and hands every batch to the executor when its deadline is reached. */
+    private void dispatch() {
+        final List<Batch> due = new ArrayList<Batch>();
+        while (true) {
+            boolean finished;
+            lock.lock();
+            try {
+                while (!deadlines.isEmpty() && deadlines.peekFirst().taken) {
+                    deadlines.removeFirst();
+                }
+                if (deadlines.isEmpty()) {
+                    if (closed) {
+                        return;
+                    }
+                    changed.awaitUninterruptibly();
+                    continue;
+                }
+                final long wait = deadlines.peekFirst().deadline - System.nanoTime();
+                if (wait > 0 && !closed) {
+                    try {
+                        changed.awaitNanos(wait);
+                    } catch (InterruptedException e) {
+                        // the deadlines are checked again anyway.
+                    }
+                    continue;
+                }
+                final long now = System.nanoTime();
+                while (!deadlines.isEmpty() && (closed || deadlines.peekFirst().deadline - now <= 0)) {
+                    final Batch batch = deadlines.removeFirst();
+                    if (!batch.taken) {
+                        batch.taken = true;
+                        open.remove(batch.operand);
+                        due.add(batch);
+                    }
+                }
+                finished = closed && deadlines.isEmpty();
+            } finally {
+                lock.unlock();
+            }
+            for (Batch batch : due) {
+                execute(batch);
+            }
+            due.clear();
+            if (finished) {
+                return;
+            }
+        }
+    }
+
+    private void execute(final Batch batch) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    batch.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            batch.fail(e);
+        }
+    }
+
+    /**
+     * A pending request: the vector to multiply or to build the scalar product with, and its future.
+     */
+    private static final class Request {
+
+        final Vector vector;
+        final CompletableFuture<?> future;
+
+        Request(Vector vector, CompletableFuture<?> future) {
+            this.vector = vector;
+            this.future = future;
+        }
+    }
+
+    /**
+     * The requests with the same matrix or left vector.
+     */
+    private static final class Batch {
+
+        final Object operand;
+        final long deadline;
+        final List<Request> requests = new ArrayList<Request>();
+        /** Set under the lock when the batch has been removed from the open batches. */
+        boolean taken;
+
+        Batch(Object operand, long deadline) {
+            this.operand = operand;
+            this.deadline = deadline;
+        }
+
+        @SuppressWarnings("unchecked")
+        void run() {
+            try {
+                final int size = requests.size();
+                final int dimension = requests.get(0).vector.getDimension();
+                final VectorBatch vectors = new VectorBatch(size, dimension, VectorBatch.Layout.SOA);
+                for (int i = 0; i < size; i++) {
+                    vectors.set(i, requests.get(i).vector);
+                }
+                if (operand instanceof Matrix) {
+                    final VectorBatch products = ((Matrix)operand).mul(vectors);
+                    for (int i = 0; i < size; i++) {
+                        ((CompletableFuture<Vector>)requests.get(i).future).complete(new Vector(products.getVector(i)));
+                    }
+                } else {
+                    final double[] products = vectors.scalar((Vector)operand);
+                    for (int i = 0; i < size; i++) {
+                        ((CompletableFuture<Double>)requests.get(i).future).complete(products[i]);
+                    }
+                }
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }
+
+        void fail(Throwable cause) {
+            for (Request request : requests) {
+                request.future.completeExceptionally(cause);
+            }
+        }
+    }
+}
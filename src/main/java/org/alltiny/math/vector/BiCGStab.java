@@ -0,0 +1,93 @@
+package org.alltiny.math.vector;
+
+/**
+ * Solves linear systems with a general square operator by the stabilized bi-conjugate gradient
+ * method (BiCGSTAB) with right preconditioning. Every iteration applies the operator and the
+ * preconditioner twice and needs a fixed amount of memory.
+ *
+ * The method can break down for some systems; the iterations then stop without convergence,
+ * and {@link Gmres} may be used instead.
+ * @since 1.2
+ */
+public final class BiCGStab extends IterativeSolver {
+
+    private final Vector residual;
+    private final Vector shadow;
+    private final Vector direction;
+    private final Vector image;
+    private final Vector preconditioned;
+    private final Vector intermediate;
+    private final Vector correction;
+    private final Vector correctionImage;
+
+    /**
+     * @throws IllegalDimensionException if the operator is not square.
+     */
+    public BiCGStab(LinearOperator operator) {
+        super(operator);
+        residual = workVector();
+        shadow = workVector();
+        direction = workVector();
+        image = workVector();
+        preconditioned = workVector();
+        intermediate = workVector();
+        correction = workVector();
+        correctionImage = workVector();
+    }
+
+    @Override
+    SolverResult iterate(Vector b, Vector x, double target, double norm) {
+        operator.apply(x, image);
+        b.sub(image, residual);
+        residual.scale(1, shadow);
+        direction.scaleInPlace(0);
+        image.scaleInPlace(0);
+        double rho = 1;
+        double alpha = 1;
+        double omega = 1;
+        double length = residual.getLength();
+        int iteration = 0;
+        while (length > target && iteration < maxIterations) {
+            final double next = shadow.scalar(residual);
+            if (next == 0) {
+                // the residual became orthogonal to the shadow residual.
+                break;
+            }
+            // p = r + beta * (p - omega * v)
+            direction.axpy(-omega, image).scaleInPlace(next / rho * alpha / omega).addInPlace(residual);
+            preconditioner.precondition(direction, preconditioned);
+            operator.apply(preconditioned, image);
+            final double projection = shadow.scalar(image);
+            if (projection == 0) {
+                // the image of the direction became orthogonal to the shadow residual.
+                break;
+            }
+            alpha = next / projection;
+            // s = r - alpha * v
+            residual.axpy(-alpha, image);
+            iteration++;
+            length = residual.getLength();
+            if (length <= target) {
+                x.axpy(alpha, preconditioned);
+                break;
+            }
+            preconditioner.precondition(residual, correction);
+            operator.apply(correction, correctionImage);
+            final double imageLengthSquare = correctionImage.getLengthSquare();
+            if (imageLengthSquare == 0) {
+                // the operator maps the correction to zero, so only the first half step can be taken.
+                x.axpy(alpha, preconditioned);
+                break;
+            }
+            omega = correctionImage.scalar(residual) / imageLengthSquare;
+            x.axpy(alpha, preconditioned).axpy(omega, correction);
+            residual.axpy(-omega, correctionImage);
+            length = residual.getLength();
+            rho = next;
+            if (omega == 0) {
+                break;
+            }
+        }
+        return new SolverResult(x, length <= target, iteration, length / norm);
+    }
+}
@@ -0,0 +1,564 @@
+package org.alltiny.math.vector;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * This class reads and writes vectors and matrices in a compact binary format.
+ *
+ * Every vector or matrix starts with a header of {@link #HEADER_BYTES} bytes in big-endian order:
+ * <pre>
+ * int  magic         0x414C5456 ("ALTV")
+ * byte version       1
+ * byte kind          0 = vector, 1 = matrix
+ * byte element type  0 = double, 1 = float
+ * byte byte order    0 = big-endian, 1 = little-endian
+ * int  rows          1 for vectors
+ * int  columns       the dimension for vectors
+ * </pre>
+ * The elements follow in row-major order with the byte order given in the header. Writers use
+ * the order of the given buffer, or the platform's native order for channels and streams, so
+ * the values can be copied in bulk; readers accept both orders.
+ *
+ * Malformed data is reported with an {@link IllegalArgumentException}, missing data at the
+ * end of a channel or stream with an {@link EOFException}.
+ * @since 1.2
+ */
+public final class BinaryFormat {
+
+    public static final int MAGIC = 0x414C5456;
+    public static final byte VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+
+    private static final byte KIND_VECTOR = 0;
+    private static final byte KIND_MATRIX = 1;
+    /** Size of the buffers used to copy elements from and to channels. */
+    private static final int CHUNK_BYTES = 1 << 16;
+
+    /**
+     * The precision in which elements are stored.
+     */
+    public enum ElementType {
+        /** 8 bytes per element, no loss of precision. */
+        DOUBLE(8),
+        /** 4 bytes per element, values are rounded to the nearest float when written. */
+        FLOAT(4);
+
+        private final int bytes;
+
+        ElementType(int bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return the number of bytes of one element.
+         */
+        public int getBytes() {
+            return bytes;
+        }
+    }
+
+    private BinaryFormat() {
+    }
+
+    /**
+     * @return the number of bytes needed to store the given vector.
+     */
+    public static long sizeOf(Vector vector, ElementType type) {
+        return HEADER_BYTES + (long)vector.getDimension() * type.getBytes();
+    }
+
+    /**
+     * @return the number of bytes needed to store the given matrix.
+     */
+    public static long sizeOf(Matrix matrix, ElementType type) {
+        return HEADER_BYTES + (long)matrix.getRows() * matrix.getColumns() * type.getBytes();
+    }
+
+    public static void write(Vector vector, ByteBuffer buffer) {
+        write(vector, ElementType.DOUBLE, buffer);
+    }
+
+    /**
+     * Writes the given vector at the position of the buffer in the buffer's byte order.
+     * @throws BufferOverflowException if the buffer has not enough remaining space.
+     */
+    public static void write(Vector vector, ElementType type, ByteBuffer buffer) {
+        checkRemaining(buffer, sizeOf(vector, type));
+        putHeader(buffer, KIND_VECTOR, type, 1, vector.getDimension());
+        put(buffer, type, vector.getArray(), vector.getOffset(), vector.getStride(), vector.getDimension());
+    }
+
+    /**
+     * Reads a vector from the position of the buffer.
+     * @throws IllegalArgumentException if the buffer does not hold a vector.
+     * @throws java.nio.BufferUnderflowException if the buffer ends before the vector.
+     */
+    public static Vector readVector(ByteBuffer buffer) {
+        final Header header = Header.read(buffer);
+        header.expect(KIND_VECTOR);
+        header.checkRemaining(buffer);
+        double[] values = new double[header.columns];
+        header.get(buffer, values, 0, values.length);
+        return new Vector(values);
+    }
+
+    public static void write(Matrix matrix, ByteBuffer buffer) {
+        write(matrix, ElementType.DOUBLE, buffer);
+    }
+
+    /**
+     * Writes the given matrix at the position of the buffer in the buffer's byte order.
+     * @throws BufferOverflowException if the buffer has not enough remaining space.
+     */
+    public static void write(Matrix matrix, ElementType type, ByteBuffer buffer) {
+        checkRemaining(buffer, sizeOf(matrix, type));
+        putHeader(buffer, KIND_MATRIX, type, matrix.getRows(), matrix.getColumns());
+        for (int row = 0; row < matrix.getRows(); row++) {
+            put(buffer, type, matrix.getArray(), matrix.getOffset() + row * matrix.getRowStride(), matrix.getColumnStride(), matrix.getColumns());
+        }
+    }
+
+    /**
+     * Reads a matrix from the position of the buffer.
+     * @throws IllegalArgumentException if the buffer does not hold a matrix.
+     * @throws java.nio.BufferUnderflowException if the buffer ends before the matrix.
+     */
+    public static Matrix readMatrix(ByteBuffer buffer) {
+        final Header header = Header.read(buffer);
+        header.expect(KIND_MATRIX);
+        header.checkRemaining(buffer);
+        double[] values = new double[header.rows * header.columns];
+        header.get(buffer, values, 0, values.length);
+        return new Matrix(header.rows, header.columns, values);
+    }
+
+    public static void write(Vector vector, WritableByteChannel channel) throws IOException {
+        write(vector, ElementType.DOUBLE, channel);
+    }
+
+    /**
+     * Writes the given vector to the channel in the platform's native byte order.
+     */
+    public static void write(Vector vector, ElementType type, WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+        putHeader(buffer, KIND_VECTOR, type, 1, vector.getDimension());
+        buffer.flip();
+        writeFully(channel, buffer);
+        writeElements(channel, type, vector.getArray(), vector.getOffset(), vector.getStride(), vector.getDimension(), null);
+    }
+
+    /**
+     * Reads a vector from the channel. Exactly the bytes of the vector are consumed.
+     * @throws IllegalArgumentException if the channel does not provide a vector.
+     * @throws EOFException if the channel ends before the vector.
+     */
+    public static Vector readVector(ReadableByteChannel channel) throws IOException {
+        final Header header = Header.read(channel);
+        header.expect(KIND_VECTOR);
+        return new Vector(header.readElements(channel, header.columns, null));
+    }
+
+    public static void write(Matrix matrix, WritableByteChannel channel) throws IOException {
+        write(matrix, ElementType.DOUBLE, channel);
+    }
+
+    /**
+     * Writes the given matrix to the channel in the platform's native byte order.
+     */
+    public static void write(Matrix matrix, ElementType type, WritableByteChannel channel) throws IOException {
+        MatrixWriter writer = new MatrixWriter(channel, matrix.getRows(), matrix.getColumns(), type);
+        for (int row = 0; row < matrix.getRows(); row++) {
+            writer.writeRow(matrix.getRow(row));
+        }
+    }
+
+    /**
+     * Reads a matrix from the channel. Exactly the bytes of the matrix are consumed.
+     * @throws IllegalArgumentException if the channel does not provide a matrix.
+     * @throws EOFException if the channel ends before the matrix.
+     */
+    public static Matrix readMatrix(ReadableByteChannel channel) throws IOException {
+        MatrixReader reader = new MatrixReader(channel);
+        double[] values = reader.header.readElements(channel, reader.getRows() * reader.getColumns(), reader.buffer);
+        return new Matrix(reader.getRows(), reader.getColumns(), values);
+    }
+
+    /**
+     * Writes the given vector to the stream. The stream is neither flushed nor closed.
+     * @see #write(Vector, ElementType, WritableByteChannel)
+     */
+    public static void write(Vector vector, ElementType type, OutputStream stream) throws IOException {
+        write(vector, type, Channels.newChannel(stream));
+    }
+
+    /**
+     * Reads a vector from the stream. Exactly the bytes of the vector are consumed.
+     * @see #readVector(ReadableByteChannel)
+     */
+    public static Vector readVector(InputStream stream) throws IOException {
+        return readVector(Channels.newChannel(stream));
+    }
+
+    /**
+     * Writes the given matrix to the stream. The stream is neither flushed nor closed.
+     * @see #write(Matrix, ElementType, WritableByteChannel)
+     */
+    public static void write(Matrix matrix, ElementType type, OutputStream stream) throws IOException {
+        write(matrix, type, Channels.newChannel(stream));
+    }
+
+    /**
+     * Reads a matrix from the stream. Exactly the bytes of the matrix are consumed.
+     * @see #readMatrix(ReadableByteChannel)
+     */
+    public static Matrix readMatrix(InputStream stream) throws IOException {
+        return readMatrix(Channels.newChannel(stream));
+    }
+
+    private static void putHeader(ByteBuffer buffer, byte kind, ElementType type, int rows, int columns) {
+        final ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.put(kind);
+        buffer.put((byte)type.ordinal());
+        buffer.put((byte)(order == ByteOrder.BIG_ENDIAN ? 0 : 1));
+        buffer.putInt(rows);
+        buffer.putInt(columns);
+        buffer.order(order);
+    }
+
+    /** Puts elements in the buffer's byte order; contiguous doubles are copied in bulk. */
+    private static void put(ByteBuffer buffer, ElementType type, double[] values, int offset, int stride, int count) {
+        if (type == ElementType.DOUBLE && stride == 1) {
+            buffer.asDoubleBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + count * 8);
+        } else if (type == ElementType.DOUBLE) {
+            for (int i = 0, v = offset; i < count; i++, v += stride) {
+                buffer.putDouble(values[v]);
+            }
+        } else {
+            for (int i = 0, v = offset; i < count; i++, v += stride) {
+                buffer.putFloat((float)values[v]);
+            }
+        }
+    }
+
+    private static void writeElements(WritableByteChannel channel, ElementType type, double[] values, int offset, int stride, int count, ByteBuffer buffer) throws IOException {
+        if (buffer == null) {
+            buffer = ByteBuffer.allocate((int)Math.min(CHUNK_BYTES, Math.max(1L, (long)count * type.getBytes()))).order(ByteOrder.nativeOrder());
+        }
+        final int perChunk = buffer.capacity() / type.getBytes();
+        for (int done = 0; done < count; done += perChunk) {
+            final int length = Math.min(perChunk, count - done);
+            buffer.clear();
+            put(buffer, type, values, offset + done * stride, stride, length);
+            buffer.flip();
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("channel ended " + buffer.remaining() + " bytes before the expected end");
+            }
+        }
+    }
+
+    private static void checkRemaining(ByteBuffer buffer, long bytes) {
+        if (buffer.remaining() < bytes) {
+            throw new BufferOverflowException();
+        }
+    }
+
+    /** The decoded header of a vector or matrix. */
+    private static final class Header {
+
+        private final byte kind;
+        private final ElementType type;
+        private final ByteOrder order;
+        private final int rows;
+        private final int columns;
+
+        private Header(byte kind, ElementType type, ByteOrder order, int rows, int columns) {
+            this.kind = kind;
+            this.type = type;
+            this.order = order;
+            this.rows = rows;
+            this.columns = columns;
+        }
+
+        static Header read(ByteBuffer buffer) {
+            final ByteOrder order = buffer.order();
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            try {
+                final int magic = buffer.getInt();
+                if (magic != MAGIC) {
+                    throw new IllegalArgumentException("data does not start with the magic number of a vector or matrix");
+                }
+                final byte version = buffer.get();
+                if (version < 1 || version > VERSION) {
+                    throw new IllegalArgumentException("version " + version + " is not supported");
+                }
+                final byte kind = buffer.get();
+                if (kind != KIND_VECTOR && kind != KIND_MATRIX) {
+                    throw new IllegalArgumentException("unknown kind " + kind);
+                }
+                final byte type = buffer.get();
+                if (type < 0 || type >= ElementType.values().length) {
+                    throw new IllegalArgumentException("unknown element type " + type);
+                }
+                final byte byteOrder = buffer.get();
+                if (byteOrder != 0 && byteOrder != 1) {
+                    throw new IllegalArgumentException("unknown byte order " + byteOrder);
+                }
+                final int rows = buffer.getInt();
+                final int columns = buffer.getInt();
+                if (rows < 0 || columns < 0 || (long)rows * columns > Integer.MAX_VALUE
+                    || (kind == KIND_VECTOR && rows != 1) || (kind == KIND_MATRIX && (rows == 0 || columns == 0))) {
+                    throw new IllegalArgumentException("illegal dimensions " + rows + "x" + columns);
+                }
+                return new Header(kind, ElementType.values()[type], byteOrder == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN, rows, columns);
+            } finally {
+                buffer.order(order);
+            }
+        }
+
+        static Header read(ReadableByteChannel channel) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(channel, buffer);
+            buffer.flip();
+            return read(buffer);
+        }
+
+        void expect(byte expectedKind) {
+            if (kind != expectedKind) {
+                throw new IllegalArgumentException("data holds a " + (kind == KIND_VECTOR ? "vector" : "matrix") + ", not a " + (expectedKind == KIND_VECTOR ? "vector" : "matrix"));
+            }
+        }
+
+        /**
+         * Checks that the buffer holds all elements, before an array is allocated for them.
+         * @throws BufferUnderflowException if the buffer has not enough remaining bytes.
+         */
+        void checkRemaining(ByteBuffer buffer) {
+            if (buffer.remaining() < (long)rows * columns * type.getBytes()) {
+                throw new BufferUnderflowException();
+            }
+        }
+
+        /** Gets elements in the byte order of this header; doubles are copied in bulk. */
+        void get(ByteBuffer buffer, double[] values, int offset, int count) {
+            final ByteOrder previous = buffer.order();
+            buffer.order(order);
+            try {
+                if (type == ElementType.DOUBLE) {
+                    buffer.asDoubleBuffer().get(values, offset, count);
+                    buffer.position(buffer.position() + count * 8);
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        values[offset + i] = buffer.getFloat();
+                    }
+                }
+            } finally {
+                buffer.order(previous);
+            }
+        }
+
+        /**
+         * Reads the given number of elements into a new array. The array grows while the data
+         * arrives, so a corrupt header can not allocate much more memory than the channel provides.
+         */
+        double[] readElements(ReadableByteChannel channel, int count, ByteBuffer buffer) throws IOException {
+            double[] values = new double[Math.min(count, CHUNK_BYTES / 8)];
+            int done = 0;
+            while (done < count) {
+                if (done == values.length) {
+                    values = Arrays.copyOf(values, (int)Math.min(count, 2L * values.length));
+                }
+                final int length = values.length - done;
+                readElements(channel, values, done, length, buffer);
+                done += length;
+            }
+            return values;
+        }
+
+        void readElements(ReadableByteChannel channel, double[] values, int offset, int count, ByteBuffer buffer) throws IOException {
+            if (buffer == null) {
+                buffer = ByteBuffer.allocate((int)Math.min(CHUNK_BYTES, Math.max(1L, (long)count * type.getBytes())));
+            }
+            final int perChunk = buffer.capacity() / type.getBytes();
+            for (int done = 0; done < count; done += perChunk) {
+                final int length = Math.min(perChunk, count - done);
+                buffer.clear();
+                buffer.limit(length * type.getBytes());
+                readFully(channel, buffer);
+                buffer.flip();
+                get(buffer, values, offset + done, length);
+            }
+        }
+    }
+
+    /**
+     * This writes a matrix row by row, so a large matrix never needs to be held in memory.
+     * The header is written when the writer is created, closing the writer closes the channel.
+     */
+    public static final class MatrixWriter implements Closeable {
+
+        private final WritableByteChannel channel;
+        private final ElementType type;
+        private final int rows;
+        private final int columns;
+        private final ByteBuffer buffer;
+        private int written;
+
+        /**
+         * Writes the header of a matrix with the given dimensions to the channel.
+         * @throws IllegalDimensionException if the dimensions are not positive.
+         */
+        public MatrixWriter(WritableByteChannel channel, int rows, int columns, ElementType type) throws IOException {
+            if (rows <= 0 || columns <= 0) {
+                throw new IllegalDimensionException("matrix should have at least one row and one column");
+            }
+            this.channel = channel;
+            this.type = type;
+            this.rows = rows;
+            this.columns = columns;
+            this.buffer = ByteBuffer.allocate((int)Math.min(CHUNK_BYTES, Math.max(HEADER_BYTES, (long)columns * type.getBytes()))).order(ByteOrder.nativeOrder());
+            putHeader(buffer, KIND_MATRIX, type, rows, columns);
+            buffer.flip();
+            writeFully(channel, buffer);
+        }
+
+        /**
+         * Writes the next row.
+         * @throws IllegalDimensionException if the row has another dimension than the columns.
+         * @throws IllegalStateException if all rows have been written already.
+         */
+        public void writeRow(Vector row) throws IOException {
+            if (row.getDimension() != columns) {
+                throw new IllegalDimensionException("row must have " + columns + " dimensions");
+            }
+            if (written == rows) {
+                throw new IllegalStateException("all " + rows + " rows have been written already");
+            }
+            writeElements(channel, type, row.getArray(), row.getOffset(), row.getStride(), columns, buffer);
+            written++;
+        }
+
+        /**
+         * Closes the channel.
+         * @throws IllegalStateException if not all rows have been written; the channel is closed anyway.
+         */
+        @Override
+        public void close() throws IOException {
+            channel.close();
+            if (written != rows) {
+                throw new IllegalStateException("only " + written + " of " + rows + " rows have been written");
+            }
+        }
+    }
+
+    /**
+     * This reads a matrix row by row, so a large matrix never needs to be held in memory.
+     * The header is read when the reader is created, closing the reader closes the channel.
+     */
+    public static final class MatrixReader implements Closeable {
+
+        private final ReadableByteChannel channel;
+        private final Header header;
+        private final ByteBuffer buffer;
+        /** Row buffer for reading into strided views, allocated on first use. */
+        private double[] scratch;
+        private int read;
+
+        /**
+         * Reads the header of a matrix from the channel.
+         * @throws IllegalArgumentException if the channel does not provide a matrix.
+         */
+        public MatrixReader(ReadableByteChannel channel) throws IOException {
+            this.channel = channel;
+            this.header = Header.read(channel);
+            header.expect(KIND_MATRIX);
+            this.buffer = ByteBuffer.allocate((int)Math.min(CHUNK_BYTES, Math.max(1L, (long)header.columns * header.type.getBytes())));
+        }
+
+        public int getRows() {
+            return header.rows;
+        }
+
+        public int getColumns() {
+            return header.columns;
+        }
+
+        public ElementType getElementType() {
+            return header.type;
+        }
+
+        /**
+         * @return true if not all rows have been read yet.
+         */
+        public boolean hasNextRow() {
+            return read < header.rows;
+        }
+
+        /**
+         * @return the next row as new vector.
+         */
+        public Vector readRow() throws IOException {
+            return readRow(new Vector(header.columns));
+        }
+
+        /**
+         * Reads the next row into the given vector without allocating.
+         * @return the given vector
+         * @throws IllegalDimensionException if the vector has another dimension than the columns.
+         * @throws IllegalStateException if all rows have been read already.
+         */
+        public Vector readRow(Vector row) throws IOException {
+            if (row.getDimension() != header.columns) {
+                throw new IllegalDimensionException("row must have " + header.columns + " dimensions");
+            }
+            if (!hasNextRow()) {
+                throw new IllegalStateException("all " + header.rows + " rows have been read already");
+            }
+            if (row.getStride() == 1) {
+                header.readElements(channel, row.getArray(), row.getOffset(), header.columns, buffer);
+            } else {
+                if (scratch == null) {
+                    scratch = new double[header.columns];
+                }
+                header.readElements(channel, scratch, 0, header.columns, buffer);
+                for (int col = 0; col < header.columns; col++) {
+                    row.set(col, scratch[col]);
+                }
+            }
+            read++;
+            return row;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.alltiny.math.vector;
+
+/**
+ * Solves linear systems with a symmetric positive definite operator by the (preconditioned)
+ * method of conjugate gradients. Every iteration applies the operator and the preconditioner
+ * once; the preconditioner has to be symmetric positive definite as well.
+ *
+ * The iterations stop without convergence if the operator turns out not to be positive definite.
+ * @since 1.2
+ */
+public final class ConjugateGradient extends IterativeSolver {
+
+    private final Vector residual;
+    private final Vector preconditioned;
+    private final Vector direction;
+    private final Vector image;
+
+    /**
+     * @throws IllegalDimensionException if the operator is not square.
+     */
+    public ConjugateGradient(LinearOperator operator) {
+        super(operator);
+        residual = workVector();
+        preconditioned = workVector();
+        direction = workVector();
+        image = workVector();
+    }
+
+    @Override
+    SolverResult iterate(Vector b, Vector x, double target, double norm) {
+        operator.apply(x, image);
+        b.sub(image, residual);
+        preconditioner.precondition(residual, preconditioned);
+        preconditioned.scale(1, direction);
+        double rz = residual.scalar(preconditioned);
+        double length = residual.getLength();
+        int iteration = 0;
+        while (length > target && iteration < maxIterations) {
+            operator.apply(direction, image);
+            final double curvature = direction.scalar(image);
+            if (!(curvature > 0)) {
+                // the operator is not positive definite in this direction.
+                break;
+            }
+            final double alpha = rz / curvature;
+            x.axpy(alpha, direction);
+            residual.axpy(-alpha, image);
+            length = residual.getLength();
+            iteration++;
+            preconditioner.precondition(residual, preconditioned);
+            final double next = residual.scalar(preconditioned);
+            direction.scaleInPlace(next / rz).addInPlace(preconditioned);
+            rz = next;
+        }
+        return new SolverResult(x, length <= target, iteration, length / norm);
+    }
+}
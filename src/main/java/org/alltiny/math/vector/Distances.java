@@ -0,0 +1,211 @@
+package org.alltiny.math.vector;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class calculates the distances or similarities between all rows of one matrix and all
+ * rows of another. Instead of subtracting every pair of vectors, it uses the identity
+ * {@code |a - b|^2 = |a|^2 - 2 a.b + |b|^2}: the squared norms of all rows are calculated once
+ * and the scalar products of all pairs come from one matrix multiplication with a transposed
+ * view of the second matrix, which {@link Matrix#mul(Matrix)} runs as blocked scalar products.
+ *
+ * The identity cancels for points which are very close to each other compared to their norms,
+ * so their distances have an absolute error in the order of {@code 1e-16 * |a|^2}; negative
+ * results of this cancellation are clamped to 0.
+ * @since 1.2
+ */
+public final class Distances {
+
+    /** Number of rows of the second matrix handled per tile by {@link #nearest}. */
+    static final int POINT_BLOCK = 256;
+    /** Number of rows of the first matrix handled per tile by {@link #nearest}. */
+    static final int QUERY_BLOCK = 64;
+
+    private Distances() {
+    }
+
+    public static Matrix squaredEuclidean(Matrix a, Matrix b) {
+        return squaredEuclidean(a, b, Parallelism.getDefault());
+    }
+
+    /**
+     * @return a matrix with the squared Euclidean distance between row i of a and row j of b at (i, j).
+     * @throws IllegalDimensionException if the matrices have an unequal number of columns.
+     */
+    public static Matrix squaredEuclidean(final Matrix a, Matrix b, Parallelism parallelism) {
+        checkColumns(a, b);
+        final double[] aNorms = rowNormsSquare(a);
+        final double[] bNorms = rowNormsSquare(b);
+        final Matrix bt = b.transposeView();
+        final Matrix result = new Matrix(a.getRows(), b.getRows());
+        final double[] values = result.getArray();
+        final int columns = b.getRows();
+        parallelism.forEachRowBlock(a.getRows(), (long)a.getColumns() * columns, new Parallelism.RowBlockTask() {
+            @Override
+            public void compute(int from, int to) {
+                for (int row = from; row < to; row++) {
+                    for (int col = 0; col < columns; col++) {
+                        values[row * columns + col] = aNorms[row] + bNorms[col];
+                    }
+                }
+                Gemm.multiply(a, bt, result, -2, from, to);
+                for (int i = from * columns; i < to * columns; i++) {
+                    values[i] = Math.max(0, values[i]);
+                }
+            }
+        });
+        return result;
+    }
+
+    public static Matrix euclidean(Matrix a, Matrix b) {
+        return euclidean(a, b, Parallelism.getDefault());
+    }
+
+    /**
+     * @return a matrix with the Euclidean distance between row i of a and row j of b at (i, j).
+     * @throws IllegalDimensionException if the matrices have an unequal number of columns.
+     */
+    public static Matrix euclidean(Matrix a, Matrix b, Parallelism parallelism) {
+        Matrix result = squaredEuclidean(a, b, parallelism);
+        final double[] values = result.getArray();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.sqrt(values[i]);
+        }
+        return result;
+    }
+
+    public static Matrix cosineSimilarity(Matrix a, Matrix b) {
+        return cosineSimilarity(a, b, Parallelism.getDefault());
+    }
+
+    /**
+     * @return a matrix with the cosine of the angle between row i of a and row j of b at (i, j);
+     *         the similarity of a row with only zeros to any other row is 0.
+     * @throws IllegalDimensionException if the matrices have an unequal number of columns.
+     */
+    public static Matrix cosineSimilarity(final Matrix a, Matrix b, Parallelism parallelism) {
+        checkColumns(a, b);
+        final double[] aInverseNorms = inverseNorms(rowNormsSquare(a));
+        final double[] bInverseNorms = inverseNorms(rowNormsSquare(b));
+        final Matrix bt = b.transposeView();
+        final Matrix result = new Matrix(a.getRows(), b.getRows());
+        final double[] values = result.getArray();
+        final int columns = b.getRows();
+        parallelism.forEachRowBlock(a.getRows(), (long)a.getColumns() * columns, new Parallelism.RowBlockTask() {
+            @Override
+            public void compute(int from, int to) {
+                Gemm.multiply(a, bt, result, 1, from, to);
+                for (int row = from; row < to; row++) {
+                    for (int col = 0; col < columns; col++) {
+                        values[row * columns + col] *= aInverseNorms[row] * bInverseNorms[col];
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    public static List<List<Neighbour>> nearest(Matrix queries, Matrix points, int k) {
+        return nearest(queries, points, k, Parallelism.getDefault());
+    }
+
+    /**
+     * Finds the k rows of points with the smallest Euclidean distance to every row of queries.
+     * The distances are calculated tile by tile and fed into a bounded heap per query, so the
+     * full distance matrix is never stored; the memory needed besides the result is
+     * {@link #QUERY_BLOCK} * {@link #POINT_BLOCK} doubles per thread.
+     * Blocks of queries are handled in parallel if the given parallelism allows it.
+     * @return the neighbours of every query ordered by ascending distance, with the row index in points as index.
+     * @throws IllegalDimensionException if the matrices have an unequal number of columns.
+     * @throws IllegalArgumentException if k is not positive.
+     */
+    public static List<List<Neighbour>> nearest(final Matrix queries, final Matrix points, final int k, Parallelism parallelism) {
+        checkColumns(queries, points);
+        if (k <= 0) {
+            throw new IllegalArgumentException("number of neighbours must be positive");
+        }
+        final double[] queryNorms = rowNormsSquare(queries);
+        final double[] pointNorms = rowNormsSquare(points);
+        final int pointCount = points.getRows();
+        final int dimension = queries.getColumns();
+        @SuppressWarnings("unchecked")
+        final List<Neighbour>[] results = (List<Neighbour>[])new List<?>[queries.getRows()];
+        parallelism.forEachRowBlock(queries.getRows(), (long)dimension * pointCount, new Parallelism.RowBlockTask() {
+            @Override
+            public void compute(int from, int to) {
+                try (ScratchArena arena = ScratchArena.open()) {
+                    compute(from, to, arena.matrix(QUERY_BLOCK, POINT_BLOCK));
+                }
+            }
+
+            private void compute(int from, int to, Matrix scratch) {
+                final double[] tile = scratch.getArray();
+                final int base = scratch.getOffset();
+                final SpatialIndex.Candidates[] candidates = new SpatialIndex.Candidates[QUERY_BLOCK];
+                for (int qq = from; qq < to; qq += QUERY_BLOCK) {
+                    final int height = Math.min(QUERY_BLOCK, to - qq);
+                    final Matrix queryBlock = new Matrix(queries.getArray(), queries.getOffset() + qq * queries.getRowStride(),
+                        height, dimension, queries.getRowStride(), queries.getColumnStride());
+                    for (int q = 0; q < height; q++) {
+                        candidates[q] = new SpatialIndex.Candidates(k, Double.POSITIVE_INFINITY);
+                    }
+                    for (int pp = 0; pp < pointCount; pp += POINT_BLOCK) {
+                        final int width = Math.min(POINT_BLOCK, pointCount - pp);
+                        for (int q = 0; q < height; q++) {
+                            for (int p = 0; p < width; p++) {
+                                tile[base + q * width + p] = queryNorms[qq + q] + pointNorms[pp + p];
+                            }
+                        }
+                        // transposed view of the rows [pp, pp + width) of the points, like the view used by squaredEuclidean.
+                        final Matrix pointBlock = new Matrix(points.getArray(), points.getOffset() + pp * points.getRowStride(),
+                            dimension, width, points.getColumnStride(), points.getRowStride());
+                        Gemm.multiply(queryBlock, pointBlock, new Matrix(tile, base, height, width, width, 1), -2, 0, height);
+                        for (int q = 0; q < height; q++) {
+                            for (int p = 0; p < width; p++) {
+                                candidates[q].offer(Math.max(0, tile[base + q * width + p]), pp + p);
+                            }
+                        }
+                    }
+                    for (int q = 0; q < height; q++) {
+                        results[qq + q] = candidates[q].toList();
+                    }
+                }
+            }
+        });
+        return Arrays.asList(results);
+    }
+
+    private static double[] rowNormsSquare(Matrix matrix) {
+        final double[] values = matrix.getArray();
+        final int columns = matrix.getColumns();
+        final int columnStride = matrix.getColumnStride();
+        double[] norms = new double[matrix.getRows()];
+        for (int row = 0; row < norms.length; row++) {
+            final int start = matrix.getOffset() + row * matrix.getRowStride();
+            if (columnStride == 1) {
+                norms[row] = Kernels.sumOfSquares(values, start, columns);
+            } else {
+                double sum = 0;
+                for (int col = 0, i = start; col < columns; col++, i += columnStride) {
+                    sum += values[i] * values[i];
+                }
+                norms[row] = sum;
+            }
+        }
+        return norms;
+    }
+
+    private static double[] inverseNorms(double[] normsSquare) {
+        for (int i = 0; i < normsSquare.length; i++) {
+            normsSquare[i] = normsSquare[i] == 0 ? 0 : 1 / Math.sqrt(normsSquare[i]);
+        }
+        return normsSquare;
+    }
+
+    private static void checkColumns(Matrix a, Matrix b) {
+        if (a.getColumns() != b.getColumns()) {
+            throw new IllegalDimensionException("rows with " + a.getColumns() + " and " + b.getColumns() + " dimensions can not be compared");
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package org.alltiny.math.vector;
+
+import java.util.Arrays;
+
+/**
+ * This is a matrix in single precision. Like {@link Matrix} its values are stored in one
+ * contiguous row-major array, but it needs half of the memory. Products are accumulated
+ * in double precision and only rounded to float when they are stored.
+ * @since 1.2
+ */
+public class FloatMatrix {
+
+    /** Number of result rows accumulated together in double precision. */
+    private static final int ROW_BLOCK = 32;
+
+    private final float[] values;
+    private final int offset;
+    private final int rows;
+    private final int columns;
+    private final int rowStride;
+    private final int columnStride;
+
+    /**
+     * Creates a matrix from the given row vectors. The values of the rows are copied into the matrix.
+     */
+    public FloatMatrix(FloatVector... rows) {
+        if (rows == null) {
+            throw new IllegalArgumentException("vector rows can not be null");
+        }
+        if (rows.length == 0) {
+            throw new IllegalDimensionException("matrix should have at least one row");
+        }
+        for (FloatVector row : rows) {
+            if (row == null) {
+                throw new IllegalArgumentException("vectors can not be null");
+            }
+            if (row.getDimension() != rows[0].getDimension()) {
+                throw new IllegalDimensionException("all row vectors must have identical dimensions");
+            }
+        }
+        if (rows[0].getDimension() == 0) {
+            throw new IllegalDimensionException("matrix should have at least one column");
+        }
+        this.columns = rows[0].getDimension();
+        this.rows = rows.length;
+        this.values = new float[checkDimensions(this.rows, columns)];
+        this.offset = 0;
+        this.rowStride = columns;
+        this.columnStride = 1;
+        for (int row = 0; row < this.rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                values[row * columns + col] = rows[row].get(col);
+            }
+        }
+    }
+
+    /** Creates a 0-matrix with the given dimensions. */
+    public FloatMatrix(final int rows, final int columns) {
+        this(new float[checkDimensions(rows, columns)], 0, rows, columns, columns, 1);
+    }
+
+    /**
+     * Creates a matrix on top of the given values, which are interpreted in row-major order.
+     * The array is not copied; changes to it are visible in this matrix.
+     * @throws IllegalDimensionException if the number of values does not match rows * columns.
+     */
+    public FloatMatrix(final int rows, final int columns, float... values) {
+        this(values, 0, rows, columns, columns, 1);
+        if (values.length != checkDimensions(rows, columns)) {
+            throw new IllegalDimensionException("matrix with " + rows + " rows and " + columns + " columns requires " + rows * columns + " values, but got " + values.length);
+        }
+    }
+
+    /** Creates a single precision copy of the given matrix; values are rounded to the nearest float. */
+    public FloatMatrix(Matrix matrix) {
+        this(matrix.getRows(), matrix.getColumns());
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                values[row * columns + col] = (float)matrix.get(row, col);
+            }
+        }
+    }
+
+    /**
+     * Creates a matrix which is a view onto the given array.
+     */
+    FloatMatrix(float[] values, int offset, int rows, int columns, int rowStride, int columnStride) {
+        this.values = values;
+        this.offset = offset;
+        this.rows = rows;
+        this.columns = columns;
+        this.rowStride = rowStride;
+        this.columnStride = columnStride;
+    }
+
+    private static int checkDimensions(int rows, int columns) {
+        if (rows <= 0) {
+            throw new IllegalDimensionException("matrix should have at least one row");
+        }
+        if (columns <= 0) {
+            throw new IllegalDimensionException("matrix should have at least one column");
+        }
+        final long size = (long)rows * columns;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalDimensionException("matrix with " + rows + " rows and " + columns + " columns exceeds the maximum array size");
+        }
+        return (int)size;
+    }
+
+    public FloatMatrix add(FloatMatrix matrix) {
+        if (rows != matrix.rows || columns != matrix.columns) {
+            throw new IllegalDimensionException("matrices must have same dimensions");
+        }
+        float[] result = new float[rows * columns];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                result[row * columns + col] = values[index(row, col)] + matrix.values[matrix.index(row, col)];
+            }
+        }
+        return new FloatMatrix(rows, columns, result);
+    }
+
+    /**
+     * Multiplies the given vector with this matrix; each element is accumulated in double precision.
+     * @throws IllegalDimensionException if the vector's dimension does not match the columns.
+     */
+    public FloatVector mul(FloatVector vector) {
+        if (columns != vector.getDimension()) {
+            throw new IllegalDimensionException("vector with " + vector.getDimension() + " dimensions can not be multiplied with matrix with " + columns + " columns");
+        }
+        final float[] vectorValues = vector.getArray();
+        final int vectorStride = vector.getStride();
+        float[] result = new float[rows];
+        for (int row = 0; row < rows; row++) {
+            double sum = 0;
+            for (int col = 0, v = vector.getOffset(); col < columns; col++, v += vectorStride) {
+                sum += (double)values[index(row, col)] * vectorValues[v];
+            }
+            result[row] = (float)sum;
+        }
+        return new FloatVector(result);
+    }
+
+    public FloatMatrix mul(FloatMatrix matrix) {
+        return mul(matrix, Parallelism.getDefault());
+    }
+
+    /**
+     * Multiplies this matrix with the given matrix. Each result row is accumulated in double
+     * precision with the same blocking as {@link Matrix#mul(Matrix)}. Blocks of result rows
+     * are calculated in parallel if the given parallelism allows it.
+     * @throws IllegalDimensionException if the columns of this matrix do not match the rows of the given one.
+     */
+    public FloatMatrix mul(final FloatMatrix matrix, Parallelism parallelism) {
+        if (columns != matrix.rows) {
+            throw new IllegalDimensionException("matrix with " + columns + " columns can not be multiplied to matrix with " + matrix.rows + " rows");
+        }
+        final float[] result = new float[rows * matrix.columns];
+        parallelism.forEachRowBlock(rows, (long)columns * matrix.columns, new Parallelism.RowBlockTask() {
+            @Override
+            public void compute(int from, int to) {
+                mul(matrix, result, from, to);
+            }
+        });
+        return new FloatMatrix(rows, matrix.columns, result);
+    }
+
+    private void mul(FloatMatrix matrix, float[] result, int rowFrom, int rowTo) {
+        final int resultColumns = matrix.columns;
+        // a block of result rows is accumulated in double precision before it is rounded to float.
+        try (ScratchArena arena = ScratchArena.open()) {
+            final Vector scratch = arena.vector(ROW_BLOCK * Math.min(Gemm.COLUMN_BLOCK, resultColumns));
+            mul(matrix, result, rowFrom, rowTo, scratch.getArray(), scratch.getOffset());
+        }
+    }
+
+    private void mul(FloatMatrix matrix, float[] result, int rowFrom, int rowTo, double[] accumulator, int base) {
+        final int resultColumns = matrix.columns;
+        for (int ii = rowFrom; ii < rowTo; ii += ROW_BLOCK) {
+            final int iEnd = Math.min(ii + ROW_BLOCK, rowTo);
+            for (int jj = 0; jj < resultColumns; jj += Gemm.COLUMN_BLOCK) {
+                final int width = Math.min(Gemm.COLUMN_BLOCK, resultColumns - jj);
+                Arrays.fill(accumulator, base, base + (iEnd - ii) * width, 0);
+                for (int kk = 0; kk < columns; kk += Gemm.INNER_BLOCK) {
+                    final int kEnd = Math.min(kk + Gemm.INNER_BLOCK, columns);
+                    for (int row = ii; row < iEnd; row++) {
+                        final int accumulatorOffset = base + (row - ii) * width;
+                        for (int k = kk; k < kEnd; k++) {
+                            final double x = values[index(row, k)];
+                            for (int j = 0, b = matrix.index(k, jj); j < width; j++, b += matrix.columnStride) {
+                                accumulator[accumulatorOffset + j] += x * matrix.values[b];
+                            }
+                        }
+                    }
+                }
+                for (int row = ii; row < iEnd; row++) {
+                    for (int j = 0; j < width; j++) {
+                        result[row * resultColumns + jj + j] = (float)accumulator[base + (row - ii) * width + j];
+                    }
+                }
+            }
+        }
+    }
+
+    public FloatMatrix transpose() {
+        float[] result = new float[rows * columns];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                result[col * rows + row] = values[index(row, col)];
+            }
+        }
+        return new FloatMatrix(columns, rows, result);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public float get(final int row, final int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException("(" + row + "," + column + ") is out of range for matrix with " + rows + " rows and " + columns + " columns");
+        }
+        return values[index(row, column)];
+    }
+
+    /**
+     * @return the row with the given index as a view onto this matrix; no values are copied.
+     */
+    public FloatVector getRow(int index) {
+        if (index < 0 || index >= rows) {
+            throw new IndexOutOfBoundsException("row " + index + " is out of range for matrix with " + rows + " rows");
+        }
+        return new FloatVector(values, offset + index * rowStride, columnStride, columns);
+    }
+
+    /**
+     * @return the column with the given index as a view onto this matrix; no values are copied.
+     */
+    public FloatVector getColumn(int index) {
+        if (index < 0 || index >= columns) {
+            throw new IndexOutOfBoundsException("column " + index + " is out of range for matrix with " + columns + " columns");
+        }
+        return new FloatVector(values, offset + index * columnStride, rowStride, rows);
+    }
+
+    /**
+     * @return a double precision copy of this matrix.
+     */
+    public Matrix toMatrix() {
+        double[] result = new double[rows * columns];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                result[row * columns + col] = values[index(row, col)];
+            }
+        }
+        return new Matrix(rows, columns, result);
+    }
+
+    private int index(int row, int column) {
+        return offset + row * rowStride + column * columnStride;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FloatMatrix)) {
+            return false;
+        }
+        FloatMatrix matrix = (FloatMatrix)o;
+        if (rows != matrix.rows || columns != matrix.columns) {
+            return false;
+        }
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                // compare with != to treat "-0" and "0" as equal.
+                if (values[index(row, col)] != matrix.values[matrix.index(row, col)]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int row = 0; row < rows; row++) {
+            hash = 31 * hash + getRow(row).hashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("FloatMatrix[");
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                builder.append(", ");
+            }
+            builder.append(getRow(row));
+        }
+        return builder.append(']').toString();
+    }
+}
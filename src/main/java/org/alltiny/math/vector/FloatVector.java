@@ -0,0 +1,281 @@
+package org.alltiny.math.vector;
+
+/**
+ * This vector class represents vectors of any dimension in single precision.
+ * It provides the same common operations as {@link Vector} but needs half of its memory.
+ * Sums like the scalar product and the length are accumulated in double precision.
+ * @since 1.2
+ */
+public class FloatVector {
+
+    private final float[] values;
+    private final int offset;
+    private final int stride;
+    private final int dimension;
+
+    public FloatVector(float... values) {
+        this(values, 0, 1, values.length);
+    }
+
+    /** Copy-Constructor */
+    public FloatVector(FloatVector vector) {
+        this(vector.getDimension());
+        for (int i = 0; i < dimension; i++) {
+            values[i] = vector.get(i);
+        }
+    }
+
+    /** Creates a single precision copy of the given vector; values are rounded to the nearest float. */
+    public FloatVector(Vector vector) {
+        this(vector.getDimension());
+        for (int i = 0; i < dimension; i++) {
+            values[i] = (float)vector.get(i);
+        }
+    }
+
+    /** Creates a 0-vector with the given dimension. */
+    public FloatVector(final int dimension) {
+        this(new float[dimension], 0, 1, dimension);
+    }
+
+    /**
+     * Creates a vector which is a view onto the given array. Element i of this vector
+     * is stored at {@code values[offset + i * stride]}. Changes are visible in both directions.
+     */
+    FloatVector(float[] values, int offset, int stride, int dimension) {
+        this.values = values;
+        this.offset = offset;
+        this.stride = stride;
+        this.dimension = dimension;
+    }
+
+    public float get(int index) {
+        if (index < 0 || index >= dimension) {
+            throw new IndexOutOfBoundsException("index " + index + " is out of range for vector with dimension " + dimension);
+        }
+        return values[offset + index * stride];
+    }
+
+    /**
+     * This method modifies the value of the given index.
+     */
+    public FloatVector set(int index, float value) {
+        if (index < 0 || index >= dimension) {
+            throw new IndexOutOfBoundsException("index " + index + " is out of range for vector with dimension " + dimension);
+        }
+        values[offset + index * stride] = value;
+        return this;
+    }
+
+    /**
+     * @return the dimension of this vector.
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * @return the square of the length of this vector, accumulated in double precision.
+     */
+    public double getLengthSquare() {
+        double result = 0;
+        for (int i = 0, a = offset; i < dimension; i++, a += stride) {
+            final double element = values[a];
+            result += element * element;
+        }
+        return result;
+    }
+
+    /**
+     * @return length of this vector.
+     */
+    public double getLength() {
+        return Math.sqrt(getLengthSquare());
+    }
+
+    /**
+     * @return a vector pointing into the same direction like this vector but with length of 1
+     */
+    public FloatVector normalize() {
+        final double length = getLength();
+        FloatVector normalized = new FloatVector(dimension);
+        for (int i = 0, a = offset; i < dimension; i++, a += stride) {
+            normalized.values[i] = (float)(values[a] / length);
+        }
+        return normalized;
+    }
+
+    /**
+     * This method adds the given vector to this vector and returns the resulting vector.
+     * This method does not change this vector.
+     * @throws IllegalDimensionException if this and the given vector have unequal dimensions.
+     */
+    public FloatVector add(FloatVector other) {
+        checkDimension(other);
+        FloatVector added = new FloatVector(dimension);
+        for (int i = 0, a = offset, b = other.offset; i < dimension; i++, a += stride, b += other.stride) {
+            added.values[i] = values[a] + other.values[b];
+        }
+        return added;
+    }
+
+    /**
+     * This method subtracts the given vector from this vector and returns the resulting vector.
+     * This method does not change this vector.
+     * @throws IllegalDimensionException if this and the given vector have unequal dimensions.
+     */
+    public FloatVector sub(FloatVector other) {
+        checkDimension(other);
+        FloatVector sub = new FloatVector(dimension);
+        for (int i = 0, a = offset, b = other.offset; i < dimension; i++, a += stride, b += other.stride) {
+            sub.values[i] = values[a] - other.values[b];
+        }
+        return sub;
+    }
+
+    /**
+     * Multiplies this vector with the given scalar.
+     * @see #scale(float)
+     */
+    public FloatVector mul(float scalar) {
+        return scale(scalar);
+    }
+
+    /**
+     * Scales this vector with the given scalar.
+     * @see #mul(float)
+     */
+    public FloatVector scale(float scalar) {
+        FloatVector vector = new FloatVector(dimension);
+        for (int i = 0, a = offset; i < dimension; i++, a += stride) {
+            vector.values[i] = values[a] * scalar;
+        }
+        return vector;
+    }
+
+    /**
+     * Calculates the scalar product in double precision. Both vectors must have the same dimensions.
+     * @throws IllegalDimensionException if this and the given vector have unequal dimensions.
+     */
+    public double scalar(FloatVector vector) {
+        checkDimension(vector);
+        double scalar = 0;
+        for (int i = 0, a = offset, b = vector.offset; i < dimension; i++, a += stride, b += vector.stride) {
+            scalar += (double)values[a] * vector.values[b];
+        }
+        return scalar;
+    }
+
+    /**
+     * This method calculates the cross product between this vector and the given vector.
+     * Note that the cross product is only defined for three dimensional vectors.
+     * @throws IllegalDimensionException if this or the given vector has another dimension than 3.
+     */
+    public FloatVector cross(FloatVector vector) {
+        if (getDimension() != 3 || vector.getDimension() != 3) {
+            throw new IllegalDimensionException("both vectors must have 3 dimensions");
+        }
+        return new FloatVector(
+            (float)((double)get(1) * vector.get(2) - (double)get(2) * vector.get(1)),
+            (float)((double)get(2) * vector.get(0) - (double)get(0) * vector.get(2)),
+            (float)((double)get(0) * vector.get(1) - (double)get(1) * vector.get(0))
+        );
+    }
+
+    /**
+     * This method projects the other vector onto this vector.
+     * @return projection of the other vector onto this vector.
+     */
+    public FloatVector project(FloatVector other) {
+        return other.projectOn(this);
+    }
+
+    /**
+     * This method projects this vector onto the other.
+     * @return projection of this vector onto the other vector.
+     */
+    public FloatVector projectOn(FloatVector other) {
+        checkDimension(other);
+        // the factor is calculated in double precision, only the result is rounded to float.
+        final double factor = other.scalar(this) / other.getLengthSquare();
+        FloatVector projection = new FloatVector(dimension);
+        for (int i = 0, b = other.offset; i < dimension; i++, b += other.stride) {
+            projection.values[i] = (float)(other.values[b] * factor);
+        }
+        return projection;
+    }
+
+    /**
+     * @return a double precision copy of this vector.
+     */
+    public Vector toVector() {
+        Vector vector = new Vector(dimension);
+        for (int i = 0, a = offset; i < dimension; i++, a += stride) {
+            vector.set(i, values[a]);
+        }
+        return vector;
+    }
+
+    private void checkDimension(FloatVector other) {
+        if (dimension != other.dimension) {
+            throw new IllegalDimensionException("both vectors must have the same dimension");
+        }
+    }
+
+    /** @return the array backing this vector. */
+    float[] getArray() {
+        return values;
+    }
+
+    /** @return the index of element 0 in the backing array. */
+    int getOffset() {
+        return offset;
+    }
+
+    /** @return the distance between two consecutive elements in the backing array. */
+    int getStride() {
+        return stride;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof FloatVector) {
+            FloatVector v = (FloatVector)o;
+            // compare the values element by element to treat "-0" and "0" as equal.
+            if (dimension == v.dimension) {
+                for (int i = 0; i < dimension; i++) {
+                    if (values[offset + i * stride] != v.values[v.offset + i * v.stride]) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < dimension; i++) {
+            final float value = values[offset + i * stride];
+            hash = 31 * hash + Float.floatToIntBits(value == 0.0f ? 0 : value); // treat -0.0 and 0.0 as 0
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("FloatVector[");
+        for (int i = 0; i < dimension; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(values[offset + i * stride]);
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,176 @@
+package org.alltiny.math.vector;
+
+/**
+ * Cache-blocked matrix multiplication kernel (GEMM) working directly on the backing arrays
+ * of {@link Matrix}. The loops run in i-k-j order: a tile of the right operand is kept in
+ * cache while all rows of the result are swept over it, and four result rows are updated
+ * with two k-steps at once so every loaded value is used several times from registers.
+ * If {@link Kernels} are vectorized, rows are instead updated one by one with SIMD instructions.
+ *
+ * Every result element accumulates its products in ascending k order, no matter how the
+ * loops are tiled. A result element therefore does not depend on which row range a caller
+ * hands in, so splitting the rows between threads gives the same result as a single call.
+ *
+ * If the columns of b are contiguous in memory, e.g. because b is a transposed view, while
+ * the rows of a are contiguous too, every result element is calculated as one scalar product
+ * by {@link Kernels#dot} instead; such elements do not depend on the row range either.
+ */
+final class Gemm {
+
+    /** Number of inner (k) indices processed per tile. */
+    static final int INNER_BLOCK = 128;
+    /** Number of result columns (j) processed per tile. */
+    static final int COLUMN_BLOCK = 256;
+    /** Number of contiguous columns of b kept in cache while the rows of a pass by in the scalar product kernel. */
+    static final int DOT_COLUMN_BLOCK = 64;
+
+    private Gemm() {
+    }
+
+    /**
+     * Calculates {@code c += alpha * a * b} for the rows {@code [rowFrom, rowTo)} of c.
+     * The dimensions must have been checked by the caller.
+     */
+    static void multiply(Matrix a, Matrix b, Matrix c, double alpha, int rowFrom, int rowTo) {
+        if (a.getColumnStride() == 1 && b.getRowStride() == 1 && b.getColumnStride() != 1) {
+            multiplyDots(a, b, c, alpha, rowFrom, rowTo);
+            return;
+        }
+        final int inner = a.getColumns();
+        final int columns = b.getColumns();
+        final boolean contiguous = b.getColumnStride() == 1 && c.getColumnStride() == 1;
+        for (int kk = 0; kk < inner; kk += INNER_BLOCK) {
+            final int kEnd = Math.min(kk + INNER_BLOCK, inner);
+            for (int jj = 0; jj < columns; jj += COLUMN_BLOCK) {
+                final int jEnd = Math.min(jj + COLUMN_BLOCK, columns);
+                if (contiguous) {
+                    int row = rowFrom;
+                    // vectorized kernels already keep the registers busy with a single row.
+                    if (!Kernels.isVectorized()) {
+                        for (; row + 3 < rowTo; row += 4) {
+                            tile4(a, b, c, alpha, row, kk, kEnd, jj, jEnd);
+                        }
+                    }
+                    for (; row < rowTo; row++) {
+                        tile1(a, b, c, alpha, row, kk, kEnd, jj, jEnd);
+                    }
+                } else {
+                    for (int row = rowFrom; row < rowTo; row++) {
+                        tileStrided(a, b, c, alpha, row, kk, kEnd, jj, jEnd);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Calculates every result element as scalar product of a contiguous row of a and a contiguous column of b. */
+    private static void multiplyDots(Matrix a, Matrix b, Matrix c, double alpha, int rowFrom, int rowTo) {
+        final double[] av = a.getArray();
+        final double[] bv = b.getArray();
+        final double[] cv = c.getArray();
+        final int inner = a.getColumns();
+        final int columns = b.getColumns();
+        final int bColumnStride = b.getColumnStride();
+        final int cColumnStride = c.getColumnStride();
+        for (int jj = 0; jj < columns; jj += DOT_COLUMN_BLOCK) {
+            final int jEnd = Math.min(jj + DOT_COLUMN_BLOCK, columns);
+            for (int row = rowFrom; row < rowTo; row++) {
+                final int aStart = a.getOffset() + row * a.getRowStride();
+                int cIndex = c.getOffset() + row * c.getRowStride() + jj * cColumnStride;
+                for (int j = jj; j < jEnd; j++, cIndex += cColumnStride) {
+                    cv[cIndex] += alpha * Kernels.dot(av, aStart, bv, b.getOffset() + j * bColumnStride, inner);
+                }
+            }
+        }
+    }
+
+    /** Updates four consecutive result rows over one tile; b and c have contiguous rows. */
+    private static void tile4(Matrix a, Matrix b, Matrix c, double alpha, int row, int kFrom, int kEnd, int jFrom, int jEnd) {
+        final double[] av = a.getArray();
+        final double[] bv = b.getArray();
+        final double[] cv = c.getArray();
+        final int aRowStride = a.getRowStride();
+        final int aColumnStride = a.getColumnStride();
+        final int bRowStride = b.getRowStride();
+        final int cRowStride = c.getRowStride();
+        final int a0 = a.getOffset() + row * aRowStride;
+        final int a1 = a0 + aRowStride;
+        final int a2 = a1 + aRowStride;
+        final int a3 = a2 + aRowStride;
+        final int c0 = c.getOffset() + row * cRowStride;
+        final int c1 = c0 + cRowStride;
+        final int c2 = c1 + cRowStride;
+        final int c3 = c2 + cRowStride;
+        int k = kFrom;
+        for (; k + 1 < kEnd; k += 2) {
+            final int ak = k * aColumnStride;
+            final int ak1 = ak + aColumnStride;
+            final double x00 = alpha * av[a0 + ak];
+            final double x01 = alpha * av[a0 + ak1];
+            final double x10 = alpha * av[a1 + ak];
+            final double x11 = alpha * av[a1 + ak1];
+            final double x20 = alpha * av[a2 + ak];
+            final double x21 = alpha * av[a2 + ak1];
+            final double x30 = alpha * av[a3 + ak];
+            final double x31 = alpha * av[a3 + ak1];
+            final int b0 = b.getOffset() + k * bRowStride;
+            final int b1 = b0 + bRowStride;
+            for (int j = jFrom; j < jEnd; j++) {
+                final double y0 = bv[b0 + j];
+                final double y1 = bv[b1 + j];
+                cv[c0 + j] = cv[c0 + j] + x00 * y0 + x01 * y1;
+                cv[c1 + j] = cv[c1 + j] + x10 * y0 + x11 * y1;
+                cv[c2 + j] = cv[c2 + j] + x20 * y0 + x21 * y1;
+                cv[c3 + j] = cv[c3 + j] + x30 * y0 + x31 * y1;
+            }
+        }
+        if (k < kEnd) {
+            final int ak = k * aColumnStride;
+            final double x0 = alpha * av[a0 + ak];
+            final double x1 = alpha * av[a1 + ak];
+            final double x2 = alpha * av[a2 + ak];
+            final double x3 = alpha * av[a3 + ak];
+            final int b0 = b.getOffset() + k * bRowStride;
+            for (int j = jFrom; j < jEnd; j++) {
+                final double y0 = bv[b0 + j];
+                cv[c0 + j] += x0 * y0;
+                cv[c1 + j] += x1 * y0;
+                cv[c2 + j] += x2 * y0;
+                cv[c3 + j] += x3 * y0;
+            }
+        }
+    }
+
+    /** Updates a single result row over one tile; b and c have contiguous rows. */
+    private static void tile1(Matrix a, Matrix b, Matrix c, double alpha, int row, int kFrom, int kEnd, int jFrom, int jEnd) {
+        final double[] av = a.getArray();
+        final double[] bv = b.getArray();
+        final double[] cv = c.getArray();
+        final int a0 = a.getOffset() + row * a.getRowStride();
+        final int c0 = c.getOffset() + row * c.getRowStride();
+        for (int k = kFrom; k < kEnd; k++) {
+            final double x = alpha * av[a0 + k * a.getColumnStride()];
+            final int b0 = b.getOffset() + k * b.getRowStride();
+            Kernels.axpy(x, bv, b0 + jFrom, cv, c0 + jFrom, jEnd - jFrom);
+        }
+    }
+
+    /** Updates a single result row over one tile for arbitrary strides. */
+    private static void tileStrided(Matrix a, Matrix b, Matrix c, double alpha, int row, int kFrom, int kEnd, int jFrom, int jEnd) {
+        final double[] av = a.getArray();
+        final double[] bv = b.getArray();
+        final double[] cv = c.getArray();
+        final int bColumnStride = b.getColumnStride();
+        final int cColumnStride = c.getColumnStride();
+        final int a0 = a.getOffset() + row * a.getRowStride();
+        final int c0 = c.getOffset() + row * c.getRowStride() + jFrom * cColumnStride;
+        for (int k = kFrom; k < kEnd; k++) {
+            final double x = alpha * av[a0 + k * a.getColumnStride()];
+            int bIndex = b.getOffset() + k * b.getRowStride() + jFrom * bColumnStride;
+            int cIndex = c0;
+            for (int j = jFrom; j < jEnd; j++, bIndex += bColumnStride, cIndex += cColumnStride) {
+                cv[cIndex] += x * bv[bIndex];
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.alltiny.math.vector;
+
+import java.util.Arrays;
+
+/**
+ * Solves linear systems with a general square operator by the generalized minimal residual
+ * method (GMRES) with right preconditioning. The Krylov basis is built with modified Gram-Schmidt
+ * and the least squares problem is updated with Givens rotations. GMRES only breaks down if the
+ * operator is singular on the Krylov space; the iterations then stop without convergence. Its
+ * memory grows with the basis, so the method is restarted after a fixed number of iterations.
+ * Every iteration applies the operator and the preconditioner once.
+ * @since 1.2
+ */
+public final class Gmres extends IterativeSolver {
+
+    /** Default number of iterations after which the method is restarted. */
+    public static final int DEFAULT_RESTART = 30;
+
+    /**
+     * Part of the length of an operator image below which the rotated diagonal counts as zero,
+     * because the image is linearly dependent on the basis up to rounding errors.
+     */
+    private static final double BREAKDOWN = 1e-14;
+
+    private final int restart;
+    private final Vector[] basis;
+    /** Upper Hessenberg matrix, element (i, j) is stored at {@code i * restart + j}. */
+    private final double[] hessenberg;
+    private final double[] cosines;
+    private final double[] sines;
+    private final double[] rhs;
+    private final double[] coefficients;
+    private final Vector work;
+    private final Vector preconditioned;
+
+    /**
+     * Creates a solver restarting after {@link #DEFAULT_RESTART} iterations.
+     * @throws IllegalDimensionException if the operator is not square.
+     */
+    public Gmres(LinearOperator operator) {
+        this(operator, DEFAULT_RESTART);
+    }
+
+    /**
+     * @param restart number of iterations after which the method is restarted, which is the number of kept basis vectors
+     * @throws IllegalDimensionException if the operator is not square.
+     */
+    public Gmres(LinearOperator operator, int restart) {
+        super(operator);
+        if (restart < 1) {
+            throw new IllegalArgumentException("restart must be positive");
+        }
+        this.restart = restart;
+        // all basis vectors are views onto one array.
+        final double[] values = new double[(restart + 1) * dimension];
+        basis = new Vector[restart + 1];
+        for (int i = 0; i <= restart; i++) {
+            basis[i] = new Vector(values, i * dimension, 1, dimension);
+        }
+        hessenberg = new double[(restart + 1) * restart];
+        cosines = new double[restart];
+        sines = new double[restart];
+        rhs = new double[restart + 1];
+        coefficients = new double[restart];
+        work = workVector();
+        preconditioned = workVector();
+    }
+
+    public int getRestart() {
+        return restart;
+    }
+
+    @Override
+    SolverResult iterate(Vector b, Vector x, double target, double norm) {
+        operator.apply(x, work);
+        b.sub(work, work);
+        double length = work.getLength();
+        int iteration = 0;
+        boolean breakdown = false;
+        while (length > target && iteration < maxIterations && !breakdown) {
+            work.scale(1 / length, basis[0]);
+            Arrays.fill(rhs, 0);
+            rhs[0] = length;
+            int k = 0;
+            while (k < restart && iteration < maxIterations) {
+                preconditioner.precondition(basis[k], preconditioned);
+                operator.apply(preconditioned, work);
+                final double imageLength = work.getLength();
+                for (int i = 0; i <= k; i++) {
+                    final double h = work.scalar(basis[i]);
+                    hessenberg[i * restart + k] = h;
+                    work.axpy(-h, basis[i]);
+                }
+                final double subdiagonal = work.getLength();
+                for (int i = 0; i < k; i++) {
+                    final double upper = hessenberg[i * restart + k];
+                    final double lower = hessenberg[(i + 1) * restart + k];
+                    hessenberg[i * restart + k] = cosines[i] * upper + sines[i] * lower;
+                    hessenberg[(i + 1) * restart + k] = cosines[i] * lower - sines[i] * upper;
+                }
+                final double diagonal = hessenberg[k * restart + k];
+                final double radius = Math.hypot(diagonal, subdiagonal);
+                iteration++;
+                if (radius <= BREAKDOWN * imageLength) {
+                    // the operator maps the new basis vector into the span of the others, so the
+                    // least squares problem is singular; the basis found so far is used and the method stops.
+                    breakdown = true;
+                    break;
+                }
+                cosines[k] = diagonal / radius;
+                sines[k] = subdiagonal / radius;
+                hessenberg[k * restart + k] = radius;
+                rhs[k + 1] = -sines[k] * rhs[k];
+                rhs[k] = cosines[k] * rhs[k];
+                k++;
+                if (Math.abs(rhs[k]) <= target || subdiagonal == 0) {
+                    break;
+                }
+                work.scale(1 / subdiagonal, basis[k]);
+            }
+            // solve the triangular system for the coefficients of the basis vectors.
+            for (int i = k - 1; i >= 0; i--) {
+                double sum = rhs[i];
+                for (int j = i + 1; j < k; j++) {
+                    sum -= hessenberg[i * restart + j] * coefficients[j];
+                }
+                coefficients[i] = sum / hessenberg[i * restart + i];
+            }
+            work.scaleInPlace(0);
+            for (int i = 0; i < k; i++) {
+                work.axpy(coefficients[i], basis[i]);
+            }
+            x.addInPlace(preconditioner.precondition(work, preconditioned));
+            // the true residual guards against the rounding errors of the updated one.
+            operator.apply(x, work);
+            b.sub(work, work);
+            length = work.getLength();
+        }
+        return new SolverResult(x, length <= target, iteration, length / norm);
+    }
+}
@@ -0,0 +1,155 @@
+package org.alltiny.math.vector;
+
+/**
+ * This is a matrix whose values can not be changed. Like {@link ImmutableVector} it calculates
+ * its hash code and its transpose at most once and caches them, so it can be used as key of hash
+ * maps without walking all values on every lookup.
+ *
+ * The values are copied when an immutable matrix is created, so later changes to the source are
+ * not visible.
+ * @since 1.2
+ */
+public final class ImmutableMatrix {
+
+    /** Trusted backing matrix which is never handed out. */
+    private final Matrix matrix;
+
+    /** Cached hash code, 0 if not calculated yet (like {@link String#hashCode()}). */
+    private int hash;
+    private boolean hashIsZero;
+    private volatile ImmutableMatrix transposed;
+
+    private ImmutableMatrix(Matrix matrix) {
+        this.matrix = matrix;
+    }
+
+    /**
+     * @return an immutable matrix with a copy of the given values in row-major order.
+     * @throws IllegalDimensionException if the number of values does not match rows * columns.
+     */
+    public static ImmutableMatrix of(int rows, int columns, double... values) {
+        return new ImmutableMatrix(new Matrix(rows, columns, values.clone()));
+    }
+
+    /**
+     * @return an immutable matrix with a copy of the values of the given matrix.
+     */
+    public static ImmutableMatrix copyOf(Matrix matrix) {
+        return new ImmutableMatrix(copy(matrix));
+    }
+
+    private static Matrix copy(Matrix matrix) {
+        final int columns = matrix.getColumns();
+        double[] values = new double[matrix.getRows() * columns];
+        for (int row = 0; row < matrix.getRows(); row++) {
+            for (int col = 0; col < columns; col++) {
+                values[row * columns + col] = matrix.get(row, col);
+            }
+        }
+        return new Matrix(matrix.getRows(), columns, values);
+    }
+
+    public int getRows() {
+        return matrix.getRows();
+    }
+
+    public int getColumns() {
+        return matrix.getColumns();
+    }
+
+    public double get(int row, int column) {
+        return matrix.get(row, column);
+    }
+
+    /**
+     * @return the row with the given index.
+     */
+    public ImmutableVector getRow(int index) {
+        // the view is never handed out, so it can be wrapped without copying.
+        return ImmutableVector.wrap(matrix.getRow(index));
+    }
+
+    /**
+     * @throws IllegalDimensionException if the matrices have unequal dimensions.
+     */
+    public ImmutableMatrix add(ImmutableMatrix other) {
+        return new ImmutableMatrix(matrix.add(other.matrix));
+    }
+
+    /**
+     * @throws IllegalDimensionException if the columns of this matrix do not match the rows of the other.
+     */
+    public ImmutableMatrix mul(ImmutableMatrix other) {
+        return new ImmutableMatrix(matrix.mul(other.matrix));
+    }
+
+    /**
+     * @throws IllegalDimensionException if the vector does not have one dimension per column.
+     */
+    public ImmutableVector mul(ImmutableVector vector) {
+        return ImmutableVector.wrap(matrix.mul(vector.vector()));
+    }
+
+    /**
+     * @throws IllegalDimensionException if the vector does not have one dimension per column.
+     */
+    public Vector mul(Vector vector) {
+        return matrix.mul(vector);
+    }
+
+    /**
+     * @return the transpose of this matrix, which is calculated only once.
+     */
+    public ImmutableMatrix transpose() {
+        ImmutableMatrix result = transposed;
+        if (result == null) {
+            result = new ImmutableMatrix(matrix.transpose());
+            result.transposed = this;
+            transposed = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return a mutable copy of this matrix.
+     */
+    public Matrix toMatrix() {
+        return copy(matrix);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ImmutableMatrix)) {
+            return false;
+        }
+        ImmutableMatrix other = (ImmutableMatrix)o;
+        // the cached hash codes reject most unequal matrices without comparing their values.
+        return hashCode() == other.hashCode() && matrix.equals(other.matrix);
+    }
+
+    /**
+     * @return the same hash code as {@link Matrix#hashCode()} for a matrix with the same values,
+     *         calculated only once.
+     */
+    @Override
+    public int hashCode() {
+        int result = hash;
+        if (result == 0 && !hashIsZero) {
+            result = matrix.hashCode();
+            if (result == 0) {
+                hashIsZero = true;
+            } else {
+                hash = result;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Immutable" + matrix;
+    }
+}
@@ -0,0 +1,193 @@
+package org.alltiny.math.vector;
+
+/**
+ * This is a vector whose values can not be changed. Since its values are fixed, it calculates
+ * its hash code, its length and its normalized vector at most once and caches them; this
+ * makes it suitable as key of hash maps and as repeated operand of projections.
+ *
+ * The values are copied when an immutable vector is created from an array or a {@link Vector},
+ * so later changes to the source are not visible. The caches are filled lazily without
+ * locking: concurrent threads may calculate the same value twice, but always see a complete one.
+ * @since 1.2
+ */
+public final class ImmutableVector {
+
+    /** Trusted backing vector which is never handed out. */
+    private final Vector vector;
+
+    /** Cached hash code, 0 if not calculated yet (like {@link String#hashCode()}). */
+    private int hash;
+    private boolean hashIsZero;
+    /** Cached square of the length, -1 if not calculated yet. */
+    private volatile double lengthSquare = -1;
+    private volatile ImmutableVector normalized;
+
+    private ImmutableVector(Vector vector) {
+        this.vector = vector;
+    }
+
+    /**
+     * @return an immutable vector with a copy of the given values.
+     */
+    public static ImmutableVector of(double... values) {
+        return new ImmutableVector(new Vector(values.clone()));
+    }
+
+    /**
+     * @return an immutable vector with a copy of the values of the given vector.
+     */
+    public static ImmutableVector copyOf(Vector vector) {
+        return new ImmutableVector(new Vector(vector));
+    }
+
+    /**
+     * Wraps the given vector without copying it. The caller must guarantee that the vector is
+     * not changed and not handed out anymore.
+     */
+    static ImmutableVector wrap(Vector vector) {
+        return new ImmutableVector(vector);
+    }
+
+    public int getDimension() {
+        return vector.getDimension();
+    }
+
+    public double get(int index) {
+        return vector.get(index);
+    }
+
+    /**
+     * @return the square of the length of this vector, which is calculated only once.
+     */
+    public double getLengthSquare() {
+        double result = lengthSquare;
+        if (result < 0) {
+            result = vector.getLengthSquare();
+            lengthSquare = result;
+        }
+        return result;
+    }
+
+    public double getLength() {
+        return Math.sqrt(getLengthSquare());
+    }
+
+    /**
+     * @return a vector pointing into the same direction like this vector but with length of 1,
+     *         which is calculated only once.
+     */
+    public ImmutableVector normalize() {
+        ImmutableVector result = normalized;
+        if (result == null) {
+            // divides by the cached length like Vector#normalize() does, so both round the same.
+            final double length = getLength();
+            final Vector values = new Vector(vector.getDimension());
+            for (int i = 0; i < values.getDimension(); i++) {
+                values.set(i, vector.get(i) / length);
+            }
+            result = wrap(values);
+            result.normalized = result;
+            normalized = result;
+        }
+        return result;
+    }
+
+    public ImmutableVector add(ImmutableVector other) {
+        return wrap(vector.add(other.vector));
+    }
+
+    public ImmutableVector sub(ImmutableVector other) {
+        return wrap(vector.sub(other.vector));
+    }
+
+    public ImmutableVector scale(double scalar) {
+        return wrap(vector.scale(scalar));
+    }
+
+    /**
+     * @throws IllegalDimensionException if this and the given vector have unequal dimensions.
+     */
+    public double scalar(ImmutableVector other) {
+        return vector.scalar(other.vector);
+    }
+
+    /**
+     * @throws IllegalDimensionException if this and the given vector have unequal dimensions.
+     */
+    public double scalar(Vector other) {
+        return vector.scalar(other);
+    }
+
+    /**
+     * This method projects the other vector onto this vector using the cached length of this vector.
+     * @return projection of the other vector onto this vector.
+     * @throws IllegalDimensionException if the vectors have unequal dimensions.
+     */
+    public ImmutableVector project(ImmutableVector other) {
+        return other.projectOn(this);
+    }
+
+    /**
+     * This method projects this vector onto the other using the cached length of the other vector.
+     * @return projection of this vector onto the other vector.
+     * @throws IllegalDimensionException if the vectors have unequal dimensions.
+     */
+    public ImmutableVector projectOn(ImmutableVector other) {
+        return other.scale(scalar(other) / other.getLengthSquare());
+    }
+
+    /**
+     * @return a mutable copy of this vector.
+     */
+    public Vector toVector() {
+        return new Vector(vector);
+    }
+
+    /**
+     * @return a copy of the values of this vector.
+     */
+    public double[] toArray() {
+        return toVector().getArray();
+    }
+
+    /** @return the backing vector, which must not be changed. */
+    Vector vector() {
+        return vector;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ImmutableVector)) {
+            return false;
+        }
+        ImmutableVector other = (ImmutableVector)o;
+        // the cached hash codes reject most unequal vectors without comparing their values.
+        return hashCode() == other.hashCode() && vector.equals(other.vector);
+    }
+
+    /**
+     * @return the same hash code as {@link Vector#hashCode()} for a vector with the same values,
+     *         calculated only once.
+     */
+    @Override
+    public int hashCode() {
+        int result = hash;
+        if (result == 0 && !hashIsZero) {
+            result = vector.hashCode();
+            if (result == 0) {
+                hashIsZero = true;
+            } else {
+                hash = result;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Immutable" + vector;
+    }
+}
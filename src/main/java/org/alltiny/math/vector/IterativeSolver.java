@@ -0,0 +1,132 @@
+package org.alltiny.math.vector;
+
+/**
+ * Base of the iterative solvers of linear systems {@code A * x = b} with a square
+ * {@link LinearOperator} A. Unlike {@link LUDecomposition} they only apply the operator to
+ * vectors, so A can be a large {@link SparseMatrix} or an operator which is not stored at all.
+ *
+ * A solver iterates until the norm of the residual {@code b - A * x} is not larger than the
+ * tolerance times the norm of b, or until the maximal number of iterations is reached. All work
+ * vectors are allocated when the solver is created and reused by every iteration and by later
+ * calls of {@link #solve(Vector, Vector)}. Therefore a solver must not be used by several threads
+ * at once; the operator may still calculate in parallel.
+ * @since 1.2
+ */
+public abstract class IterativeSolver {
+
+    public static final double DEFAULT_TOLERANCE = 1e-10;
+    public static final int DEFAULT_MAX_ITERATIONS = 1000;
+
+    final LinearOperator operator;
+    final int dimension;
+    Preconditioner preconditioner = Preconditioners.identity();
+    private double tolerance = DEFAULT_TOLERANCE;
+    int maxIterations = DEFAULT_MAX_ITERATIONS;
+
+    /**
+     * @throws IllegalDimensionException if the operator is not square.
+     */
+    IterativeSolver(LinearOperator operator) {
+        if (operator.getRows() != operator.getColumns()) {
+            throw new IllegalDimensionException("operator with " + operator.getRows() + " rows and " + operator.getColumns() + " columns is not square");
+        }
+        this.operator = operator;
+        this.dimension = operator.getRows();
+    }
+
+    public LinearOperator getOperator() {
+        return operator;
+    }
+
+    public Preconditioner getPreconditioner() {
+        return preconditioner;
+    }
+
+    /**
+     * @param preconditioner approximating the inverse of the operator
+     * @return this solver
+     */
+    public IterativeSolver setPreconditioner(Preconditioner preconditioner) {
+        if (preconditioner == null) {
+            throw new IllegalArgumentException("preconditioner can not be null");
+        }
+        this.preconditioner = preconditioner;
+        return this;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * @param tolerance largest accepted norm of the residual relative to the norm of b
+     * @return this solver
+     */
+    public IterativeSolver setTolerance(double tolerance) {
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("tolerance can not be negative");
+        }
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    /**
+     * @return this solver
+     */
+    public IterativeSolver setMaxIterations(int maxIterations) {
+        if (maxIterations < 0) {
+            throw new IllegalArgumentException("maximal number of iterations can not be negative");
+        }
+        this.maxIterations = maxIterations;
+        return this;
+    }
+
+    /**
+     * Solves {@code A * x = b} starting with zero.
+     * @return the result holding a new solution vector
+     * @throws IllegalDimensionException if b does not match the operator.
+     */
+    public SolverResult solve(Vector b) {
+        return solve(b, new Vector(dimension));
+    }
+
+    /**
+     * Solves {@code A * x = b} starting with the given x, which is overwritten with the solution.
+     * @return the result holding the given x
+     * @throws IllegalDimensionException if b or x do not match the operator.
+     */
+    public SolverResult solve(Vector b, Vector x) {
+        if (b.getDimension() != dimension || x.getDimension() != dimension) {
+            throw new IllegalDimensionException("vectors must have " + dimension + " dimensions");
+        }
+        final double norm = b.getLength();
+        if (norm == 0) {
+            // the solution of a homogeneous system is 0.
+            x.scaleInPlace(0);
+            return new SolverResult(x, true, 0, 0);
+        }
+        return iterate(b, x, tolerance * norm, norm);
+    }
+
+    /**
+     * Runs the iterations of the solver.
+     * @param target norm of the residual at which the iterations stop
+     * @param norm of b
+     */
+    abstract SolverResult iterate(Vector b, Vector x, double target, double norm);
+
+    /** @return a new work vector with the dimension of the operator. */
+    final Vector workVector() {
+        return new Vector(dimension);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[dimension=" + dimension + ", tolerance=" + tolerance
+            + ", maxIterations=" + maxIterations + ", preconditioner=" + preconditioner + "]";
+    }
+}
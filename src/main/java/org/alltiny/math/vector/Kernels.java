@@ -0,0 +1,42 @@
+package org.alltiny.math.vector;
+
+/**
+ * Entry point for the hot kernels of {@link Vector} and {@link Matrix}. All arrays are
+ * accessed contiguously from the given offsets.
+ *
+ * This is the Java 8 implementation which runs the plain loops of {@link ScalarKernels}.
+ * The multi-release jar contains a replacement of this class for newer JDKs which uses
+ * SIMD instructions if the {@code jdk.incubator.vector} module is available.
+ */
+final class Kernels {
+
+    private Kernels() {
+    }
+
+    /**
+     * @return true if the kernels use SIMD instructions.
+     */
+    static boolean isVectorized() {
+        return false;
+    }
+
+    /** @return the scalar product of both arrays. */
+    static double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        return ScalarKernels.dot(a, aOffset, b, bOffset, length);
+    }
+
+    /** @return the sum of the squares of the elements. */
+    static double sumOfSquares(double[] a, int offset, int length) {
+        return ScalarKernels.sumOfSquares(a, offset, length);
+    }
+
+    /** Calculates {@code result = a + b} element-wise. */
+    static void add(double[] a, int aOffset, double[] b, int bOffset, double[] result, int resultOffset, int length) {
+        ScalarKernels.add(a, aOffset, b, bOffset, result, resultOffset, length);
+    }
+
+    /** Calculates {@code y += factor * x} element-wise. */
+    static void axpy(double factor, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        ScalarKernels.axpy(factor, x, xOffset, y, yOffset, length);
+    }
+}
@@ -0,0 +1,303 @@
+package org.alltiny.math.vector;
+
+/**
+ * This is the LU decomposition with partial pivoting of a square matrix, so that
+ * {@code P * A = L * U} with a row permutation P, a lower triangular matrix L with a unit
+ * diagonal and an upper triangular matrix U. The decomposition is calculated once and can
+ * then be used to solve any number of linear systems in O(n^2) each.
+ *
+ * The factorization is blocked: a panel of {@link #BLOCK} columns is factorized row by row,
+ * then the remaining matrix is updated with one matrix multiplication, which runs in the
+ * cache-blocked and optionally parallel kernel of {@link Matrix#mul(Matrix)}.
+ * @since 1.2
+ */
+public class LUDecomposition {
+
+    /** Number of columns factorized per panel. */
+    static final int BLOCK = 64;
+
+    private final int n;
+    /** L (below the diagonal) and U (on and above the diagonal) in row-major order. */
+    private final double[] lu;
+    /** Row i was swapped with row pivots[i] in step i. */
+    private final int[] pivots;
+    /** Row i of P * A is row permutation[i] of A. */
+    private final int[] permutation;
+    private final boolean evenSwaps;
+    private final boolean singular;
+
+    /**
+     * Decomposes the given matrix with the default parallelism.
+     * @throws IllegalDimensionException if the matrix is not square.
+     */
+    public LUDecomposition(Matrix matrix) {
+        this(matrix, Parallelism.getDefault());
+    }
+
+    /**
+     * Decomposes the given matrix. The given matrix is not changed.
+     * Blocks of rows of the trailing updates are calculated in parallel if the given parallelism allows it.
+     * @throws IllegalDimensionException if the matrix is not square.
+     */
+    public LUDecomposition(Matrix matrix, Parallelism parallelism) {
+        if (matrix.getRows() != matrix.getColumns()) {
+            throw new IllegalDimensionException("matrix with " + matrix.getRows() + " rows and " + matrix.getColumns() + " columns is not square");
+        }
+        final long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        n = matrix.getRows();
+        lu = new double[n * n];
+        for (int row = 0; row < n; row++) {
+            for (int col = 0; col < n; col++) {
+                lu[row * n + col] = matrix.get(row, col);
+            }
+        }
+        pivots = new int[n];
+        boolean even = true;
+        boolean zeroPivot = false;
+        for (int kk = 0; kk < n; kk += BLOCK) {
+            final int kEnd = Math.min(kk + BLOCK, n);
+            // factorize the panel of columns [kk, kEnd) over all rows below kk.
+            for (int j = kk; j < kEnd; j++) {
+                int pivot = j;
+                double max = Math.abs(lu[j * n + j]);
+                for (int row = j + 1; row < n; row++) {
+                    final double value = Math.abs(lu[row * n + j]);
+                    if (value > max) {
+                        max = value;
+                        pivot = row;
+                    }
+                }
+                pivots[j] = pivot;
+                if (pivot != j) {
+                    swapRows(lu, n, j, pivot);
+                    even = !even;
+                }
+                final double diagonal = lu[j * n + j];
+                if (diagonal == 0) {
+                    // the column is already eliminated; U gets a zero on the diagonal.
+                    zeroPivot = true;
+                    continue;
+                }
+                for (int row = j + 1; row < n; row++) {
+                    final double factor = lu[row * n + j] /= diagonal;
+                    for (int col = j + 1; col < kEnd; col++) {
+                        lu[row * n + col] -= factor * lu[j * n + col];
+                    }
+                }
+            }
+            if (kEnd == n) {
+                break;
+            }
+            // U12 = L11^-1 * A12 for the rows of the panel.
+            for (int j = kk; j < kEnd; j++) {
+                for (int row = j + 1; row < kEnd; row++) {
+                    Kernels.axpy(-lu[row * n + j], lu, j * n + kEnd, lu, row * n + kEnd, n - kEnd);
+                }
+            }
+            // A22 -= L21 * U12
+            final Matrix l21 = new Matrix(lu, kEnd * n + kk, n - kEnd, kEnd - kk, n, 1);
+            final Matrix u12 = new Matrix(lu, kk * n + kEnd, kEnd - kk, n - kEnd, n, 1);
+            final Matrix a22 = new Matrix(lu, kEnd * n + kEnd, n - kEnd, n - kEnd, n, 1);
+            parallelism.forEachRowBlock(n - kEnd, (long)(kEnd - kk) * (n - kEnd), new Parallelism.RowBlockTask() {
+                @Override
+                public void compute(int from, int to) {
+                    Gemm.multiply(l21, u12, a22, -1, from, to);
+                }
+            });
+        }
+        this.evenSwaps = even;
+        this.singular = zeroPivot;
+        this.permutation = new int[n];
+        for (int i = 0; i < n; i++) {
+            permutation[i] = i;
+        }
+        for (int i = 0; i < n; i++) {
+            final int swap = permutation[i];
+            permutation[i] = permutation[pivots[i]];
+            permutation[pivots[i]] = swap;
+        }
+        if (Metrics.ENABLED) {
+            Metrics.allocated(Metrics.Operation.MATRIX_LU, (long)n * n);
+            // the elimination needs about n^3/3 multiplications and as many subtractions.
+            Metrics.record(Metrics.Operation.MATRIX_LU, (long)n * n, 2L * n * n * n / 3, start);
+        }
+    }
+
+    private static void swapRows(double[] values, int columns, int a, int b) {
+        for (int col = 0, i = a * columns, j = b * columns; col < columns; col++, i++, j++) {
+            final double swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+
+    /**
+     * @return the dimension of the decomposed matrix.
+     */
+    public int getDimension() {
+        return n;
+    }
+
+    /**
+     * @return true if the decomposed matrix is singular, so no system can be solved with it.
+     */
+    public boolean isSingular() {
+        return singular;
+    }
+
+    /**
+     * @return the lower triangular factor L with a unit diagonal.
+     */
+    public Matrix getL() {
+        Matrix l = new Matrix(n, n);
+        for (int row = 0; row < n; row++) {
+            for (int col = 0; col < row; col++) {
+                l.getRow(row).set(col, lu[row * n + col]);
+            }
+            l.getRow(row).set(row, 1);
+        }
+        return l;
+    }
+
+    /**
+     * @return the upper triangular factor U.
+     */
+    public Matrix getU() {
+        Matrix u = new Matrix(n, n);
+        for (int row = 0; row < n; row++) {
+            for (int col = row; col < n; col++) {
+                u.getRow(row).set(col, lu[row * n + col]);
+            }
+        }
+        return u;
+    }
+
+    /**
+     * @return the permutation as row indices: row i of {@code P * A} is row {@code getPivot()[i]} of A.
+     */
+    public int[] getPivot() {
+        return permutation.clone();
+    }
+
+    /**
+     * @return the determinant of the decomposed matrix.
+     */
+    public double determinant() {
+        double determinant = evenSwaps ? 1 : -1;
+        for (int i = 0; i < n; i++) {
+            determinant *= lu[i * n + i];
+        }
+        return determinant;
+    }
+
+    /**
+     * Solves {@code A * x = b}.
+     * @return the solution x
+     * @throws IllegalDimensionException if the dimension of b does not match.
+     * @throws SingularMatrixException if the decomposed matrix is singular.
+     */
+    public Vector solve(Vector b) {
+        return solve(b, new Vector(n));
+    }
+
+    /**
+     * Solves {@code A * x = b} and writes x into the given result vector without allocating.
+     * The result vector may be b.
+     * @return the given result vector
+     * @throws IllegalDimensionException if the dimension of b or the result does not match.
+     * @throws SingularMatrixException if the decomposed matrix is singular.
+     */
+    public Vector solve(Vector b, Vector result) {
+        if (b.getDimension() != n || result.getDimension() != n) {
+            throw new IllegalDimensionException("vectors must have " + n + " dimensions");
+        }
+        checkSingular();
+        final double[] x = result.getArray();
+        final int offset = result.getOffset();
+        final int stride = result.getStride();
+        if (result != b) {
+            for (int i = 0; i < n; i++) {
+                x[offset + i * stride] = b.get(i);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (pivots[i] != i) {
+                final double swap = x[offset + i * stride];
+                x[offset + i * stride] = x[offset + pivots[i] * stride];
+                x[offset + pivots[i] * stride] = swap;
+            }
+        }
+        // forward substitution with L, which has a unit diagonal.
+        for (int row = 1; row < n; row++) {
+            double sum = x[offset + row * stride];
+            for (int col = 0, v = offset; col < row; col++, v += stride) {
+                sum -= lu[row * n + col] * x[v];
+            }
+            x[offset + row * stride] = sum;
+        }
+        // backward substitution with U.
+        for (int row = n - 1; row >= 0; row--) {
+            double sum = x[offset + row * stride];
+            for (int col = row + 1, v = offset + col * stride; col < n; col++, v += stride) {
+                sum -= lu[row * n + col] * x[v];
+            }
+            x[offset + row * stride] = sum / lu[row * n + row];
+        }
+        return result;
+    }
+
+    /**
+     * Solves {@code A * X = B} for all columns of B at once.
+     * @return the solution X with the dimensions of B
+     * @throws IllegalDimensionException if the rows of B do not match.
+     * @throws SingularMatrixException if the decomposed matrix is singular.
+     */
+    public Matrix solve(Matrix b) {
+        if (b.getRows() != n) {
+            throw new IllegalDimensionException("matrix with " + b.getRows() + " rows can not be solved with a system of dimension " + n);
+        }
+        checkSingular();
+        final int columns = b.getColumns();
+        final double[] x = new double[n * columns];
+        for (int row = 0; row < n; row++) {
+            final int source = permutation[row];
+            for (int col = 0; col < columns; col++) {
+                x[row * columns + col] = b.get(source, col);
+            }
+        }
+        // the substitutions run row-wise, so every update is a loop over a contiguous row of X.
+        for (int row = 1; row < n; row++) {
+            for (int k = 0; k < row; k++) {
+                Kernels.axpy(-lu[row * n + k], x, k * columns, x, row * columns, columns);
+            }
+        }
+        for (int row = n - 1; row >= 0; row--) {
+            for (int k = row + 1; k < n; k++) {
+                Kernels.axpy(-lu[row * n + k], x, k * columns, x, row * columns, columns);
+            }
+            final double diagonal = lu[row * n + row];
+            for (int col = 0, i = row * columns; col < columns; col++, i++) {
+                x[i] /= diagonal;
+            }
+        }
+        return new Matrix(n, columns, x);
+    }
+
+    /**
+     * @return the inverse of the decomposed matrix.
+     * @throws SingularMatrixException if the decomposed matrix is singular.
+     */
+    public Matrix inverse() {
+        Matrix identity = new Matrix(n, n);
+        for (int i = 0; i < n; i++) {
+            identity.getRow(i).set(i, 1);
+        }
+        return solve(identity);
+    }
+
+    private void checkSingular() {
+        if (singular) {
+            throw new SingularMatrixException("matrix is singular");
+        }
+    }
+}
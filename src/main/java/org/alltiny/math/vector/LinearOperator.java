@@ -0,0 +1,28 @@
+package org.alltiny.math.vector;
+
+/**
+ * A linear map from vectors with {@link #getColumns()} dimensions to vectors with
+ * {@link #getRows()} dimensions. It does not need to be stored as matrix; an implementation only
+ * needs to be able to apply itself to a vector. This is what the {@link IterativeSolver}s need.
+ * @since 1.2
+ */
+public interface LinearOperator {
+
+    /** @return the dimension of the vectors this operator produces. */
+    int getRows();
+
+    /** @return the dimension of the vectors this operator is applied to. */
+    int getColumns();
+
+    /**
+     * Applies this operator to the input vector and writes the image into the output vector,
+     * without allocating a new vector.
+     * @param in vector with {@link #getColumns()} dimensions
+     * @param out vector with {@link #getRows()} dimensions, which must not share its values with the input
+     *            nor with the operator itself (such as a row or column view of a {@link Matrix})
+     * @return the output vector
+     * @throws IllegalDimensionException if a vector has the wrong dimension.
+     * @throws IllegalArgumentException if the output vector shares its values with the input vector or the operator.
+     */
+    Vector apply(Vector in, Vector out);
+}
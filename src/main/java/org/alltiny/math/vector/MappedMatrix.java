@@ -0,0 +1,237 @@
+package org.alltiny.math.vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This is a read-only matrix whose values stay in a memory-mapped file instead of the Java heap.
+ * The file holds the values as doubles in row-major order. It is mapped in chunks of whole rows,
+ * because a single {@link java.nio.MappedByteBuffer} can not exceed 2GB, so matrices of any size
+ * up to the address space can be used. Several JVMs mapping the same file share its pages in the
+ * operating system's page cache; reading values neither copies the file nor creates garbage.
+ *
+ * The mapping is released when this object is garbage collected.
+ * @since 1.2
+ */
+public class MappedMatrix {
+
+    /** Maximum number of doubles in one mapped chunk. */
+    static final int MAX_CHUNK_DOUBLES = Integer.MAX_VALUE / Double.BYTES;
+    /** Edge length of the square tiles copied by {@link #transpose(Path)}. */
+    private static final int TILE = 64;
+
+    private final int rows;
+    private final int columns;
+    /** Maximum number of doubles in one chunk, which is also used for transposed matrices. */
+    private final int chunkDoubles;
+    private final int rowsPerChunk;
+    private final DoubleBuffer[] chunks;
+
+    private MappedMatrix(int rows, int columns, int chunkDoubles, int rowsPerChunk, DoubleBuffer[] chunks) {
+        this.rows = rows;
+        this.columns = columns;
+        this.chunkDoubles = chunkDoubles;
+        this.rowsPerChunk = rowsPerChunk;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Maps a file holding the values of a matrix in row-major order with the platform's native byte order.
+     * @see #open(Path, int, int, ByteOrder, long)
+     */
+    public static MappedMatrix open(Path file, int rows, int columns) throws IOException {
+        return open(file, rows, columns, ByteOrder.nativeOrder(), 0);
+    }
+
+    /**
+     * Maps a file holding the values of a matrix in row-major order.
+     * @param file to map
+     * @param rows of the matrix
+     * @param columns of the matrix
+     * @param order in which the bytes of each double are stored
+     * @param position in the file at which the value (0,0) is stored
+     * @throws IllegalDimensionException if the dimensions are not positive or the file is too small.
+     * @throws IOException if the file can not be mapped.
+     */
+    public static MappedMatrix open(Path file, int rows, int columns, ByteOrder order, long position) throws IOException {
+        return open(file, rows, columns, order, position, MAX_CHUNK_DOUBLES);
+    }
+
+    /**
+     * Maps a file with chunks of at most the given number of doubles; small chunks let tests cross chunk boundaries.
+     */
+    static MappedMatrix open(Path file, int rows, int columns, ByteOrder order, long position, int chunkDoubles) throws IOException {
+        final int rowsPerChunk = rowsPerChunk(rows, columns, chunkDoubles);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < position + (long)rows * columns * Double.BYTES) {
+                throw new IllegalDimensionException("file " + file + " is too small for a matrix with " + rows + " rows and " + columns + " columns");
+            }
+            DoubleBuffer[] chunks = new DoubleBuffer[(rows + rowsPerChunk - 1) / rowsPerChunk];
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                final int chunkRows = Math.min(rowsPerChunk, rows - chunk * rowsPerChunk);
+                final long start = position + (long)chunk * rowsPerChunk * columns * Double.BYTES;
+                // the mapping stays valid after the channel has been closed.
+                chunks[chunk] = channel.map(FileChannel.MapMode.READ_ONLY, start, (long)chunkRows * columns * Double.BYTES).order(order).asDoubleBuffer();
+            }
+            return new MappedMatrix(rows, columns, chunkDoubles, rowsPerChunk, chunks);
+        }
+    }
+
+    /**
+     * Writes the given matrix into the given file with the platform's native byte order and maps it.
+     * An existing file is overwritten.
+     * @throws IOException if the file can not be written or mapped.
+     */
+    public static MappedMatrix write(Path file, Matrix matrix) throws IOException {
+        return write(file, matrix, MAX_CHUNK_DOUBLES);
+    }
+
+    /**
+     * Writes the given matrix and maps it with chunks of at most the given number of doubles.
+     */
+    static MappedMatrix write(Path file, Matrix matrix, int chunkDoubles) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(matrix.getColumns() * Double.BYTES).order(ByteOrder.nativeOrder());
+            DoubleBuffer doubles = buffer.asDoubleBuffer();
+            for (int row = 0; row < matrix.getRows(); row++) {
+                doubles.clear();
+                for (int col = 0; col < matrix.getColumns(); col++) {
+                    doubles.put(matrix.get(row, col));
+                }
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+        return open(file, matrix.getRows(), matrix.getColumns(), ByteOrder.nativeOrder(), 0, chunkDoubles);
+    }
+
+    private static int rowsPerChunk(int rows, int columns, int chunkDoubles) {
+        if (rows <= 0) {
+            throw new IllegalDimensionException("matrix should have at least one row");
+        }
+        if (columns <= 0) {
+            throw new IllegalDimensionException("matrix should have at least one column");
+        }
+        if (columns > chunkDoubles) {
+            throw new IllegalDimensionException("matrix with " + columns + " columns has rows which are too large to be mapped");
+        }
+        return chunkDoubles / columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public double get(final int row, final int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException("(" + row + "," + column + ") is out of range for matrix with " + rows + " rows and " + columns + " columns");
+        }
+        return chunks[row / rowsPerChunk].get((row % rowsPerChunk) * columns + column);
+    }
+
+    /**
+     * @return a heap copy of the row with the given index.
+     */
+    public Vector getRow(int index) {
+        if (index < 0 || index >= rows) {
+            throw new IndexOutOfBoundsException("row " + index + " is out of range for matrix with " + rows + " rows");
+        }
+        double[] row = new double[columns];
+        DoubleBuffer chunk = chunks[index / rowsPerChunk].duplicate();
+        chunk.position((index % rowsPerChunk) * columns);
+        chunk.get(row);
+        return new Vector(row);
+    }
+
+    public Vector mul(Vector vector) {
+        return mul(vector, Parallelism.getDefault());
+    }
+
+    /**
+     * Multiplies the given vector with this matrix by reading the mapped rows directly.
+     * Blocks of rows are calculated in parallel if the given parallelism allows it.
+     * @throws IllegalDimensionException if the vector's dimension does not match the columns.
+     */
+    public Vector mul(final Vector vector, Parallelism parallelism) {
+        if (columns != vector.getDimension()) {
+            throw new IllegalDimensionException("vector with " + vector.getDimension() + " dimensions can not be multiplied with matrix with " + columns + " columns");
+        }
+        final double[] result = new double[rows];
+        final double[] values = vector.getArray();
+        final int offset = vector.getOffset();
+        final int stride = vector.getStride();
+        parallelism.forEachRowBlock(rows, columns, new Parallelism.RowBlockTask() {
+            @Override
+            public void compute(int from, int to) {
+                for (int row = from; row < to; row++) {
+                    final DoubleBuffer chunk = chunks[row / rowsPerChunk];
+                    final int start = (row % rowsPerChunk) * columns;
+                    double sum = 0;
+                    for (int col = 0, v = offset; col < columns; col++, v += stride) {
+                        sum += chunk.get(start + col) * values[v];
+                    }
+                    result[row] = sum;
+                }
+            }
+        });
+        return new Vector(result);
+    }
+
+    /**
+     * Writes the transposed matrix into the given file and maps it. The values are copied in
+     * square tiles, so only a few pages of both files are touched at a time. An existing file is overwritten.
+     * @throws IOException if the file can not be written or mapped.
+     */
+    public MappedMatrix transpose(Path file) throws IOException {
+        final int targetRowsPerChunk = rowsPerChunk(columns, rows, chunkDoubles);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DoubleBuffer[] targets = new DoubleBuffer[(columns + targetRowsPerChunk - 1) / targetRowsPerChunk];
+            for (int chunk = 0; chunk < targets.length; chunk++) {
+                final int chunkRows = Math.min(targetRowsPerChunk, columns - chunk * targetRowsPerChunk);
+                final long start = (long)chunk * targetRowsPerChunk * rows * Double.BYTES;
+                targets[chunk] = channel.map(FileChannel.MapMode.READ_WRITE, start, (long)chunkRows * rows * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+            }
+            for (int rr = 0; rr < rows; rr += TILE) {
+                for (int cc = 0; cc < columns; cc += TILE) {
+                    for (int col = cc; col < Math.min(cc + TILE, columns); col++) {
+                        final DoubleBuffer target = targets[col / targetRowsPerChunk];
+                        final int targetStart = (col % targetRowsPerChunk) * rows;
+                        for (int row = rr; row < Math.min(rr + TILE, rows); row++) {
+                            target.put(targetStart + row, get(row, col));
+                        }
+                    }
+                }
+            }
+        }
+        return open(file, columns, rows, ByteOrder.nativeOrder(), 0, chunkDoubles);
+    }
+
+    /**
+     * @return a heap copy of this matrix.
+     */
+    public Matrix toMatrix() {
+        double[] values = new double[rows * columns];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            DoubleBuffer buffer = chunks[chunk].duplicate();
+            buffer.rewind();
+            buffer.get(values, chunk * rowsPerChunk * columns, buffer.remaining());
+        }
+        return new Matrix(rows, columns, values);
+    }
+
+    @Override
+    public String toString() {
+        return "MappedMatrix[rows=" + rows + ", columns=" + columns + "]";
+    }
+}
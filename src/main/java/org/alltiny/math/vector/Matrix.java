@@ -4,12 +4,26 @@ import java.util.Arrays;
 
 /**
  * This is a matrix.
+ * Its values are stored in one contiguous array; the element (row, column) is located at
+ * {@code offset + row * rowStride + column * columnStride}. Rows and columns are therefore
+ * just index arithmetic and can be handed out as views without copying.
  */
-public class Matrix {
+public class Matrix implements LinearOperator {
 
-    private final Vector[] rows;
+    /** Edge length of the square tiles in which transposing copies and mixed-layout additions run. */
+    private static final int TRANSPOSE_TILE = 32;
+
+    private final double[] values;
+    private final int offset;
+    private final int rows;
     private final int columns;
+    private final int rowStride;
+    private final int columnStride;
 
+    /**
+     * Creates a matrix from the given row vectors. The values of the rows are copied into
+     * the matrix, later changes to the given vectors do not affect this matrix.
+     */
     public Matrix(Vector... rows) {
         if (rows == null) {
             throw new IllegalArgumentException("vector rows can not be null");
@@ -35,80 +49,453 @@ public class Matrix {
         if (detectedColumns == 0) {
             throw new IllegalDimensionException("matrix should have at least one column");
         }
-        columns = detectedColumns;
+        this.values = new double[checkDimensions(rows.length, detectedColumns)];
+        this.offset = 0;
+        this.rows = rows.length;
+        this.columns = detectedColumns;
+        this.rowStride = detectedColumns;
+        this.columnStride = 1;
+        for (int row = 0; row < rows.length; row++) {
+            for (int col = 0; col < detectedColumns; col++) {
+                values[row * detectedColumns + col] = rows[row].get(col);
+            }
+        }
+    }
+
+    /**
+     * Creates a 0-matrix with the given dimensions.
+     * @since 1.2
+     */
+    public Matrix(final int rows, final int columns) {
+        this(new double[checkDimensions(rows, columns)], 0, rows, columns, columns, 1);
+    }
+
+    /**
+     * Creates a matrix on top of the given values, which are interpreted in row-major order.
+     * The array is not copied; changes to it are visible in this matrix.
+     * @throws IllegalDimensionException if the number of values does not match rows * columns.
+     * @since 1.2
+     */
+    public Matrix(final int rows, final int columns, double... values) {
+        this(values, 0, rows, columns, columns, 1);
+        if (values.length != checkDimensions(rows, columns)) {
+            throw new IllegalDimensionException("matrix with " + rows + " rows and " + columns + " columns requires " + rows * columns + " values, but got " + values.length);
+        }
+    }
+
+    /**
+     * Creates a matrix which is a view onto the given array.
+     */
+    Matrix(double[] values, int offset, int rows, int columns, int rowStride, int columnStride) {
+        this.values = values;
+        this.offset = offset;
         this.rows = rows;
+        this.columns = columns;
+        this.rowStride = rowStride;
+        this.columnStride = columnStride;
+    }
+
+    private static int checkDimensions(int rows, int columns) {
+        if (rows <= 0) {
+            throw new IllegalDimensionException("matrix should have at least one row");
+        }
+        if (columns <= 0) {
+            throw new IllegalDimensionException("matrix should have at least one column");
+        }
+        final long size = (long)rows * columns;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalDimensionException("matrix with " + rows + " rows and " + columns + " columns exceeds the maximum array size");
+        }
+        return (int)size;
     }
 
     public Matrix add(Matrix matrix) {
         if (getRows() != matrix.getRows() || getColumns() != matrix.getColumns()) {
             throw new IllegalDimensionException("matrices must have same dimensions");
         }
-        Vector[] result = new Vector[rows.length];
-        for (int row = 0; row < rows.length; row++) {
-            result[row] = rows[row].add(matrix.getRow(row));
+        final long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        double[] result = new double[rows * columns];
+        if (columnStride == 1 && matrix.columnStride == 1) {
+            for (int row = 0; row < rows; row++) {
+                Kernels.add(values, offset + row * rowStride, matrix.values, matrix.offset + row * matrix.rowStride, result, row * columns, columns);
+            }
+        } else {
+            // at least one operand is a transposed view, so tiles keep the strided reads in cache.
+            for (int rr = 0; rr < rows; rr += TRANSPOSE_TILE) {
+                final int rowEnd = Math.min(rr + TRANSPOSE_TILE, rows);
+                for (int cc = 0; cc < columns; cc += TRANSPOSE_TILE) {
+                    final int columnEnd = Math.min(cc + TRANSPOSE_TILE, columns);
+                    for (int row = rr; row < rowEnd; row++) {
+                        for (int col = cc; col < columnEnd; col++) {
+                            result[row * columns + col] = values[index(row, col)] + matrix.values[matrix.index(row, col)];
+                        }
+                    }
+                }
+            }
         }
-        return new Matrix(result);
+        if (Metrics.ENABLED) {
+            Metrics.allocated(Metrics.Operation.MATRIX_ADD, result.length);
+            Metrics.record(Metrics.Operation.MATRIX_ADD, 2L * result.length, result.length, start);
+        }
+        return new Matrix(rows, columns, result);
     }
 
     public Vector mul(Vector vector) {
+        return mul(vector, Parallelism.getDefault());
+    }
+
+    /**
+     * Multiplies the given vector with this matrix. Blocks of rows are calculated in
+     * parallel if the given parallelism allows it.
+     * @since 1.2
+     */
+    public Vector mul(Vector vector, Parallelism parallelism) {
+        return mul(vector, Summation.FAST, parallelism);
+    }
+
+    /**
+     * Multiplies the given vector with this matrix; the scalar product of every row with the
+     * vector is summed with the given summation.
+     * @since 1.2
+     */
+    public Vector mul(Vector vector, Summation summation) {
+        return mul(vector, summation, Parallelism.getDefault());
+    }
+
+    private Vector mul(final Vector vector, final Summation summation, Parallelism parallelism) {
+        checkColumns(vector);
+        if (Metrics.ENABLED) {
+            Metrics.allocated(Metrics.Operation.MATRIX_MUL_VECTOR, rows);
+        }
+        final double[] result = new double[rows];
+        mul(vector, summation, parallelism, result, 0);
+        return new Vector(result);
+    }
+
+    /**
+     * Multiplies the given vector with this matrix and writes the product into the output vector.
+     * An output vector which is a strided view gets a temporary from a {@link ScratchArena}.
+     * @since 1.2
+     */
+    @Override
+    public Vector apply(Vector in, Vector out) {
+        checkColumns(in);
+        if (out.getDimension() != rows) {
+            throw new IllegalDimensionException("output vector must have " + rows + " dimensions");
+        }
+        if (out.getArray() == in.getArray()) {
+            throw new IllegalArgumentException("output vector can not share its values with the input vector");
+        }
+        if (out.getArray() == values) {
+            throw new IllegalArgumentException("output vector can not share its values with the matrix");
+        }
+        if (out.getStride() == 1) {
+            mul(in, Summation.FAST, Parallelism.getDefault(), out.getArray(), out.getOffset());
+            return out;
+        }
+        try (ScratchArena arena = ScratchArena.open()) {
+            final Vector result = arena.vector(rows);
+            mul(in, Summation.FAST, Parallelism.getDefault(), result.getArray(), result.getOffset());
+            for (int row = 0; row < rows; row++) {
+                out.set(row, result.get(row));
+            }
+        }
+        return out;
+    }
+
+    private void checkColumns(Vector vector) {
         if (columns != vector.getDimension()) {
             throw new IllegalDimensionException("vector with " + vector.getDimension() + " dimensions can not be multiplied with matrix with " + columns + " columns");
         }
-        double[] result = new double[rows.length];
-        for (int row = 0; row < rows.length; row++) {
-            for (int col = 0; col < columns; col++) {
-                result[row] += vector.get(col) * rows[row].get(col);
+    }
+
+    /** Writes the product with the given vector into {@code result[resultOffset, resultOffset + rows)}. */
+    private void mul(final Vector vector, final Summation summation, Parallelism parallelism, final double[] result, final int resultOffset) {
+        final long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        parallelism.forEachRowBlock(rows, columns, new Parallelism.RowBlockTask() {
+            @Override
+            public void compute(int from, int to) {
+                mul(vector, summation, result, resultOffset, from, to);
+            }
+        });
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.MATRIX_MUL_VECTOR, (long)rows * columns + columns, 2L * rows * columns, start);
+        }
+    }
+
+    private void mul(Vector vector, Summation summation, double[] result, int resultOffset, int rowFrom, int rowTo) {
+        final double[] vectorValues = vector.getArray();
+        final int vectorStride = vector.getStride();
+        if (summation == Summation.COMPENSATED) {
+            for (int row = rowFrom; row < rowTo; row++) {
+                result[resultOffset + row] = ScalarKernels.dotCompensated(values, offset + row * rowStride, columnStride, vectorValues, vector.getOffset(), vectorStride, columns);
+            }
+            return;
+        }
+        if (rowStride == 1 && columnStride != 1) {
+            // the columns are contiguous (e.g. a transposed view), so they are added up scaled by the vector elements.
+            Arrays.fill(result, resultOffset + rowFrom, resultOffset + rowTo, 0);
+            for (int col = 0, v = vector.getOffset(); col < columns; col++, v += vectorStride) {
+                Kernels.axpy(vectorValues[v], values, offset + col * columnStride + rowFrom, result, resultOffset + rowFrom, rowTo - rowFrom);
+            }
+            return;
+        }
+        if (columnStride == 1 && vectorStride == 1) {
+            for (int row = rowFrom; row < rowTo; row++) {
+                result[resultOffset + row] = Kernels.dot(values, offset + row * rowStride, vectorValues, vector.getOffset(), columns);
+            }
+            return;
+        }
+        for (int row = rowFrom; row < rowTo; row++) {
+            result[resultOffset + row] = ScalarKernels.dot(values, offset + row * rowStride, columnStride, vectorValues, vector.getOffset(), vectorStride, columns);
+        }
+    }
+
+    /**
+     * Multiplies the given sparse vector with this matrix. Only the columns belonging to
+     * the non-zero elements of the vector are visited.
+     * @since 1.2
+     */
+    public Vector mul(SparseVector vector) {
+        if (columns != vector.getDimension()) {
+            throw new IllegalDimensionException("vector with " + vector.getDimension() + " dimensions can not be multiplied with matrix with " + columns + " columns");
+        }
+        double[] result = new double[rows];
+        for (int k = 0; k < vector.getNonZeros(); k++) {
+            final double factor = vector.getValue(k);
+            final int column = vector.getIndex(k);
+            for (int row = 0; row < rows; row++) {
+                result[row] += factor * values[index(row, column)];
             }
         }
         return new Vector(result);
     }
 
+    /**
+     * Multiplies every vector of the given batch with this matrix.
+     * @return a new batch in the layout of the given batch holding the transformed vectors.
+     * @since 1.2
+     */
+    public VectorBatch mul(VectorBatch batch) {
+        return mul(batch, new VectorBatch(batch.size(), rows, batch.getLayout()));
+    }
+
+    /**
+     * Multiplies every vector of the given batch with this matrix and writes the transformed
+     * vectors into the result batch. For batches in {@link VectorBatch.Layout#SOA} layout each
+     * matrix element is applied to all vectors at once with a loop over contiguous memory.
+     * @return the given result batch
+     * @throws IllegalDimensionException if the vectors' dimension does not match the columns or the result batch does not fit.
+     * @throws IllegalArgumentException if the result batch is the given batch.
+     * @since 1.2
+     */
+    public VectorBatch mul(VectorBatch batch, VectorBatch result) {
+        if (columns != batch.getDimension()) {
+            throw new IllegalDimensionException("vectors with " + batch.getDimension() + " dimensions can not be multiplied with matrix with " + columns + " columns");
+        }
+        if (result.size() != batch.size() || result.getDimension() != rows) {
+            throw new IllegalDimensionException("result batch must hold " + batch.size() + " vectors with " + rows + " dimensions");
+        }
+        if (result.getArray() == batch.getArray()) {
+            throw new IllegalArgumentException("result batch can not share its values with the given batch");
+        }
+        final int size = batch.size();
+        final double[] input = batch.getArray();
+        final double[] output = result.getArray();
+        if (batch.getLayout() == VectorBatch.Layout.SOA && result.getLayout() == VectorBatch.Layout.SOA) {
+            Arrays.fill(output, 0);
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < columns; col++) {
+                    Kernels.axpy(values[index(row, col)], input, col * size, output, row * size, size);
+                }
+            }
+            return result;
+        }
+        final int inputStride = batch.elementStride();
+        for (int i = 0; i < size; i++) {
+            final int start = batch.index(i, 0);
+            for (int row = 0; row < rows; row++) {
+                double sum = 0;
+                for (int col = 0, v = start; col < columns; col++, v += inputStride) {
+                    sum += input[v] * values[index(row, col)];
+                }
+                output[result.index(i, row)] = sum;
+            }
+        }
+        return result;
+    }
+
     public Matrix mul(Matrix matrix) {
+        return mul(matrix, Parallelism.getDefault());
+    }
+
+    /**
+     * Multiplies this matrix with the given matrix. Blocks of result rows are calculated
+     * in parallel if the given parallelism allows it.
+     * @since 1.2
+     */
+    public Matrix mul(final Matrix matrix, Parallelism parallelism) {
         if (getColumns() != matrix.getRows()) {
             throw new IllegalDimensionException("matrix with " + getColumns() + " columns can not be multiplied to matrix with " + matrix.getRows() + " rows");
         }
-        Vector[] result = new Vector[getRows()];
-        for (int row = 0; row < getRows(); row++) {
-            final Vector rowVector = getRow(row);
-            final double[] resultRowVector = new double[matrix.getColumns()];
-            for (int col = 0; col < matrix.getColumns(); col++) {
-                resultRowVector[col] = rowVector.scalar(matrix.getColumn(col));
+        final long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        final Matrix result = new Matrix(rows, matrix.getColumns());
+        parallelism.forEachRowBlock(rows, (long)columns * matrix.getColumns(), new Parallelism.RowBlockTask() {
+            @Override
+            public void compute(int from, int to) {
+                Gemm.multiply(Matrix.this, matrix, result, 1, from, to);
             }
-            result[row] = new Vector(resultRowVector);
+        });
+        if (Metrics.ENABLED) {
+            Metrics.allocated(Metrics.Operation.MATRIX_MUL_MATRIX, (long)rows * matrix.getColumns());
+            Metrics.record(Metrics.Operation.MATRIX_MUL_MATRIX, (long)rows * columns + (long)columns * matrix.getColumns(),
+                2L * rows * columns * matrix.getColumns(), start);
         }
-        return new Matrix(result);
+        return result;
+    }
+
+    /**
+     * Decomposes this square matrix. Keep the decomposition to solve several systems with the same matrix.
+     * @return the LU decomposition of this matrix.
+     * @throws IllegalDimensionException if this matrix is not square.
+     * @since 1.2
+     */
+    public LUDecomposition lu() {
+        return new LUDecomposition(this);
+    }
+
+    /**
+     * @return the determinant of this square matrix, calculated via its LU decomposition.
+     * @throws IllegalDimensionException if this matrix is not square.
+     * @since 1.2
+     */
+    public double determinant() {
+        return lu().determinant();
+    }
+
+    /**
+     * @return the inverse of this square matrix, calculated via its LU decomposition.
+     * @throws IllegalDimensionException if this matrix is not square.
+     * @throws SingularMatrixException if this matrix is singular.
+     * @since 1.2
+     */
+    public Matrix inverse() {
+        return lu().inverse();
     }
 
+    /**
+     * @return a lazy expression starting with this matrix; element-wise operations and
+     *         transpositions on it are fused into one pass when the expression is evaluated.
+     * @since 1.2
+     */
+    public MatrixExpression lazy() {
+        return MatrixExpression.of(this);
+    }
+
+    /**
+     * @return a transposed copy of this matrix. It is copied recursively in blocks, so both the
+     *         reads and the writes stay in cache for any matrix size.
+     * @see #transposeView()
+     */
     public Matrix transpose() {
-        Vector[] result = new Vector[getColumns()];
-        for (int column = 0; column < getColumns(); column++) {
-            result[column] = getColumn(column);
+        final long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        double[] result = new double[rows * columns];
+        transpose(result, 0, rows, 0, columns);
+        if (Metrics.ENABLED) {
+            Metrics.allocated(Metrics.Operation.MATRIX_TRANSPOSE, result.length);
+            Metrics.record(Metrics.Operation.MATRIX_TRANSPOSE, result.length, 0, start);
         }
-        return new Matrix(result);
+        return new Matrix(columns, rows, result);
     }
 
+    /** Copies the block [rowFrom, rowTo) x [columnFrom, columnTo) transposed into the result by halving its longer side. */
+    private void transpose(double[] result, int rowFrom, int rowTo, int columnFrom, int columnTo) {
+        if ((rowTo - rowFrom) * (columnTo - columnFrom) <= TRANSPOSE_TILE * TRANSPOSE_TILE) {
+            for (int row = rowFrom; row < rowTo; row++) {
+                for (int col = columnFrom; col < columnTo; col++) {
+                    result[col * rows + row] = values[index(row, col)];
+                }
+            }
+        } else if (rowTo - rowFrom >= columnTo - columnFrom) {
+            final int middle = (rowFrom + rowTo) >>> 1;
+            transpose(result, rowFrom, middle, columnFrom, columnTo);
+            transpose(result, middle, rowTo, columnFrom, columnTo);
+        } else {
+            final int middle = (columnFrom + columnTo) >>> 1;
+            transpose(result, rowFrom, rowTo, columnFrom, middle);
+            transpose(result, rowFrom, rowTo, middle, columnTo);
+        }
+    }
+
+    /**
+     * @return the transpose of this matrix as a view onto the same values; nothing is copied.
+     *         Changes of the values are visible in both matrices. Multiplications and additions
+     *         recognize such views and run kernels which read them sequentially.
+     * @since 1.2
+     */
+    public Matrix transposeView() {
+        return new Matrix(values, offset, columns, rows, columnStride, rowStride);
+    }
+
+    @Override
     public int getRows() {
-        return rows.length;
+        return rows;
     }
 
+    @Override
     public int getColumns() {
         return columns;
     }
 
     public double get(final int row, final int column) {
-        return getRow(row).get(column);
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException("(" + row + "," + column + ") is out of range for matrix with " + rows + " rows and " + columns + " columns");
+        }
+        return values[index(row, column)];
     }
 
+    /**
+     * @return the row with the given index as a view onto this matrix; no values are copied.
+     */
     public Vector getRow(int index) {
-        return rows[index];
+        if (index < 0 || index >= rows) {
+            throw new IndexOutOfBoundsException("row " + index + " is out of range for matrix with " + rows + " rows");
+        }
+        return new Vector(values, offset + index * rowStride, columnStride, columns);
     }
 
+    /**
+     * @return the column with the given index as a view onto this matrix; no values are copied.
+     */
     public Vector getColumn(int index) {
-        double[] column = new double[rows.length];
-        for (int row = 0; row < rows.length; row++) {
-            column[row] = rows[row].get(index);
+        if (index < 0 || index >= columns) {
+            throw new IndexOutOfBoundsException("column " + index + " is out of range for matrix with " + columns + " columns");
         }
-        return new Vector(column);
+        return new Vector(values, offset + index * columnStride, rowStride, rows);
+    }
+
+    /** @return the array backing this matrix. */
+    double[] getArray() {
+        return values;
+    }
+
+    /** @return the index of element (0,0) in the backing array. */
+    int getOffset() {
+        return offset;
+    }
+
+    /** @return the distance between two consecutive rows in the backing array. */
+    int getRowStride() {
+        return rowStride;
+    }
+
+    /** @return the distance between two consecutive columns in the backing array. */
+    int getColumnStride() {
+        return columnStride;
+    }
+
+    private int index(int row, int column) {
+        return offset + row * rowStride + column * columnStride;
     }
 
     @Override
@@ -121,16 +508,39 @@ public class Matrix {
         }
 
         Matrix matrix = (Matrix)o;
-        return Arrays.equals(rows, matrix.rows);
+        if (rows != matrix.rows || columns != matrix.columns) {
+            return false;
+        }
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                // compare with != to treat "-0" and "0" as equal.
+                if (values[index(row, col)] != matrix.values[matrix.index(row, col)]) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(rows);
+        // same hash as Arrays.hashCode over the row vectors
+        int hash = 1;
+        for (int row = 0; row < rows; row++) {
+            hash = 31 * hash + getRow(row).hashCode();
+        }
+        return hash;
     }
 
     @Override
     public String toString() {
-        return "Matrix" + Arrays.toString(rows);
+        StringBuilder builder = new StringBuilder("Matrix[");
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                builder.append(", ");
+            }
+            builder.append(getRow(row));
+        }
+        return builder.append(']').toString();
     }
 }
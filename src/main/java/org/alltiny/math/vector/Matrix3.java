@@ -0,0 +1,209 @@
+package org.alltiny.math.vector;
+
+/**
+ * This is an immutable 3x3 matrix. Its elements are stored in fields instead of an array and
+ * all operations are unrolled, so short-lived instances in hot loops can be replaced by their
+ * fields through escape analysis.
+ * @since 1.2
+ */
+public final class Matrix3 {
+
+    public static final Matrix3 IDENTITY = new Matrix3(
+        1, 0, 0,
+        0, 1, 0,
+        0, 0, 1);
+
+    private final double m00, m01, m02;
+    private final double m10, m11, m12;
+    private final double m20, m21, m22;
+
+    /**
+     * Creates a matrix from the given values in row-major order.
+     */
+    public Matrix3(double m00, double m01, double m02,
+                   double m10, double m11, double m12,
+                   double m20, double m21, double m22) {
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m02 = m02;
+        this.m10 = m10;
+        this.m11 = m11;
+        this.m12 = m12;
+        this.m20 = m20;
+        this.m21 = m21;
+        this.m22 = m22;
+    }
+
+    /**
+     * Creates a matrix from the given row vectors.
+     */
+    public Matrix3(Vector3 row0, Vector3 row1, Vector3 row2) {
+        this(row0.getX(), row0.getY(), row0.getZ(),
+             row1.getX(), row1.getY(), row1.getZ(),
+             row2.getX(), row2.getY(), row2.getZ());
+    }
+
+    /**
+     * Creates a copy of the given matrix.
+     * @throws IllegalDimensionException if the given matrix has not 3 rows and 3 columns.
+     */
+    public Matrix3(Matrix matrix) {
+        this(checkDimensions(matrix).get(0, 0), matrix.get(0, 1), matrix.get(0, 2),
+             matrix.get(1, 0), matrix.get(1, 1), matrix.get(1, 2),
+             matrix.get(2, 0), matrix.get(2, 1), matrix.get(2, 2));
+    }
+
+    private static Matrix checkDimensions(Matrix matrix) {
+        if (matrix.getRows() != 3 || matrix.getColumns() != 3) {
+            throw new IllegalDimensionException("matrix must have 3 rows and 3 columns");
+        }
+        return matrix;
+    }
+
+    public double get(final int row, final int column) {
+        if (row < 0 || row >= 3 || column < 0 || column >= 3) {
+            throw new IndexOutOfBoundsException("(" + row + "," + column + ") is out of range for matrix with 3 rows and 3 columns");
+        }
+        return getRow(row).get(column);
+    }
+
+    public Vector3 getRow(int index) {
+        switch (index) {
+            case 0: return new Vector3(m00, m01, m02);
+            case 1: return new Vector3(m10, m11, m12);
+            case 2: return new Vector3(m20, m21, m22);
+            default: throw new IndexOutOfBoundsException("row " + index + " is out of range for matrix with 3 rows");
+        }
+    }
+
+    public Vector3 getColumn(int index) {
+        switch (index) {
+            case 0: return new Vector3(m00, m10, m20);
+            case 1: return new Vector3(m01, m11, m21);
+            case 2: return new Vector3(m02, m12, m22);
+            default: throw new IndexOutOfBoundsException("column " + index + " is out of range for matrix with 3 columns");
+        }
+    }
+
+    public Matrix3 add(Matrix3 m) {
+        return new Matrix3(
+            m00 + m.m00, m01 + m.m01, m02 + m.m02,
+            m10 + m.m10, m11 + m.m11, m12 + m.m12,
+            m20 + m.m20, m21 + m.m21, m22 + m.m22);
+    }
+
+    public Vector3 mul(Vector3 v) {
+        return new Vector3(
+            m00 * v.getX() + m01 * v.getY() + m02 * v.getZ(),
+            m10 * v.getX() + m11 * v.getY() + m12 * v.getZ(),
+            m20 * v.getX() + m21 * v.getY() + m22 * v.getZ());
+    }
+
+    public Matrix3 mul(Matrix3 m) {
+        return new Matrix3(
+            m00 * m.m00 + m01 * m.m10 + m02 * m.m20,
+            m00 * m.m01 + m01 * m.m11 + m02 * m.m21,
+            m00 * m.m02 + m01 * m.m12 + m02 * m.m22,
+            m10 * m.m00 + m11 * m.m10 + m12 * m.m20,
+            m10 * m.m01 + m11 * m.m11 + m12 * m.m21,
+            m10 * m.m02 + m11 * m.m12 + m12 * m.m22,
+            m20 * m.m00 + m21 * m.m10 + m22 * m.m20,
+            m20 * m.m01 + m21 * m.m11 + m22 * m.m21,
+            m20 * m.m02 + m21 * m.m12 + m22 * m.m22);
+    }
+
+    public Matrix3 transpose() {
+        return new Matrix3(
+            m00, m10, m20,
+            m01, m11, m21,
+            m02, m12, m22);
+    }
+
+    public double determinant() {
+        return m00 * (m11 * m22 - m12 * m21)
+             + m01 * (m12 * m20 - m10 * m22)
+             + m02 * (m10 * m21 - m11 * m20);
+    }
+
+    /**
+     * @return the inverse of this matrix, calculated from its adjugate.
+     * @throws SingularMatrixException if the determinant of this matrix is 0.
+     */
+    public Matrix3 inverse() {
+        final double c00 = m11 * m22 - m12 * m21;
+        final double c01 = m12 * m20 - m10 * m22;
+        final double c02 = m10 * m21 - m11 * m20;
+        final double det = m00 * c00 + m01 * c01 + m02 * c02;
+        if (det == 0) {
+            throw new SingularMatrixException("matrix is singular");
+        }
+        final double f = 1 / det;
+        return new Matrix3(
+            c00 * f, (m02 * m21 - m01 * m22) * f, (m01 * m12 - m02 * m11) * f,
+            c01 * f, (m00 * m22 - m02 * m20) * f, (m02 * m10 - m00 * m12) * f,
+            c02 * f, (m01 * m20 - m00 * m21) * f, (m00 * m11 - m01 * m10) * f);
+    }
+
+    /**
+     * Transforms the given point in homogeneous coordinates, i.e. as (x, y, 1). The result
+     * is divided by its third coordinate, so projective transformations are supported.
+     */
+    public Vector2 transformPoint(Vector2 p) {
+        final double x = m00 * p.getX() + m01 * p.getY() + m02;
+        final double y = m10 * p.getX() + m11 * p.getY() + m12;
+        final double w = m20 * p.getX() + m21 * p.getY() + m22;
+        return w == 1 ? new Vector2(x, y) : new Vector2(x / w, y / w);
+    }
+
+    /**
+     * Transforms the given direction in homogeneous coordinates, i.e. as (x, y, 0),
+     * so the translation of this matrix does not apply.
+     */
+    public Vector2 transformDirection(Vector2 d) {
+        return new Vector2(
+            m00 * d.getX() + m01 * d.getY(),
+            m10 * d.getX() + m11 * d.getY());
+    }
+
+    /**
+     * @return a copy of this matrix as general matrix.
+     */
+    public Matrix toMatrix() {
+        return new Matrix(3, 3,
+            m00, m01, m02,
+            m10, m11, m12,
+            m20, m21, m22);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Matrix3)) {
+            return false;
+        }
+        Matrix3 m = (Matrix3)o;
+        // compare with == to treat "-0" and "0" as equal.
+        return m00 == m.m00 && m01 == m.m01 && m02 == m.m02
+            && m10 == m.m10 && m11 == m.m11 && m12 == m.m12
+            && m20 == m.m20 && m21 == m.m21 && m22 == m.m22;
+    }
+
+    /**
+     * @return the same hash code as {@link Matrix#hashCode()} for a matrix with the same values.
+     */
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int row = 0; row < 3; row++) {
+            hash = 31 * hash + getRow(row).hashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "Matrix3[" + getRow(0) + ", " + getRow(1) + ", " + getRow(2) + "]";
+    }
+}
@@ -0,0 +1,291 @@
+package org.alltiny.math.vector;
+
+/**
+ * This is an immutable 4x4 matrix, e.g. for affine and projective transformations in 3D. Its
+ * elements are stored in fields instead of an array and all operations are unrolled, so
+ * short-lived instances in hot loops can be replaced by their fields through escape analysis.
+ * @since 1.2
+ */
+public final class Matrix4 {
+
+    public static final Matrix4 IDENTITY = new Matrix4(
+        1, 0, 0, 0,
+        0, 1, 0, 0,
+        0, 0, 1, 0,
+        0, 0, 0, 1);
+
+    private final double m00, m01, m02, m03;
+    private final double m10, m11, m12, m13;
+    private final double m20, m21, m22, m23;
+    private final double m30, m31, m32, m33;
+
+    /**
+     * Creates a matrix from the given values in row-major order.
+     */
+    public Matrix4(double m00, double m01, double m02, double m03,
+                   double m10, double m11, double m12, double m13,
+                   double m20, double m21, double m22, double m23,
+                   double m30, double m31, double m32, double m33) {
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m02 = m02;
+        this.m03 = m03;
+        this.m10 = m10;
+        this.m11 = m11;
+        this.m12 = m12;
+        this.m13 = m13;
+        this.m20 = m20;
+        this.m21 = m21;
+        this.m22 = m22;
+        this.m23 = m23;
+        this.m30 = m30;
+        this.m31 = m31;
+        this.m32 = m32;
+        this.m33 = m33;
+    }
+
+    /**
+     * Creates a matrix from the given row vectors.
+     */
+    public Matrix4(Vector4 row0, Vector4 row1, Vector4 row2, Vector4 row3) {
+        this(row0.getX(), row0.getY(), row0.getZ(), row0.getW(),
+             row1.getX(), row1.getY(), row1.getZ(), row1.getW(),
+             row2.getX(), row2.getY(), row2.getZ(), row2.getW(),
+             row3.getX(), row3.getY(), row3.getZ(), row3.getW());
+    }
+
+    /**
+     * Creates a copy of the given matrix.
+     * @throws IllegalDimensionException if the given matrix has not 4 rows and 4 columns.
+     */
+    public Matrix4(Matrix matrix) {
+        this(checkDimensions(matrix).get(0, 0), matrix.get(0, 1), matrix.get(0, 2), matrix.get(0, 3),
+             matrix.get(1, 0), matrix.get(1, 1), matrix.get(1, 2), matrix.get(1, 3),
+             matrix.get(2, 0), matrix.get(2, 1), matrix.get(2, 2), matrix.get(2, 3),
+             matrix.get(3, 0), matrix.get(3, 1), matrix.get(3, 2), matrix.get(3, 3));
+    }
+
+    private static Matrix checkDimensions(Matrix matrix) {
+        if (matrix.getRows() != 4 || matrix.getColumns() != 4) {
+            throw new IllegalDimensionException("matrix must have 4 rows and 4 columns");
+        }
+        return matrix;
+    }
+
+    /**
+     * @return a matrix which translates points by the given offset.
+     */
+    public static Matrix4 translation(Vector3 offset) {
+        return new Matrix4(
+            1, 0, 0, offset.getX(),
+            0, 1, 0, offset.getY(),
+            0, 0, 1, offset.getZ(),
+            0, 0, 0, 1);
+    }
+
+    /**
+     * @return a matrix which scales points by the given factors along the axes.
+     */
+    public static Matrix4 scaling(Vector3 factors) {
+        return new Matrix4(
+            factors.getX(), 0, 0, 0,
+            0, factors.getY(), 0, 0,
+            0, 0, factors.getZ(), 0,
+            0, 0, 0, 1);
+    }
+
+    public double get(final int row, final int column) {
+        if (row < 0 || row >= 4 || column < 0 || column >= 4) {
+            throw new IndexOutOfBoundsException("(" + row + "," + column + ") is out of range for matrix with 4 rows and 4 columns");
+        }
+        return getRow(row).get(column);
+    }
+
+    public Vector4 getRow(int index) {
+        switch (index) {
+            case 0: return new Vector4(m00, m01, m02, m03);
+            case 1: return new Vector4(m10, m11, m12, m13);
+            case 2: return new Vector4(m20, m21, m22, m23);
+            case 3: return new Vector4(m30, m31, m32, m33);
+            default: throw new IndexOutOfBoundsException("row " + index + " is out of range for matrix with 4 rows");
+        }
+    }
+
+    public Vector4 getColumn(int index) {
+        switch (index) {
+            case 0: return new Vector4(m00, m10, m20, m30);
+            case 1: return new Vector4(m01, m11, m21, m31);
+            case 2: return new Vector4(m02, m12, m22, m32);
+            case 3: return new Vector4(m03, m13, m23, m33);
+            default: throw new IndexOutOfBoundsException("column " + index + " is out of range for matrix with 4 columns");
+        }
+    }
+
+    public Matrix4 add(Matrix4 m) {
+        return new Matrix4(
+            m00 + m.m00, m01 + m.m01, m02 + m.m02, m03 + m.m03,
+            m10 + m.m10, m11 + m.m11, m12 + m.m12, m13 + m.m13,
+            m20 + m.m20, m21 + m.m21, m22 + m.m22, m23 + m.m23,
+            m30 + m.m30, m31 + m.m31, m32 + m.m32, m33 + m.m33);
+    }
+
+    public Vector4 mul(Vector4 v) {
+        return new Vector4(
+            m00 * v.getX() + m01 * v.getY() + m02 * v.getZ() + m03 * v.getW(),
+            m10 * v.getX() + m11 * v.getY() + m12 * v.getZ() + m13 * v.getW(),
+            m20 * v.getX() + m21 * v.getY() + m22 * v.getZ() + m23 * v.getW(),
+            m30 * v.getX() + m31 * v.getY() + m32 * v.getZ() + m33 * v.getW());
+    }
+
+    public Matrix4 mul(Matrix4 m) {
+        return new Matrix4(
+            m00 * m.m00 + m01 * m.m10 + m02 * m.m20 + m03 * m.m30,
+            m00 * m.m01 + m01 * m.m11 + m02 * m.m21 + m03 * m.m31,
+            m00 * m.m02 + m01 * m.m12 + m02 * m.m22 + m03 * m.m32,
+            m00 * m.m03 + m01 * m.m13 + m02 * m.m23 + m03 * m.m33,
+            m10 * m.m00 + m11 * m.m10 + m12 * m.m20 + m13 * m.m30,
+            m10 * m.m01 + m11 * m.m11 + m12 * m.m21 + m13 * m.m31,
+            m10 * m.m02 + m11 * m.m12 + m12 * m.m22 + m13 * m.m32,
+            m10 * m.m03 + m11 * m.m13 + m12 * m.m23 + m13 * m.m33,
+            m20 * m.m00 + m21 * m.m10 + m22 * m.m20 + m23 * m.m30,
+            m20 * m.m01 + m21 * m.m11 + m22 * m.m21 + m23 * m.m31,
+            m20 * m.m02 + m21 * m.m12 + m22 * m.m22 + m23 * m.m32,
+            m20 * m.m03 + m21 * m.m13 + m22 * m.m23 + m23 * m.m33,
+            m30 * m.m00 + m31 * m.m10 + m32 * m.m20 + m33 * m.m30,
+            m30 * m.m01 + m31 * m.m11 + m32 * m.m21 + m33 * m.m31,
+            m30 * m.m02 + m31 * m.m12 + m32 * m.m22 + m33 * m.m32,
+            m30 * m.m03 + m31 * m.m13 + m32 * m.m23 + m33 * m.m33);
+    }
+
+    public Matrix4 transpose() {
+        return new Matrix4(
+            m00, m10, m20, m30,
+            m01, m11, m21, m31,
+            m02, m12, m22, m32,
+            m03, m13, m23, m33);
+    }
+
+    public double determinant() {
+        final double s0 = m00 * m11 - m10 * m01;
+        final double s1 = m00 * m12 - m10 * m02;
+        final double s2 = m00 * m13 - m10 * m03;
+        final double s3 = m01 * m12 - m11 * m02;
+        final double s4 = m01 * m13 - m11 * m03;
+        final double s5 = m02 * m13 - m12 * m03;
+        final double c5 = m22 * m33 - m32 * m23;
+        final double c4 = m21 * m33 - m31 * m23;
+        final double c3 = m21 * m32 - m31 * m22;
+        final double c2 = m20 * m33 - m30 * m23;
+        final double c1 = m20 * m32 - m30 * m22;
+        final double c0 = m20 * m31 - m30 * m21;
+        return s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+    }
+
+    /**
+     * @return the inverse of this matrix, calculated from the 2x2 sub-determinants of the upper and lower two rows.
+     * @throws SingularMatrixException if the determinant of this matrix is 0.
+     */
+    public Matrix4 inverse() {
+        final double s0 = m00 * m11 - m10 * m01;
+        final double s1 = m00 * m12 - m10 * m02;
+        final double s2 = m00 * m13 - m10 * m03;
+        final double s3 = m01 * m12 - m11 * m02;
+        final double s4 = m01 * m13 - m11 * m03;
+        final double s5 = m02 * m13 - m12 * m03;
+        final double c5 = m22 * m33 - m32 * m23;
+        final double c4 = m21 * m33 - m31 * m23;
+        final double c3 = m21 * m32 - m31 * m22;
+        final double c2 = m20 * m33 - m30 * m23;
+        final double c1 = m20 * m32 - m30 * m22;
+        final double c0 = m20 * m31 - m30 * m21;
+        final double det = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+        if (det == 0) {
+            throw new SingularMatrixException("matrix is singular");
+        }
+        final double f = 1 / det;
+        return new Matrix4(
+            ( m11 * c5 - m12 * c4 + m13 * c3) * f,
+            (-m01 * c5 + m02 * c4 - m03 * c3) * f,
+            ( m31 * s5 - m32 * s4 + m33 * s3) * f,
+            (-m21 * s5 + m22 * s4 - m23 * s3) * f,
+            (-m10 * c5 + m12 * c2 - m13 * c1) * f,
+            ( m00 * c5 - m02 * c2 + m03 * c1) * f,
+            (-m30 * s5 + m32 * s2 - m33 * s1) * f,
+            ( m20 * s5 - m22 * s2 + m23 * s1) * f,
+            ( m10 * c4 - m11 * c2 + m13 * c0) * f,
+            (-m00 * c4 + m01 * c2 - m03 * c0) * f,
+            ( m30 * s4 - m31 * s2 + m33 * s0) * f,
+            (-m20 * s4 + m21 * s2 - m23 * s0) * f,
+            (-m10 * c3 + m11 * c1 - m12 * c0) * f,
+            ( m00 * c3 - m01 * c1 + m02 * c0) * f,
+            (-m30 * s3 + m31 * s1 - m32 * s0) * f,
+            ( m20 * s3 - m21 * s1 + m22 * s0) * f);
+    }
+
+    /**
+     * Transforms the given point in homogeneous coordinates, i.e. as (x, y, z, 1). The result
+     * is divided by its fourth coordinate, so perspective projections are supported.
+     */
+    public Vector3 transformPoint(Vector3 p) {
+        final double x = m00 * p.getX() + m01 * p.getY() + m02 * p.getZ() + m03;
+        final double y = m10 * p.getX() + m11 * p.getY() + m12 * p.getZ() + m13;
+        final double z = m20 * p.getX() + m21 * p.getY() + m22 * p.getZ() + m23;
+        final double w = m30 * p.getX() + m31 * p.getY() + m32 * p.getZ() + m33;
+        return w == 1 ? new Vector3(x, y, z) : new Vector3(x / w, y / w, z / w);
+    }
+
+    /**
+     * Transforms the given direction in homogeneous coordinates, i.e. as (x, y, z, 0),
+     * so the translation of this matrix does not apply.
+     */
+    public Vector3 transformDirection(Vector3 d) {
+        return new Vector3(
+            m00 * d.getX() + m01 * d.getY() + m02 * d.getZ(),
+            m10 * d.getX() + m11 * d.getY() + m12 * d.getZ(),
+            m20 * d.getX() + m21 * d.getY() + m22 * d.getZ());
+    }
+
+    /**
+     * @return a copy of this matrix as general matrix.
+     */
+    public Matrix toMatrix() {
+        return new Matrix(4, 4,
+            m00, m01, m02, m03,
+            m10, m11, m12, m13,
+            m20, m21, m22, m23,
+            m30, m31, m32, m33);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Matrix4)) {
+            return false;
+        }
+        Matrix4 m = (Matrix4)o;
+        // compare with == to treat "-0" and "0" as equal.
+        return m00 == m.m00 && m01 == m.m01 && m02 == m.m02 && m03 == m.m03
+            && m10 == m.m10 && m11 == m.m11 && m12 == m.m12 && m13 == m.m13
+            && m20 == m.m20 && m21 == m.m21 && m22 == m.m22 && m23 == m.m23
+            && m30 == m.m30 && m31 == m.m31 && m32 == m.m32 && m33 == m.m33;
+    }
+
+    /**
+     * @return the same hash code as {@link Matrix#hashCode()} for a matrix with the same values.
+     */
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int row = 0; row < 4; row++) {
+            hash = 31 * hash + getRow(row).hashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "Matrix4[" + getRow(0) + ", " + getRow(1) + ", " + getRow(2) + ", " + getRow(3) + "]";
+    }
+}
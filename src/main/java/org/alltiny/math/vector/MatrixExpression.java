@@ -0,0 +1,245 @@
+package org.alltiny.math.vector;
+
+/**
+ * This is a lazily evaluated chain of element-wise matrix operations and transpositions.
+ * Like {@link VectorExpression} it only builds an expression tree, which is evaluated in a
+ * single pass over the operands when {@link #materialize()} or {@link #mul(Vector)} is called.
+ *
+ * Transpositions are pushed down to the operands, where they only swap the strides of a view,
+ * so {@code a.lazy().add(b).transpose()} never copies a matrix to transpose it.
+ * @see Matrix#lazy()
+ * @since 1.2
+ */
+public abstract class MatrixExpression {
+
+    private final int rows;
+    private final int columns;
+
+    MatrixExpression(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * @return an expression which just reads the given matrix.
+     */
+    public static MatrixExpression of(Matrix matrix) {
+        return new Leaf(matrix);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public MatrixExpression add(Matrix other) {
+        return add(of(other));
+    }
+
+    public MatrixExpression add(MatrixExpression other) {
+        checkDimensions(other);
+        return new Sum(this, other, false);
+    }
+
+    public MatrixExpression sub(Matrix other) {
+        return sub(of(other));
+    }
+
+    public MatrixExpression sub(MatrixExpression other) {
+        checkDimensions(other);
+        return new Sum(this, other, true);
+    }
+
+    public MatrixExpression scale(double scalar) {
+        return new Scaled(this, scalar);
+    }
+
+    /**
+     * @return the transposed expression; the transposition is applied to the operands as views.
+     */
+    public abstract MatrixExpression transpose();
+
+    /**
+     * Evaluates this expression row by row and multiplies each row with the given vector,
+     * so the matrix this expression stands for is never stored.
+     * @throws IllegalDimensionException if the vector's dimension does not match the columns.
+     */
+    public Vector mul(Vector vector) {
+        if (columns != vector.getDimension()) {
+            throw new IllegalDimensionException("vector with " + vector.getDimension() + " dimensions can not be multiplied with matrix with " + columns + " columns");
+        }
+        final VectorExpression operand = VectorExpression.of(vector);
+        final int buffers = buffers();
+        final double[] result = new double[rows];
+        try (ScratchArena arena = ScratchArena.open()) {
+            final Vector scratch = arena.vector(VectorExpression.CHUNK * (buffers + 1));
+            final double[] buffer = scratch.getArray();
+            final int base = scratch.getOffset();
+            final int vectorOffset = base + VectorExpression.CHUNK * buffers;
+            for (int row = 0; row < rows; row++) {
+                double sum = 0;
+                for (int from = 0; from < columns; from += VectorExpression.CHUNK) {
+                    final int length = Math.min(VectorExpression.CHUNK, columns - from);
+                    evaluate(row, from, length, buffer, base);
+                    operand.evaluate(from, length, buffer, vectorOffset);
+                    sum += Kernels.dot(buffer, base, buffer, vectorOffset, length);
+                }
+                result[row] = sum;
+            }
+        }
+        return new Vector(result);
+    }
+
+    /**
+     * @return a new matrix holding the values of this expression.
+     */
+    public Matrix materialize() {
+        double[] values = new double[rows * columns];
+        try (ScratchArena arena = ScratchArena.open()) {
+            final Vector scratch = arena.vector(VectorExpression.CHUNK * buffers());
+            final double[] buffer = scratch.getArray();
+            final int base = scratch.getOffset();
+            for (int row = 0; row < rows; row++) {
+                for (int from = 0; from < columns; from += VectorExpression.CHUNK) {
+                    final int length = Math.min(VectorExpression.CHUNK, columns - from);
+                    evaluate(row, from, length, buffer, base);
+                    System.arraycopy(buffer, base, values, row * columns + from, length);
+                }
+            }
+        }
+        return new Matrix(rows, columns, values);
+    }
+
+    /**
+     * Calculates the elements {@code [from, from + length)} of the given row into
+     * {@code buffer[offset, offset + length)}; see {@link VectorExpression}.
+     */
+    abstract void evaluate(int row, int from, int length, double[] buffer, int offset);
+
+    /**
+     * @return the number of chunk buffers needed to evaluate this expression.
+     */
+    abstract int buffers();
+
+    private void checkDimensions(MatrixExpression other) {
+        if (rows != other.rows || columns != other.columns) {
+            throw new IllegalDimensionException("matrices must have same dimensions");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MatrixExpression[rows=" + rows + ", columns=" + columns + "]";
+    }
+
+    /** Reads the values of a matrix. */
+    private static final class Leaf extends MatrixExpression {
+
+        private final Matrix matrix;
+
+        private Leaf(Matrix matrix) {
+            super(matrix.getRows(), matrix.getColumns());
+            this.matrix = matrix;
+        }
+
+        @Override
+        public MatrixExpression transpose() {
+            return new Leaf(new Matrix(matrix.getArray(), matrix.getOffset(), matrix.getColumns(), matrix.getRows(),
+                matrix.getColumnStride(), matrix.getRowStride()));
+        }
+
+        @Override
+        void evaluate(int row, int from, int length, double[] buffer, int offset) {
+            final double[] values = matrix.getArray();
+            final int stride = matrix.getColumnStride();
+            final int start = matrix.getOffset() + row * matrix.getRowStride() + from * stride;
+            if (stride == 1) {
+                System.arraycopy(values, start, buffer, offset, length);
+            } else {
+                for (int i = 0, v = start; i < length; i++, v += stride) {
+                    buffer[offset + i] = values[v];
+                }
+            }
+        }
+
+        @Override
+        int buffers() {
+            return 1;
+        }
+    }
+
+    /** Adds or subtracts two expressions. */
+    private static final class Sum extends MatrixExpression {
+
+        private final MatrixExpression left;
+        private final MatrixExpression right;
+        private final boolean subtract;
+
+        private Sum(MatrixExpression left, MatrixExpression right, boolean subtract) {
+            super(left.getRows(), left.getColumns());
+            this.left = left;
+            this.right = right;
+            this.subtract = subtract;
+        }
+
+        @Override
+        public MatrixExpression transpose() {
+            return new Sum(left.transpose(), right.transpose(), subtract);
+        }
+
+        @Override
+        void evaluate(int row, int from, int length, double[] buffer, int offset) {
+            left.evaluate(row, from, length, buffer, offset);
+            final int scratch = offset + VectorExpression.CHUNK;
+            right.evaluate(row, from, length, buffer, scratch);
+            if (subtract) {
+                for (int i = 0; i < length; i++) {
+                    buffer[offset + i] = buffer[offset + i] - buffer[scratch + i];
+                }
+            } else {
+                for (int i = 0; i < length; i++) {
+                    buffer[offset + i] = buffer[offset + i] + buffer[scratch + i];
+                }
+            }
+        }
+
+        @Override
+        int buffers() {
+            return Math.max(left.buffers(), 1 + right.buffers());
+        }
+    }
+
+    /** Multiplies an expression with a scalar. */
+    private static final class Scaled extends MatrixExpression {
+
+        private final MatrixExpression expression;
+        private final double factor;
+
+        private Scaled(MatrixExpression expression, double factor) {
+            super(expression.getRows(), expression.getColumns());
+            this.expression = expression;
+            this.factor = factor;
+        }
+
+        @Override
+        public MatrixExpression transpose() {
+            return new Scaled(expression.transpose(), factor);
+        }
+
+        @Override
+        void evaluate(int row, int from, int length, double[] buffer, int offset) {
+            expression.evaluate(row, from, length, buffer, offset);
+            for (int i = 0; i < length; i++) {
+                buffer[offset + i] = buffer[offset + i] * factor;
+            }
+        }
+
+        @Override
+        int buffers() {
+            return expression.buffers();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.alltiny.math.vector;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This is the switch and registry of the instrumentation of {@link Vector} and {@link Matrix}.
+ *
+ * Metrics are disabled by default. They are enabled by starting the JVM with the system property
+ * {@code -Dorg.alltiny.math.vector.metrics=true}. The property is read once, into a constant which
+ * guards every instrumented operation, so when disabled the JIT removes the instrumentation and
+ * it costs nothing. When enabled, every operation is timed and reported to the registered
+ * {@link MetricsListener}s and to the built-in statistics, which are published as
+ * {@link MetricsMXBean} under {@value #OBJECT_NAME}.
+ *
+ * Operations which are implemented with other operations report those as well, e.g. normalizing
+ * a vector reports the calculation of its length.
+ * @since 1.2
+ */
+public final class Metrics {
+
+    public static final String PROPERTY = "org.alltiny.math.vector.metrics";
+    public static final String OBJECT_NAME = "org.alltiny.math.vector:type=Metrics";
+
+    /** Whether the operations report to the listeners; constant, so disabled checks are free. */
+    static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+    private static final MetricsStatistics STATISTICS = new MetricsStatistics(ENABLED);
+    private static final List<MetricsListener> LISTENERS = new CopyOnWriteArrayList<MetricsListener>();
+    /** Why the statistics could not be published, or null. */
+    private static final JMException REGISTRATION_FAILURE;
+
+    static {
+        JMException failure = null;
+        if (ENABLED) {
+            LISTENERS.add(STATISTICS);
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(STATISTICS, new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                // usually another copy of this library in the same JVM has registered its statistics already.
+                failure = e;
+            }
+        }
+        REGISTRATION_FAILURE = failure;
+    }
+
+    /**
+     * The instrumented operations.
+     */
+    public enum Operation {
+        VECTOR_ADD,
+        VECTOR_SUB,
+        VECTOR_SCALE,
+        VECTOR_AXPY,
+        VECTOR_SCALAR,
+        VECTOR_LENGTH,
+        VECTOR_NORMALIZE,
+        VECTOR_CROSS,
+        VECTOR_PROJECT,
+        MATRIX_ADD,
+        MATRIX_MUL_VECTOR,
+        MATRIX_MUL_MATRIX,
+        MATRIX_TRANSPOSE,
+        MATRIX_LU
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * @return true if the JVM has been started with metrics enabled.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * @return true if metrics are enabled and the built-in statistics are published under {@value #OBJECT_NAME}.
+     * @see #getRegistrationFailure()
+     */
+    public static boolean isRegistered() {
+        return ENABLED && REGISTRATION_FAILURE == null;
+    }
+
+    /**
+     * @return the exception which prevented publishing the built-in statistics, e.g. because
+     * another copy of this library in the same JVM published its statistics already, or null.
+     */
+    public static JMException getRegistrationFailure() {
+        return REGISTRATION_FAILURE;
+    }
+
+    /**
+     * @return the built-in statistics, which stay empty if metrics are disabled.
+     */
+    public static MetricsMXBean getStatistics() {
+        return STATISTICS;
+    }
+
+    /**
+     * Registers the given listener. It is only called if metrics are enabled.
+     */
+    public static void addListener(MetricsListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(MetricsListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Reports a finished operation to all listeners. Callers check {@link #ENABLED} first.
+     * @param start of the operation as returned by {@link System#nanoTime()}
+     */
+    static void record(Operation operation, long elements, long flops, long start) {
+        final long nanos = System.nanoTime() - start;
+        for (MetricsListener listener : LISTENERS) {
+            listener.operation(operation, elements, flops, nanos);
+        }
+    }
+
+    /**
+     * Reports the allocation of a result with the given number of doubles to all listeners.
+     * Callers check {@link #ENABLED} first.
+     */
+    static void allocated(Operation operation, long doubles) {
+        final long bytes = doubles * Double.BYTES;
+        for (MetricsListener listener : LISTENERS) {
+            listener.allocation(operation, bytes);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.alltiny.math.vector;
+
+/**
+ * This is notified about the operations of vectors and matrices, if {@link Metrics} are enabled.
+ * Listeners are called synchronously on the thread which runs the operation, possibly from
+ * several threads at once; they must therefore be thread-safe, fast and must not throw.
+ * @since 1.2
+ */
+public interface MetricsListener {
+
+    /**
+     * Is called after an operation has finished.
+     * @param operation which has finished
+     * @param elements number of elements which were read
+     * @param flops number of floating point operations, multiplications and additions counted separately
+     * @param nanos time the operation took in nanoseconds
+     */
+    void operation(Metrics.Operation operation, long elements, long flops, long nanos);
+
+    /**
+     * Is called when an operation allocates the values of its result.
+     * @param operation which allocates
+     * @param bytes which are allocated for the values
+     */
+    void allocation(Metrics.Operation operation, long bytes);
+}
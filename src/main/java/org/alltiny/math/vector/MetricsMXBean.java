@@ -0,0 +1,38 @@
+package org.alltiny.math.vector;
+
+import java.util.Map;
+
+/**
+ * Management interface of the statistics collected by {@link Metrics}. It is registered in the
+ * platform MBean server under {@value Metrics#OBJECT_NAME} if metrics are enabled. All maps are
+ * keyed by the name of the {@link Metrics.Operation}.
+ * @since 1.2
+ */
+public interface MetricsMXBean {
+
+    boolean isEnabled();
+
+    /** @return number of calls per operation. */
+    Map<String, Long> getCalls();
+
+    /** @return number of elements read per operation. */
+    Map<String, Long> getElements();
+
+    /** @return number of floating point operations per operation. */
+    Map<String, Long> getFlops();
+
+    /** @return number of bytes allocated for results per operation. */
+    Map<String, Long> getAllocatedBytes();
+
+    /** @return total time in nanoseconds spent per operation. */
+    Map<String, Long> getNanos();
+
+    /**
+     * @return histogram of the times per operation: element i counts the calls which took
+     *         less than 2^i nanoseconds, but not less than 2^(i-1).
+     */
+    Map<String, long[]> getTimeHistograms();
+
+    /** Sets all statistics back to 0. */
+    void reset();
+}
@@ -0,0 +1,114 @@
+package org.alltiny.math.vector;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The built-in statistics of {@link Metrics}: sums per operation and a histogram of the times
+ * with one bucket per power of two nanoseconds. All counters are updated atomically without locks.
+ */
+final class MetricsStatistics implements MetricsListener, MetricsMXBean {
+
+    /** One bucket per possible bit length of a time in nanoseconds. */
+    static final int BUCKETS = 64;
+
+    private static final Metrics.Operation[] OPERATIONS = Metrics.Operation.values();
+
+    private final boolean enabled;
+    private final AtomicLongArray calls = new AtomicLongArray(OPERATIONS.length);
+    private final AtomicLongArray elements = new AtomicLongArray(OPERATIONS.length);
+    private final AtomicLongArray flops = new AtomicLongArray(OPERATIONS.length);
+    private final AtomicLongArray allocatedBytes = new AtomicLongArray(OPERATIONS.length);
+    private final AtomicLongArray nanos = new AtomicLongArray(OPERATIONS.length);
+    private final AtomicLongArray histograms = new AtomicLongArray(OPERATIONS.length * BUCKETS);
+
+    MetricsStatistics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void operation(Metrics.Operation operation, long elementCount, long flopCount, long time) {
+        final int index = operation.ordinal();
+        calls.incrementAndGet(index);
+        elements.addAndGet(index, elementCount);
+        flops.addAndGet(index, flopCount);
+        nanos.addAndGet(index, time);
+        histograms.incrementAndGet(index * BUCKETS + bucket(time));
+    }
+
+    @Override
+    public void allocation(Metrics.Operation operation, long bytes) {
+        allocatedBytes.addAndGet(operation.ordinal(), bytes);
+    }
+
+    /** @return the bit length of the time, which is the index of its histogram bucket. */
+    static int bucket(long time) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, time)));
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Map<String, Long> getCalls() {
+        return toMap(calls);
+    }
+
+    @Override
+    public Map<String, Long> getElements() {
+        return toMap(elements);
+    }
+
+    @Override
+    public Map<String, Long> getFlops() {
+        return toMap(flops);
+    }
+
+    @Override
+    public Map<String, Long> getAllocatedBytes() {
+        return toMap(allocatedBytes);
+    }
+
+    @Override
+    public Map<String, Long> getNanos() {
+        return toMap(nanos);
+    }
+
+    @Override
+    public Map<String, long[]> getTimeHistograms() {
+        Map<String, long[]> result = new LinkedHashMap<String, long[]>();
+        for (Metrics.Operation operation : OPERATIONS) {
+            long[] histogram = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram[i] = histograms.get(operation.ordinal() * BUCKETS + i);
+            }
+            result.put(operation.name(), histogram);
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            calls.set(i, 0);
+            elements.set(i, 0);
+            flops.set(i, 0);
+            allocatedBytes.set(i, 0);
+            nanos.set(i, 0);
+        }
+        for (int i = 0; i < histograms.length(); i++) {
+            histograms.set(i, 0);
+        }
+    }
+
+    private static Map<String, Long> toMap(AtomicLongArray counters) {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (Metrics.Operation operation : OPERATIONS) {
+            result.put(operation.name(), counters.get(operation.ordinal()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,54 @@
+package org.alltiny.math.vector;
+
+/**
+ * This is a result of a nearest-neighbour or radius query on a {@link SpatialIndex}:
+ * the index of a point as it was given when the index was built and its Euclidean distance
+ * to the query.
+ * @since 1.2
+ */
+public final class Neighbour {
+
+    private final int index;
+    private final double distance;
+
+    public Neighbour(int index, double distance) {
+        this.index = index;
+        this.distance = distance;
+    }
+
+    /**
+     * @return the index of the point in the vectors or batch the spatial index was built from.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the Euclidean distance of the point to the query.
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Neighbour)) {
+            return false;
+        }
+        Neighbour neighbour = (Neighbour)o;
+        return index == neighbour.index && distance == neighbour.distance;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * index + Vector3.hash(distance);
+    }
+
+    @Override
+    public String toString() {
+        return "Neighbour[index=" + index + ", distance=" + distance + "]";
+    }
+}
@@ -0,0 +1,165 @@
+package org.alltiny.math.vector;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class decides whether and where operations like {@link Matrix#mul(Matrix)} are executed in parallel.
+ * Parallel operations split the rows of their result into blocks which are computed by a {@link ForkJoinPool}.
+ * Operations whose work (number of multiply-adds) is below the threshold are always executed sequentially.
+ *
+ * Each result element is computed in exactly the same way as on the sequential path, so parallel results
+ * are bit-identical to sequential ones.
+ * @since 1.2
+ */
+public final class Parallelism {
+
+    /** Default minimum number of multiply-adds an operation needs before it is executed in parallel. */
+    public static final long DEFAULT_THRESHOLD = 1L << 18;
+
+    private static final Parallelism SEQUENTIAL = new Parallelism(null, Long.MAX_VALUE);
+
+    private static volatile Parallelism defaultParallelism = SEQUENTIAL;
+
+    private final ForkJoinPool pool;
+    private final long threshold;
+
+    private Parallelism(ForkJoinPool pool, long threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return a parallelism which executes every operation on the calling thread.
+     */
+    public static Parallelism sequential() {
+        return SEQUENTIAL;
+    }
+
+    /**
+     * @return a parallelism which executes large operations on {@link ForkJoinPool#commonPool()}.
+     */
+    public static Parallelism commonPool() {
+        return new Parallelism(null, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @return a parallelism which executes large operations on the given pool.
+     */
+    public static Parallelism of(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool can not be null");
+        }
+        return new Parallelism(pool, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @return the parallelism used by operations which are not given one explicitly.
+     */
+    public static Parallelism getDefault() {
+        return defaultParallelism;
+    }
+
+    /**
+     * Sets the parallelism used by operations which are not given one explicitly.
+     * Initially this is {@link #sequential()}.
+     */
+    public static void setDefault(Parallelism parallelism) {
+        if (parallelism == null) {
+            throw new IllegalArgumentException("parallelism can not be null");
+        }
+        defaultParallelism = parallelism;
+    }
+
+    /**
+     * @param threshold minimum number of multiply-adds an operation needs before it is executed in parallel.
+     * @return a copy of this parallelism with the given threshold.
+     */
+    public Parallelism withThreshold(long threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold can not be negative");
+        }
+        if (this == SEQUENTIAL) {
+            return this;
+        }
+        return new Parallelism(pool, threshold);
+    }
+
+    public long getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return true if operations can be executed in parallel at all.
+     */
+    public boolean isParallel() {
+        return this != SEQUENTIAL;
+    }
+
+    /**
+     * Executes the given task for all rows {@code [0, rows)}. The rows are split into blocks which are
+     * executed in parallel, if the total work reaches the threshold.
+     * @param workPerRow number of multiply-adds per row
+     */
+    void forEachRowBlock(int rows, long workPerRow, RowBlockTask task) {
+        if (this == SEQUENTIAL || rows < 2 || rows * workPerRow < threshold) {
+            task.compute(0, rows);
+            return;
+        }
+        final ForkJoinPool executor = pool != null ? pool : ForkJoinPool.commonPool();
+        // create a few blocks per worker to balance the load, but keep blocks large enough to be worth a task.
+        final long minRows = Math.max(1, threshold / Math.max(1, workPerRow) / 4);
+        final int blockRows = (int)Math.max(minRows, rows / (executor.getParallelism() * 4L));
+        RowBlockAction action = new RowBlockAction(task, 0, rows, Math.max(1, blockRows));
+        if (ForkJoinTask.getPool() == executor) {
+            action.invoke();
+        } else {
+            executor.invoke(action);
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (this == SEQUENTIAL) {
+            return "Parallelism[sequential]";
+        }
+        return "Parallelism[pool=" + (pool != null ? pool : "common") + ", threshold=" + threshold + "]";
+    }
+
+    /**
+     * A task computing a block of result rows.
+     */
+    interface RowBlockTask {
+        /** Computes the rows {@code [from, to)}. */
+        void compute(int from, int to);
+    }
+
+    /**
+     * Splits a row range in halves until the blocks are small enough.
+     */
+    private static final class RowBlockAction extends RecursiveAction {
+
+        private final RowBlockTask task;
+        private final int from;
+        private final int to;
+        private final int blockRows;
+
+        RowBlockAction(RowBlockTask task, int from, int to, int blockRows) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+            this.blockRows = blockRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= blockRows) {
+                task.compute(from, to);
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(new RowBlockAction(task, from, middle, blockRows), new RowBlockAction(task, middle, to, blockRows));
+        }
+    }
+}
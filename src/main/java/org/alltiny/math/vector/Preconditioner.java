@@ -0,0 +1,18 @@
+package org.alltiny.math.vector;
+
+/**
+ * Approximates the inverse of the operator of a linear system, so that an {@link IterativeSolver}
+ * needs fewer iterations. Common preconditioners are created by {@link Preconditioners}.
+ * @since 1.2
+ */
+public interface Preconditioner {
+
+    /**
+     * Writes the approximate solution {@code M^-1 * residual} of the system into the result vector,
+     * without allocating a new vector.
+     * @param residual vector to precondition, which must not be changed
+     * @param result vector to write into, which does not share its values with the residual
+     * @return the given result vector
+     */
+    Vector precondition(Vector residual, Vector result);
+}
@@ -0,0 +1,97 @@
+package org.alltiny.math.vector;
+
+/**
+ * This class creates common {@link Preconditioner}s.
+ * @since 1.2
+ */
+public final class Preconditioners {
+
+    private static final Preconditioner IDENTITY = new Preconditioner() {
+        @Override
+        public Vector precondition(Vector residual, Vector result) {
+            return residual.scale(1, result);
+        }
+
+        @Override
+        public String toString() {
+            return "Preconditioner[identity]";
+        }
+    };
+
+    private Preconditioners() {
+    }
+
+    /**
+     * @return a preconditioner which does not change the residual.
+     */
+    public static Preconditioner identity() {
+        return IDENTITY;
+    }
+
+    /**
+     * @return a preconditioner dividing every element by the element of the given diagonal.
+     * @throws IllegalArgumentException if an element of the diagonal is 0.
+     */
+    public static Preconditioner jacobi(Vector diagonal) {
+        final double[] inverse = new double[diagonal.getDimension()];
+        for (int i = 0; i < inverse.length; i++) {
+            if (diagonal.get(i) == 0) {
+                throw new IllegalArgumentException("diagonal element " + i + " is 0");
+            }
+            inverse[i] = 1 / diagonal.get(i);
+        }
+        return new Preconditioner() {
+            @Override
+            public Vector precondition(Vector residual, Vector result) {
+                if (residual.getDimension() != inverse.length || result.getDimension() != inverse.length) {
+                    throw new IllegalDimensionException("vectors must have " + inverse.length + " dimensions");
+                }
+                final double[] in = residual.getArray();
+                final double[] out = result.getArray();
+                for (int i = 0, r = residual.getOffset(), o = result.getOffset(); i < inverse.length; i++, r += residual.getStride(), o += result.getStride()) {
+                    out[o] = in[r] * inverse[i];
+                }
+                return result;
+            }
+
+            @Override
+            public String toString() {
+                return "Preconditioner[jacobi]";
+            }
+        };
+    }
+
+    /**
+     * @return a preconditioner dividing every element by the diagonal element of the given square matrix.
+     * @throws IllegalDimensionException if the matrix is not square.
+     * @throws IllegalArgumentException if a diagonal element is 0.
+     */
+    public static Preconditioner jacobi(Matrix matrix) {
+        checkSquare(matrix.getRows(), matrix.getColumns());
+        final Vector diagonal = new Vector(matrix.getRows());
+        for (int i = 0; i < matrix.getRows(); i++) {
+            diagonal.set(i, matrix.get(i, i));
+        }
+        return jacobi(diagonal);
+    }
+
+    /**
+     * @return a preconditioner dividing every element by the diagonal element of the given square matrix.
+     * @throws IllegalDimensionException if the matrix is not square.
+     * @throws IllegalArgumentException if a diagonal element is 0.
+     */
+    public static Preconditioner jacobi(SparseMatrix matrix) {
+        checkSquare(matrix.getRows(), matrix.getColumns());
+        final Vector diagonal = new Vector(matrix.getRows());
+        for (int i = 0; i < matrix.getRows(); i++) {
+            diagonal.set(i, matrix.get(i, i));
+        }
+        return jacobi(diagonal);
+    }
+
+    private static void checkSquare(int rows, int columns) {
+        if (rows != columns) {
+            throw new IllegalDimensionException("matrix with " + rows + " rows and " + columns + " columns is not square");
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.alltiny.math.vector;
+
+/**
+ * Plain Java loops for the hot kernels. These are used by {@link Kernels} on all JDKs and
+ * remain the fallback where vectorized kernels are not available.
+ *
+ * Reductions sum into four independent accumulators, since the JIT may not reorder additions
+ * of doubles and a single accumulator would wait for every addition to finish. Long arrays are
+ * summed pairwise in blocks of {@link #PAIRWISE_BLOCK} elements, so the rounding error grows
+ * with the logarithm of the length instead of the length.
+ */
+final class ScalarKernels {
+
+    private ScalarKernels() {
+    }
+
+    /** Reductions longer than this are split into halves which are summed separately (pairwise summation). */
+    static final int PAIRWISE_BLOCK = 1024;
+    /** Factor splitting a double into two halves of 26 bits each (Dekker). */
+    private static final double SPLITTER = 134217729.0;
+    /** Values above this would overflow when being split, their products are not compensated. */
+    private static final double SPLIT_LIMIT = 0x1p995;
+
+    static double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        if (length > PAIRWISE_BLOCK) {
+            final int half = length >>> 1;
+            return dot(a, aOffset, b, bOffset, half) + dot(a, aOffset + half, b, bOffset + half, length - half);
+        }
+        // four independent accumulators let the additions overlap instead of waiting for each other.
+        double sum0 = 0;
+        double sum1 = 0;
+        double sum2 = 0;
+        double sum3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+            sum1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            sum2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            sum3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /** Same as {@link #dot(double[], int, double[], int, int)} for elements with a distance of the given strides. */
+    static double dot(double[] a, int aOffset, int aStride, double[] b, int bOffset, int bStride, int length) {
+        if (length > PAIRWISE_BLOCK) {
+            final int half = length >>> 1;
+            return dot(a, aOffset, aStride, b, bOffset, bStride, half)
+                + dot(a, aOffset + half * aStride, aStride, b, bOffset + half * bStride, bStride, length - half);
+        }
+        double sum0 = 0;
+        double sum1 = 0;
+        double sum2 = 0;
+        double sum3 = 0;
+        int i = 0;
+        int x = aOffset;
+        int y = bOffset;
+        for (; i + 3 < length; i += 4, x += 4 * aStride, y += 4 * bStride) {
+            sum0 += a[x] * b[y];
+            sum1 += a[x + aStride] * b[y + bStride];
+            sum2 += a[x + 2 * aStride] * b[y + 2 * bStride];
+            sum3 += a[x + 3 * aStride] * b[y + 3 * bStride];
+        }
+        for (; i < length; i++, x += aStride, y += bStride) {
+            sum0 += a[x] * b[y];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    static double sumOfSquares(double[] a, int offset, int length) {
+        if (length > PAIRWISE_BLOCK) {
+            final int half = length >>> 1;
+            return sumOfSquares(a, offset, half) + sumOfSquares(a, offset + half, length - half);
+        }
+        double sum0 = 0;
+        double sum1 = 0;
+        double sum2 = 0;
+        double sum3 = 0;
+        int i = offset;
+        final int end = offset + length;
+        for (; i + 3 < end; i += 4) {
+            sum0 += a[i] * a[i];
+            sum1 += a[i + 1] * a[i + 1];
+            sum2 += a[i + 2] * a[i + 2];
+            sum3 += a[i + 3] * a[i + 3];
+        }
+        for (; i < end; i++) {
+            sum0 += a[i] * a[i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Calculates the scalar product as if it was calculated with twice the precision and rounded
+     * once at the end: the rounding error of every product is calculated exactly with Dekker's
+     * algorithm and the rounding errors of the sum are collected with Neumaier's compensation.
+     * Products of values above 2^995 are not compensated, since splitting them would overflow.
+     */
+    static double dotCompensated(double[] a, int aOffset, int aStride, double[] b, int bOffset, int bStride, int length) {
+        double sum = 0;
+        double compensation = 0;
+        for (int i = 0, x = aOffset, y = bOffset; i < length; i++, x += aStride, y += bStride) {
+            final double product = a[x] * b[y];
+            final double t = sum + product;
+            if (Math.abs(sum) >= Math.abs(product)) {
+                compensation += (sum - t) + product;
+            } else {
+                compensation += (product - t) + sum;
+            }
+            compensation += productError(a[x], b[y], product);
+            sum = t;
+        }
+        return Double.isInfinite(sum) ? sum : sum + compensation;
+    }
+
+    /** @return the exact rounding error of {@code product = x * y}. */
+    private static double productError(double x, double y, double product) {
+        if (Math.abs(x) > SPLIT_LIMIT || Math.abs(y) > SPLIT_LIMIT) {
+            return 0;
+        }
+        final double cx = SPLITTER * x;
+        final double xHigh = cx - (cx - x);
+        final double xLow = x - xHigh;
+        final double cy = SPLITTER * y;
+        final double yHigh = cy - (cy - y);
+        final double yLow = y - yHigh;
+        return xLow * yLow - (((product - xHigh * yHigh) - xLow * yHigh) - xHigh * yLow);
+    }
+
+    static void add(double[] a, int aOffset, double[] b, int bOffset, double[] result, int resultOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            result[resultOffset + i] = a[aOffset + i] + b[bOffset + i];
+        }
+    }
+
+    static void axpy(double factor, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            y[yOffset + i] += factor * x[xOffset + i];
+        }
+    }
+}
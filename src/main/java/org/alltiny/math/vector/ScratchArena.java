@@ -0,0 +1,252 @@
+package org.alltiny.math.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A scope for temporary vectors and matrices, whose values are taken from a slab of arrays
+ * owned by the current thread instead of the heap:
+ * <pre>
+ * try (ScratchArena arena = ScratchArena.open()) {
+ *     Vector temp = arena.vector(3);
+ *     ...
+ * }
+ * </pre>
+ * Closing the arena gives back everything it handed out at once, in constant time. Arenas can be
+ * nested; they have to be closed in reverse order, and only the innermost open arena hands out
+ * temporaries. The arena objects, the slab and even the vector and matrix objects are reused by
+ * later scopes of the same thread which request the same sizes in the same order, so a loop in
+ * a steady state allocates nothing at all. The slab starts at the size of the first request and
+ * grows with the requests; when the outermost arena is closed, a slab grown beyond a limit
+ * gives back its memory above that limit.
+ *
+ * The temporaries are cleared to zero like new vectors, but they must not be used after their
+ * arena is closed, because their values are reused by the next arena. An arena must be used on
+ * the thread which opened it only. The library uses arenas for its own temporary buffers as well.
+ * @since 1.2
+ */
+public final class ScratchArena implements AutoCloseable {
+
+    /** Number of doubles up to which the chunks of a slab grow; larger temporaries get a chunk of their own size. */
+    static final int CHUNK_DOUBLES = 1 << 15;
+    /** Number of doubles of the smallest chunk, which is all a thread with few small temporaries needs. */
+    static final int MIN_CHUNK_DOUBLES = 1 << 8;
+    /** Number of doubles a slab keeps when its outermost arena is closed; more is dropped. */
+    static final int MAX_RETAINED_DOUBLES = 1 << 17;
+
+    private static final ThreadLocal<Slab> SLABS = new ThreadLocal<Slab>() {
+        @Override
+        protected Slab initialValue() {
+            return new Slab(Thread.currentThread());
+        }
+    };
+
+    private final Slab slab;
+    private final int depth;
+    private boolean open;
+    // the state of the slab when this arena was opened, which is restored by close.
+    private int chunk;
+    private int position;
+    private int views;
+
+    private ScratchArena(Slab slab, int depth) {
+        this.slab = slab;
+        this.depth = depth;
+    }
+
+    /**
+     * @return a new innermost arena of the current thread.
+     */
+    public static ScratchArena open() {
+        final Slab slab = SLABS.get();
+        if (slab.depth == slab.arenas.size()) {
+            slab.arenas.add(new ScratchArena(slab, slab.depth));
+        }
+        final ScratchArena arena = slab.arenas.get(slab.depth++);
+        arena.chunk = slab.chunk;
+        arena.position = slab.position;
+        arena.views = slab.views;
+        arena.open = true;
+        return arena;
+    }
+
+    /**
+     * Drops the slab of the current thread, so its memory can be collected.
+     * @throws IllegalStateException if an arena of the current thread is open.
+     */
+    public static void trim() {
+        if (SLABS.get().depth > 0) {
+            throw new IllegalStateException("an arena is still open");
+        }
+        SLABS.remove();
+    }
+
+    /**
+     * @return the number of doubles held by the slab of the current thread.
+     */
+    static long retainedDoubles() {
+        return SLABS.get().retained;
+    }
+
+    /**
+     * @return a temporary zero-vector with the given dimension.
+     * @throws IllegalStateException if this arena is closed, not the innermost one or used by another thread.
+     */
+    public Vector vector(int dimension) {
+        if (dimension < 0) {
+            throw new IllegalDimensionException("dimension can not be negative");
+        }
+        final int offset = reserve(dimension);
+        final double[] values = slab.chunks.get(slab.chunk);
+        final Object cached = slab.cachedView();
+        if (cached instanceof Vector) {
+            final Vector vector = (Vector)cached;
+            if (vector.getArray() == values && vector.getOffset() == offset && vector.getDimension() == dimension) {
+                return vector;
+            }
+        }
+        return slab.cacheView(new Vector(values, offset, 1, dimension));
+    }
+
+    /**
+     * @return a temporary zero-matrix with the given dimensions.
+     * @throws IllegalDimensionException if the matrix has no rows or no columns.
+     * @throws IllegalStateException if this arena is closed, not the innermost one or used by another thread.
+     */
+    public Matrix matrix(int rows, int columns) {
+        if (rows <= 0 || columns <= 0) {
+            throw new IllegalDimensionException("matrix should have at least one row and one column");
+        }
+        final int offset = reserve(rows * columns);
+        final double[] values = slab.chunks.get(slab.chunk);
+        final Object cached = slab.cachedView();
+        if (cached instanceof Matrix) {
+            final Matrix matrix = (Matrix)cached;
+            if (matrix.getArray() == values && matrix.getOffset() == offset && matrix.getRows() == rows && matrix.getColumns() == columns) {
+                return matrix;
+            }
+        }
+        return slab.cacheView(new Matrix(values, offset, rows, columns, columns, 1));
+    }
+
+    /**
+     * Gives back all temporaries handed out by this arena. Closing a closed arena does nothing.
+     * @throws IllegalStateException if an inner arena is still open or the arena is closed by another thread.
+     */
+    @Override
+    public void close() {
+        if (!open) {
+            return;
+        }
+        checkUsable();
+        slab.chunk = chunk;
+        slab.position = position;
+        slab.views = views;
+        slab.depth--;
+        open = false;
+        if (slab.depth == 0 && slab.retained > MAX_RETAINED_DOUBLES) {
+            slab.shrink();
+        }
+    }
+
+    /** @return the offset of a cleared range with the given length in the current chunk of the slab. */
+    private int reserve(int length) {
+        checkUsable();
+        while (true) {
+            if (slab.chunk == slab.chunks.size()) {
+                slab.chunks.add(slab.allocate(length, slab.chunk == 0 ? 0 : slab.chunks.get(slab.chunk - 1).length));
+            } else if (slab.position == 0 && slab.chunks.get(slab.chunk).length < length) {
+                // nothing lives in this chunk, so it is replaced instead of keeping it behind a larger one.
+                final double[] undersized = slab.chunks.get(slab.chunk);
+                slab.retained -= undersized.length;
+                slab.chunks.set(slab.chunk, slab.allocate(length, undersized.length));
+            }
+            final double[] values = slab.chunks.get(slab.chunk);
+            if (slab.position + length <= values.length) {
+                final int offset = slab.position;
+                slab.position += length;
+                Arrays.fill(values, offset, offset + length, 0);
+                return offset;
+            }
+            // the rest of this chunk is skipped until the scope is closed.
+            slab.chunk++;
+            slab.position = 0;
+        }
+    }
+
+    private void checkUsable() {
+        if (!open) {
+            throw new IllegalStateException("arena is closed");
+        }
+        if (Thread.currentThread() != slab.owner) {
+            throw new IllegalStateException("arena belongs to thread " + slab.owner.getName());
+        }
+        if (slab.depth != depth + 1) {
+            throw new IllegalStateException("an inner arena is still open");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ScratchArena[depth=" + depth + (open ? "" : ", closed") + "]";
+    }
+
+    /**
+     * The arrays, arenas and views of one thread. Everything behind the current positions is
+     * free and reused by the next request.
+     */
+    private static final class Slab {
+
+        final Thread owner;
+        final List<double[]> chunks = new ArrayList<double[]>();
+        final List<ScratchArena> arenas = new ArrayList<ScratchArena>();
+        /** Views handed out before, by the order in which they were requested. */
+        final List<Object> cachedViews = new ArrayList<Object>();
+        int chunk;
+        int position;
+        int views;
+        int depth;
+        /** Number of doubles of all chunks. */
+        long retained;
+
+        Slab(Thread owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * @return a new chunk for a temporary of the given length. Chunks start at the size of the
+         * request and double up to {@link #CHUNK_DOUBLES}, so threads with few temporaries stay small.
+         */
+        double[] allocate(int length, int previous) {
+            final double[] chunk = new double[Math.max(length, Math.max(MIN_CHUNK_DOUBLES, Math.min(CHUNK_DOUBLES, 2 * previous)))];
+            retained += chunk.length;
+            return chunk;
+        }
+
+        /** Drops chunks from the end until at most {@link #MAX_RETAINED_DOUBLES} are kept; requires that no arena is open. */
+        void shrink() {
+            for (int i = chunks.size() - 1; i >= 0 && retained > MAX_RETAINED_DOUBLES; i--) {
+                retained -= chunks.remove(i).length;
+            }
+            // the views of the dropped chunks would keep them alive.
+            cachedViews.clear();
+        }
+
+        /** @return the view handed out before at the position of the next view, or null. */
+        Object cachedView() {
+            return views < cachedViews.size() ? cachedViews.get(views++) : null;
+        }
+
+        /** Stores the given view at the position of the view just requested. */
+        <T> T cacheView(T view) {
+            if (views == cachedViews.size()) {
+                cachedViews.add(view);
+                views++;
+            } else {
+                cachedViews.set(views - 1, view);
+            }
+            return view;
+        }
+    }
+}
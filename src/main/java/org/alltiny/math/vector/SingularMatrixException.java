@@ -0,0 +1,13 @@
+package org.alltiny.math.vector;
+
+/**
+ * This exception will be thrown when a matrix has to be inverted or a linear system has to be
+ * solved, but the matrix is singular.
+ * @since 1.2
+ */
+public class SingularMatrixException extends ArithmeticException {
+
+    public SingularMatrixException(String s) {
+        super(s);
+    }
+}
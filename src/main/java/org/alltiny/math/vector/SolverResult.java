@@ -0,0 +1,53 @@
+package org.alltiny.math.vector;
+
+/**
+ * The outcome of {@link IterativeSolver#solve(Vector, Vector)}.
+ * @since 1.2
+ */
+public final class SolverResult {
+
+    private final Vector solution;
+    private final boolean converged;
+    private final int iterations;
+    private final double residual;
+
+    SolverResult(Vector solution, boolean converged, int iterations, double residual) {
+        this.solution = solution;
+        this.converged = converged;
+        this.iterations = iterations;
+        this.residual = residual;
+    }
+
+    /**
+     * @return the vector holding the solution, which is the vector given to the solver.
+     */
+    public Vector getSolution() {
+        return solution;
+    }
+
+    /**
+     * @return true if the residual has reached the tolerance of the solver.
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    /**
+     * @return the number of iterations, each of which applied the operator about once.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the norm of the residual {@code b - A * x} relative to the norm of b.
+     */
+    public double getResidual() {
+        return residual;
+    }
+
+    @Override
+    public String toString() {
+        return "SolverResult[converged=" + converged + ", iterations=" + iterations + ", residual=" + residual + "]";
+    }
+}
@@ -0,0 +1,368 @@
+package org.alltiny.math.vector;
+
+import java.util.Arrays;
+
+/**
+ * This is a sparse matrix in compressed sparse row (CSR) format. The non-zero elements of
+ * row r are stored at the positions {@code [rowPointers[r], rowPointers[r + 1])} of the
+ * column index and value arrays, ordered by ascending column. Memory and the time of the
+ * operations scale with the number of non-zero elements instead of rows * columns.
+ * @since 1.2
+ */
+public class SparseMatrix implements LinearOperator {
+
+    private final int rows;
+    private final int columns;
+    private final int[] rowPointers;
+    private final int[] columnIndices;
+    private final double[] values;
+
+    /**
+     * Creates a sparse matrix on top of the given CSR arrays. The arrays are not copied.
+     * @throws IllegalArgumentException if the arrays do not form a valid CSR structure.
+     * @throws IllegalDimensionException if the dimensions are not positive or a column index is out of range.
+     */
+    public SparseMatrix(int rows, int columns, int[] rowPointers, int[] columnIndices, double[] values) {
+        if (rowPointers == null || columnIndices == null || values == null) {
+            throw new IllegalArgumentException("row pointers, column indices and values can not be null");
+        }
+        if (rows <= 0) {
+            throw new IllegalDimensionException("matrix should have at least one row");
+        }
+        if (columns <= 0) {
+            throw new IllegalDimensionException("matrix should have at least one column");
+        }
+        if (rowPointers.length != rows + 1 || rowPointers[0] != 0 || rowPointers[rows] != columnIndices.length) {
+            throw new IllegalArgumentException("row pointers must start with 0, end with the number of non-zero elements and have one element more than rows");
+        }
+        if (columnIndices.length != values.length) {
+            throw new IllegalArgumentException("column indices and values must have the same length");
+        }
+        for (int row = 0; row < rows; row++) {
+            if (rowPointers[row] > rowPointers[row + 1]) {
+                throw new IllegalArgumentException("row pointers must be ascending");
+            }
+        }
+        for (int row = 0; row < rows; row++) {
+            for (int k = rowPointers[row]; k < rowPointers[row + 1]; k++) {
+                if (columnIndices[k] < 0 || columnIndices[k] >= columns) {
+                    throw new IllegalDimensionException("column index " + columnIndices[k] + " is out of range for matrix with " + columns + " columns");
+                }
+                if (k > rowPointers[row] && columnIndices[k] <= columnIndices[k - 1]) {
+                    throw new IllegalArgumentException("column indices must be strictly ascending within a row");
+                }
+            }
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.rowPointers = rowPointers;
+        this.columnIndices = columnIndices;
+        this.values = values;
+    }
+
+    /**
+     * Creates a sparse matrix from the given sparse row vectors.
+     */
+    public SparseMatrix(SparseVector... rows) {
+        if (rows == null) {
+            throw new IllegalArgumentException("vector rows can not be null");
+        }
+        if (rows.length == 0) {
+            throw new IllegalDimensionException("matrix should have at least one row");
+        }
+        int nonZeros = 0;
+        for (SparseVector row : rows) {
+            if (row == null) {
+                throw new IllegalArgumentException("vectors can not be null");
+            }
+            if (row.getDimension() != rows[0].getDimension()) {
+                throw new IllegalDimensionException("all row vectors must have identical dimensions");
+            }
+            nonZeros += row.getNonZeros();
+        }
+        if (rows[0].getDimension() == 0) {
+            throw new IllegalDimensionException("matrix should have at least one column");
+        }
+        this.rows = rows.length;
+        this.columns = rows[0].getDimension();
+        this.rowPointers = new int[rows.length + 1];
+        this.columnIndices = new int[nonZeros];
+        this.values = new double[nonZeros];
+        for (int row = 0; row < rows.length; row++) {
+            final int start = rowPointers[row];
+            final int count = rows[row].getNonZeros();
+            System.arraycopy(rows[row].getIndexArray(), 0, columnIndices, start, count);
+            System.arraycopy(rows[row].getValueArray(), 0, values, start, count);
+            rowPointers[row + 1] = start + count;
+        }
+    }
+
+    /**
+     * Creates a sparse matrix holding the non-zero elements of the given matrix.
+     */
+    public SparseMatrix(Matrix matrix) {
+        int nonZeros = 0;
+        for (int row = 0; row < matrix.getRows(); row++) {
+            for (int col = 0; col < matrix.getColumns(); col++) {
+                if (matrix.get(row, col) != 0) {
+                    nonZeros++;
+                }
+            }
+        }
+        this.rows = matrix.getRows();
+        this.columns = matrix.getColumns();
+        this.rowPointers = new int[rows + 1];
+        this.columnIndices = new int[nonZeros];
+        this.values = new double[nonZeros];
+        int k = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                final double value = matrix.get(row, col);
+                if (value != 0) {
+                    columnIndices[k] = col;
+                    values[k++] = value;
+                }
+            }
+            rowPointers[row + 1] = k;
+        }
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of stored (non-zero) elements.
+     */
+    public int getNonZeros() {
+        return values.length;
+    }
+
+    public double get(final int row, final int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException("(" + row + "," + column + ") is out of range for matrix with " + rows + " rows and " + columns + " columns");
+        }
+        final int k = Arrays.binarySearch(columnIndices, rowPointers[row], rowPointers[row + 1], column);
+        return k >= 0 ? values[k] : 0;
+    }
+
+    /**
+     * @return a copy of the row with the given index.
+     */
+    public SparseVector getRow(int index) {
+        if (index < 0 || index >= rows) {
+            throw new IndexOutOfBoundsException("row " + index + " is out of range for matrix with " + rows + " rows");
+        }
+        return new SparseVector(columns,
+            Arrays.copyOfRange(columnIndices, rowPointers[index], rowPointers[index + 1]),
+            Arrays.copyOfRange(values, rowPointers[index], rowPointers[index + 1]));
+    }
+
+    public Vector mul(Vector vector) {
+        return mul(vector, Parallelism.getDefault());
+    }
+
+    /**
+     * Multiplies the given dense vector with this matrix. Only the non-zero elements are visited.
+     * Blocks of rows are calculated in parallel if the given parallelism allows it.
+     * @throws IllegalDimensionException if the vector's dimension does not match the columns.
+     */
+    public Vector mul(final Vector vector, Parallelism parallelism) {
+        checkColumns(vector);
+        final Vector result = new Vector(rows);
+        mul(vector, parallelism, result);
+        return result;
+    }
+
+    /**
+     * Multiplies the given dense vector with this matrix and writes the product into the output
+     * vector. Only the non-zero elements are visited and nothing is allocated.
+     * @since 1.2
+     */
+    @Override
+    public Vector apply(Vector in, Vector out) {
+        checkColumns(in);
+        if (out.getDimension() != rows) {
+            throw new IllegalDimensionException("output vector must have " + rows + " dimensions");
+        }
+        if (out.getArray() == in.getArray()) {
+            throw new IllegalArgumentException("output vector can not share its values with the input vector");
+        }
+        mul(in, Parallelism.getDefault(), out);
+        return out;
+    }
+
+    private void checkColumns(Vector vector) {
+        if (columns != vector.getDimension()) {
+            throw new IllegalDimensionException("vector with " + vector.getDimension() + " dimensions can not be multiplied with matrix with " + columns + " columns");
+        }
+    }
+
+    private void mul(Vector vector, Parallelism parallelism, Vector result) {
+        final double[] dense = vector.getArray();
+        final int offset = vector.getOffset();
+        final int stride = vector.getStride();
+        final double[] output = result.getArray();
+        final int outputOffset = result.getOffset();
+        final int outputStride = result.getStride();
+        parallelism.forEachRowBlock(rows, Math.max(1, values.length / rows), new Parallelism.RowBlockTask() {
+            @Override
+            public void compute(int from, int to) {
+                for (int row = from; row < to; row++) {
+                    double sum = 0;
+                    for (int k = rowPointers[row]; k < rowPointers[row + 1]; k++) {
+                        sum += values[k] * dense[offset + columnIndices[k] * stride];
+                    }
+                    output[outputOffset + row * outputStride] = sum;
+                }
+            }
+        });
+    }
+
+    public Vector mul(SparseVector vector) {
+        return mul(vector, Parallelism.getDefault());
+    }
+
+    /**
+     * Multiplies the given sparse vector with this matrix. The non-zeros of every row are looked
+     * up in the vector by binary search, so a row costs O(nnz_row * log nnz_x) independent of the
+     * dimension, and nothing but the result is allocated.
+     * Blocks of rows are calculated in parallel if the given parallelism allows it.
+     * @throws IllegalDimensionException if the vector's dimension does not match the columns.
+     */
+    public Vector mul(SparseVector vector, Parallelism parallelism) {
+        if (columns != vector.getDimension()) {
+            throw new IllegalDimensionException("vector with " + vector.getDimension() + " dimensions can not be multiplied with matrix with " + columns + " columns");
+        }
+        final int[] indices = vector.getIndexArray();
+        final double[] vectorValues = vector.getValueArray();
+        final double[] result = new double[rows];
+        if (indices.length == 0) {
+            return new Vector(result);
+        }
+        final long work = Math.max(1, values.length / rows) * (long)(32 - Integer.numberOfLeadingZeros(indices.length));
+        parallelism.forEachRowBlock(rows, work, new Parallelism.RowBlockTask() {
+            @Override
+            public void compute(int from, int to) {
+                for (int row = from; row < to; row++) {
+                    double sum = 0;
+                    // both index lists are ascending, so every search starts behind the last match.
+                    int l = 0;
+                    for (int k = rowPointers[row]; k < rowPointers[row + 1] && l < indices.length; k++) {
+                        final int position = Arrays.binarySearch(indices, l, indices.length, columnIndices[k]);
+                        if (position >= 0) {
+                            sum += values[k] * vectorValues[position];
+                            l = position + 1;
+                        } else {
+                            l = -position - 1;
+                        }
+                    }
+                    result[row] = sum;
+                }
+            }
+        });
+        return new Vector(result);
+    }
+
+    /**
+     * Multiplies this matrix with the given dense matrix.
+     * @throws IllegalDimensionException if the columns of this matrix do not match the rows of the given one.
+     */
+    public Matrix mul(Matrix matrix) {
+        if (columns != matrix.getRows()) {
+            throw new IllegalDimensionException("matrix with " + columns + " columns can not be multiplied to matrix with " + matrix.getRows() + " rows");
+        }
+        Matrix result = new Matrix(rows, matrix.getColumns());
+        for (int row = 0; row < rows; row++) {
+            final Vector resultRow = result.getRow(row);
+            for (int k = rowPointers[row]; k < rowPointers[row + 1]; k++) {
+                resultRow.axpy(values[k], matrix.getRow(columnIndices[k]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the transposed matrix, also in CSR format.
+     */
+    public SparseMatrix transpose() {
+        int[] pointers = new int[columns + 1];
+        for (int index : columnIndices) {
+            pointers[index + 1]++;
+        }
+        for (int col = 0; col < columns; col++) {
+            pointers[col + 1] += pointers[col];
+        }
+        int[] next = Arrays.copyOf(pointers, columns);
+        int[] indices = new int[values.length];
+        double[] transposed = new double[values.length];
+        for (int row = 0; row < rows; row++) {
+            for (int k = rowPointers[row]; k < rowPointers[row + 1]; k++) {
+                final int position = next[columnIndices[k]]++;
+                indices[position] = row;
+                transposed[position] = values[k];
+            }
+        }
+        return new SparseMatrix(columns, rows, pointers, indices, transposed);
+    }
+
+    /**
+     * @return a dense copy of this matrix.
+     */
+    public Matrix toMatrix() {
+        double[] dense = new double[rows * columns];
+        for (int row = 0; row < rows; row++) {
+            for (int k = rowPointers[row]; k < rowPointers[row + 1]; k++) {
+                dense[row * columns + columnIndices[k]] = values[k];
+            }
+        }
+        return new Matrix(rows, columns, dense);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SparseMatrix)) {
+            return false;
+        }
+        SparseMatrix matrix = (SparseMatrix)o;
+        if (rows != matrix.rows || columns != matrix.columns) {
+            return false;
+        }
+        for (int row = 0; row < rows; row++) {
+            if (!getRow(row).equals(matrix.getRow(row))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int row = 0; row < rows; row++) {
+            hash = 31 * hash + getRow(row).hashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("SparseMatrix[");
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                builder.append(", ");
+            }
+            builder.append(getRow(row));
+        }
+        return builder.append(']').toString();
+    }
+}
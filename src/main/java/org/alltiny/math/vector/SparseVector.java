@@ -0,0 +1,318 @@
+package org.alltiny.math.vector;
+
+import java.util.Arrays;
+
+/**
+ * This vector class represents vectors of any dimension of which only few elements are not zero.
+ * Only the non-zero elements are stored as pairs of ascending indices and values, so memory and
+ * the time of the operations scale with the number of non-zero elements instead of the dimension.
+ * @since 1.2
+ */
+public class SparseVector {
+
+    private final int dimension;
+    private final int[] indices;
+    private final double[] values;
+
+    /**
+     * Creates a sparse vector on top of the given arrays. The arrays are not copied.
+     * @param dimension of the vector
+     * @param indices of the non-zero elements in strictly ascending order
+     * @param values of the non-zero elements
+     * @throws IllegalArgumentException if the indices are not ascending or the arrays have unequal lengths.
+     * @throws IllegalDimensionException if an index lies outside of the dimension.
+     */
+    public SparseVector(int dimension, int[] indices, double[] values) {
+        if (indices == null || values == null) {
+            throw new IllegalArgumentException("indices and values can not be null");
+        }
+        if (indices.length != values.length) {
+            throw new IllegalArgumentException("indices and values must have the same length");
+        }
+        if (dimension < 0) {
+            throw new IllegalDimensionException("dimension can not be negative");
+        }
+        for (int k = 0; k < indices.length; k++) {
+            if (indices[k] < 0 || indices[k] >= dimension) {
+                throw new IllegalDimensionException("index " + indices[k] + " is out of range for vector with dimension " + dimension);
+            }
+            if (k > 0 && indices[k] <= indices[k - 1]) {
+                throw new IllegalArgumentException("indices must be strictly ascending");
+            }
+        }
+        this.dimension = dimension;
+        this.indices = indices;
+        this.values = values;
+    }
+
+    /** Creates a 0-vector with the given dimension. */
+    public SparseVector(int dimension) {
+        this(dimension, new int[0], new double[0]);
+    }
+
+    /** Creates a sparse vector holding the non-zero elements of the given vector. */
+    public SparseVector(Vector vector) {
+        int nonZeros = 0;
+        for (int i = 0; i < vector.getDimension(); i++) {
+            if (vector.get(i) != 0) {
+                nonZeros++;
+            }
+        }
+        this.dimension = vector.getDimension();
+        this.indices = new int[nonZeros];
+        this.values = new double[nonZeros];
+        for (int i = 0, k = 0; i < dimension; i++) {
+            final double value = vector.get(i);
+            if (value != 0) {
+                indices[k] = i;
+                values[k] = value;
+                k++;
+            }
+        }
+    }
+
+    /**
+     * @return the dimension of this vector.
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * @return the number of stored (non-zero) elements.
+     */
+    public int getNonZeros() {
+        return indices.length;
+    }
+
+    /**
+     * @return the index of the k-th stored element.
+     */
+    public int getIndex(int k) {
+        return indices[k];
+    }
+
+    /**
+     * @return the value of the k-th stored element.
+     */
+    public double getValue(int k) {
+        return values[k];
+    }
+
+    public double get(int index) {
+        if (index < 0 || index >= dimension) {
+            throw new IndexOutOfBoundsException("index " + index + " is out of range for vector with dimension " + dimension);
+        }
+        final int k = Arrays.binarySearch(indices, index);
+        return k >= 0 ? values[k] : 0;
+    }
+
+    /**
+     * @return the square of the length of this vector.
+     */
+    public double getLengthSquare() {
+        double result = 0;
+        for (double value : values) {
+            result += value * value;
+        }
+        return result;
+    }
+
+    /**
+     * @return length of this vector.
+     */
+    public double getLength() {
+        return Math.sqrt(getLengthSquare());
+    }
+
+    /**
+     * Calculates the scalar product with the given dense vector.
+     * @throws IllegalDimensionException if this and the given vector have unequal dimensions.
+     */
+    public double scalar(Vector vector) {
+        checkDimension(vector.getDimension());
+        final double[] dense = vector.getArray();
+        final int offset = vector.getOffset();
+        final int stride = vector.getStride();
+        double scalar = 0;
+        for (int k = 0; k < indices.length; k++) {
+            scalar += values[k] * dense[offset + indices[k] * stride];
+        }
+        return scalar;
+    }
+
+    /**
+     * Calculates the scalar product with the given sparse vector.
+     * @throws IllegalDimensionException if this and the given vector have unequal dimensions.
+     */
+    public double scalar(SparseVector vector) {
+        checkDimension(vector.dimension);
+        double scalar = 0;
+        int k = 0;
+        int l = 0;
+        while (k < indices.length && l < vector.indices.length) {
+            if (indices[k] < vector.indices[l]) {
+                k++;
+            } else if (indices[k] > vector.indices[l]) {
+                l++;
+            } else {
+                scalar += values[k++] * vector.values[l++];
+            }
+        }
+        return scalar;
+    }
+
+    /**
+     * Adds the given dense vector to this vector. This vector is not changed.
+     * @return the dense sum of both vectors
+     * @throws IllegalDimensionException if this and the given vector have unequal dimensions.
+     */
+    public Vector add(Vector vector) {
+        checkDimension(vector.getDimension());
+        return addTo(1, new Vector(vector));
+    }
+
+    /**
+     * Adds the given sparse vector to this vector. This vector is not changed.
+     * @return the sparse sum of both vectors
+     * @throws IllegalDimensionException if this and the given vector have unequal dimensions.
+     */
+    public SparseVector add(SparseVector vector) {
+        return merge(vector, 1);
+    }
+
+    /**
+     * Subtracts the given sparse vector from this vector. This vector is not changed.
+     * @return the sparse difference of both vectors
+     * @throws IllegalDimensionException if this and the given vector have unequal dimensions.
+     */
+    public SparseVector sub(SparseVector vector) {
+        return merge(vector, -1);
+    }
+
+    /**
+     * Adds this vector scaled by the given factor to the given dense vector ({@code vector += factor * this}).
+     * Only the non-zero elements of this vector are visited.
+     * @return the given vector
+     * @throws IllegalDimensionException if this and the given vector have unequal dimensions.
+     */
+    public Vector addTo(double factor, Vector vector) {
+        checkDimension(vector.getDimension());
+        final double[] dense = vector.getArray();
+        final int offset = vector.getOffset();
+        final int stride = vector.getStride();
+        for (int k = 0; k < indices.length; k++) {
+            dense[offset + indices[k] * stride] += factor * values[k];
+        }
+        return vector;
+    }
+
+    /**
+     * Scales this vector with the given scalar. This vector is not changed.
+     * @return the scaled vector
+     */
+    public SparseVector scale(double scalar) {
+        double[] scaled = new double[values.length];
+        for (int k = 0; k < values.length; k++) {
+            scaled[k] = values[k] * scalar;
+        }
+        return new SparseVector(dimension, indices, scaled);
+    }
+
+    /**
+     * @return a dense copy of this vector.
+     */
+    public Vector toVector() {
+        return addTo(1, new Vector(dimension));
+    }
+
+    private SparseVector merge(SparseVector vector, double factor) {
+        checkDimension(vector.dimension);
+        int[] mergedIndices = new int[indices.length + vector.indices.length];
+        double[] mergedValues = new double[mergedIndices.length];
+        int k = 0;
+        int l = 0;
+        int m = 0;
+        while (k < indices.length || l < vector.indices.length) {
+            if (l == vector.indices.length || k < indices.length && indices[k] < vector.indices[l]) {
+                mergedIndices[m] = indices[k];
+                mergedValues[m++] = values[k++];
+            } else if (k == indices.length || indices[k] > vector.indices[l]) {
+                mergedIndices[m] = vector.indices[l];
+                mergedValues[m++] = factor * vector.values[l++];
+            } else {
+                mergedIndices[m] = indices[k];
+                mergedValues[m++] = values[k++] + factor * vector.values[l++];
+            }
+        }
+        return new SparseVector(dimension, Arrays.copyOf(mergedIndices, m), Arrays.copyOf(mergedValues, m));
+    }
+
+    private void checkDimension(int otherDimension) {
+        if (dimension != otherDimension) {
+            throw new IllegalDimensionException("both vectors must have the same dimension");
+        }
+    }
+
+    /** @return the indices array backing this vector. */
+    int[] getIndexArray() {
+        return indices;
+    }
+
+    /** @return the values array backing this vector. */
+    double[] getValueArray() {
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SparseVector)) {
+            return false;
+        }
+        // explicitly stored zeros must not make a difference, so both vectors are compared element by element.
+        SparseVector v = (SparseVector)o;
+        if (dimension != v.dimension) {
+            return false;
+        }
+        int k = 0;
+        int l = 0;
+        while (k < indices.length || l < v.indices.length) {
+            if (l == v.indices.length || k < indices.length && indices[k] < v.indices[l]) {
+                if (values[k++] != 0) {
+                    return false;
+                }
+            } else if (k == indices.length || indices[k] > v.indices[l]) {
+                if (v.values[l++] != 0) {
+                    return false;
+                }
+            } else if (values[k++] != v.values[l++]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = dimension;
+        for (int k = 0; k < indices.length; k++) {
+            if (values[k] != 0) { // treat -0.0 and 0.0 and stored zeros as missing
+                hash = 31 * hash + indices[k];
+                hash = 31 * hash + (int)Double.doubleToLongBits(values[k]);
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("SparseVector[dimension=").append(dimension);
+        for (int k = 0; k < indices.length; k++) {
+            builder.append(", ").append(indices[k]).append(':').append(values[k]);
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,502 @@
+package org.alltiny.math.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This is an index over a fixed set of points for k-nearest-neighbour and radius queries by
+ * Euclidean distance, which answers a query in about O(log n) instead of a linear scan.
+ *
+ * The points are copied into one flat array when the index is built, and are reordered so
+ * that every subtree covers a contiguous range of it. The tree has no node objects; its
+ * split information is kept in arrays next to the points. Distances are calculated directly
+ * on that array, so queries do not allocate per visited point.
+ *
+ * {@link #of(VectorBatch)} builds a KD-tree for low dimensions and a vantage-point tree for
+ * higher ones, where the axis-aligned splits of a KD-tree no longer prune well.
+ * @since 1.2
+ */
+public abstract class SpatialIndex {
+
+    /** Ranges with at most this number of points are scanned linearly. */
+    static final int LEAF_SIZE = 16;
+    /** Highest dimension for which {@link #of(VectorBatch)} builds a KD-tree. */
+    static final int KD_TREE_MAX_DIMENSION = 10;
+
+    /** The points in tree order, point i is stored at {@code [i * dimension, (i + 1) * dimension)}. */
+    final double[] points;
+    /** The index of the point in the given points for every position in tree order. */
+    final int[] ids;
+    final int size;
+    final int dimension;
+
+    SpatialIndex(VectorBatch points) {
+        this.points = points.toLayout(VectorBatch.Layout.AOS).getArray();
+        this.size = points.size();
+        this.dimension = points.getDimension();
+        this.ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i;
+        }
+    }
+
+    /**
+     * Builds a KD-tree for up to {@link #KD_TREE_MAX_DIMENSION} dimensions, otherwise a vantage-point tree.
+     * The points are copied, later changes to the batch do not affect the index.
+     */
+    public static SpatialIndex of(VectorBatch points) {
+        return points.getDimension() <= KD_TREE_MAX_DIMENSION ? kdTree(points) : vpTree(points);
+    }
+
+    /**
+     * @see #of(VectorBatch)
+     * @throws IllegalDimensionException if the vectors have unequal dimensions.
+     */
+    public static SpatialIndex of(Vector... points) {
+        return of(new VectorBatch(VectorBatch.Layout.AOS, points));
+    }
+
+    /**
+     * Builds a KD-tree, which splits at the median of the dimension with the largest spread.
+     */
+    public static SpatialIndex kdTree(VectorBatch points) {
+        return new KdTree(points);
+    }
+
+    /**
+     * Builds a vantage-point tree, which splits at the median distance to a point of each subtree.
+     */
+    public static SpatialIndex vpTree(VectorBatch points) {
+        return new VpTree(points);
+    }
+
+    /**
+     * @return the number of points in this index.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the dimension of the points in this index.
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * @return the k points nearest to the given query, ordered by ascending distance.
+     * @throws IllegalDimensionException if the query has another dimension than the points.
+     * @throws IllegalArgumentException if k is not positive.
+     */
+    public List<Neighbour> nearest(Vector query, int k) {
+        checkQuery(query.getDimension());
+        checkK(k);
+        return search(copy(query), k, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * @return all points with a distance of at most the given radius to the query, ordered by ascending distance.
+     * @throws IllegalDimensionException if the query has another dimension than the points.
+     * @throws IllegalArgumentException if the radius is negative or NaN.
+     */
+    public List<Neighbour> withinRadius(Vector query, double radius) {
+        checkQuery(query.getDimension());
+        checkRadius(radius);
+        return search(copy(query), Integer.MAX_VALUE, radius * radius);
+    }
+
+    public List<List<Neighbour>> nearest(VectorBatch queries, int k) {
+        return nearest(queries, k, Parallelism.getDefault());
+    }
+
+    /**
+     * Answers a k-nearest-neighbour query for every vector of the given batch.
+     * Blocks of queries are answered in parallel if the given parallelism allows it.
+     * @return the neighbours for every query in the order of the batch.
+     */
+    public List<List<Neighbour>> nearest(VectorBatch queries, int k, Parallelism parallelism) {
+        checkK(k);
+        return search(queries, k, Double.POSITIVE_INFINITY, parallelism);
+    }
+
+    public List<List<Neighbour>> withinRadius(VectorBatch queries, double radius) {
+        return withinRadius(queries, radius, Parallelism.getDefault());
+    }
+
+    /**
+     * Answers a radius query for every vector of the given batch.
+     * Blocks of queries are answered in parallel if the given parallelism allows it.
+     * @return the neighbours for every query in the order of the batch.
+     * @throws IllegalArgumentException if the radius is negative or NaN.
+     */
+    public List<List<Neighbour>> withinRadius(VectorBatch queries, double radius, Parallelism parallelism) {
+        checkRadius(radius);
+        return search(queries, Integer.MAX_VALUE, radius * radius, parallelism);
+    }
+
+    private List<List<Neighbour>> search(final VectorBatch queries, final int k, final double bound, Parallelism parallelism) {
+        checkQuery(queries.getDimension());
+        @SuppressWarnings("unchecked")
+        final List<Neighbour>[] results = (List<Neighbour>[])new List<?>[queries.size()];
+        final long work = (long)dimension * LEAF_SIZE * (32 - Integer.numberOfLeadingZeros(size));
+        parallelism.forEachRowBlock(queries.size(), work, new Parallelism.RowBlockTask() {
+            @Override
+            public void compute(int from, int to) {
+                final double[] query = new double[dimension];
+                for (int i = from; i < to; i++) {
+                    for (int d = 0; d < dimension; d++) {
+                        query[d] = queries.get(i, d);
+                    }
+                    results[i] = search(query, k, bound);
+                }
+            }
+        });
+        return Arrays.asList(results);
+    }
+
+    private List<Neighbour> search(double[] query, int k, double bound) {
+        Candidates candidates = new Candidates(k, bound);
+        if (size > 0) {
+            search(query, candidates);
+        }
+        return candidates.toList();
+    }
+
+    /**
+     * Offers all points which can be closer than the limit of the candidates to them.
+     */
+    abstract void search(double[] query, Candidates candidates);
+
+    /**
+     * Offers the points in the range {@code [from, to)} of the tree order to the candidates.
+     */
+    final void scan(double[] query, Candidates candidates, int from, int to) {
+        for (int i = from; i < to; i++) {
+            candidates.offer(distanceSquare(i, query), ids[i]);
+        }
+    }
+
+    /**
+     * @return the squared Euclidean distance between the point at the given position and the query.
+     */
+    final double distanceSquare(int position, double[] query) {
+        double sum = 0;
+        for (int d = 0, p = position * dimension; d < dimension; d++, p++) {
+            final double diff = points[p] - query[d];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    /**
+     * Rearranges the range {@code [from, to)} so that position k holds the point with the k-th smallest key,
+     * all points before it have smaller or equal keys and all points after it greater or equal keys.
+     */
+    final void select(double[] keys, int from, int to, int k) {
+        int lo = from;
+        int hi = to - 1;
+        while (hi > lo) {
+            final double pivot = median(keys[lo], keys[(lo + hi) >>> 1], keys[hi]);
+            // three-way partition, so ranges of equal keys do not degrade the selection.
+            int less = lo;
+            int greater = hi;
+            int i = lo;
+            while (i <= greater) {
+                if (keys[i] < pivot) {
+                    swap(keys, less++, i++);
+                } else if (keys[i] > pivot) {
+                    swap(keys, i, greater--);
+                } else {
+                    i++;
+                }
+            }
+            if (k < less) {
+                hi = less - 1;
+            } else if (k > greater) {
+                lo = greater + 1;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static double median(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    /** Swaps two points of the tree order together with their ids and keys. */
+    final void swap(double[] keys, int a, int b) {
+        if (a == b) {
+            return;
+        }
+        final double key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        final int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        for (int d = 0, i = a * dimension, j = b * dimension; d < dimension; d++, i++, j++) {
+            final double value = points[i];
+            points[i] = points[j];
+            points[j] = value;
+        }
+    }
+
+    private double[] copy(Vector query) {
+        double[] values = new double[dimension];
+        for (int d = 0; d < dimension; d++) {
+            values[d] = query.get(d);
+        }
+        return values;
+    }
+
+    private void checkQuery(int queryDimension) {
+        if (size > 0 && queryDimension != dimension) {
+            throw new IllegalDimensionException("query with " + queryDimension + " dimensions can not be compared to points with " + dimension + " dimensions");
+        }
+    }
+
+    private static void checkK(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("number of neighbours must be positive");
+        }
+    }
+
+    private static void checkRadius(double radius) {
+        if (!(radius >= 0)) {
+            throw new IllegalArgumentException("radius must not be negative or NaN");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[size=" + size + ", dimension=" + dimension + "]";
+    }
+
+    /**
+     * This collects the best candidates of a query in a max-heap on the squared distance,
+     * so the currently worst candidate can be replaced in O(log k).
+     */
+    static final class Candidates {
+
+        private final int capacity;
+        private final double bound;
+        private double[] distances;
+        private int[] ids;
+        private int size;
+
+        Candidates(int capacity, double bound) {
+            this.capacity = capacity;
+            this.bound = bound;
+            this.distances = new double[Math.min(capacity, LEAF_SIZE)];
+            this.ids = new int[distances.length];
+        }
+
+        /**
+         * @return the squared distance a point must not exceed to become a candidate.
+         */
+        double limit() {
+            return size < capacity ? bound : distances[0];
+        }
+
+        void offer(double distanceSquare, int id) {
+            if (size < capacity) {
+                if (distanceSquare > bound) {
+                    return;
+                }
+                if (size == distances.length) {
+                    distances = Arrays.copyOf(distances, (int)Math.min(capacity, 2L * size));
+                    ids = Arrays.copyOf(ids, distances.length);
+                }
+                // sift up
+                int i = size++;
+                while (i > 0) {
+                    final int parent = (i - 1) >>> 1;
+                    if (distances[parent] >= distanceSquare) {
+                        break;
+                    }
+                    distances[i] = distances[parent];
+                    ids[i] = ids[parent];
+                    i = parent;
+                }
+                distances[i] = distanceSquare;
+                ids[i] = id;
+            } else if (distanceSquare < distances[0]) {
+                siftDown(distanceSquare, id, size);
+            }
+        }
+
+        /** Replaces the root of the heap of the given size and restores the heap order. */
+        private void siftDown(double distanceSquare, int id, int heapSize) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && distances[child + 1] > distances[child]) {
+                    child++;
+                }
+                if (distances[child] <= distanceSquare) {
+                    break;
+                }
+                distances[i] = distances[child];
+                ids[i] = ids[child];
+                i = child;
+            }
+            distances[i] = distanceSquare;
+            ids[i] = id;
+        }
+
+        /**
+         * @return the candidates ordered by ascending distance; this empties the heap.
+         */
+        List<Neighbour> toList() {
+            Neighbour[] result = new Neighbour[size];
+            for (int n = size; n > 0; n--) {
+                result[n - 1] = new Neighbour(ids[0], Math.sqrt(distances[0]));
+                siftDown(distances[n - 1], ids[n - 1], n - 1);
+            }
+            size = 0;
+            return new ArrayList<Neighbour>(Arrays.asList(result));
+        }
+    }
+
+    /**
+     * This KD-tree stores the node of the range {@code [lo, hi)} at its middle position:
+     * the points before it are not greater, the points after it not less in the split dimension.
+     */
+    private static final class KdTree extends SpatialIndex {
+
+        private final int[] splitDimensions;
+
+        private KdTree(VectorBatch batch) {
+            super(batch);
+            this.splitDimensions = new int[size];
+            build(0, size, new double[size]);
+        }
+
+        private void build(int lo, int hi, double[] keys) {
+            if (hi - lo <= LEAF_SIZE) {
+                return;
+            }
+            final int split = widestDimension(lo, hi);
+            for (int i = lo; i < hi; i++) {
+                keys[i] = points[i * dimension + split];
+            }
+            final int middle = (lo + hi) >>> 1;
+            select(keys, lo, hi, middle);
+            splitDimensions[middle] = split;
+            build(lo, middle, keys);
+            build(middle + 1, hi, keys);
+        }
+
+        private int widestDimension(int lo, int hi) {
+            int widest = 0;
+            double widestSpread = -1;
+            for (int d = 0; d < dimension; d++) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int i = lo, p = lo * dimension + d; i < hi; i++, p += dimension) {
+                    min = Math.min(min, points[p]);
+                    max = Math.max(max, points[p]);
+                }
+                if (max - min > widestSpread) {
+                    widestSpread = max - min;
+                    widest = d;
+                }
+            }
+            return widest;
+        }
+
+        @Override
+        void search(double[] query, Candidates candidates) {
+            search(query, candidates, 0, size);
+        }
+
+        private void search(double[] query, Candidates candidates, int lo, int hi) {
+            if (hi - lo <= LEAF_SIZE) {
+                scan(query, candidates, lo, hi);
+                return;
+            }
+            final int middle = (lo + hi) >>> 1;
+            final int split = splitDimensions[middle];
+            final double diff = query[split] - points[middle * dimension + split];
+            candidates.offer(distanceSquare(middle, query), ids[middle]);
+            if (diff < 0) {
+                search(query, candidates, lo, middle);
+                if (diff * diff <= candidates.limit()) {
+                    search(query, candidates, middle + 1, hi);
+                }
+            } else {
+                search(query, candidates, middle + 1, hi);
+                if (diff * diff <= candidates.limit()) {
+                    search(query, candidates, lo, middle);
+                }
+            }
+        }
+    }
+
+    /**
+     * This vantage-point tree stores the vantage point of the range {@code [lo, hi)} at lo.
+     * The points in {@code [lo + 1, middle)} are not farther, the points in {@code [middle, hi)}
+     * not closer to it than the radius stored for lo.
+     */
+    private static final class VpTree extends SpatialIndex {
+
+        private final double[] radii;
+
+        private VpTree(VectorBatch batch) {
+            super(batch);
+            this.radii = new double[size];
+            build(0, size, new double[size]);
+        }
+
+        private void build(int lo, int hi, double[] keys) {
+            if (hi - lo <= LEAF_SIZE) {
+                return;
+            }
+            // the point in the middle of the range becomes the vantage point.
+            swap(keys, lo, (lo + hi) >>> 1);
+            final double[] vantage = Arrays.copyOfRange(points, lo * dimension, (lo + 1) * dimension);
+            for (int i = lo + 1; i < hi; i++) {
+                keys[i] = Math.sqrt(distanceSquare(i, vantage));
+            }
+            final int middle = (lo + 1 + hi) >>> 1;
+            select(keys, lo + 1, hi, middle);
+            radii[lo] = keys[middle];
+            build(lo + 1, middle, keys);
+            build(middle, hi, keys);
+        }
+
+        @Override
+        void search(double[] query, Candidates candidates) {
+            search(query, candidates, 0, size);
+        }
+
+        private void search(double[] query, Candidates candidates, int lo, int hi) {
+            if (hi - lo <= LEAF_SIZE) {
+                scan(query, candidates, lo, hi);
+                return;
+            }
+            final double distanceSquare = distanceSquare(lo, query);
+            candidates.offer(distanceSquare, ids[lo]);
+            final double distance = Math.sqrt(distanceSquare);
+            final double radius = radii[lo];
+            final int middle = (lo + 1 + hi) >>> 1;
+            if (distance < radius) {
+                search(query, candidates, lo + 1, middle);
+                if (distance + Math.sqrt(candidates.limit()) >= radius) {
+                    search(query, candidates, middle, hi);
+                }
+            } else {
+                search(query, candidates, middle, hi);
+                if (distance - Math.sqrt(candidates.limit()) <= radius) {
+                    search(query, candidates, lo + 1, middle);
+                }
+            }
+        }
+    }
+}
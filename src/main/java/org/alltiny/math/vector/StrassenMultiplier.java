@@ -0,0 +1,422 @@
+package org.alltiny.math.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Multiplies large matrices with Strassen's algorithm, which replaces 8 products of half-sized
+ * blocks by 7 products and 18 additions, so its cost grows with n^2.81 instead of n^3.
+ *
+ * The recursion stops as soon as the smallest dimension of a block does not exceed the crossover;
+ * such blocks are multiplied by the classic cache-blocked kernel of {@link Matrix#mul(Matrix)}.
+ * Products whose smallest dimension does not exceed the crossover at all are delegated to
+ * {@link Matrix#mul(Matrix, Parallelism)} and are therefore identical to it. The operands do not
+ * need to be square or powers of two: every dimension is padded with zeros to the next multiple
+ * of 2^levels, which adds less than 2^levels rows and columns.
+ *
+ * The temporary blocks are taken from workspace buffers which the multiplier keeps and reuses for
+ * later multiplications, so repeated products of the same size do not allocate apart from their
+ * result. A multiplier is thread-safe; concurrent multiplications use separate buffers.
+ *
+ * If the parallelism allows it, the 7 products of the top level are calculated in parallel,
+ * each with its own workspace. They are added up in the same order in any case, so parallel
+ * results are bit-identical to sequential ones.
+ *
+ * <h3>Accuracy</h3>
+ * Strassen's algorithm is not as accurate as the classic multiplication: its error is only bounded
+ * relative to the largest elements of the operands, not element by element. For square matrices
+ * with n = 2^levels * n0 and {@code ||X|| = max |x_ij|} the error satisfies (Higham, Accuracy and
+ * Stability of Numerical Algorithms, theorem 23.2)
+ * <pre>
+ * ||C - C'|| &lt;= ((n / n0)^log2(12) * (n0^2 + 5 * n0) - 5 * n) * u * ||A|| * ||B||
+ * </pre>
+ * with the unit roundoff u = 2^-53, while the classic multiplication is bounded by n * u * |A| * |B|
+ * for every element. Small elements of a product of large operands may therefore lose all their
+ * digits. Larger crossovers give fewer levels and a smaller error, at the price of speed.
+ * @since 1.2
+ */
+public final class StrassenMultiplier {
+
+    /** Default crossover: blocks whose smallest dimension does not exceed it are multiplied classically. */
+    public static final int DEFAULT_CROSSOVER = 128;
+
+    /** Number of products per level. */
+    private static final int PRODUCTS = 7;
+    /** Number of workspace buffers kept at most, enough for a parallel multiplication. */
+    private static final int MAX_WORKSPACES = PRODUCTS + 2;
+
+    private final int crossover;
+    private final Parallelism parallelism;
+    /** The kept workspace buffers; access is guarded by the list itself. */
+    private final List<double[]> workspaces = new ArrayList<double[]>();
+
+    /**
+     * Creates a multiplier with the {@link #DEFAULT_CROSSOVER} and the default parallelism.
+     */
+    public StrassenMultiplier() {
+        this(DEFAULT_CROSSOVER, Parallelism.getDefault());
+    }
+
+    /**
+     * @param crossover blocks whose smallest dimension does not exceed it are multiplied classically
+     * @param parallelism deciding whether the top level products are calculated in parallel
+     * @throws IllegalArgumentException if the crossover is not positive or the parallelism is null.
+     */
+    public StrassenMultiplier(int crossover, Parallelism parallelism) {
+        if (crossover < 1) {
+            throw new IllegalArgumentException("crossover must be positive");
+        }
+        if (parallelism == null) {
+            throw new IllegalArgumentException("parallelism can not be null");
+        }
+        this.crossover = crossover;
+        this.parallelism = parallelism;
+    }
+
+    public int getCrossover() {
+        return crossover;
+    }
+
+    public Parallelism getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return the number of levels the recursion uses for a product with the given dimensions.
+     */
+    public int getLevels(int rows, int inner, int columns) {
+        int smallest = Math.min(rows, Math.min(inner, columns));
+        int levels = 0;
+        while (smallest > crossover) {
+            smallest = (smallest + 1) / 2;
+            levels++;
+        }
+        return levels;
+    }
+
+    /**
+     * @return the product of the given matrices.
+     * @throws IllegalDimensionException if the columns of a do not match the rows of b, or the
+     * padded operands and workspaces do not fit into arrays.
+     */
+    public Matrix multiply(Matrix a, Matrix b) {
+        if (a.getColumns() != b.getRows()) {
+            throw new IllegalDimensionException("matrix with " + a.getColumns() + " columns can not be multiplied to matrix with " + b.getRows() + " rows");
+        }
+        final int levels = getLevels(a.getRows(), a.getColumns(), b.getColumns());
+        if (levels == 0) {
+            return a.mul(b, parallelism);
+        }
+        final int m = pad(a.getRows(), levels);
+        final int k = pad(a.getColumns(), levels);
+        final int n = pad(b.getColumns(), levels);
+        final double[] operands = acquire((long)m * k + (long)k * n + (long)m * n);
+        try {
+            final Matrix paddedA = new Matrix(operands, 0, m, k, k, 1);
+            final Matrix paddedB = new Matrix(operands, m * k, k, n, n, 1);
+            final Matrix paddedC = new Matrix(operands, m * k + k * n, m, n, n, 1);
+            copyPadded(a, paddedA);
+            copyPadded(b, paddedB);
+            if (parallelism.isParallel()) {
+                multiplyParallel(paddedA, paddedB, paddedC, levels);
+            } else {
+                final double[] work = acquire(workSize(m, k, n, levels));
+                try {
+                    multiply(paddedA, paddedB, paddedC, levels, work, 0);
+                } finally {
+                    release(work);
+                }
+            }
+            final double[] result = new double[a.getRows() * b.getColumns()];
+            for (int row = 0; row < a.getRows(); row++) {
+                System.arraycopy(operands, m * k + k * n + row * n, result, row * b.getColumns(), b.getColumns());
+            }
+            return new Matrix(a.getRows(), b.getColumns(), result);
+        } finally {
+            release(operands);
+        }
+    }
+
+    /**
+     * Drops the workspace buffers kept for later multiplications.
+     */
+    public void clearWorkspaces() {
+        synchronized (workspaces) {
+            workspaces.clear();
+        }
+    }
+
+    /** @return the number of doubles of all kept workspace buffers. */
+    long getWorkspaceSize() {
+        synchronized (workspaces) {
+            long size = 0;
+            for (double[] buffer : workspaces) {
+                size += buffer.length;
+            }
+            return size;
+        }
+    }
+
+    /** @return the given dimension rounded up to the next multiple of 2^levels. */
+    private static int pad(int dimension, int levels) {
+        return ((dimension + (1 << levels) - 1) >> levels) << levels;
+    }
+
+    /** Copies the matrix into the top left corner of the padded matrix and fills the rest with zeros. */
+    private static void copyPadded(Matrix matrix, Matrix padded) {
+        final double[] values = padded.getArray();
+        final int stride = padded.getRowStride();
+        for (int row = 0; row < padded.getRows(); row++) {
+            final int start = padded.getOffset() + row * stride;
+            int col = 0;
+            if (row < matrix.getRows()) {
+                for (; col < matrix.getColumns(); col++) {
+                    values[start + col] = matrix.get(row, col);
+                }
+            }
+            Arrays.fill(values, start + col, start + padded.getColumns(), 0);
+        }
+    }
+
+    /** @return the number of doubles the recursion needs below a product with the given dimensions. */
+    private static long workSize(int m, int k, int n, int levels) {
+        if (levels == 0) {
+            return 0;
+        }
+        return blocksSize(m / 2, k / 2, n / 2) + (long)(m / 2) * (n / 2) + workSize(m / 2, k / 2, n / 2, levels - 1);
+    }
+
+    /** @return the number of doubles of the blocks S (left operand) and T (right operand) of a product. */
+    private static long blocksSize(int m, int k, int n) {
+        return (long)m * k + (long)k * n;
+    }
+
+    /**
+     * Calculates {@code c = a * b} with the given number of levels, using the work array from the given offset on.
+     */
+    private static void multiply(Matrix a, Matrix b, Matrix c, int levels, double[] work, int workOffset) {
+        if (levels == 0) {
+            for (int row = 0; row < c.getRows(); row++) {
+                final int start = c.getOffset() + row * c.getRowStride();
+                Arrays.fill(c.getArray(), start, start + c.getColumns(), 0);
+            }
+            Gemm.multiply(a, b, c, 1, 0, c.getRows());
+            return;
+        }
+        final int m = a.getRows() / 2;
+        final int n = b.getColumns() / 2;
+        final Matrix product = new Matrix(work, workOffset, m, n, n, 1);
+        final int productWorkOffset = workOffset + m * n;
+        for (int index = 0; index < PRODUCTS; index++) {
+            product(index, a, b, product, levels, work, productWorkOffset);
+            combine(index, product, c);
+        }
+    }
+
+    /**
+     * Calculates the 7 products of the top level in parallel into separate blocks, and combines them afterwards.
+     */
+    private void multiplyParallel(final Matrix a, final Matrix b, Matrix c, final int levels) {
+        final int m = a.getRows() / 2;
+        final int k = a.getColumns() / 2;
+        final int n = b.getColumns() / 2;
+        final double[] products = acquire((long)PRODUCTS * m * n);
+        try {
+            parallelism.forEachRowBlock(PRODUCTS, (long)m * k * n, new Parallelism.RowBlockTask() {
+                @Override
+                public void compute(int from, int to) {
+                    final double[] work = acquire(blocksSize(m, k, n) + workSize(m, k, n, levels - 1));
+                    try {
+                        for (int index = from; index < to; index++) {
+                            product(index, a, b, new Matrix(products, index * m * n, m, n, n, 1), levels, work, 0);
+                        }
+                    } finally {
+                        release(work);
+                    }
+                }
+            });
+            for (int index = 0; index < PRODUCTS; index++) {
+                combine(index, new Matrix(products, index * m * n, m, n, n, 1), c);
+            }
+        } finally {
+            release(products);
+        }
+    }
+
+    /**
+     * Calculates product M(index + 1) of the quadrants of a and b into the given product block.
+     * The sums S and T of quadrants are stored in the work array at the given offset, followed by
+     * the work of the next level.
+     */
+    private static void product(int index, Matrix a, Matrix b, Matrix product, int levels, double[] work, int workOffset) {
+        final int m = a.getRows() / 2;
+        final int k = a.getColumns() / 2;
+        final int n = b.getColumns() / 2;
+        final Matrix s = new Matrix(work, workOffset, m, k, k, 1);
+        final Matrix t = new Matrix(work, workOffset + m * k, k, n, n, 1);
+        final int nextWorkOffset = workOffset + m * k + k * n;
+        final Matrix a11 = quadrant(a, 0, 0);
+        final Matrix a12 = quadrant(a, 0, 1);
+        final Matrix a21 = quadrant(a, 1, 0);
+        final Matrix a22 = quadrant(a, 1, 1);
+        final Matrix b11 = quadrant(b, 0, 0);
+        final Matrix b12 = quadrant(b, 0, 1);
+        final Matrix b21 = quadrant(b, 1, 0);
+        final Matrix b22 = quadrant(b, 1, 1);
+        switch (index) {
+            case 0: // M1 = (A11 + A22) * (B11 + B22)
+                sum(a11, a22, 1, s);
+                sum(b11, b22, 1, t);
+                multiply(s, t, product, levels - 1, work, nextWorkOffset);
+                break;
+            case 1: // M2 = (A21 + A22) * B11
+                sum(a21, a22, 1, s);
+                multiply(s, b11, product, levels - 1, work, nextWorkOffset);
+                break;
+            case 2: // M3 = A11 * (B12 - B22)
+                sum(b12, b22, -1, t);
+                multiply(a11, t, product, levels - 1, work, nextWorkOffset);
+                break;
+            case 3: // M4 = A22 * (B21 - B11)
+                sum(b21, b11, -1, t);
+                multiply(a22, t, product, levels - 1, work, nextWorkOffset);
+                break;
+            case 4: // M5 = (A11 + A12) * B22
+                sum(a11, a12, 1, s);
+                multiply(s, b22, product, levels - 1, work, nextWorkOffset);
+                break;
+            case 5: // M6 = (A21 - A11) * (B11 + B12)
+                sum(a21, a11, -1, s);
+                sum(b11, b12, 1, t);
+                multiply(s, t, product, levels - 1, work, nextWorkOffset);
+                break;
+            default: // M7 = (A12 - A22) * (B21 + B22)
+                sum(a12, a22, -1, s);
+                sum(b21, b22, 1, t);
+                multiply(s, t, product, levels - 1, work, nextWorkOffset);
+                break;
+        }
+    }
+
+    /**
+     * Adds product M(index + 1) to the quadrants of c it belongs to. The products 1 to 3 set the
+     * quadrants, so c does not need to be cleared before.
+     */
+    private static void combine(int index, Matrix product, Matrix c) {
+        final Matrix c11 = quadrant(c, 0, 0);
+        final Matrix c12 = quadrant(c, 0, 1);
+        final Matrix c21 = quadrant(c, 1, 0);
+        final Matrix c22 = quadrant(c, 1, 1);
+        switch (index) {
+            case 0: // C11 = M1, C22 = M1
+                copy(product, c11);
+                copy(product, c22);
+                break;
+            case 1: // C21 = M2, C22 -= M2
+                copy(product, c21);
+                accumulate(product, -1, c22);
+                break;
+            case 2: // C12 = M3, C22 += M3
+                copy(product, c12);
+                accumulate(product, 1, c22);
+                break;
+            case 3: // C11 += M4, C21 += M4
+                accumulate(product, 1, c11);
+                accumulate(product, 1, c21);
+                break;
+            case 4: // C11 -= M5, C12 += M5
+                accumulate(product, -1, c11);
+                accumulate(product, 1, c12);
+                break;
+            case 5: // C22 += M6
+                accumulate(product, 1, c22);
+                break;
+            default: // C11 += M7
+                accumulate(product, 1, c11);
+                break;
+        }
+    }
+
+    /** @return a view onto the quadrant of the given row-major matrix with even dimensions. */
+    private static Matrix quadrant(Matrix matrix, int row, int column) {
+        final int rows = matrix.getRows() / 2;
+        final int columns = matrix.getColumns() / 2;
+        final int offset = matrix.getOffset() + row * rows * matrix.getRowStride() + column * columns;
+        return new Matrix(matrix.getArray(), offset, rows, columns, matrix.getRowStride(), 1);
+    }
+
+    /** Calculates {@code result = x + sign * y} for row-major matrices. */
+    private static void sum(Matrix x, Matrix y, double sign, Matrix result) {
+        final double[] xv = x.getArray();
+        final double[] yv = y.getArray();
+        final double[] rv = result.getArray();
+        for (int row = 0; row < result.getRows(); row++) {
+            final int xStart = x.getOffset() + row * x.getRowStride();
+            final int yStart = y.getOffset() + row * y.getRowStride();
+            final int rStart = result.getOffset() + row * result.getRowStride();
+            if (sign > 0) {
+                Kernels.add(xv, xStart, yv, yStart, rv, rStart, result.getColumns());
+            } else {
+                for (int col = 0; col < result.getColumns(); col++) {
+                    rv[rStart + col] = xv[xStart + col] - yv[yStart + col];
+                }
+            }
+        }
+    }
+
+    /** Copies the row-major source into the row-major target. */
+    private static void copy(Matrix source, Matrix target) {
+        for (int row = 0; row < target.getRows(); row++) {
+            System.arraycopy(source.getArray(), source.getOffset() + row * source.getRowStride(),
+                target.getArray(), target.getOffset() + row * target.getRowStride(), target.getColumns());
+        }
+    }
+
+    /** Calculates {@code target += factor * source} for row-major matrices. */
+    private static void accumulate(Matrix source, double factor, Matrix target) {
+        for (int row = 0; row < target.getRows(); row++) {
+            Kernels.axpy(factor, source.getArray(), source.getOffset() + row * source.getRowStride(),
+                target.getArray(), target.getOffset() + row * target.getRowStride(), target.getColumns());
+        }
+    }
+
+    /**
+     * @return the smallest kept workspace buffer with at least the given size, or a new one; its content is undefined.
+     * @throws IllegalDimensionException if the size exceeds the size of arrays.
+     */
+    private double[] acquire(long size) {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalDimensionException("product needs a workspace of " + size + " doubles, which exceeds the size of arrays");
+        }
+        synchronized (workspaces) {
+            int best = -1;
+            for (int i = 0; i < workspaces.size(); i++) {
+                final int length = workspaces.get(i).length;
+                if (length >= size && (best < 0 || length < workspaces.get(best).length)) {
+                    best = i;
+                }
+            }
+            if (best >= 0) {
+                return workspaces.remove(best);
+            }
+        }
+        return new double[(int)Math.max(1, size)];
+    }
+
+    /** Keeps the given buffer for later multiplications; if too many are kept, the smallest one is dropped. */
+    private void release(double[] buffer) {
+        synchronized (workspaces) {
+            workspaces.add(buffer);
+            if (workspaces.size() > MAX_WORKSPACES) {
+                int smallest = 0;
+                for (int i = 1; i < workspaces.size(); i++) {
+                    if (workspaces.get(i).length < workspaces.get(smallest).length) {
+                        smallest = i;
+                    }
+                }
+                workspaces.remove(smallest);
+            }
+        }
+    }
+}
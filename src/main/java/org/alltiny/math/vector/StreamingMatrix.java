@@ -0,0 +1,473 @@
+package org.alltiny.math.vector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This is a matrix which is too large for the heap and is only read as a sequence of row blocks,
+ * e.g. from a file in the {@link BinaryFormat}. Every operation is one pass over the blocks:
+ * while one block is multiplied, the next one is read on a background thread, and only two
+ * blocks are held in memory at any time. Files are opened again for every pass, so iterative
+ * algorithms like least-squares solvers can run several passes over the same data.
+ *
+ * For contiguous blocks, as read from files and channels, the results only depend on the
+ * order of the rows, not on how they are split into blocks or which {@link Parallelism} is used.
+ * @since 1.2
+ */
+public final class StreamingMatrix {
+
+    /** Number of doubles read per block if no number of rows is given (8MB). */
+    static final int BLOCK_DOUBLES = 1 << 20;
+
+    private static final Object END = new Object();
+    private static final double[] NO_BUFFER = new double[0];
+
+    private final int columns;
+    private final Opener opener;
+
+    private StreamingMatrix(int columns, Opener opener) {
+        this.columns = columns;
+        this.opener = opener;
+    }
+
+    /**
+     * @see #of(Path, int)
+     */
+    public static StreamingMatrix of(Path file) throws IOException {
+        return of(file, 0);
+    }
+
+    /**
+     * Streams a matrix from a file written in the {@link BinaryFormat}. The file is opened again for every pass.
+     * @param blockRows number of rows read per block, or 0 to read blocks of about 8MB.
+     * @throws IllegalArgumentException if the file does not hold a matrix, or a block does not fit into an array.
+     */
+    public static StreamingMatrix of(final Path file, final int blockRows) throws IOException {
+        checkBlockRows(blockRows);
+        final int columns;
+        try (BinaryFormat.MatrixReader reader = new BinaryFormat.MatrixReader(FileChannel.open(file, StandardOpenOption.READ))) {
+            checkBlockSize(blockRows, reader);
+            columns = reader.getColumns();
+        }
+        return new StreamingMatrix(columns, new Opener() {
+            @Override
+            public Source open() throws IOException {
+                return new ReaderSource(new BinaryFormat.MatrixReader(FileChannel.open(file, StandardOpenOption.READ)), blockRows);
+            }
+        });
+    }
+
+    /**
+     * Streams a matrix in the {@link BinaryFormat} from the given channel. Since a channel can only
+     * be read once, only one operation can be done; the channel is closed at its end.
+     * @param blockRows number of rows read per block, or 0 to read blocks of about 8MB.
+     * @throws IllegalArgumentException if the channel does not provide a matrix, or a block does not fit into an array.
+     */
+    public static StreamingMatrix of(ReadableByteChannel channel, final int blockRows) throws IOException {
+        checkBlockRows(blockRows);
+        final BinaryFormat.MatrixReader reader = new BinaryFormat.MatrixReader(channel);
+        checkBlockSize(blockRows, reader);
+        return new StreamingMatrix(reader.getColumns(), new Opener() {
+            private boolean opened;
+
+            @Override
+            public Source open() {
+                if (opened) {
+                    throw new IllegalStateException("matrix from a channel can only be read once");
+                }
+                opened = true;
+                return new ReaderSource(reader, blockRows);
+            }
+        });
+    }
+
+    /**
+     * Streams a matrix whose row blocks are given by the iterable, e.g. blocks created on the fly.
+     * The iterable is iterated once per pass.
+     * @param columns of every block
+     */
+    public static StreamingMatrix of(final int columns, final Iterable<Matrix> blocks) {
+        if (columns <= 0) {
+            throw new IllegalDimensionException("matrix should have at least one column");
+        }
+        return new StreamingMatrix(columns, new Opener() {
+            @Override
+            public Source open() {
+                final Iterator<Matrix> iterator = blocks.iterator();
+                return new Source() {
+                    @Override
+                    int bufferSize() {
+                        return 0;
+                    }
+
+                    @Override
+                    Matrix next(double[] buffer) {
+                        if (!iterator.hasNext()) {
+                            return null;
+                        }
+                        Matrix block = iterator.next();
+                        if (block.getColumns() != columns) {
+                            throw new IllegalDimensionException("block with " + block.getColumns() + " columns does not match " + columns + " columns");
+                        }
+                        return block;
+                    }
+                };
+            }
+        });
+    }
+
+    private static void checkBlockRows(int blockRows) {
+        if (blockRows < 0) {
+            throw new IllegalArgumentException("number of rows per block must not be negative");
+        }
+    }
+
+    private static void checkBlockSize(int blockRows, BinaryFormat.MatrixReader reader) {
+        if (blockSize(blockRows, reader) > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("block of " + blockRows + " rows with " + reader.getColumns() + " columns does not fit into an array");
+        }
+    }
+
+    /** @return the number of doubles of the blocks read with the given number of rows per block, or 0 for blocks of about 8MB. */
+    private static long blockSize(int blockRows, BinaryFormat.MatrixReader reader) {
+        final int rows = blockRows > 0 ? blockRows : Math.max(1, BLOCK_DOUBLES / reader.getColumns());
+        return (long)Math.min(rows, reader.getRows()) * reader.getColumns();
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public Vector mul(Vector vector) throws IOException {
+        return mul(vector, Parallelism.getDefault());
+    }
+
+    /**
+     * Multiplies the given vector with this matrix in one pass.
+     * @return a vector with one dimension per row of this matrix.
+     */
+    public Vector mul(final Vector vector, final Parallelism parallelism) throws IOException {
+        if (vector.getDimension() != columns) {
+            throw new IllegalDimensionException("vector with " + vector.getDimension() + " dimensions can not be multiplied with matrix with " + columns + " columns");
+        }
+        final double[][] result = {new double[1024]};
+        final int rows = pass(new BlockTask() {
+            @Override
+            public void compute(final Matrix block, final int firstRow) {
+                if (result[0].length < firstRow + block.getRows()) {
+                    result[0] = Arrays.copyOf(result[0], Math.max(2 * result[0].length, firstRow + block.getRows()));
+                }
+                final double[] values = result[0];
+                parallelism.forEachRowBlock(block.getRows(), columns, new Parallelism.RowBlockTask() {
+                    @Override
+                    public void compute(int from, int to) {
+                        for (int row = from; row < to; row++) {
+                            values[firstRow + row] = dot(block, row, vector);
+                        }
+                    }
+                });
+            }
+        });
+        return new Vector(Arrays.copyOf(result[0], rows));
+    }
+
+    public Vector mulTransposed(Vector vector) throws IOException {
+        return mulTransposed(vector, Parallelism.getDefault());
+    }
+
+    /**
+     * Multiplies the given vector with the transpose of this matrix in one pass.
+     * @param vector with one dimension per row of this matrix.
+     * @return a vector with one dimension per column of this matrix.
+     * @throws IllegalDimensionException if the vector does not have one dimension per row.
+     */
+    public Vector mulTransposed(final Vector vector, final Parallelism parallelism) throws IOException {
+        final double[] result = new double[columns];
+        final int rows = pass(new BlockTask() {
+            @Override
+            public void compute(final Matrix block, final int firstRow) {
+                checkRows(vector.getDimension(), firstRow + block.getRows());
+                // every task owns a range of columns and adds the rows in ascending order.
+                parallelism.forEachRowBlock(columns, block.getRows(), new Parallelism.RowBlockTask() {
+                    @Override
+                    public void compute(int from, int to) {
+                        for (int row = 0; row < block.getRows(); row++) {
+                            axpy(vector.get(firstRow + row), block, row, result, from, to);
+                        }
+                    }
+                });
+            }
+        });
+        checkAllRows(vector.getDimension(), rows);
+        return new Vector(result);
+    }
+
+    public Matrix mulTransposed(Matrix matrix) throws IOException {
+        return mulTransposed(matrix, Parallelism.getDefault());
+    }
+
+    /**
+     * Multiplies the given matrix with the transpose of this matrix in one pass.
+     * @param matrix with one row per row of this matrix.
+     * @return a matrix with one row per column of this matrix and the columns of the given matrix.
+     * @throws IllegalDimensionException if the given matrix does not have one row per row of this matrix.
+     */
+    public Matrix mulTransposed(final Matrix matrix, final Parallelism parallelism) throws IOException {
+        final Matrix result = new Matrix(columns, matrix.getColumns());
+        final int rows = pass(new BlockTask() {
+            @Override
+            public void compute(Matrix block, int firstRow) {
+                checkRows(matrix.getRows(), firstRow + block.getRows());
+                final Matrix blockT = transposed(block);
+                final Matrix slice = new Matrix(matrix.getArray(), matrix.getOffset() + firstRow * matrix.getRowStride(),
+                    block.getRows(), matrix.getColumns(), matrix.getRowStride(), matrix.getColumnStride());
+                parallelism.forEachRowBlock(columns, (long)block.getRows() * matrix.getColumns(), new Parallelism.RowBlockTask() {
+                    @Override
+                    public void compute(int from, int to) {
+                        Gemm.multiply(blockT, slice, result, 1, from, to);
+                    }
+                });
+            }
+        });
+        checkAllRows(matrix.getRows(), rows);
+        return result;
+    }
+
+    public Matrix gram() throws IOException {
+        return gram(Parallelism.getDefault());
+    }
+
+    /**
+     * Calculates the product of the transpose of this matrix with this matrix in one pass,
+     * e.g. for the normal equations of a least-squares problem.
+     * @return a square matrix with one row and column per column of this matrix.
+     */
+    public Matrix gram(final Parallelism parallelism) throws IOException {
+        final Matrix result = new Matrix(columns, columns);
+        pass(new BlockTask() {
+            @Override
+            public void compute(final Matrix block, int firstRow) {
+                final Matrix blockT = transposed(block);
+                parallelism.forEachRowBlock(columns, (long)block.getRows() * columns, new Parallelism.RowBlockTask() {
+                    @Override
+                    public void compute(int from, int to) {
+                        Gemm.multiply(blockT, block, result, 1, from, to);
+                    }
+                });
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "StreamingMatrix[columns=" + columns + "]";
+    }
+
+    /**
+     * Runs the task for every block while the next block is read on a background thread.
+     * Two buffers are handed between the threads, so reading never waits for a new allocation.
+     * @return the number of rows of all blocks.
+     */
+    private int pass(BlockTask task) throws IOException {
+        final Source source = opener.open();
+        final BlockingQueue<double[]> free = new ArrayBlockingQueue<double[]>(2);
+        final BlockingQueue<Object> ready = new ArrayBlockingQueue<Object>(2);
+        final int bufferSize = source.bufferSize();
+        free.add(bufferSize == 0 ? NO_BUFFER : new double[bufferSize]);
+        free.add(bufferSize == 0 ? NO_BUFFER : new double[bufferSize]);
+        final Thread prefetcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    try {
+                        while (true) {
+                            final double[] buffer = free.take();
+                            final Matrix block = source.next(buffer);
+                            if (block == null) {
+                                ready.put(END);
+                                return;
+                            }
+                            ready.put(new Block(block, buffer));
+                        }
+                    } catch (InterruptedException e) {
+                        // the pass has ended before all blocks were read.
+                    } catch (Throwable t) {
+                        ready.put(t);
+                    }
+                } catch (InterruptedException e) {
+                    // the pass has ended anyway.
+                }
+            }
+        }, "StreamingMatrix-prefetch");
+        prefetcher.setDaemon(true);
+        prefetcher.start();
+        try {
+            int rows = 0;
+            while (true) {
+                final Object item = ready.take();
+                if (item == END) {
+                    return rows;
+                }
+                if (item instanceof Throwable) {
+                    throw rethrow((Throwable)item);
+                }
+                final Block block = (Block)item;
+                task.compute(block.matrix, rows);
+                rows += block.matrix.getRows();
+                free.put(block.buffer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for the next block");
+        } finally {
+            prefetcher.interrupt();
+            boolean interrupted = false;
+            while (prefetcher.isAlive()) {
+                try {
+                    prefetcher.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            source.close();
+        }
+    }
+
+    private static IOException rethrow(Throwable t) {
+        if (t instanceof IOException) {
+            return (IOException)t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException)t;
+        }
+        if (t instanceof Error) {
+            throw (Error)t;
+        }
+        return new IOException(t);
+    }
+
+    private static double dot(Matrix block, int row, Vector vector) {
+        final double[] values = block.getArray();
+        final int start = block.getOffset() + row * block.getRowStride();
+        if (block.getColumnStride() == 1 && vector.getStride() == 1) {
+            return Kernels.dot(values, start, vector.getArray(), vector.getOffset(), block.getColumns());
+        }
+        double sum = 0;
+        for (int col = 0, i = start; col < block.getColumns(); col++, i += block.getColumnStride()) {
+            sum += values[i] * vector.get(col);
+        }
+        return sum;
+    }
+
+    /** Adds factor times the columns [from, to) of the given row to the same range of result. */
+    private static void axpy(double factor, Matrix block, int row, double[] result, int from, int to) {
+        final double[] values = block.getArray();
+        final int start = block.getOffset() + row * block.getRowStride() + from * block.getColumnStride();
+        if (block.getColumnStride() == 1) {
+            Kernels.axpy(factor, values, start, result, from, to - from);
+            return;
+        }
+        for (int col = from, i = start; col < to; col++, i += block.getColumnStride()) {
+            result[col] += factor * values[i];
+        }
+    }
+
+    private static Matrix transposed(Matrix block) {
+        return new Matrix(block.getArray(), block.getOffset(), block.getColumns(), block.getRows(), block.getColumnStride(), block.getRowStride());
+    }
+
+    /** Checks whether the rows read so far still fit to the rows of the other operand. */
+    private static void checkRows(int operandRows, int rowsRead) {
+        if (rowsRead > operandRows) {
+            throw new IllegalDimensionException("matrix has more than " + operandRows + " rows");
+        }
+    }
+
+    private static void checkAllRows(int operandRows, int rows) {
+        if (rows != operandRows) {
+            throw new IllegalDimensionException("matrix has " + rows + " rows, but " + operandRows + " rows were expected");
+        }
+    }
+
+    private interface Opener {
+        Source open() throws IOException;
+    }
+
+    private interface BlockTask {
+        void compute(Matrix block, int firstRow);
+    }
+
+    /** A block handed from the prefetching thread to the computing one. */
+    private static final class Block {
+        private final Matrix matrix;
+        private final double[] buffer;
+
+        Block(Matrix matrix, double[] buffer) {
+            this.matrix = matrix;
+            this.buffer = buffer;
+        }
+    }
+
+    /** Provides the row blocks of one pass. */
+    private abstract static class Source implements Closeable {
+
+        /** @return the number of doubles of a buffer handed to {@link #next}, or 0 if no buffer is needed. */
+        abstract int bufferSize();
+
+        /** @return the next block, which may be stored in the given buffer, or null at the end. */
+        abstract Matrix next(double[] buffer) throws IOException;
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    /** Reads blocks of rows from a matrix in the {@link BinaryFormat}. */
+    private static final class ReaderSource extends Source {
+
+        private final BinaryFormat.MatrixReader reader;
+        private final int blockRows;
+        private final int bufferSize;
+
+        /** Requires a block size checked by {@link StreamingMatrix#checkBlockSize}. */
+        ReaderSource(BinaryFormat.MatrixReader reader, int blockRows) {
+            this.reader = reader;
+            this.blockRows = blockRows > 0 ? blockRows : Math.max(1, BLOCK_DOUBLES / reader.getColumns());
+            this.bufferSize = (int)blockSize(blockRows, reader);
+        }
+
+        @Override
+        int bufferSize() {
+            return bufferSize;
+        }
+
+        @Override
+        Matrix next(double[] buffer) throws IOException {
+            final int columns = reader.getColumns();
+            int rows = 0;
+            while (rows < blockRows && reader.hasNextRow()) {
+                reader.readRow(new Vector(buffer, rows * columns, 1, columns));
+                rows++;
+            }
+            return rows == 0 ? null : new Matrix(buffer, 0, rows, columns, columns, 1);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
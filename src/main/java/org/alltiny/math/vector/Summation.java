@@ -0,0 +1,21 @@
+package org.alltiny.math.vector;
+
+/**
+ * This selects how scalar products and lengths sum up their elements.
+ * @since 1.2
+ */
+public enum Summation {
+
+    /**
+     * Sums into several independent accumulators and splits long vectors pairwise. This is
+     * the fastest mode; its rounding error grows with the logarithm of the dimension.
+     */
+    FAST,
+
+    /**
+     * Collects the rounding errors of every product and addition (Dekker and Neumaier), so the
+     * result is as accurate as if it was calculated with twice the precision. This is about
+     * four times slower than {@link #FAST} and worth it for long vectors whose elements cancel.
+     */
+    COMPENSATED
+}
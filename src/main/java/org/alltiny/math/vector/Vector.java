@@ -1,7 +1,5 @@
 package org.alltiny.math.vector;
 
-import java.util.Arrays;
-
 /**
  * This vector class represents vectors of any dimension.
  * It provides common vector operations.
@@ -9,30 +7,53 @@ import java.util.Arrays;
 public class Vector {
 
     private final double[] values;
+    private final int offset;
+    private final int stride;
+    private final int dimension;
 
     public Vector(double... values) {
-        this.values = values;
+        this(values, 0, 1, values.length);
     }
 
     /** Copy-Constructor */
     public Vector(Vector vector) {
-        this.values = Arrays.copyOf(vector.values, vector.values.length);
+        this(vector.getDimension());
+        for (int i = 0; i < dimension; i++) {
+            values[i] = vector.get(i);
+        }
     }
 
     /** Creates a 0-vector with the given dimension. */
     public Vector(final int dimension) {
-        values = new double[dimension];
+        this(new double[dimension], 0, 1, dimension);
+    }
+
+    /**
+     * Creates a vector which is a view onto the given array. Element i of this vector
+     * is stored at {@code values[offset + i * stride]}. Changes are visible in both directions.
+     */
+    Vector(double[] values, int offset, int stride, int dimension) {
+        this.values = values;
+        this.offset = offset;
+        this.stride = stride;
+        this.dimension = dimension;
     }
 
     public double get(int index) {
-        return values[index];
+        if (index < 0 || index >= dimension) {
+            throw new IndexOutOfBoundsException("index " + index + " is out of range for vector with dimension " + dimension);
+        }
+        return values[offset + index * stride];
     }
 
     /**
      * This method modifies the value of the given index.
      */
     public Vector set(int index, double value) {
-        values[index] = value;
+        if (index < 0 || index >= dimension) {
+            throw new IndexOutOfBoundsException("index " + index + " is out of range for vector with dimension " + dimension);
+        }
+        values[offset + index * stride] = value;
         return this;
     }
 
@@ -40,7 +61,7 @@ public class Vector {
      * @return the dimension of this vector.
      */
     public int getDimension() {
-        return values.length;
+        return dimension;
     }
 
     /**
@@ -49,9 +70,26 @@ public class Vector {
      * @return the square of the length of this vector.
      */
     public double getLengthSquare() {
-        double result = 0;
-        for (double element : values) {
-            result += element * element;
+        return getLengthSquare(Summation.FAST);
+    }
+
+    /**
+     * This method calculates the square of the length of this vector with the given summation.
+     * @return the square of the length of this vector.
+     * @since 1.2
+     */
+    public double getLengthSquare(Summation summation) {
+        final long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        final double result;
+        if (summation == Summation.COMPENSATED) {
+            result = ScalarKernels.dotCompensated(values, offset, stride, values, offset, stride, dimension);
+        } else if (stride == 1) {
+            result = Kernels.sumOfSquares(values, offset, dimension);
+        } else {
+            result = ScalarKernels.dot(values, offset, stride, values, offset, stride, dimension);
+        }
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.VECTOR_LENGTH, dimension, 2L * dimension, start);
         }
         return result;
     }
@@ -64,17 +102,64 @@ public class Vector {
         return Math.sqrt(getLengthSquare());
     }
 
+    /**
+     * This method calculates the length of this vector with the given summation.
+     * @return length of this vector.
+     * @since 1.2
+     */
+    public double getLength(Summation summation) {
+        return Math.sqrt(getLengthSquare(summation));
+    }
+
+    /**
+     * @return a lazy expression starting with this vector; element-wise operations on it are
+     *         fused into one pass when a terminal operation of the expression is called.
+     * @since 1.2
+     */
+    public VectorExpression lazy() {
+        return VectorExpression.of(this);
+    }
+
     /**
      * @return a vector pointing into the same direction like this vector but with length of 1 (called normalized vector)
      * @since 1.0
      */
     public Vector normalize() {
+        if (Metrics.ENABLED) {
+            Metrics.allocated(Metrics.Operation.VECTOR_NORMALIZE, dimension);
+        }
+        return normalize(new Vector(dimension));
+    }
+
+    /**
+     * Writes the normalized vector of this vector into the given result vector.
+     * This vector is not changed unless it is passed as result.
+     * @param result vector to write the normalized vector into
+     * @return the given result vector
+     * @throws IllegalDimensionException if the result vector has another dimension than this vector.
+     * @see #normalize()
+     * @since 1.2
+     */
+    public Vector normalize(Vector result) {
+        checkDimension(result, "result vector must have the same dimension");
+        final long start = Metrics.ENABLED ? System.nanoTime() : 0;
         final double length = getLength();
-        Vector normalized = new Vector(getDimension());
-        for (int i = 0; i < getDimension(); i++) {
-            normalized.set(i, values[i] / length);
+        for (int i = 0, a = offset, r = result.offset; i < dimension; i++, a += stride, r += result.stride) {
+            result.values[r] = values[a] / length;
         }
-        return normalized;
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.VECTOR_NORMALIZE, dimension, dimension, start);
+        }
+        return result;
+    }
+
+    /**
+     * Normalizes this vector, so that it keeps its direction but gets a length of 1.
+     * @return this vector
+     * @since 1.2
+     */
+    public Vector normalizeInPlace() {
+        return normalize(this);
     }
 
     /**
@@ -86,14 +171,48 @@ public class Vector {
      * @since 1.0
      */
     public Vector add(Vector other) {
-        if (getDimension() != other.getDimension()) {
-            throw new IllegalDimensionException("both vectors must have the same dimension");
+        checkDimension(other, "both vectors must have the same dimension");
+        if (Metrics.ENABLED) {
+            Metrics.allocated(Metrics.Operation.VECTOR_ADD, dimension);
         }
-        Vector added = new Vector(getDimension());
-        for (int i = 0; i < getDimension(); i++) {
-            added.set(i, values[i] + other.get(i));
+        return add(other, new Vector(dimension));
+    }
+
+    /**
+     * This method adds the given vector to this vector and writes the sum into the result vector.
+     * The result vector may be this or the other vector.
+     * @param other to add
+     * @param result vector to write the sum into
+     * @return the given result vector
+     * @throws IllegalDimensionException if the vectors have unequal dimensions.
+     * @since 1.2
+     */
+    public Vector add(Vector other, Vector result) {
+        checkDimension(other, "both vectors must have the same dimension");
+        checkDimension(result, "result vector must have the same dimension");
+        final long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        if (stride == 1 && other.stride == 1 && result.stride == 1) {
+            Kernels.add(values, offset, other.values, other.offset, result.values, result.offset, dimension);
+        } else {
+            for (int i = 0, a = offset, b = other.offset, r = result.offset; i < dimension; i++, a += stride, b += other.stride, r += result.stride) {
+                result.values[r] = values[a] + other.values[b];
+            }
+        }
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.VECTOR_ADD, 2L * dimension, dimension, start);
         }
-        return added;
+        return result;
+    }
+
+    /**
+     * Adds the given vector to this vector.
+     * @param other to add
+     * @return this vector
+     * @throws IllegalDimensionException if this and the given vector have unequal dimensions.
+     * @since 1.2
+     */
+    public Vector addInPlace(Vector other) {
+        return add(other, this);
     }
 
     /**
@@ -105,14 +224,69 @@ public class Vector {
      * @since 1.0
      */
     public Vector sub(Vector other) {
-        if (getDimension() != other.getDimension()) {
-            throw new IllegalDimensionException("both vectors must have the same dimension");
+        checkDimension(other, "both vectors must have the same dimension");
+        if (Metrics.ENABLED) {
+            Metrics.allocated(Metrics.Operation.VECTOR_SUB, dimension);
+        }
+        return sub(other, new Vector(dimension));
+    }
+
+    /**
+     * This method subtracts the given vector from this vector and writes the difference into the result vector.
+     * The result vector may be this or the other vector.
+     * @param other to sub from this one
+     * @param result vector to write the difference into
+     * @return the given result vector
+     * @throws IllegalDimensionException if the vectors have unequal dimensions.
+     * @since 1.2
+     */
+    public Vector sub(Vector other, Vector result) {
+        checkDimension(other, "both vectors must have the same dimension");
+        checkDimension(result, "result vector must have the same dimension");
+        final long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        for (int i = 0, a = offset, b = other.offset, r = result.offset; i < dimension; i++, a += stride, b += other.stride, r += result.stride) {
+            result.values[r] = values[a] - other.values[b];
         }
-        Vector sub = new Vector(getDimension());
-        for (int i = 0; i < getDimension(); i++) {
-            sub.set(i, values[i] - other.get(i));
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.VECTOR_SUB, 2L * dimension, dimension, start);
         }
-        return sub;
+        return result;
+    }
+
+    /**
+     * Subtracts the given vector from this vector.
+     * @param other to sub from this one
+     * @return this vector
+     * @throws IllegalDimensionException if this and the given vector have unequal dimensions.
+     * @since 1.2
+     */
+    public Vector subInPlace(Vector other) {
+        return sub(other, this);
+    }
+
+    /**
+     * Adds the given vector scaled by the given factor to this vector ({@code this += factor * other}),
+     * without creating the scaled vector in between.
+     * @param factor to scale the other vector with
+     * @param other to add
+     * @return this vector
+     * @throws IllegalDimensionException if this and the given vector have unequal dimensions.
+     * @since 1.2
+     */
+    public Vector axpy(double factor, Vector other) {
+        checkDimension(other, "both vectors must have the same dimension");
+        final long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        if (stride == 1 && other.stride == 1) {
+            Kernels.axpy(factor, other.values, other.offset, values, offset, dimension);
+        } else {
+            for (int i = 0, a = offset, b = other.offset; i < dimension; i++, a += stride, b += other.stride) {
+                values[a] += factor * other.values[b];
+            }
+        }
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.VECTOR_AXPY, 2L * dimension, 2L * dimension, start);
+        }
+        return this;
     }
 
     /**
@@ -123,11 +297,19 @@ public class Vector {
      * @since 1.0
      */
     public Vector mul(double scalar) {
-        Vector vector = new Vector(getDimension());
-        for (int i = 0; i < getDimension(); i++) {
-            vector.set(i, values[i] * scalar);
-        }
-        return vector;
+        return scale(scalar);
+    }
+
+    /**
+     * Multiplies this vector with the given scalar and writes the product into the result vector.
+     * @param scalar to multiply this vector with.
+     * @param result vector to write the product into
+     * @return the given result vector
+     * @see #scale(double, Vector)
+     * @since 1.2
+     */
+    public Vector mul(double scalar, Vector result) {
+        return scale(scalar, result);
     }
 
     /**
@@ -138,11 +320,41 @@ public class Vector {
      * @since 1.1
      */
     public Vector scale(double scalar) {
-        Vector vector = new Vector(getDimension());
-        for (int i = 0; i < getDimension(); i++) {
-            vector.set(i, values[i] * scalar);
+        if (Metrics.ENABLED) {
+            Metrics.allocated(Metrics.Operation.VECTOR_SCALE, dimension);
+        }
+        return scale(scalar, new Vector(dimension));
+    }
+
+    /**
+     * Scales this vector with the given scalar and writes the scaled vector into the result vector.
+     * The result vector may be this vector.
+     * @param scalar to multiply this vector with.
+     * @param result vector to write the scaled vector into
+     * @return the given result vector
+     * @throws IllegalDimensionException if the result vector has another dimension than this vector.
+     * @since 1.2
+     */
+    public Vector scale(double scalar, Vector result) {
+        checkDimension(result, "result vector must have the same dimension");
+        final long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        for (int i = 0, a = offset, r = result.offset; i < dimension; i++, a += stride, r += result.stride) {
+            result.values[r] = values[a] * scalar;
+        }
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.VECTOR_SCALE, dimension, dimension, start);
         }
-        return vector;
+        return result;
+    }
+
+    /**
+     * Scales this vector with the given scalar.
+     * @param scalar to multiply this vector with.
+     * @return this vector
+     * @since 1.2
+     */
+    public Vector scaleInPlace(double scalar) {
+        return scale(scalar, this);
     }
 
     /**
@@ -153,14 +365,51 @@ public class Vector {
      * @since 1.0
      */
     public double scalar(Vector vector) {
-        if (getDimension() != vector.getDimension()) {
-            throw new IllegalDimensionException("both vectors must have the same dimension");
+        return scalar(vector, Summation.FAST);
+    }
+
+    /**
+     * Calculates the scalar product with the given summation. Both vectors must have the same dimensions.
+     * @param vector to create the scalar product with
+     * @return scalar product of this vector and the given vector
+     * @throws IllegalDimensionException if this and the given vector have unequal dimensions.
+     * @since 1.2
+     */
+    public double scalar(Vector vector, Summation summation) {
+        checkDimension(vector, "both vectors must have the same dimension");
+        final long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        final double result;
+        if (summation == Summation.COMPENSATED) {
+            result = ScalarKernels.dotCompensated(values, offset, stride, vector.values, vector.offset, vector.stride, dimension);
+        } else if (stride == 1 && vector.stride == 1) {
+            result = Kernels.dot(values, offset, vector.values, vector.offset, dimension);
+        } else {
+            result = ScalarKernels.dot(values, offset, stride, vector.values, vector.offset, vector.stride, dimension);
         }
-        double scalar = 0;
-        for (int i = 0; i < getDimension(); i++) {
-            scalar += get(i) * vector.get(i);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.VECTOR_SCALAR, 2L * dimension, 2L * dimension, start);
         }
-        return scalar;
+        return result;
+    }
+
+    /**
+     * Calculates the scalar product with the given sparse vector. Only the non-zero elements
+     * of the sparse vector are visited.
+     * @throws IllegalDimensionException if this and the given vector have unequal dimensions.
+     * @since 1.2
+     */
+    public double scalar(SparseVector vector) {
+        return vector.scalar(this);
+    }
+
+    /**
+     * This method adds the given sparse vector to this vector and returns the resulting vector.
+     * This method does not change this vector.
+     * @throws IllegalDimensionException if this and the given vector have unequal dimensions.
+     * @since 1.2
+     */
+    public Vector add(SparseVector other) {
+        return other.add(this);
     }
 
     /**
@@ -174,14 +423,35 @@ public class Vector {
      * @since 1.0
      */
     public Vector cross(Vector vector) {
+        if (Metrics.ENABLED) {
+            Metrics.allocated(Metrics.Operation.VECTOR_CROSS, 3);
+        }
+        return cross(vector, new Vector(3));
+    }
+
+    /**
+     * This method calculates the cross product between this vector and the given vector
+     * and writes it into the result vector. The result vector may be one of the two vectors.
+     * @param vector to create the cross product with
+     * @param result vector to write the cross product into
+     * @return the given result vector
+     * @throws IllegalDimensionException if one of the vectors has another dimension than 3.
+     * @since 1.2
+     */
+    public Vector cross(Vector vector, Vector result) {
         if (getDimension() != 3 || vector.getDimension() != 3) {
             throw new IllegalDimensionException("both vectors must have 3 dimensions");
         }
-        return new Vector(
-            get(1) * vector.get(2) - get(2) * vector.get(1),
-            get(2) * vector.get(0) - get(0) * vector.get(2),
-            get(0) * vector.get(1) - get(1) * vector.get(0)
-        );
+        checkDimension(result, "result vector must have 3 dimensions");
+        final long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        final double x = get(1) * vector.get(2) - get(2) * vector.get(1);
+        final double y = get(2) * vector.get(0) - get(0) * vector.get(2);
+        final double z = get(0) * vector.get(1) - get(1) * vector.get(0);
+        result.set(0, x).set(1, y).set(2, z);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.VECTOR_CROSS, 6, 9, start);
+        }
+        return result;
     }
 
     /**
@@ -190,8 +460,22 @@ public class Vector {
      * @since 1.1
      */
     public Vector project(Vector other) {
-        Vector normal = normalize();
-        return normal.scale(normal.scalar(other));
+        checkDimension(other, "both vectors must have the same dimension");
+        if (Metrics.ENABLED) {
+            Metrics.allocated(Metrics.Operation.VECTOR_PROJECT, dimension);
+        }
+        return project(other, new Vector(dimension));
+    }
+
+    /**
+     * This method projects the other vector onto this vector and writes the projection into the result vector.
+     * The result vector may be one of the two vectors.
+     * @return the given result vector
+     * @throws IllegalDimensionException if the vectors have unequal dimensions.
+     * @since 1.2
+     */
+    public Vector project(Vector other, Vector result) {
+        return other.projectOn(this, result);
     }
 
     /**
@@ -200,8 +484,54 @@ public class Vector {
      * @since 1.1
      */
     public Vector projectOn(Vector other) {
-        Vector normal = other.normalize();
-        return normal.scale(normal.scalar(this));
+        checkDimension(other, "both vectors must have the same dimension");
+        if (Metrics.ENABLED) {
+            Metrics.allocated(Metrics.Operation.VECTOR_PROJECT, dimension);
+        }
+        return projectOn(other, new Vector(dimension));
+    }
+
+    /**
+     * This method projects this vector onto the other and writes the projection into the result vector.
+     * The result vector may be one of the two vectors.
+     * @return the given result vector
+     * @throws IllegalDimensionException if the vectors have unequal dimensions.
+     * @since 1.2
+     */
+    public Vector projectOn(Vector other, Vector result) {
+        checkDimension(other, "both vectors must have the same dimension");
+        checkDimension(result, "result vector must have the same dimension");
+        final long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        // both reductions run in the unrolled kernels, so no temporary normal vector is needed.
+        final double factor = scalar(other) / other.getLengthSquare();
+        for (int i = 0, b = other.offset, r = result.offset; i < dimension; i++, b += other.stride, r += result.stride) {
+            result.values[r] = other.values[b] * factor;
+        }
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.VECTOR_PROJECT, 2L * dimension, dimension + 1L, start);
+        }
+        return result;
+    }
+
+    private void checkDimension(Vector other, String message) {
+        if (dimension != other.dimension) {
+            throw new IllegalDimensionException(message);
+        }
+    }
+
+    /** @return the array backing this vector. */
+    double[] getArray() {
+        return values;
+    }
+
+    /** @return the index of element 0 in the backing array. */
+    int getOffset() {
+        return offset;
+    }
+
+    /** @return the distance between two consecutive elements in the backing array. */
+    int getStride() {
+        return stride;
     }
 
     @Override
@@ -211,10 +541,10 @@ public class Vector {
         }
         if (o instanceof Vector) {
             Vector v = (Vector)o;
-            // compare the array of values; note that Arrays.equals can't do it, because it handles "-0" versus "0" wrong.
-            if (values.length == v.values.length) {
-                for (int i = 0; i < values.length; i++) {
-                    if (values[i] != v.values[i]) {
+            // compare the values element by element; note that Arrays.equals can't do it, because it handles "-0" versus "0" wrong.
+            if (dimension == v.dimension) {
+                for (int i = 0; i < dimension; i++) {
+                    if (values[offset + i * stride] != v.values[v.offset + i * v.stride]) {
                         return false;
                     }
                 }
@@ -227,7 +557,8 @@ public class Vector {
     @Override
     public int hashCode() {
         int hash = 0;
-        for (double value : values) {
+        for (int i = 0; i < dimension; i++) {
+            final double value = values[offset + i * stride];
             hash = 31 * hash + (int)Double.doubleToLongBits(value == 0.0 ? 0 : value); // treat -0.0 and 0.0 as 0
         }
         return hash;
@@ -235,6 +566,13 @@ public class Vector {
 
     @Override
     public String toString() {
-        return "Vector" + Arrays.toString(values);
+        StringBuilder builder = new StringBuilder("Vector[");
+        for (int i = 0; i < dimension; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(values[offset + i * stride]);
+        }
+        return builder.append(']').toString();
     }
 }
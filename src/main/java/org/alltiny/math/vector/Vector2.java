@@ -0,0 +1,139 @@
+package org.alltiny.math.vector;
+
+/**
+ * This is an immutable two dimensional vector. Its elements are stored in fields instead of an
+ * array and all operations are unrolled, so short-lived instances in hot loops can be replaced
+ * by their fields through escape analysis.
+ * @since 1.2
+ */
+public final class Vector2 {
+
+    private final double x;
+    private final double y;
+
+    public Vector2(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Creates a copy of the given vector.
+     * @throws IllegalDimensionException if the given vector has another dimension than 2.
+     */
+    public Vector2(Vector vector) {
+        if (vector.getDimension() != 2) {
+            throw new IllegalDimensionException("vector must have 2 dimensions");
+        }
+        this.x = vector.get(0);
+        this.y = vector.get(1);
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double get(int index) {
+        switch (index) {
+            case 0: return x;
+            case 1: return y;
+            default: throw new IndexOutOfBoundsException("index " + index + " is out of range for vector with dimension 2");
+        }
+    }
+
+    public double getLengthSquare() {
+        return x * x + y * y;
+    }
+
+    public double getLength() {
+        return Math.sqrt(getLengthSquare());
+    }
+
+    /**
+     * @return a vector pointing into the same direction like this vector but with length of 1
+     */
+    public Vector2 normalize() {
+        final double length = getLength();
+        return new Vector2(x / length, y / length);
+    }
+
+    public Vector2 add(Vector2 other) {
+        return new Vector2(x + other.x, y + other.y);
+    }
+
+    public Vector2 sub(Vector2 other) {
+        return new Vector2(x - other.x, y - other.y);
+    }
+
+    /**
+     * Multiplies this vector with the given scalar.
+     * @see #scale(double)
+     */
+    public Vector2 mul(double scalar) {
+        return scale(scalar);
+    }
+
+    /**
+     * Scales this vector with the given scalar.
+     * @see #mul(double)
+     */
+    public Vector2 scale(double scalar) {
+        return new Vector2(x * scalar, y * scalar);
+    }
+
+    public double scalar(Vector2 other) {
+        return x * other.x + y * other.y;
+    }
+
+    /**
+     * This method projects the other vector onto this vector.
+     * @return projection of the other vector onto this vector.
+     */
+    public Vector2 project(Vector2 other) {
+        return other.projectOn(this);
+    }
+
+    /**
+     * This method projects this vector onto the other.
+     * @return projection of this vector onto the other vector.
+     */
+    public Vector2 projectOn(Vector2 other) {
+        return other.scale(other.scalar(this) / other.getLengthSquare());
+    }
+
+    /**
+     * @return a copy of this vector as general vector.
+     */
+    public Vector toVector() {
+        return new Vector(x, y);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Vector2)) {
+            return false;
+        }
+        Vector2 v = (Vector2)o;
+        // compare with == to treat "-0" and "0" as equal.
+        return x == v.x && y == v.y;
+    }
+
+    /**
+     * @return the same hash code as {@link Vector#hashCode()} for a vector with the same values.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * Vector3.hash(x) + Vector3.hash(y);
+    }
+
+    @Override
+    public String toString() {
+        return "Vector2[" + x + ", " + y + "]";
+    }
+}
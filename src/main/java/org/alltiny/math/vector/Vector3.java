@@ -0,0 +1,163 @@
+package org.alltiny.math.vector;
+
+/**
+ * This is an immutable three dimensional vector. Its elements are stored in fields instead of an
+ * array and all operations are unrolled, so short-lived instances in hot loops can be replaced
+ * by their fields through escape analysis.
+ * @since 1.2
+ */
+public final class Vector3 {
+
+    private final double x;
+    private final double y;
+    private final double z;
+
+    public Vector3(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Creates a copy of the given vector.
+     * @throws IllegalDimensionException if the given vector has another dimension than 3.
+     */
+    public Vector3(Vector vector) {
+        if (vector.getDimension() != 3) {
+            throw new IllegalDimensionException("vector must have 3 dimensions");
+        }
+        this.x = vector.get(0);
+        this.y = vector.get(1);
+        this.z = vector.get(2);
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public double get(int index) {
+        switch (index) {
+            case 0: return x;
+            case 1: return y;
+            case 2: return z;
+            default: throw new IndexOutOfBoundsException("index " + index + " is out of range for vector with dimension 3");
+        }
+    }
+
+    public double getLengthSquare() {
+        return x * x + y * y + z * z;
+    }
+
+    public double getLength() {
+        return Math.sqrt(getLengthSquare());
+    }
+
+    /**
+     * @return a vector pointing into the same direction like this vector but with length of 1
+     */
+    public Vector3 normalize() {
+        final double length = getLength();
+        return new Vector3(x / length, y / length, z / length);
+    }
+
+    public Vector3 add(Vector3 other) {
+        return new Vector3(x + other.x, y + other.y, z + other.z);
+    }
+
+    public Vector3 sub(Vector3 other) {
+        return new Vector3(x - other.x, y - other.y, z - other.z);
+    }
+
+    /**
+     * Multiplies this vector with the given scalar.
+     * @see #scale(double)
+     */
+    public Vector3 mul(double scalar) {
+        return scale(scalar);
+    }
+
+    /**
+     * Scales this vector with the given scalar.
+     * @see #mul(double)
+     */
+    public Vector3 scale(double scalar) {
+        return new Vector3(x * scalar, y * scalar, z * scalar);
+    }
+
+    public double scalar(Vector3 other) {
+        return x * other.x + y * other.y + z * other.z;
+    }
+
+    /**
+     * This method calculates the cross product between this vector and the given vector.
+     */
+    public Vector3 cross(Vector3 other) {
+        return new Vector3(
+            y * other.z - z * other.y,
+            z * other.x - x * other.z,
+            x * other.y - y * other.x
+        );
+    }
+
+    /**
+     * This method projects the other vector onto this vector.
+     * @return projection of the other vector onto this vector.
+     */
+    public Vector3 project(Vector3 other) {
+        return other.projectOn(this);
+    }
+
+    /**
+     * This method projects this vector onto the other.
+     * @return projection of this vector onto the other vector.
+     */
+    public Vector3 projectOn(Vector3 other) {
+        return other.scale(other.scalar(this) / other.getLengthSquare());
+    }
+
+    /**
+     * @return a copy of this vector as general vector.
+     */
+    public Vector toVector() {
+        return new Vector(x, y, z);
+    }
+
+    /** @return the hash of a single element like {@link Vector#hashCode()} calculates it. */
+    static int hash(double value) {
+        return (int)Double.doubleToLongBits(value == 0.0 ? 0 : value); // treat -0.0 and 0.0 as 0
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Vector3)) {
+            return false;
+        }
+        Vector3 v = (Vector3)o;
+        // compare with == to treat "-0" and "0" as equal.
+        return x == v.x && y == v.y && z == v.z;
+    }
+
+    /**
+     * @return the same hash code as {@link Vector#hashCode()} for a vector with the same values.
+     */
+    @Override
+    public int hashCode() {
+        return (31 * hash(x) + hash(y)) * 31 + hash(z);
+    }
+
+    @Override
+    public String toString() {
+        return "Vector3[" + x + ", " + y + ", " + z + "]";
+    }
+}
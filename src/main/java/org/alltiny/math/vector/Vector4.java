@@ -0,0 +1,155 @@
+package org.alltiny.math.vector;
+
+/**
+ * This is an immutable four dimensional vector, e.g. for homogeneous coordinates. Its elements
+ * are stored in fields instead of an array and all operations are unrolled, so short-lived
+ * instances in hot loops can be replaced by their fields through escape analysis.
+ * @since 1.2
+ */
+public final class Vector4 {
+
+    private final double x;
+    private final double y;
+    private final double z;
+    private final double w;
+
+    public Vector4(double x, double y, double z, double w) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+    }
+
+    /**
+     * Creates a copy of the given vector.
+     * @throws IllegalDimensionException if the given vector has another dimension than 4.
+     */
+    public Vector4(Vector vector) {
+        if (vector.getDimension() != 4) {
+            throw new IllegalDimensionException("vector must have 4 dimensions");
+        }
+        this.x = vector.get(0);
+        this.y = vector.get(1);
+        this.z = vector.get(2);
+        this.w = vector.get(3);
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public double getW() {
+        return w;
+    }
+
+    public double get(int index) {
+        switch (index) {
+            case 0: return x;
+            case 1: return y;
+            case 2: return z;
+            case 3: return w;
+            default: throw new IndexOutOfBoundsException("index " + index + " is out of range for vector with dimension 4");
+        }
+    }
+
+    public double getLengthSquare() {
+        return x * x + y * y + z * z + w * w;
+    }
+
+    public double getLength() {
+        return Math.sqrt(getLengthSquare());
+    }
+
+    /**
+     * @return a vector pointing into the same direction like this vector but with length of 1
+     */
+    public Vector4 normalize() {
+        final double length = getLength();
+        return new Vector4(x / length, y / length, z / length, w / length);
+    }
+
+    public Vector4 add(Vector4 other) {
+        return new Vector4(x + other.x, y + other.y, z + other.z, w + other.w);
+    }
+
+    public Vector4 sub(Vector4 other) {
+        return new Vector4(x - other.x, y - other.y, z - other.z, w - other.w);
+    }
+
+    /**
+     * Multiplies this vector with the given scalar.
+     * @see #scale(double)
+     */
+    public Vector4 mul(double scalar) {
+        return scale(scalar);
+    }
+
+    /**
+     * Scales this vector with the given scalar.
+     * @see #mul(double)
+     */
+    public Vector4 scale(double scalar) {
+        return new Vector4(x * scalar, y * scalar, z * scalar, w * scalar);
+    }
+
+    public double scalar(Vector4 other) {
+        return x * other.x + y * other.y + z * other.z + w * other.w;
+    }
+
+    /**
+     * This method projects the other vector onto this vector.
+     * @return projection of the other vector onto this vector.
+     */
+    public Vector4 project(Vector4 other) {
+        return other.projectOn(this);
+    }
+
+    /**
+     * This method projects this vector onto the other.
+     * @return projection of this vector onto the other vector.
+     */
+    public Vector4 projectOn(Vector4 other) {
+        return other.scale(other.scalar(this) / other.getLengthSquare());
+    }
+
+    /**
+     * @return a copy of this vector as general vector.
+     */
+    public Vector toVector() {
+        return new Vector(x, y, z, w);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Vector4)) {
+            return false;
+        }
+        Vector4 v = (Vector4)o;
+        // compare with == to treat "-0" and "0" as equal.
+        return x == v.x && y == v.y && z == v.z && w == v.w;
+    }
+
+    /**
+     * @return the same hash code as {@link Vector#hashCode()} for a vector with the same values.
+     */
+    @Override
+    public int hashCode() {
+        return ((31 * Vector3.hash(x) + Vector3.hash(y)) * 31 + Vector3.hash(z)) * 31 + Vector3.hash(w);
+    }
+
+    @Override
+    public String toString() {
+        return "Vector4[" + x + ", " + y + ", " + z + ", " + w + "]";
+    }
+}
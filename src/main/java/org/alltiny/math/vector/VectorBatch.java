@@ -0,0 +1,454 @@
+package org.alltiny.math.vector;
+
+import java.util.Arrays;
+
+/**
+ * This class holds many vectors of the same dimension in one flat array and offers bulk
+ * operations on all of them. Compared to a list of {@link Vector} objects this saves the
+ * object and array headers of every vector and lets the loops run over contiguous memory.
+ *
+ * The values are either stored vector by vector ({@link Layout#AOS}), or dimension by
+ * dimension ({@link Layout#SOA}). The first suits operations which handle each vector on its
+ * own, the second lets loops over many vectors run over contiguous memory.
+ * @since 1.2
+ */
+public class VectorBatch {
+
+    /**
+     * The memory layout of a batch.
+     */
+    public enum Layout {
+        /** Array of structures: the elements of a vector are stored next to each other. */
+        AOS,
+        /** Structure of arrays: the same element of all vectors is stored next to each other. */
+        SOA
+    }
+
+    private final double[] values;
+    private final int size;
+    private final int dimension;
+    private final Layout layout;
+
+    /**
+     * Creates a batch of 0-vectors.
+     * @param size number of vectors
+     * @param dimension of each vector
+     * @param layout in which the values are stored
+     */
+    public VectorBatch(int size, int dimension, Layout layout) {
+        this(size, dimension, layout, new double[checkDimensions(size, dimension)]);
+    }
+
+    /**
+     * Creates a batch on top of the given values, which must be stored in the given layout.
+     * The array is not copied; changes to it are visible in this batch.
+     * @throws IllegalDimensionException if the number of values does not match size * dimension.
+     */
+    public VectorBatch(int size, int dimension, Layout layout, double... values) {
+        if (layout == null) {
+            throw new IllegalArgumentException("layout can not be null");
+        }
+        if (values.length != checkDimensions(size, dimension)) {
+            throw new IllegalDimensionException("batch of " + size + " vectors with " + dimension + " dimensions requires " + size * dimension + " values, but got " + values.length);
+        }
+        this.values = values;
+        this.size = size;
+        this.dimension = dimension;
+        this.layout = layout;
+    }
+
+    /**
+     * Creates a batch holding copies of the given vectors.
+     * @throws IllegalDimensionException if the vectors have unequal dimensions.
+     */
+    public VectorBatch(Layout layout, Vector... vectors) {
+        this(vectors.length, vectors.length > 0 ? vectors[0].getDimension() : 0, layout);
+        for (int i = 0; i < size; i++) {
+            set(i, vectors[i]);
+        }
+    }
+
+    private static int checkDimensions(int size, int dimension) {
+        if (size < 0) {
+            throw new IllegalDimensionException("batch size can not be negative");
+        }
+        if (dimension < 0) {
+            throw new IllegalDimensionException("dimension can not be negative");
+        }
+        return size * dimension;
+    }
+
+    /**
+     * @return the number of vectors in this batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the dimension of the vectors in this batch.
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * @return the element with the given index of the vector with the given index.
+     */
+    public double get(int vector, int index) {
+        checkIndex(vector, index);
+        return values[index(vector, index)];
+    }
+
+    /**
+     * This method modifies the element with the given index of the vector with the given index.
+     */
+    public VectorBatch set(int vector, int index, double value) {
+        checkIndex(vector, index);
+        values[index(vector, index)] = value;
+        return this;
+    }
+
+    /**
+     * Copies the values of the given vector into the vector with the given index.
+     * @throws IllegalDimensionException if the given vector has another dimension than this batch.
+     */
+    public VectorBatch set(int vector, Vector values) {
+        if (vector < 0 || vector >= size) {
+            throw new IndexOutOfBoundsException("vector " + vector + " is out of range for batch of " + size + " vectors");
+        }
+        checkDimension(values);
+        final int start = index(vector, 0);
+        final int elementStride = elementStride();
+        for (int d = 0, a = start; d < dimension; d++, a += elementStride) {
+            this.values[a] = values.get(d);
+        }
+        return this;
+    }
+
+    /**
+     * @return the vector with the given index as a view onto this batch; no values are copied.
+     */
+    public Vector getVector(int vector) {
+        if (vector < 0 || vector >= size) {
+            throw new IndexOutOfBoundsException("vector " + vector + " is out of range for batch of " + size + " vectors");
+        }
+        return new Vector(values, index(vector, 0), elementStride(), dimension);
+    }
+
+    /**
+     * @return a matrix view onto this batch whose row i is vector i; no values are copied.
+     * @throws IllegalDimensionException if this batch is empty or its vectors have no elements.
+     */
+    public Matrix asMatrix() {
+        if (size == 0 || dimension == 0) {
+            throw new IllegalDimensionException("an empty batch can not be viewed as matrix");
+        }
+        return layout == Layout.AOS
+            ? new Matrix(values, 0, size, dimension, dimension, 1)
+            : new Matrix(values, 0, size, dimension, 1, size);
+    }
+
+    /**
+     * @return a copy of this batch in the given layout.
+     */
+    public VectorBatch toLayout(Layout target) {
+        VectorBatch copy = new VectorBatch(size, dimension, target);
+        for (int i = 0; i < size; i++) {
+            for (int d = 0; d < dimension; d++) {
+                copy.values[copy.index(i, d)] = values[index(i, d)];
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * @return a new batch holding the sums of the vectors of this and the given batch.
+     * @throws IllegalDimensionException if the batches have unequal sizes or dimensions.
+     */
+    public VectorBatch add(VectorBatch other) {
+        return new VectorBatch(size, dimension, layout, values.clone()).addInPlace(other);
+    }
+
+    /**
+     * Adds the vectors of the given batch to the vectors of this batch.
+     * @return this batch
+     * @throws IllegalDimensionException if the batches have unequal sizes or dimensions.
+     */
+    public VectorBatch addInPlace(VectorBatch other) {
+        checkSize(other);
+        if (layout == other.layout) {
+            Kernels.add(values, 0, other.values, 0, values, 0, values.length);
+        } else {
+            for (int i = 0; i < size; i++) {
+                for (int d = 0; d < dimension; d++) {
+                    values[index(i, d)] += other.values[other.index(i, d)];
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return a new batch holding the vectors of this batch scaled by the given scalar.
+     */
+    public VectorBatch scale(double scalar) {
+        return new VectorBatch(size, dimension, layout, values.clone()).scaleInPlace(scalar);
+    }
+
+    /**
+     * Scales all vectors of this batch with the given scalar.
+     * @return this batch
+     */
+    public VectorBatch scaleInPlace(double scalar) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] *= scalar;
+        }
+        return this;
+    }
+
+    /**
+     * @return a new batch holding the normalized vectors of this batch.
+     */
+    public VectorBatch normalize() {
+        return new VectorBatch(size, dimension, layout, values.clone()).normalizeInPlace();
+    }
+
+    /**
+     * Normalizes all vectors of this batch, so that they keep their direction but get a length of 1.
+     * @return this batch
+     */
+    public VectorBatch normalizeInPlace() {
+        final int elementStride = elementStride();
+        for (int i = 0; i < size; i++) {
+            final int start = index(i, 0);
+            double lengthSquare = 0;
+            for (int d = 0, a = start; d < dimension; d++, a += elementStride) {
+                lengthSquare += values[a] * values[a];
+            }
+            final double length = Math.sqrt(lengthSquare);
+            for (int d = 0, a = start; d < dimension; d++, a += elementStride) {
+                values[a] = values[a] / length;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the lengths of all vectors of this batch.
+     */
+    public double[] getLength() {
+        return getLength(new double[size]);
+    }
+
+    /**
+     * Writes the lengths of all vectors of this batch into the given array.
+     * @return the given array
+     */
+    public double[] getLength(double[] result) {
+        checkResult(result);
+        if (layout == Layout.SOA) {
+            Arrays.fill(result, 0, size, 0);
+            for (int d = 0; d < dimension; d++) {
+                final int start = d * size;
+                for (int i = 0; i < size; i++) {
+                    result[i] += values[start + i] * values[start + i];
+                }
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                result[i] = Kernels.sumOfSquares(values, i * dimension, dimension);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            result[i] = Math.sqrt(result[i]);
+        }
+        return result;
+    }
+
+    /**
+     * @return the scalar products of the vectors of this batch with the vectors of the given batch pairwise.
+     * @throws IllegalDimensionException if the batches have unequal sizes or dimensions.
+     */
+    public double[] scalar(VectorBatch other) {
+        return scalar(other, new double[size]);
+    }
+
+    /**
+     * Writes the pairwise scalar products of the vectors of this and the given batch into the given array.
+     * @return the given array
+     * @throws IllegalDimensionException if the batches have unequal sizes or dimensions.
+     */
+    public double[] scalar(VectorBatch other, double[] result) {
+        checkSize(other);
+        checkResult(result);
+        if (layout == Layout.SOA && other.layout == Layout.SOA) {
+            Arrays.fill(result, 0, size, 0);
+            for (int d = 0; d < dimension; d++) {
+                final int start = d * size;
+                for (int i = 0; i < size; i++) {
+                    result[i] += values[start + i] * other.values[start + i];
+                }
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                double sum = 0;
+                for (int d = 0; d < dimension; d++) {
+                    sum += values[index(i, d)] * other.values[other.index(i, d)];
+                }
+                result[i] = sum;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the scalar products of all vectors of this batch with the given vector.
+     * @throws IllegalDimensionException if the vector has another dimension than this batch.
+     */
+    public double[] scalar(Vector vector) {
+        return scalar(vector, new double[size]);
+    }
+
+    /**
+     * Writes the scalar products of all vectors of this batch with the given vector into the given array.
+     * @return the given array
+     * @throws IllegalDimensionException if the vector has another dimension than this batch.
+     */
+    public double[] scalar(Vector vector, double[] result) {
+        checkDimension(vector);
+        checkResult(result);
+        if (layout == Layout.SOA) {
+            Arrays.fill(result, 0, size, 0);
+            for (int d = 0; d < dimension; d++) {
+                Kernels.axpy(vector.get(d), values, d * size, result, 0, size);
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                result[i] = getVector(i).scalar(vector);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return a new batch holding the cross products of the vectors of this and the given batch pairwise.
+     * @throws IllegalDimensionException if the batches have unequal sizes or their vectors not 3 dimensions.
+     */
+    public VectorBatch cross(VectorBatch other) {
+        return cross(other, new VectorBatch(size, dimension, layout));
+    }
+
+    /**
+     * Writes the pairwise cross products of the vectors of this and the given batch into the result batch.
+     * The result batch may be one of the two batches.
+     * @return the given result batch
+     * @throws IllegalDimensionException if the batches have unequal sizes or their vectors not 3 dimensions.
+     */
+    public VectorBatch cross(VectorBatch other, VectorBatch result) {
+        if (dimension != 3) {
+            throw new IllegalDimensionException("vectors must have 3 dimensions");
+        }
+        checkSize(other);
+        checkSize(result);
+        for (int i = 0; i < size; i++) {
+            final double ax = values[index(i, 0)];
+            final double ay = values[index(i, 1)];
+            final double az = values[index(i, 2)];
+            final double bx = other.values[other.index(i, 0)];
+            final double by = other.values[other.index(i, 1)];
+            final double bz = other.values[other.index(i, 2)];
+            result.values[result.index(i, 0)] = ay * bz - az * by;
+            result.values[result.index(i, 1)] = az * bx - ax * bz;
+            result.values[result.index(i, 2)] = ax * by - ay * bx;
+        }
+        return result;
+    }
+
+    /** @return the array backing this batch. */
+    double[] getArray() {
+        return values;
+    }
+
+    /** @return the position of the given element of the given vector in the backing array. */
+    int index(int vector, int index) {
+        return layout == Layout.AOS ? vector * dimension + index : index * size + vector;
+    }
+
+    /** @return the distance between two consecutive elements of a vector in the backing array. */
+    int elementStride() {
+        return layout == Layout.AOS ? 1 : size;
+    }
+
+    private void checkIndex(int vector, int index) {
+        if (vector < 0 || vector >= size || index < 0 || index >= dimension) {
+            throw new IndexOutOfBoundsException("(" + vector + "," + index + ") is out of range for batch of " + size + " vectors with dimension " + dimension);
+        }
+    }
+
+    private void checkDimension(Vector vector) {
+        if (dimension != vector.getDimension()) {
+            throw new IllegalDimensionException("vector must have the same dimension as the batch");
+        }
+    }
+
+    private void checkSize(VectorBatch other) {
+        if (size != other.size || dimension != other.dimension) {
+            throw new IllegalDimensionException("both batches must have the same size and dimension");
+        }
+    }
+
+    private void checkResult(double[] result) {
+        if (result.length < size) {
+            throw new IllegalDimensionException("result array must have at least " + size + " elements");
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof VectorBatch)) {
+            return false;
+        }
+        VectorBatch batch = (VectorBatch)o;
+        if (size != batch.size || dimension != batch.dimension) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            for (int d = 0; d < dimension; d++) {
+                // compare with != to treat "-0" and "0" as equal.
+                if (values[index(i, d)] != batch.values[batch.index(i, d)]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + getVector(i).hashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("VectorBatch[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(getVector(i));
+        }
+        return builder.append(']').toString();
+    }
+}
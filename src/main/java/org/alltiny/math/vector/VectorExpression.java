@@ -0,0 +1,285 @@
+package org.alltiny.math.vector;
+
+/**
+ * This is a lazily evaluated chain of element-wise vector operations. Operations like
+ * {@link #add(Vector)} or {@link #scale(double)} only build a small expression tree; the
+ * values are calculated when a terminal operation like {@link #scalar(Vector)},
+ * {@link #getLength()} or {@link #materialize()} is called.
+ *
+ * The tree is evaluated in a single pass over the operands: chunks of {@link #CHUNK} elements
+ * are calculated into small buffers which stay in the CPU cache, so no temporary vectors are
+ * allocated and every operand is read exactly once. The element-wise results are bit-identical
+ * to the equivalent chain of eager {@link Vector} operations.
+ *
+ * An expression reads its operands when it is evaluated, so changes to them after building
+ * the expression are visible in the result.
+ * @see Vector#lazy()
+ * @since 1.2
+ */
+public abstract class VectorExpression {
+
+    /** Number of elements evaluated per chunk; the buffers of a few chunks fit into the L1 cache. */
+    static final int CHUNK = 256;
+
+    private final int dimension;
+
+    VectorExpression(int dimension) {
+        this.dimension = dimension;
+    }
+
+    /**
+     * @return an expression which just reads the given vector.
+     */
+    public static VectorExpression of(Vector vector) {
+        return new Leaf(vector);
+    }
+
+    /**
+     * @return the dimension of the vector this expression evaluates to.
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    public VectorExpression add(Vector other) {
+        return add(of(other));
+    }
+
+    public VectorExpression add(VectorExpression other) {
+        checkDimension(other);
+        return new Sum(this, other, false);
+    }
+
+    public VectorExpression sub(Vector other) {
+        return sub(of(other));
+    }
+
+    public VectorExpression sub(VectorExpression other) {
+        checkDimension(other);
+        return new Sum(this, other, true);
+    }
+
+    /**
+     * Multiplies this expression with the given scalar.
+     * @see #scale(double)
+     */
+    public VectorExpression mul(double scalar) {
+        return scale(scalar);
+    }
+
+    /**
+     * Scales this expression with the given scalar.
+     * @see #mul(double)
+     */
+    public VectorExpression scale(double scalar) {
+        return new Scaled(this, scalar);
+    }
+
+    /**
+     * Evaluates this expression and calculates the scalar product with the given vector.
+     * @throws IllegalDimensionException if the vector has another dimension than this expression.
+     */
+    public double scalar(Vector vector) {
+        return scalar(of(vector));
+    }
+
+    /**
+     * Evaluates both expressions in the same pass and calculates their scalar product.
+     * @throws IllegalDimensionException if the expressions have unequal dimensions.
+     */
+    public double scalar(VectorExpression other) {
+        checkDimension(other);
+        final int buffers = buffers();
+        try (ScratchArena arena = ScratchArena.open()) {
+            final Vector scratch = arena.vector(CHUNK * (buffers + other.buffers()));
+            final double[] buffer = scratch.getArray();
+            final int base = scratch.getOffset();
+            final int otherBase = base + buffers * CHUNK;
+            double scalar = 0;
+            for (int from = 0; from < dimension; from += CHUNK) {
+                final int length = Math.min(CHUNK, dimension - from);
+                evaluate(from, length, buffer, base);
+                other.evaluate(from, length, buffer, otherBase);
+                scalar += Kernels.dot(buffer, base, buffer, otherBase, length);
+            }
+            return scalar;
+        }
+    }
+
+    /**
+     * Evaluates this expression and calculates the square of the length of the resulting vector.
+     */
+    public double getLengthSquare() {
+        try (ScratchArena arena = ScratchArena.open()) {
+            final Vector scratch = arena.vector(CHUNK * buffers());
+            final double[] buffer = scratch.getArray();
+            final int base = scratch.getOffset();
+            double result = 0;
+            for (int from = 0; from < dimension; from += CHUNK) {
+                final int length = Math.min(CHUNK, dimension - from);
+                evaluate(from, length, buffer, base);
+                result += Kernels.sumOfSquares(buffer, base, length);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Evaluates this expression and calculates the length of the resulting vector.
+     */
+    public double getLength() {
+        return Math.sqrt(getLengthSquare());
+    }
+
+    /**
+     * @return a new vector holding the values of this expression.
+     */
+    public Vector materialize() {
+        return materialize(new Vector(dimension));
+    }
+
+    /**
+     * Evaluates this expression into the given result vector. The result vector may be one of
+     * the operands of this expression, because every chunk is read before it is written.
+     * @return the given result vector
+     * @throws IllegalDimensionException if the result vector has another dimension than this expression.
+     */
+    public Vector materialize(Vector result) {
+        if (result.getDimension() != dimension) {
+            throw new IllegalDimensionException("result vector must have the same dimension");
+        }
+        final double[] values = result.getArray();
+        final int stride = result.getStride();
+        try (ScratchArena arena = ScratchArena.open()) {
+            final Vector scratch = arena.vector(CHUNK * buffers());
+            final double[] buffer = scratch.getArray();
+            final int base = scratch.getOffset();
+            for (int from = 0; from < dimension; from += CHUNK) {
+                final int length = Math.min(CHUNK, dimension - from);
+                evaluate(from, length, buffer, base);
+                if (stride == 1) {
+                    System.arraycopy(buffer, base, values, result.getOffset() + from, length);
+                } else {
+                    for (int i = base, r = result.getOffset() + from * stride; i < base + length; i++, r += stride) {
+                        values[r] = buffer[i];
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the elements {@code [from, from + length)} of this expression into
+     * {@code buffer[offset, offset + length)}. The buffer behind {@code offset + CHUNK} may be
+     * used as scratch space by the sub-expressions.
+     */
+    abstract void evaluate(int from, int length, double[] buffer, int offset);
+
+    /**
+     * @return the number of chunk buffers needed to evaluate this expression.
+     */
+    abstract int buffers();
+
+    private void checkDimension(VectorExpression other) {
+        if (dimension != other.dimension) {
+            throw new IllegalDimensionException("both vectors must have the same dimension");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "VectorExpression[dimension=" + dimension + "]";
+    }
+
+    /** Reads the values of a vector. */
+    private static final class Leaf extends VectorExpression {
+
+        private final Vector vector;
+
+        private Leaf(Vector vector) {
+            super(vector.getDimension());
+            this.vector = vector;
+        }
+
+        @Override
+        void evaluate(int from, int length, double[] buffer, int offset) {
+            final double[] values = vector.getArray();
+            final int stride = vector.getStride();
+            if (stride == 1) {
+                System.arraycopy(values, vector.getOffset() + from, buffer, offset, length);
+            } else {
+                for (int i = 0, v = vector.getOffset() + from * stride; i < length; i++, v += stride) {
+                    buffer[offset + i] = values[v];
+                }
+            }
+        }
+
+        @Override
+        int buffers() {
+            return 1;
+        }
+    }
+
+    /** Adds or subtracts two expressions. */
+    private static final class Sum extends VectorExpression {
+
+        private final VectorExpression left;
+        private final VectorExpression right;
+        private final boolean subtract;
+
+        private Sum(VectorExpression left, VectorExpression right, boolean subtract) {
+            super(left.getDimension());
+            this.left = left;
+            this.right = right;
+            this.subtract = subtract;
+        }
+
+        @Override
+        void evaluate(int from, int length, double[] buffer, int offset) {
+            left.evaluate(from, length, buffer, offset);
+            final int scratch = offset + CHUNK;
+            right.evaluate(from, length, buffer, scratch);
+            if (subtract) {
+                for (int i = 0; i < length; i++) {
+                    buffer[offset + i] = buffer[offset + i] - buffer[scratch + i];
+                }
+            } else {
+                for (int i = 0; i < length; i++) {
+                    buffer[offset + i] = buffer[offset + i] + buffer[scratch + i];
+                }
+            }
+        }
+
+        @Override
+        int buffers() {
+            return Math.max(left.buffers(), 1 + right.buffers());
+        }
+    }
+
+    /** Multiplies an expression with a scalar. */
+    private static final class Scaled extends VectorExpression {
+
+        private final VectorExpression expression;
+        private final double factor;
+
+        private Scaled(VectorExpression expression, double factor) {
+            super(expression.getDimension());
+            this.expression = expression;
+            this.factor = factor;
+        }
+
+        @Override
+        void evaluate(int from, int length, double[] buffer, int offset) {
+            expression.evaluate(from, length, buffer, offset);
+            for (int i = 0; i < length; i++) {
+                buffer[offset + i] = buffer[offset + i] * factor;
+            }
+        }
+
+        @Override
+        int buffers() {
+            return expression.buffers();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.alltiny.math.vector;
+
+/**
+ * Entry point for the hot kernels of {@link Vector} and {@link Matrix}. All arrays are
+ * accessed contiguously from the given offsets.
+ *
+ * This is the implementation for Java 17 and newer in the multi-release jar. It runs the
+ * {@link SimdKernels} if the {@code jdk.incubator.vector} module has been added to the JVM
+ * (e.g. with {@code --add-modules jdk.incubator.vector}); otherwise it falls back to the
+ * plain loops of {@link ScalarKernels}. Setting the system property
+ * {@code org.alltiny.math.vector.simd} to {@code false} disables the SIMD kernels.
+ */
+final class Kernels {
+
+    private static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+        && !"false".equals(System.getProperty("org.alltiny.math.vector.simd"));
+
+    private Kernels() {
+    }
+
+    /**
+     * @return true if the kernels use SIMD instructions.
+     */
+    static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /** @return the scalar product of both arrays. */
+    static double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        if (VECTORIZED && length >= SimdKernels.MIN_LENGTH) {
+            return SimdKernels.dot(a, aOffset, b, bOffset, length);
+        }
+        return ScalarKernels.dot(a, aOffset, b, bOffset, length);
+    }
+
+    /** @return the sum of the squares of the elements. */
+    static double sumOfSquares(double[] a, int offset, int length) {
+        if (VECTORIZED && length >= SimdKernels.MIN_LENGTH) {
+            return SimdKernels.sumOfSquares(a, offset, length);
+        }
+        return ScalarKernels.sumOfSquares(a, offset, length);
+    }
+
+    /** Calculates {@code result = a + b} element-wise. */
+    static void add(double[] a, int aOffset, double[] b, int bOffset, double[] result, int resultOffset, int length) {
+        if (VECTORIZED && length >= SimdKernels.MIN_LENGTH) {
+            SimdKernels.add(a, aOffset, b, bOffset, result, resultOffset, length);
+        } else {
+            ScalarKernels.add(a, aOffset, b, bOffset, result, resultOffset, length);
+        }
+    }
+
+    /** Calculates {@code y += factor * x} element-wise. */
+    static void axpy(double factor, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        if (VECTORIZED && length >= SimdKernels.MIN_LENGTH) {
+            SimdKernels.axpy(factor, x, xOffset, y, yOffset, length);
+        } else {
+            ScalarKernels.axpy(factor, x, xOffset, y, yOffset, length);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.alltiny.math.vector;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementations of the hot kernels using the incubating Vector API. The species is
+ * the preferred one of the running CPU, e.g. 4 lanes on AVX2 and 8 lanes on AVX-512.
+ *
+ * Element-wise kernels multiply and add separately (no fused multiply-add), so they round
+ * exactly like {@link ScalarKernels}. Reductions sum lane-wise and therefore in another order,
+ * but split long arrays pairwise like {@link ScalarKernels}.
+ * This class must only be loaded if the {@code jdk.incubator.vector} module is present.
+ */
+final class SimdKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    /** Arrays shorter than this are faster handled by the scalar loops. */
+    static final int MIN_LENGTH = 2 * SPECIES.length();
+
+    private SimdKernels() {
+    }
+
+    static double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        if (length > ScalarKernels.PAIRWISE_BLOCK) {
+            final int half = length >>> 1;
+            return dot(a, aOffset, b, bOffset, half) + dot(a, aOffset + half, b, bOffset + half, length - half);
+        }
+        final int step = SPECIES.length();
+        // four accumulators hide the latency of the vector additions.
+        DoubleVector sum0 = DoubleVector.zero(SPECIES);
+        DoubleVector sum1 = DoubleVector.zero(SPECIES);
+        DoubleVector sum2 = DoubleVector.zero(SPECIES);
+        DoubleVector sum3 = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i + 4 * step <= length; i += 4 * step) {
+            sum0 = sum0.add(DoubleVector.fromArray(SPECIES, a, aOffset + i).mul(DoubleVector.fromArray(SPECIES, b, bOffset + i)));
+            sum1 = sum1.add(DoubleVector.fromArray(SPECIES, a, aOffset + i + step).mul(DoubleVector.fromArray(SPECIES, b, bOffset + i + step)));
+            sum2 = sum2.add(DoubleVector.fromArray(SPECIES, a, aOffset + i + 2 * step).mul(DoubleVector.fromArray(SPECIES, b, bOffset + i + 2 * step)));
+            sum3 = sum3.add(DoubleVector.fromArray(SPECIES, a, aOffset + i + 3 * step).mul(DoubleVector.fromArray(SPECIES, b, bOffset + i + 3 * step)));
+        }
+        for (; i + step <= length; i += step) {
+            sum0 = sum0.add(DoubleVector.fromArray(SPECIES, a, aOffset + i).mul(DoubleVector.fromArray(SPECIES, b, bOffset + i)));
+        }
+        double sum = sum0.add(sum1).add(sum2.add(sum3)).reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    static double sumOfSquares(double[] a, int offset, int length) {
+        if (length > ScalarKernels.PAIRWISE_BLOCK) {
+            final int half = length >>> 1;
+            return sumOfSquares(a, offset, half) + sumOfSquares(a, offset + half, length - half);
+        }
+        final int step = SPECIES.length();
+        DoubleVector sum0 = DoubleVector.zero(SPECIES);
+        DoubleVector sum1 = DoubleVector.zero(SPECIES);
+        DoubleVector sum2 = DoubleVector.zero(SPECIES);
+        DoubleVector sum3 = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i + 4 * step <= length; i += 4 * step) {
+            final DoubleVector x0 = DoubleVector.fromArray(SPECIES, a, offset + i);
+            final DoubleVector x1 = DoubleVector.fromArray(SPECIES, a, offset + i + step);
+            final DoubleVector x2 = DoubleVector.fromArray(SPECIES, a, offset + i + 2 * step);
+            final DoubleVector x3 = DoubleVector.fromArray(SPECIES, a, offset + i + 3 * step);
+            sum0 = sum0.add(x0.mul(x0));
+            sum1 = sum1.add(x1.mul(x1));
+            sum2 = sum2.add(x2.mul(x2));
+            sum3 = sum3.add(x3.mul(x3));
+        }
+        for (; i + step <= length; i += step) {
+            final DoubleVector x0 = DoubleVector.fromArray(SPECIES, a, offset + i);
+            sum0 = sum0.add(x0.mul(x0));
+        }
+        double sum = sum0.add(sum1).add(sum2.add(sum3)).reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[offset + i] * a[offset + i];
+        }
+        return sum;
+    }
+
+    static void add(double[] a, int aOffset, double[] b, int bOffset, double[] result, int resultOffset, int length) {
+        final int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOffset + i).add(DoubleVector.fromArray(SPECIES, b, bOffset + i)).intoArray(result, resultOffset + i);
+        }
+        for (; i < length; i++) {
+            result[resultOffset + i] = a[aOffset + i] + b[bOffset + i];
+        }
+    }
+
+    static void axpy(double factor, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        final DoubleVector f = DoubleVector.broadcast(SPECIES, factor);
+        final int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, y, yOffset + i).add(DoubleVector.fromArray(SPECIES, x, xOffset + i).mul(f)).intoArray(y, yOffset + i);
+        }
+        for (; i < length; i++) {
+            y[yOffset + i] += factor * x[xOffset + i];
+        }
+    }
+}
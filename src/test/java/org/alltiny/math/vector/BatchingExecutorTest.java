@@ -0,0 +1,206 @@
+package org.alltiny.math.vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link BatchingExecutor} is working correctly.
+ */
+public class BatchingExecutorTest {
+
+    /** Runs the batches on the calling thread and counts them. */
+    private static final class CountingExecutor implements Executor {
+
+        final AtomicInteger batches = new AtomicInteger();
+
+        @Override
+        public void execute(Runnable command) {
+            batches.incrementAndGet();
+            command.run();
+        }
+    }
+
+    @Test
+    public void testFullBatchesAreExecutedAtOnce() throws Exception {
+        CountingExecutor executor = new CountingExecutor();
+        Matrix matrix = TestData.gaussianMatrix(5, 4, 1);
+        List<Vector> vectors = new ArrayList<Vector>();
+        List<CompletableFuture<Vector>> futures = new ArrayList<CompletableFuture<Vector>>();
+        try (BatchingExecutor batching = new BatchingExecutor(10, 1, TimeUnit.HOURS, executor, Executors.defaultThreadFactory())) {
+            for (int i = 0; i < 30; i++) {
+                Vector vector = TestData.gaussianVector(4, i);
+                vectors.add(vector);
+                futures.add(batching.mul(matrix, vector));
+            }
+            Assert.assertEquals("batches should be", 3, executor.batches.get());
+            for (int i = 0; i < 30; i++) {
+                assertEquals("product " + i, matrix.mul(vectors.get(i)), futures.get(i).get(0, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Test
+    public void testDeadlineExecutesPartialBatch() throws Exception {
+        CountingExecutor executor = new CountingExecutor();
+        Matrix matrix = TestData.gaussianMatrix(3, 3, 2);
+        try (BatchingExecutor batching = new BatchingExecutor(1000, 5, TimeUnit.MILLISECONDS, executor, Executors.defaultThreadFactory())) {
+            CompletableFuture<Vector> first = batching.mul(matrix, new Vector(1, 0, 0));
+            CompletableFuture<Vector> second = batching.mul(matrix, new Vector(0, 1, 0));
+            assertEquals("first product", matrix.getColumn(0), first.get(10, TimeUnit.SECONDS));
+            assertEquals("second product", matrix.getColumn(1), second.get(10, TimeUnit.SECONDS));
+            Assert.assertEquals("batches should be", 1, executor.batches.get());
+        }
+    }
+
+    @Test
+    public void testMatricesAreBatchedSeparately() throws Exception {
+        CountingExecutor executor = new CountingExecutor();
+        Matrix a = TestData.gaussianMatrix(3, 3, 3);
+        Matrix b = TestData.gaussianMatrix(3, 3, 4);
+        CompletableFuture<Vector> first;
+        CompletableFuture<Vector> second;
+        try (BatchingExecutor batching = new BatchingExecutor(100, 1, TimeUnit.HOURS, executor, Executors.defaultThreadFactory())) {
+            first = batching.mul(a, new Vector(1, 2, 3));
+            second = batching.mul(b, new Vector(1, 2, 3));
+        }
+        // closing executes the pending batches.
+        Assert.assertEquals("batches should be", 2, executor.batches.get());
+        assertEquals("product with a", a.mul(new Vector(1, 2, 3)), first.get(0, TimeUnit.SECONDS));
+        assertEquals("product with b", b.mul(new Vector(1, 2, 3)), second.get(0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testScalarProductsAreBatched() throws Exception {
+        CountingExecutor executor = new CountingExecutor();
+        Vector left = TestData.gaussianVector(8, 5);
+        List<CompletableFuture<Double>> futures = new ArrayList<CompletableFuture<Double>>();
+        List<Vector> others = new ArrayList<Vector>();
+        try (BatchingExecutor batching = new BatchingExecutor(4, 1, TimeUnit.HOURS, executor, Executors.defaultThreadFactory())) {
+            for (int i = 0; i < 8; i++) {
+                others.add(TestData.gaussianVector(8, 10 + i));
+                futures.add(batching.scalar(left, others.get(i)));
+            }
+        }
+        Assert.assertEquals("batches should be", 2, executor.batches.get());
+        for (int i = 0; i < 8; i++) {
+            Assert.assertEquals("scalar product " + i + " should be", left.scalar(others.get(i)), futures.get(i).get(0, TimeUnit.SECONDS), 1e-12);
+        }
+    }
+
+    @Test
+    public void testConcurrentRequestsOnPool() throws Exception {
+        final Matrix matrix = TestData.gaussianMatrix(16, 16, 6);
+        final BatchingExecutor batching = new BatchingExecutor();
+        final List<CompletableFuture<Vector>> futures = new ArrayList<CompletableFuture<Vector>>();
+        final List<Vector> vectors = new ArrayList<Vector>();
+        for (int i = 0; i < 200; i++) {
+            vectors.add(TestData.gaussianVector(16, 100 + i));
+        }
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int from = t * 50;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = from; i < from + 50; i++) {
+                        CompletableFuture<Vector> future = batching.mul(matrix, vectors.get(i));
+                        synchronized (futures) {
+                            while (futures.size() <= i) {
+                                futures.add(null);
+                            }
+                            futures.set(i, future);
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < 200; i++) {
+            assertEquals("product " + i, matrix.mul(vectors.get(i)), futures.get(i).get(10, TimeUnit.SECONDS));
+        }
+        batching.close();
+    }
+
+    @Test
+    public void testDefaultDispatcherIsNamedDaemon() {
+        try (BatchingExecutor batching = new BatchingExecutor()) {
+            int dispatchers = 0;
+            for (Thread thread : threads()) {
+                if ("BatchingExecutor-dispatcher".equals(thread.getName())) {
+                    Assert.assertTrue("dispatcher should be a daemon thread", thread.isDaemon());
+                    dispatchers++;
+                }
+            }
+            Assert.assertTrue("dispatcher thread should exist", dispatchers > 0);
+            Assert.assertEquals("batch size should be", BatchingExecutor.DEFAULT_MAX_BATCH_SIZE, batching.getMaxBatchSize());
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testClosedExecutorRejectsRequests() {
+        BatchingExecutor batching = new BatchingExecutor();
+        batching.close();
+        batching.mul(new Matrix(2, 2), new Vector(2));
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testWrongDimension() {
+        try (BatchingExecutor batching = new BatchingExecutor()) {
+            batching.mul(new Matrix(2, 3), new Vector(2));
+        }
+    }
+
+    @Test
+    public void testRejectingExecutorFailsFutures() throws InterruptedException, TimeoutException {
+        Executor rejecting = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException("full");
+            }
+        };
+        CompletableFuture<Vector> future;
+        try (BatchingExecutor batching = new BatchingExecutor(1, 0, TimeUnit.MILLISECONDS, rejecting, Executors.defaultThreadFactory())) {
+            future = batching.mul(new Matrix(2, 2), new Vector(2));
+        }
+        try {
+            future.get(0, TimeUnit.SECONDS);
+            Assert.fail("future should fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue("cause should be the rejection", e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBatchSize() {
+        new BatchingExecutor(0, 1, TimeUnit.MILLISECONDS, new CountingExecutor(), Executors.defaultThreadFactory());
+    }
+
+    private static Thread[] threads() {
+        Thread[] threads = new Thread[Thread.activeCount() + 16];
+        int count = Thread.enumerate(threads);
+        Thread[] result = new Thread[count];
+        System.arraycopy(threads, 0, result, 0, count);
+        return result;
+    }
+
+    private static void assertEquals(String message, Vector expected, Vector actual) {
+        Assert.assertEquals(message + " should have dimension", expected.getDimension(), actual.getDimension());
+        for (int i = 0; i < expected.getDimension(); i++) {
+            Assert.assertEquals(message + " at " + i + " should be", expected.get(i), actual.get(i), 1e-12);
+        }
+    }
+}
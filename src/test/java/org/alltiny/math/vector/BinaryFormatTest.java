@@ -0,0 +1,158 @@
+package org.alltiny.math.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+
+/**
+ * This test ensures that {@link BinaryFormat} is working correctly.
+ */
+public class BinaryFormatTest {
+
+    @Test
+    public void testVectorRoundTripInBothByteOrders() {
+        Vector vector = new Vector(1, -2.5, Math.PI, Double.MAX_VALUE, Double.NEGATIVE_INFINITY);
+        for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            ByteBuffer buffer = ByteBuffer.allocate((int)BinaryFormat.sizeOf(vector, BinaryFormat.ElementType.DOUBLE)).order(order);
+            BinaryFormat.write(vector, buffer);
+            Assert.assertFalse("buffer should be filled completely", buffer.hasRemaining());
+            buffer.flip();
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            Assert.assertEquals("magic number should be", BinaryFormat.MAGIC, buffer.getInt(0));
+            Assert.assertEquals("vector read should be", vector, BinaryFormat.readVector(buffer));
+            Assert.assertEquals("order of buffer should be kept", ByteOrder.BIG_ENDIAN, buffer.order());
+        }
+    }
+
+    @Test
+    public void testMatrixViewRoundTrip() {
+        Matrix matrix = TestData.gaussianMatrix(7, 5, 1);
+        Matrix view = new Matrix(matrix.getArray(), 0, 5, 7, 1, 5);
+        ByteBuffer buffer = ByteBuffer.allocate((int)BinaryFormat.sizeOf(view, BinaryFormat.ElementType.DOUBLE)).order(ByteOrder.LITTLE_ENDIAN);
+        BinaryFormat.write(view, buffer);
+        buffer.flip();
+        Assert.assertEquals("matrix read should be", view, BinaryFormat.readMatrix(buffer));
+        Assert.assertEquals("matrix read should be the transposed one", matrix.transpose(), view);
+    }
+
+    @Test
+    public void testFloatElementsAreRounded() {
+        Vector vector = new Vector(0.1, 1.5, -3);
+        ByteBuffer buffer = ByteBuffer.allocate((int)BinaryFormat.sizeOf(vector, BinaryFormat.ElementType.FLOAT));
+        BinaryFormat.write(vector, BinaryFormat.ElementType.FLOAT, buffer);
+        Assert.assertEquals("size should be", BinaryFormat.HEADER_BYTES + 12, buffer.position());
+        buffer.flip();
+        Assert.assertEquals("vector read should be", new Vector((float)0.1, 1.5, -3), BinaryFormat.readVector(buffer));
+    }
+
+    @Test
+    public void testStreamsConsumeExactlyOneElement() throws IOException {
+        Vector vector = new Vector(3, 4);
+        Matrix matrix = TestData.gaussianMatrix(20, 30, 2);
+        Vector column = matrix.getColumn(3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFormat.write(vector, BinaryFormat.ElementType.DOUBLE, out);
+        BinaryFormat.write(matrix, BinaryFormat.ElementType.DOUBLE, out);
+        BinaryFormat.write(column, BinaryFormat.ElementType.DOUBLE, out);
+        Assert.assertEquals("number of bytes written should be", BinaryFormat.sizeOf(vector, BinaryFormat.ElementType.DOUBLE)
+            + BinaryFormat.sizeOf(matrix, BinaryFormat.ElementType.DOUBLE) + BinaryFormat.sizeOf(column, BinaryFormat.ElementType.DOUBLE), out.size());
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        Assert.assertEquals("vector read should be", vector, BinaryFormat.readVector(in));
+        Assert.assertEquals("matrix read should be", matrix, BinaryFormat.readMatrix(in));
+        Assert.assertEquals("column read should be", column, BinaryFormat.readVector(in));
+        Assert.assertEquals("stream should be consumed completely", -1, in.read());
+    }
+
+    @Test
+    public void testMatrixIsStreamedRowByRow() throws IOException {
+        Matrix matrix = TestData.gaussianMatrix(3, 10000, 3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFormat.MatrixWriter writer = new BinaryFormat.MatrixWriter(Channels.newChannel(out), 3, 10000, BinaryFormat.ElementType.DOUBLE);
+        for (int row = 0; row < 3; row++) {
+            writer.writeRow(matrix.getRow(row));
+        }
+        writer.close();
+        BinaryFormat.MatrixReader reader = new BinaryFormat.MatrixReader(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+        Assert.assertEquals("rows should be", 3, reader.getRows());
+        Assert.assertEquals("columns should be", 10000, reader.getColumns());
+        Assert.assertEquals("element type should be", BinaryFormat.ElementType.DOUBLE, reader.getElementType());
+        Matrix target = new Matrix(10000, 3);
+        int row = 0;
+        while (reader.hasNextRow()) {
+            reader.readRow(target.getColumn(row++));
+        }
+        reader.close();
+        Assert.assertEquals("matrix read should be", matrix, target.transpose());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWriterFailsOnMissingRows() throws IOException {
+        BinaryFormat.MatrixWriter writer = new BinaryFormat.MatrixWriter(Channels.newChannel(new ByteArrayOutputStream()), 2, 2, BinaryFormat.ElementType.FLOAT);
+        writer.writeRow(new Vector(1, 2));
+        writer.close();
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testWriterFailsOnWrongRowDimension() throws IOException {
+        BinaryFormat.MatrixWriter writer = new BinaryFormat.MatrixWriter(Channels.newChannel(new ByteArrayOutputStream()), 2, 2, BinaryFormat.ElementType.DOUBLE);
+        writer.writeRow(new Vector(1, 2, 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadingMatrixAsVectorFails() {
+        Matrix matrix = TestData.gaussianMatrix(2, 2, 4);
+        ByteBuffer buffer = ByteBuffer.allocate((int)BinaryFormat.sizeOf(matrix, BinaryFormat.ElementType.DOUBLE));
+        BinaryFormat.write(matrix, buffer);
+        buffer.flip();
+        BinaryFormat.readVector(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongMagicNumberFails() {
+        BinaryFormat.readVector(ByteBuffer.allocate(64));
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedStreamFails() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFormat.write(new Vector(1, 2, 3), BinaryFormat.ElementType.DOUBLE, out);
+        byte[] bytes = out.toByteArray();
+        BinaryFormat.readVector(new ByteArrayInputStream(bytes, 0, bytes.length - 1));
+    }
+
+    @Test
+    public void testCorruptDimensionsDoNotAllocate() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BinaryFormat.HEADER_BYTES);
+        header.putInt(BinaryFormat.MAGIC).put(BinaryFormat.VERSION).put((byte)1).put((byte)0).put((byte)0);
+        header.putInt(46340).putInt(46340);
+        header.flip();
+        try {
+            BinaryFormat.readMatrix(header.duplicate());
+            Assert.fail("truncated buffer should fail");
+        } catch (BufferUnderflowException e) {
+            // expected
+        }
+        try {
+            BinaryFormat.readMatrix(new ByteArrayInputStream(header.array()));
+            Assert.fail("truncated stream should fail");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLargeMatrixFromStream() throws IOException {
+        Matrix matrix = TestData.gaussianMatrix(300, 100, 3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFormat.write(matrix, BinaryFormat.ElementType.DOUBLE, out);
+        Assert.assertEquals("matrix should be", matrix, BinaryFormat.readMatrix(new ByteArrayInputStream(out.toByteArray())));
+    }
+}
@@ -0,0 +1,88 @@
+package org.alltiny.math.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This test ensures that {@link Distances} is working correctly.
+ */
+public class DistancesTest {
+
+    @Test
+    public void testEuclideanMatchesVectorOperations() {
+        Matrix a = TestData.uniformMatrix(37, 9, 1);
+        Matrix b = TestData.uniformMatrix(300, 9, 2);
+        Matrix squared = Distances.squaredEuclidean(a, b);
+        Matrix distances = Distances.euclidean(a, b, Parallelism.of(new ForkJoinPool(4)).withThreshold(1));
+        for (int i = 0; i < a.getRows(); i++) {
+            for (int j = 0; j < b.getRows(); j++) {
+                Vector diff = a.getRow(i).sub(b.getRow(j));
+                Assert.assertEquals("squared distance (" + i + "," + j + ") should be", diff.getLengthSquare(), squared.get(i, j), 0.000000001);
+                Assert.assertEquals("distance (" + i + "," + j + ") should be", diff.getLength(), distances.get(i, j), 0.000001);
+            }
+        }
+    }
+
+    @Test
+    public void testDistanceToItselfIsNotNegative() {
+        Matrix a = TestData.uniformMatrix(50, 7, 3).add(new Matrix(50, 7, constant(350, 1000)));
+        Matrix squared = Distances.squaredEuclidean(a, a);
+        for (int i = 0; i < a.getRows(); i++) {
+            Assert.assertTrue("distance to itself should not be negative", squared.get(i, i) >= 0);
+            Assert.assertEquals("distance to itself should be", 0, squared.get(i, i), 0.000001);
+        }
+    }
+
+    @Test
+    public void testCosineSimilarity() {
+        Matrix a = new Matrix(new Vector(1, 0), new Vector(1, 1), new Vector(0, 0));
+        Matrix b = new Matrix(new Vector(2, 0), new Vector(0, -3));
+        Matrix similarity = Distances.cosineSimilarity(a, b);
+        Assert.assertEquals("similarity of parallel vectors should be", 1, similarity.get(0, 0), 0.000001);
+        Assert.assertEquals("similarity of orthogonal vectors should be", 0, similarity.get(0, 1), 0.000001);
+        Assert.assertEquals("similarity at 45 degrees should be", Math.sqrt(0.5), similarity.get(1, 0), 0.000001);
+        Assert.assertEquals("similarity of zero vector should be", 0, similarity.get(2, 1), 0);
+    }
+
+    @Test
+    public void testNearestMatchesFullDistanceMatrix() {
+        // more points than one tile and more queries than one block.
+        Matrix queries = TestData.uniformMatrix(Distances.QUERY_BLOCK + 11, 6, 4);
+        Matrix points = TestData.uniformMatrix(Distances.POINT_BLOCK * 2 + 33, 6, 5);
+        Matrix distances = Distances.euclidean(queries, points);
+        List<List<Neighbour>> nearest = Distances.nearest(queries, points, 4, Parallelism.of(new ForkJoinPool(3)).withThreshold(1));
+        SpatialIndex index = SpatialIndex.of(new VectorBatch(points.getRows(), 6, VectorBatch.Layout.AOS, points.getArray()));
+        for (int q = 0; q < queries.getRows(); q++) {
+            List<Neighbour> expected = index.nearest(queries.getRow(q), 4);
+            Assert.assertEquals("number of neighbours should be", 4, nearest.get(q).size());
+            for (int n = 0; n < 4; n++) {
+                Neighbour neighbour = nearest.get(q).get(n);
+                Assert.assertEquals("neighbour " + n + " of query " + q + " should be", expected.get(n).getIndex(), neighbour.getIndex());
+                Assert.assertEquals("distance should be as in the matrix", distances.get(q, neighbour.getIndex()), neighbour.getDistance(), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testBatchAsMatrix() {
+        VectorBatch batch = new VectorBatch(VectorBatch.Layout.SOA, new Vector(0, 0), new Vector(3, 4));
+        Matrix distances = Distances.euclidean(batch.asMatrix(), new Matrix(new Vector(0, 4)));
+        Assert.assertEquals("distance should be", 4, distances.get(0, 0), 0.000001);
+        Assert.assertEquals("distance should be", 3, distances.get(1, 0), 0.000001);
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testRejectsUnequalColumns() {
+        Distances.squaredEuclidean(new Matrix(2, 3), new Matrix(2, 4));
+    }
+
+    private static double[] constant(int length, double value) {
+        double[] values = new double[length];
+        Arrays.fill(values, value);
+        return values;
+    }
+}
@@ -0,0 +1,87 @@
+package org.alltiny.math.vector;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link FloatMatrix} is working correctly.
+ */
+public class FloatMatrixTest {
+
+    @Test
+    public void testRowAndColumnExtraction() {
+        FloatMatrix m = new FloatMatrix(new FloatVector(1, 2), new FloatVector(3, 4));
+        Assert.assertEquals("row should be", new FloatVector(3, 4), m.getRow(1));
+        Assert.assertEquals("column should be", new FloatVector(2, 4), m.getColumn(1));
+        Assert.assertEquals("value on (1,0) should be", 3f, m.get(1, 0), 0);
+    }
+
+    @Test
+    public void testAddingTwoMatrices() {
+        FloatMatrix m = new FloatMatrix(2, 2, 1, 2, 3, 4).add(new FloatMatrix(2, 2, 5, 6, 7, 8));
+        Assert.assertEquals("sum should be", new FloatMatrix(2, 2, 6, 8, 10, 12), m);
+    }
+
+    @Test
+    public void testMultiplyingMatrixWithVector() {
+        FloatMatrix a = new FloatMatrix(new FloatVector(3, 2, 1), new FloatVector(1, 0, 2));
+        Assert.assertEquals("product should be", new FloatVector(22, 13), a.mul(new FloatVector(3, 4, 5)));
+    }
+
+    @Test
+    public void testMultiplyingTwoMatrices() {
+        FloatMatrix a = new FloatMatrix(new FloatVector(3, 2, 1), new FloatVector(1, 0, 2));
+        FloatMatrix b = new FloatMatrix(new FloatVector(1, 2), new FloatVector(0, 1), new FloatVector(4, 0));
+        Assert.assertEquals("product should be", new FloatMatrix(2, 2, 7, 8, 9, 2), a.mul(b));
+    }
+
+    @Test
+    public void testMultiplyingLargeMatricesMatchesDoublePrecision() {
+        Random random = new Random(1);
+        Matrix a = new Matrix(70, 300, randomValues(random, 70 * 300));
+        Matrix b = new Matrix(300, 290, randomValues(random, 300 * 290));
+        FloatMatrix product = new FloatMatrix(a).mul(new FloatMatrix(b));
+        Matrix expected = new FloatMatrix(a).toMatrix().mul(new FloatMatrix(b).toMatrix());
+        for (int row = 0; row < expected.getRows(); row++) {
+            for (int col = 0; col < expected.getColumns(); col++) {
+                Assert.assertEquals("value on (" + row + "," + col + ") should be", (float)expected.get(row, col), product.get(row, col), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testTransposingMatrix() {
+        Assert.assertEquals("transposed matrix should be", new FloatMatrix(3, 2, 3, 1, 2, 0, 1, 2), new FloatMatrix(2, 3, 3, 2, 1, 1, 0, 2).transpose());
+    }
+
+    @Test
+    public void testConversionToAndFromMatrix() {
+        Matrix m = new Matrix(2, 2, 1.5, 2, 3, -4);
+        Assert.assertEquals("double matrix should be", m, new FloatMatrix(m).toMatrix());
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testMultiplyingMatricesWithWrongDimensions() {
+        new FloatMatrix(2, 2).mul(new FloatMatrix(3, 2));
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testMatrixRejectsSizeBeyondArrayLimit() {
+        new FloatMatrix(65537, 65537);
+    }
+
+    @Test
+    public void testToString() {
+        Assert.assertEquals("toString should be", "FloatMatrix[FloatVector[7.0, 3.0], FloatVector[8.0, 4.0]]", new FloatMatrix(2, 2, 7, 3, 8, 4).toString());
+    }
+
+    private static double[] randomValues(Random random, int length) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextDouble() * 2 - 1;
+        }
+        return values;
+    }
+}
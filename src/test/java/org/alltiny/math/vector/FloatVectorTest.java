@@ -0,0 +1,80 @@
+package org.alltiny.math.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link FloatVector} is working correctly.
+ */
+public class FloatVectorTest {
+
+    @Test
+    public void testLengthCalculation() {
+        Assert.assertEquals("length of vector should be", 5, new FloatVector(3, 4).getLength(), 0.000001);
+    }
+
+    @Test
+    public void testNormalization() {
+        Assert.assertEquals("normalized vector should have a length of 1", 1d, new FloatVector(3, 4, 5).normalize().getLength(), 0.000001);
+    }
+
+    @Test
+    public void testAdditionAndSubtraction() {
+        FloatVector a = new FloatVector(3, 0, 1);
+        FloatVector b = new FloatVector(0, 2, 1);
+        Assert.assertEquals("sum should be", new FloatVector(3, 2, 2), a.add(b));
+        Assert.assertEquals("difference should be", new FloatVector(3, -2, 0), a.sub(b));
+    }
+
+    @Test
+    public void testScaling() {
+        Assert.assertEquals("scaled vector should be", new FloatVector(6, 4, -2), new FloatVector(3, 2, -1).scale(2));
+        Assert.assertEquals("multiplied vector should be", new FloatVector(-12, 20), new FloatVector(-3, 5).mul(4));
+    }
+
+    @Test
+    public void testScalarIsAccumulatedInDoublePrecision() {
+        // 2^24 + 1 can not be represented as float, but the scalar product must not lose the 1.
+        FloatVector a = new FloatVector(16777216f, 1f);
+        Assert.assertEquals("scalar should be", 16777217d, a.scalar(new FloatVector(1, 1)), 0);
+    }
+
+    @Test
+    public void testCrossCalculation() {
+        Assert.assertEquals("cross product should be", new FloatVector(0, 0, 6), new FloatVector(3, 0, 0).cross(new FloatVector(0, 2, 0)));
+    }
+
+    @Test
+    public void testProjection() {
+        Assert.assertEquals("projection should be", new FloatVector(1, 0), new FloatVector(1, 1).projectOn(new FloatVector(2, 0)));
+        Assert.assertEquals("projection should be", new FloatVector(0, 1), new FloatVector(0, 2).project(new FloatVector(1, 1)));
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testVectorsWithDifferentDimensionsCanNotBeAdded() {
+        new FloatVector(1f).add(new FloatVector(2, 3));
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testVectorRejectsCrossProductIfItHasNotThreeDimensions() {
+        new FloatVector(1, 2).cross(new FloatVector(4, 5, 6));
+    }
+
+    @Test
+    public void testConversionToAndFromVector() {
+        Assert.assertEquals("double vector should be", new Vector(1.5, -2), new FloatVector(1.5f, -2f).toVector());
+        Assert.assertEquals("float vector should be", new FloatVector(1.5f, -2f), new FloatVector(new Vector(1.5, -2)));
+    }
+
+    @Test
+    public void testEquals() {
+        Assert.assertEquals("both vectors should be equal", new FloatVector(0f), new FloatVector(-0f));
+        Assert.assertEquals("equal vectors should have the same hash", new FloatVector(0f).hashCode(), new FloatVector(-0f).hashCode());
+        Assert.assertNotEquals("vectors should not be equal", new FloatVector(1f), new FloatVector(1, 2));
+    }
+
+    @Test
+    public void testToString() {
+        Assert.assertEquals("toString should be", "FloatVector[1.0, 2.5]", new FloatVector(1f, 2.5f).toString());
+    }
+}
@@ -0,0 +1,59 @@
+package org.alltiny.math.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link ImmutableMatrix} is working correctly.
+ */
+public class ImmutableMatrixTest {
+
+    @Test
+    public void testValuesAreCopied() {
+        double[] values = {1, 2, 3, 4, 5, 6};
+        ImmutableMatrix a = ImmutableMatrix.of(2, 3, values);
+        values[0] = 9;
+        Assert.assertEquals("value should not have changed", 1, a.get(0, 0), 0);
+        Matrix matrix = new Matrix(2, 3, 1, 2, 3, 4, 5, 6);
+        ImmutableMatrix b = ImmutableMatrix.copyOf(matrix);
+        matrix.getArray()[0] = 9;
+        Assert.assertEquals("value should not have changed", 1, b.get(0, 0), 0);
+        Assert.assertEquals("copy should be", new Matrix(2, 3, 1, 2, 3, 4, 5, 6), a.toMatrix());
+    }
+
+    @Test
+    public void testHashCodeAndEquals() {
+        Matrix matrix = new Matrix(2, 3, 1, 2, 3, 4, 5, 6);
+        ImmutableMatrix a = ImmutableMatrix.copyOf(matrix);
+        ImmutableMatrix b = ImmutableMatrix.copyOf(matrix.transpose().transpose());
+        Assert.assertEquals("matrices should be equal", a, b);
+        Assert.assertEquals("hash code should be the one of Matrix", matrix.hashCode(), a.hashCode());
+        Assert.assertNotEquals("matrices should not be equal", a, ImmutableMatrix.of(2, 3, 1, 2, 3, 4, 5, 7));
+        Assert.assertNotEquals("matrices should not be equal", a, ImmutableMatrix.of(3, 2, 1, 2, 3, 4, 5, 6));
+    }
+
+    @Test
+    public void testTransposeIsCached() {
+        ImmutableMatrix a = ImmutableMatrix.of(2, 3, 1, 2, 3, 4, 5, 6);
+        ImmutableMatrix transposed = a.transpose();
+        Assert.assertEquals("transpose should be", ImmutableMatrix.of(3, 2, 1, 4, 2, 5, 3, 6), transposed);
+        Assert.assertSame("transpose should be cached", transposed, a.transpose());
+        Assert.assertSame("transpose of the transpose should be the matrix", a, transposed.transpose());
+    }
+
+    @Test
+    public void testOperationsMatchMatrix() {
+        Matrix x = new Matrix(2, 3, 1, 2, 3, 4, 5, 6);
+        Matrix y = new Matrix(3, 2, 1, 0, -1, 2, 0.5, 1);
+        ImmutableMatrix a = ImmutableMatrix.copyOf(x);
+        ImmutableMatrix b = ImmutableMatrix.copyOf(y);
+        Assert.assertEquals("product should be", ImmutableMatrix.copyOf(x.mul(y)), a.mul(b));
+        Assert.assertEquals("sum should be", ImmutableMatrix.copyOf(x.add(x)), a.add(a));
+        Vector v = new Vector(1, -1, 2);
+        Assert.assertEquals("product with vector should be", x.mul(v), a.mul(v));
+        Assert.assertEquals("product with immutable vector should be", ImmutableVector.copyOf(x.mul(v)), a.mul(ImmutableVector.copyOf(v)));
+        Assert.assertEquals("row should be", ImmutableVector.of(4, 5, 6), a.getRow(1));
+        Assert.assertEquals("rows should be", 2, a.getRows());
+        Assert.assertEquals("columns should be", 3, a.getColumns());
+    }
+}
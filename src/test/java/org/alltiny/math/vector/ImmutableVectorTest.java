@@ -0,0 +1,82 @@
+package org.alltiny.math.vector;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link ImmutableVector} is working correctly.
+ */
+public class ImmutableVectorTest {
+
+    @Test
+    public void testValuesAreCopied() {
+        double[] values = {1, 2, 3};
+        ImmutableVector a = ImmutableVector.of(values);
+        values[0] = 5;
+        Assert.assertEquals("value should not have changed", 1, a.get(0), 0);
+        Vector vector = new Vector(1, 2, 3);
+        ImmutableVector b = ImmutableVector.copyOf(vector);
+        vector.set(0, 5);
+        Assert.assertEquals("value should not have changed", 1, b.get(0), 0);
+        a.toArray()[1] = 7;
+        a.toVector().set(1, 7);
+        Assert.assertEquals("value should not have changed", 2, a.get(1), 0);
+    }
+
+    @Test
+    public void testHashCodeAndEquals() {
+        ImmutableVector a = ImmutableVector.of(1, -0.0, 3);
+        ImmutableVector b = ImmutableVector.copyOf(new Vector(1, 0, 3));
+        Assert.assertEquals("vectors should be equal", a, b);
+        Assert.assertEquals("hash codes should be equal", a.hashCode(), b.hashCode());
+        Assert.assertEquals("hash code should be the one of Vector", new Vector(1, 0, 3).hashCode(), a.hashCode());
+        Assert.assertNotEquals("vectors should not be equal", a, ImmutableVector.of(1, 0, 4));
+        Assert.assertNotEquals("mutable vector should not be equal", a, new Vector(1, 0, 3));
+        Assert.assertEquals("hash code of the 0-vector should be", 0, ImmutableVector.of(0, 0).hashCode());
+        Map<ImmutableVector, String> map = new HashMap<ImmutableVector, String>();
+        map.put(a, "a");
+        Assert.assertEquals("lookup should find the equal vector", "a", map.get(b));
+    }
+
+    @Test
+    public void testNormalizedVectorIsCached() {
+        ImmutableVector a = ImmutableVector.of(3, 0, 4);
+        Assert.assertEquals("length should be", 5, a.getLength(), 0);
+        Assert.assertEquals("length square should be", 25, a.getLengthSquare(), 0);
+        ImmutableVector normalized = a.normalize();
+        Assert.assertEquals("normalized vector should be", ImmutableVector.of(0.6, 0, 0.8), normalized);
+        Assert.assertSame("normalized vector should be cached", normalized, a.normalize());
+        Assert.assertSame("normalized vector should be normalized already", normalized, normalized.normalize());
+    }
+
+    @Test
+    public void testOperationsMatchVector() {
+        Vector x = new Vector(1, 2, 3);
+        Vector y = new Vector(-2, 0.5, 4);
+        ImmutableVector a = ImmutableVector.copyOf(x);
+        ImmutableVector b = ImmutableVector.copyOf(y);
+        Assert.assertEquals("sum should be", ImmutableVector.copyOf(x.add(y)), a.add(b));
+        Assert.assertEquals("difference should be", ImmutableVector.copyOf(x.sub(y)), a.sub(b));
+        Assert.assertEquals("scaled vector should be", ImmutableVector.copyOf(x.scale(2)), a.scale(2));
+        Assert.assertEquals("scalar product should be", x.scalar(y), a.scalar(b), 0);
+        Assert.assertEquals("scalar product should be", x.scalar(y), a.scalar(y), 0);
+        assertEquals("projection", x.project(y), a.project(b));
+        assertEquals("projection", x.projectOn(y), a.projectOn(b));
+        Assert.assertEquals("string should be", "ImmutableVector[1.0, 2.0, 3.0]", a.toString());
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testScalarProductWithWrongDimension() {
+        ImmutableVector.of(1, 2).scalar(ImmutableVector.of(1, 2, 3));
+    }
+
+    private static void assertEquals(String message, Vector expected, ImmutableVector actual) {
+        Assert.assertEquals(message + " should have dimension", expected.getDimension(), actual.getDimension());
+        for (int i = 0; i < expected.getDimension(); i++) {
+            Assert.assertEquals(message + " at " + i + " should be", expected.get(i), actual.get(i), 1e-12);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package org.alltiny.math.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that the {@link IterativeSolver}s are working correctly.
+ */
+public class IterativeSolverTest {
+
+    private static final int N = 200;
+
+    @Test
+    public void testConjugateGradientOnPoisson() {
+        SparseMatrix a = tridiagonal(N, -1, 2, -1);
+        Vector b = TestData.gaussianVector(N, 1);
+        SolverResult result = new ConjugateGradient(a).setMaxIterations(N).solve(b);
+        assertSolves("CG", a, b, result, 1e-10);
+        Assert.assertTrue("CG should need at most N iterations", result.getIterations() <= N);
+    }
+
+    @Test
+    public void testJacobiPreconditionerReducesIterations() {
+        SparseMatrix a = scaledPoisson(N);
+        Vector b = TestData.gaussianVector(N, 2);
+        SolverResult plain = new ConjugateGradient(a).setMaxIterations(10 * N).solve(b);
+        SolverResult preconditioned = new ConjugateGradient(a).setPreconditioner(Preconditioners.jacobi(a)).setMaxIterations(10 * N).solve(b);
+        assertSolves("CG", a, b, plain, 1e-10);
+        assertSolves("preconditioned CG", a, b, preconditioned, 1e-10);
+        Assert.assertTrue("preconditioning should need fewer iterations than " + plain.getIterations() + " but needed " + preconditioned.getIterations(),
+            preconditioned.getIterations() < plain.getIterations());
+    }
+
+    @Test
+    public void testConjugateGradientOnMatrixFreeOperator() {
+        // the operator of the 1D Poisson equation, which is never stored.
+        LinearOperator poisson = new LinearOperator() {
+            @Override
+            public int getRows() {
+                return N;
+            }
+
+            @Override
+            public int getColumns() {
+                return N;
+            }
+
+            @Override
+            public Vector apply(Vector in, Vector out) {
+                for (int i = 0; i < N; i++) {
+                    double value = 2 * in.get(i);
+                    if (i > 0) {
+                        value -= in.get(i - 1);
+                    }
+                    if (i < N - 1) {
+                        value -= in.get(i + 1);
+                    }
+                    out.set(i, value);
+                }
+                return out;
+            }
+        };
+        Vector b = TestData.gaussianVector(N, 3);
+        SolverResult result = new ConjugateGradient(poisson).solve(b);
+        assertSolves("CG", tridiagonal(N, -1, 2, -1), b, result, 1e-10);
+    }
+
+    @Test
+    public void testConjugateGradientStopsOnIndefiniteOperator() {
+        SparseMatrix a = tridiagonal(10, 0, -1, 0);
+        SolverResult result = new ConjugateGradient(a).solve(TestData.gaussianVector(10, 4));
+        Assert.assertFalse("CG should not converge", result.isConverged());
+    }
+
+    @Test
+    public void testBiCGStabOnNonSymmetricSystem() {
+        SparseMatrix a = tridiagonal(N, -1.4, 2.5, -0.6);
+        Vector b = TestData.gaussianVector(N, 5);
+        assertSolves("BiCGSTAB", a, b, new BiCGStab(a).solve(b), 1e-10);
+        assertSolves("preconditioned BiCGSTAB", a, b, new BiCGStab(a).setPreconditioner(Preconditioners.jacobi(a)).solve(b), 1e-10);
+    }
+
+    @Test
+    public void testGmresOnNonSymmetricSystem() {
+        SparseMatrix a = tridiagonal(N, -1.4, 2.5, -0.6);
+        Vector b = TestData.gaussianVector(N, 6);
+        assertSolves("GMRES", a, b, new Gmres(a, 20).setMaxIterations(10 * N).solve(b), 1e-10);
+        assertSolves("preconditioned GMRES", a, b, new Gmres(a).setPreconditioner(Preconditioners.jacobi(a)).setMaxIterations(10 * N).solve(b), 1e-10);
+    }
+
+    @Test
+    public void testGmresWithoutRestartConvergesWithinDimension() {
+        Matrix a = randomMatrix(30, 7);
+        Vector b = TestData.gaussianVector(30, 8);
+        SolverResult result = new Gmres(a, 30).setTolerance(1e-9).setMaxIterations(30).solve(b);
+        assertSolves("GMRES", a, b, result, 1e-9);
+        Vector expected = a.lu().solve(b);
+        for (int i = 0; i < 30; i++) {
+            Assert.assertEquals("element " + i + " should match LU", expected.get(i), result.getSolution().get(i), 1e-6);
+        }
+    }
+
+    @Test
+    public void testSolverIsReusedWithInitialGuess() {
+        SparseMatrix a = tridiagonal(N, -1, 4, -1);
+        ConjugateGradient solver = new ConjugateGradient(a);
+        Vector b = TestData.gaussianVector(N, 9);
+        SolverResult first = solver.solve(b);
+        assertSolves("first solve", a, b, first, 1e-10);
+        Vector x = new Vector(first.getSolution());
+        SolverResult second = solver.solve(b, x);
+        Assert.assertSame("solution should be the given vector", x, second.getSolution());
+        Assert.assertEquals("starting at the solution should need no iterations", 0, second.getIterations());
+        assertSolves("second solve", a, TestData.gaussianVector(N, 10), solver.solve(TestData.gaussianVector(N, 10)), 1e-10);
+    }
+
+    @Test
+    public void testIterationLimit() {
+        SparseMatrix a = tridiagonal(N, -1, 2, -1);
+        SolverResult result = new ConjugateGradient(a).setMaxIterations(3).solve(TestData.gaussianVector(N, 11));
+        Assert.assertFalse("solver should not converge", result.isConverged());
+        Assert.assertEquals("iterations should be", 3, result.getIterations());
+        Assert.assertTrue("residual should be reported", result.getResidual() > 0);
+    }
+
+    @Test
+    public void testZeroRightHandSide() {
+        Vector x = new Vector(1, 2, 3);
+        SolverResult result = new BiCGStab(tridiagonal(3, -1, 2, -1)).solve(new Vector(3), x);
+        Assert.assertTrue("solver should converge", result.isConverged());
+        Assert.assertEquals("solution should be", new Vector(3), x);
+    }
+
+    @Test
+    public void testGmresStopsOnSingularOperator() {
+        // the operator maps the first Krylov vector to zero.
+        Vector x = new Vector(2);
+        SolverResult result = new Gmres(new Matrix(2, 2)).solve(new Vector(1, 1), x);
+        Assert.assertFalse("GMRES should not converge", result.isConverged());
+        Assert.assertEquals("solution should be unchanged", new Vector(2), x);
+        // the operator maps the second Krylov vector into the span of the first.
+        Matrix a = new Matrix(new Vector(1, 0), new Vector(0, 0));
+        result = new Gmres(a).solve(new Vector(1, 1));
+        Assert.assertFalse("GMRES should not converge", result.isConverged());
+        assertFinite("GMRES", result.getSolution());
+        Assert.assertEquals("residual should be minimal", 1 / Math.sqrt(2), result.getResidual(), 1e-12);
+    }
+
+    @Test
+    public void testBiCGStabStopsOnSingularOperator() {
+        Vector x = new Vector(2);
+        SolverResult result = new BiCGStab(new Matrix(2, 2)).solve(new Vector(1, 1), x);
+        Assert.assertFalse("BiCGSTAB should not converge", result.isConverged());
+        Assert.assertEquals("solution should be unchanged", new Vector(2), x);
+        result = new BiCGStab(new Matrix(new Vector(0, 1), new Vector(0, 0))).solve(new Vector(1, 1));
+        Assert.assertFalse("BiCGSTAB should not converge", result.isConverged());
+        assertFinite("BiCGSTAB", result.getSolution());
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testNonSquareOperator() {
+        new Gmres(new Matrix(3, 4));
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testWrongRightHandSide() {
+        new ConjugateGradient(tridiagonal(3, -1, 2, -1)).solve(new Vector(4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJacobiRejectsZeroDiagonal() {
+        Preconditioners.jacobi(new Vector(1, 0, 2));
+    }
+
+    private static void assertSolves(String message, LinearOperator a, Vector b, SolverResult result, double tolerance) {
+        Assert.assertTrue(message + " should converge: " + result, result.isConverged());
+        Assert.assertTrue(message + " should report its residual", result.getResidual() <= tolerance);
+        Vector residual = b.sub(a.apply(result.getSolution(), new Vector(b.getDimension())));
+        Assert.assertTrue(message + " should solve the system, residual " + residual.getLength(), residual.getLength() <= 10 * tolerance * b.getLength());
+    }
+
+    private static void assertFinite(String message, Vector x) {
+        for (int i = 0; i < x.getDimension(); i++) {
+            Assert.assertFalse(message + " should not produce " + x.get(i) + " at " + i, Double.isNaN(x.get(i)) || Double.isInfinite(x.get(i)));
+        }
+    }
+
+    /** @return the tridiagonal matrix with the given lower, diagonal and upper elements. */
+    private static SparseMatrix tridiagonal(int n, double lower, double diagonal, double upper) {
+        Matrix dense = new Matrix(n, n);
+        double[] values = dense.getArray();
+        for (int i = 0; i < n; i++) {
+            values[i * n + i] = diagonal;
+            if (i > 0) {
+                values[i * n + i - 1] = lower;
+            }
+            if (i < n - 1) {
+                values[i * n + i + 1] = upper;
+            }
+        }
+        return new SparseMatrix(dense);
+    }
+
+    /** @return the Poisson matrix scaled symmetrically with strongly varying factors, which Jacobi undoes. */
+    private static SparseMatrix scaledPoisson(int n) {
+        Matrix dense = tridiagonal(n, -1, 2.5, -1).toMatrix();
+        double[] values = dense.getArray();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                values[i * n + j] *= (1 + i % 7) * (1 + j % 7);
+            }
+        }
+        return new SparseMatrix(dense);
+    }
+
+    /** @return a random matrix made diagonally dominant, so it is well conditioned. */
+    private static Matrix randomMatrix(int n, long seed) {
+        Matrix matrix = TestData.gaussianMatrix(n, n, seed);
+        double[] values = matrix.getArray();
+        for (int i = 0; i < n; i++) {
+            values[i * n + i] += n;
+        }
+        return matrix;
+    }
+}
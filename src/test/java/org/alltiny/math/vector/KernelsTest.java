@@ -0,0 +1,87 @@
+package org.alltiny.math.vector;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link Kernels} calculate the same as the plain loops of {@link ScalarKernels},
+ * no matter whether they are vectorized or not.
+ */
+public class KernelsTest {
+
+    private static final int LENGTH = 1027;
+
+    @Test
+    public void testDotProduct() {
+        double[] a = randomArray(LENGTH + 3, 1);
+        double[] b = randomArray(LENGTH + 5, 2);
+        Assert.assertEquals("dot product should be", ScalarKernels.dot(a, 3, b, 5, LENGTH), Kernels.dot(a, 3, b, 5, LENGTH), 1e-10);
+    }
+
+    @Test
+    public void testSumOfSquares() {
+        double[] a = randomArray(LENGTH + 1, 3);
+        Assert.assertEquals("sum of squares should be", ScalarKernels.sumOfSquares(a, 1, LENGTH), Kernels.sumOfSquares(a, 1, LENGTH), 1e-10);
+    }
+
+    @Test
+    public void testAddIsExact() {
+        double[] a = randomArray(LENGTH, 4);
+        double[] b = randomArray(LENGTH, 5);
+        double[] expected = new double[LENGTH];
+        double[] actual = new double[LENGTH];
+        ScalarKernels.add(a, 0, b, 0, expected, 0, LENGTH);
+        Kernels.add(a, 0, b, 0, actual, 0, LENGTH);
+        Assert.assertArrayEquals("sum should be", expected, actual, 0);
+    }
+
+    @Test
+    public void testAxpyIsExact() {
+        double[] x = randomArray(LENGTH, 6);
+        double[] expected = randomArray(LENGTH, 7);
+        double[] actual = expected.clone();
+        ScalarKernels.axpy(0.75, x, 0, expected, 0, LENGTH);
+        Kernels.axpy(0.75, x, 0, actual, 0, LENGTH);
+        Assert.assertArrayEquals("result should be", expected, actual, 0);
+    }
+
+    @Test
+    public void testStridedDotProductMatchesContiguous() {
+        double[] a = randomArray(3 * LENGTH, 8);
+        double[] b = randomArray(LENGTH, 9);
+        double[] gathered = new double[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            gathered[i] = a[1 + 3 * i];
+        }
+        Assert.assertEquals("dot product should be", ScalarKernels.dot(gathered, 0, b, 0, LENGTH), ScalarKernels.dot(a, 1, 3, b, 0, 1, LENGTH), 0);
+    }
+
+    @Test
+    public void testCompensatedDotProductIsExact() {
+        double[] a = {1e16, 1, -1e16};
+        double[] ones = {1, 1, 1};
+        Assert.assertEquals("uncompensated dot product should lose the 1", 0, ScalarKernels.dot(a, 0, ones, 0, 3), 0);
+        Assert.assertEquals("compensated dot product should be", 1, ScalarKernels.dotCompensated(a, 0, 1, ones, 0, 1, 3), 0);
+        double e = Math.scalb(1.0, -30);
+        double[] x = {1 + e, -1};
+        double[] y = {1 - e, 1};
+        Assert.assertEquals("rounding error of the product should be kept", -e * e, ScalarKernels.dotCompensated(x, 0, 1, y, 0, 1, 2), 0);
+    }
+
+    @Test
+    public void testCompensatedDotProductKeepsInfinity() {
+        double[] a = {Double.MAX_VALUE, Double.MAX_VALUE};
+        Assert.assertEquals("dot product should overflow", Double.POSITIVE_INFINITY, ScalarKernels.dotCompensated(a, 0, 1, a, 0, 1, 2), 0);
+    }
+
+    private static double[] randomArray(int length, long seed) {
+        Random random = new Random(seed);
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextDouble() * 2 - 1;
+        }
+        return values;
+    }
+}
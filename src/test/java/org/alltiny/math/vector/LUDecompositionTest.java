@@ -0,0 +1,104 @@
+package org.alltiny.math.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This test ensures that {@link LUDecomposition} is working correctly.
+ */
+public class LUDecompositionTest {
+
+    @Test
+    public void testSmallSystem() {
+        Matrix a = new Matrix(new Vector(2, 1, 1), new Vector(4, -6, 0), new Vector(-2, 7, 2));
+        LUDecomposition lu = a.lu();
+        Assert.assertEquals("determinant should be", -16, lu.determinant(), 0.000001);
+        Vector x = lu.solve(new Vector(5, -2, 9));
+        Assert.assertEquals("x should be", 1, x.get(0), 0.000001);
+        Assert.assertEquals("y should be", 1, x.get(1), 0.000001);
+        Assert.assertEquals("z should be", 2, x.get(2), 0.000001);
+    }
+
+    @Test
+    public void testFactorsReproduceMatrix() {
+        Matrix a = TestData.uniformMatrix(150, 150, 5);
+        LUDecomposition lu = new LUDecomposition(a);
+        Matrix product = lu.getL().mul(lu.getU());
+        int[] pivot = lu.getPivot();
+        for (int row = 0; row < a.getRows(); row++) {
+            for (int col = 0; col < a.getColumns(); col++) {
+                Assert.assertEquals("(" + row + "," + col + ") should be", a.get(pivot[row], col), product.get(row, col), 0.0000001);
+            }
+        }
+    }
+
+    @Test
+    public void testBlockedSolveMatchesRightHandSide() {
+        // larger than several panels, so the blocked trailing updates are used.
+        Matrix a = TestData.uniformMatrix(LUDecomposition.BLOCK * 3 + 7, LUDecomposition.BLOCK * 3 + 7, 7);
+        Vector b = new Vector(a.getRows());
+        for (int i = 0; i < b.getDimension(); i++) {
+            b.set(i, i % 5 - 2);
+        }
+        LUDecomposition lu = new LUDecomposition(a, Parallelism.of(new ForkJoinPool(4)).withThreshold(1));
+        Vector x = lu.solve(b);
+        Vector residual = a.mul(x).sub(b);
+        Assert.assertEquals("residual should be", 0, residual.getLength(), 0.0000001);
+        Assert.assertEquals("parallel decomposition should be identical", new LUDecomposition(a, Parallelism.sequential()).solve(b), x);
+        // the result may be the right hand side.
+        Assert.assertEquals("in place solution should be", x, lu.solve(b, b));
+    }
+
+    @Test
+    public void testSolveMultipleRightHandSidesAndInverse() {
+        Matrix a = TestData.uniformMatrix(80, 80, 11);
+        Matrix b = new Matrix(80, 3);
+        for (int row = 0; row < 80; row++) {
+            for (int col = 0; col < 3; col++) {
+                b.getRow(row).set(col, row * (col + 1) % 7);
+            }
+        }
+        LUDecomposition lu = a.lu();
+        Matrix x = lu.solve(b);
+        for (int col = 0; col < 3; col++) {
+            Vector expected = lu.solve(b.getColumn(col));
+            for (int row = 0; row < 80; row++) {
+                Assert.assertEquals("(" + row + "," + col + ") should be", expected.get(row), x.get(row, col), 0.0000001);
+            }
+        }
+        Matrix identity = a.mul(a.inverse());
+        for (int row = 0; row < 80; row++) {
+            for (int col = 0; col < 80; col++) {
+                Assert.assertEquals("(" + row + "," + col + ") should be", row == col ? 1 : 0, identity.get(row, col), 0.0000001);
+            }
+        }
+    }
+
+    @Test
+    public void testDeterminantOfPermutation() {
+        Matrix a = new Matrix(new Vector(0, 1, 0), new Vector(1, 0, 0), new Vector(0, 0, 3));
+        Assert.assertEquals("determinant should be", -3, a.determinant(), 0.000001);
+        Assert.assertEquals("inverse should be", new Matrix(new Vector(0, 1, 0), new Vector(1, 0, 0), new Vector(0, 0, 1.0 / 3)), a.inverse());
+    }
+
+    @Test
+    public void testSingularMatrix() {
+        Matrix a = new Matrix(new Vector(1, 2, 3), new Vector(2, 4, 6), new Vector(1, 0, 1));
+        LUDecomposition lu = a.lu();
+        Assert.assertTrue("matrix should be singular", lu.isSingular());
+        Assert.assertEquals("determinant should be", 0, lu.determinant(), 0);
+        try {
+            lu.solve(new Vector(1, 2, 3));
+            Assert.fail("solving a singular system should fail");
+        } catch (SingularMatrixException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testRejectsNonSquareMatrix() {
+        new Matrix(2, 3).lu();
+    }
+}
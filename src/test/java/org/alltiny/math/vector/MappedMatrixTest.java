@@ -0,0 +1,124 @@
+package org.alltiny.math.vector;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This test ensures that {@link MappedMatrix} is working correctly.
+ */
+public class MappedMatrixTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Matrix matrix = new Matrix(new Vector(3, 2, 1), new Vector(1, 0, 2));
+
+    @Test
+    public void testWriteAndReadValues() throws IOException {
+        MappedMatrix m = MappedMatrix.write(folder.newFile().toPath(), matrix);
+        Assert.assertEquals("rows should be", 2, m.getRows());
+        Assert.assertEquals("columns should be", 3, m.getColumns());
+        Assert.assertEquals("value on (1,2) should be", 2, m.get(1, 2), 0);
+        Assert.assertEquals("row should be", new Vector(1, 0, 2), m.getRow(1));
+        Assert.assertEquals("matrix should be", matrix, m.toMatrix());
+    }
+
+    @Test
+    public void testMultiplyingMatrixWithVector() throws IOException {
+        MappedMatrix m = MappedMatrix.write(folder.newFile().toPath(), matrix);
+        Assert.assertEquals("product should be", matrix.mul(new Vector(3, 4, 5)), m.mul(new Vector(3, 4, 5)));
+    }
+
+    @Test
+    public void testTransposingIntoAnotherFile() throws IOException {
+        MappedMatrix m = MappedMatrix.write(folder.newFile().toPath(), matrix);
+        MappedMatrix t = m.transpose(folder.newFile().toPath());
+        Assert.assertEquals("transposed matrix should be", matrix.transpose(), t.toMatrix());
+    }
+
+    @Test
+    public void testOpeningExistingFileWithOffset() throws IOException {
+        File file = folder.newFile();
+        MappedMatrix.write(file.toPath(), matrix);
+        // skip the first row by mapping from the second one.
+        MappedMatrix m = MappedMatrix.open(file.toPath(), 1, 3, ByteOrder.nativeOrder(), 3 * Double.BYTES);
+        Assert.assertEquals("row should be", new Vector(1, 0, 2), m.getRow(0));
+    }
+
+    @Test
+    public void testValuesAcrossChunks() throws IOException {
+        Matrix large = sequence(7, 5);
+        // chunks of 2 rows, the last chunk holds a single row.
+        MappedMatrix m = MappedMatrix.write(folder.newFile().toPath(), large, 12);
+        for (int row = 0; row < 7; row++) {
+            Assert.assertEquals("row " + row + " should be", large.getRow(row), m.getRow(row));
+            for (int col = 0; col < 5; col++) {
+                Assert.assertEquals("value on (" + row + "," + col + ") should be", large.get(row, col), m.get(row, col), 0);
+            }
+        }
+        Assert.assertEquals("matrix should be", large, m.toMatrix());
+    }
+
+    @Test
+    public void testMultiplyingAcrossChunks() throws IOException {
+        Matrix large = sequence(9, 4);
+        Vector vector = new Vector(1, -2, 3, 0.5);
+        MappedMatrix m = MappedMatrix.write(folder.newFile().toPath(), large, 8);
+        Assert.assertEquals("product should be", large.mul(vector), m.mul(vector, Parallelism.sequential()));
+        Assert.assertEquals("parallel product should be", large.mul(vector), m.mul(vector, Parallelism.commonPool().withThreshold(1)));
+    }
+
+    @Test
+    public void testTransposingAcrossChunks() throws IOException {
+        // 70 rows span two tiles; the source has chunks of 33 rows, the target one row per chunk.
+        Matrix large = sequence(70, 3);
+        MappedMatrix m = MappedMatrix.write(folder.newFile().toPath(), large, 100);
+        MappedMatrix t = m.transpose(folder.newFile().toPath());
+        Assert.assertEquals("transposed matrix should be", large.transpose(), t.toMatrix());
+        Assert.assertEquals("value on (2,69) should be", large.get(69, 2), t.get(2, 69), 0);
+        Assert.assertEquals("twice transposed matrix should be", large, t.transpose(folder.newFile().toPath()).toMatrix());
+    }
+
+    @Test
+    public void testOpeningWithOffsetAcrossChunks() throws IOException {
+        File file = folder.newFile();
+        Matrix large = sequence(6, 4);
+        MappedMatrix.write(file.toPath(), large);
+        MappedMatrix m = MappedMatrix.open(file.toPath(), 5, 4, ByteOrder.nativeOrder(), 4 * Double.BYTES, 8);
+        for (int row = 0; row < 5; row++) {
+            Assert.assertEquals("row " + row + " should be", large.getRow(row + 1), m.getRow(row));
+        }
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testRowsLargerThanChunkAreRejected() throws IOException {
+        MappedMatrix.write(folder.newFile().toPath(), sequence(2, 5), 4);
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testOpeningRejectsTooSmallFile() throws IOException {
+        File file = folder.newFile();
+        MappedMatrix.write(file.toPath(), matrix);
+        MappedMatrix.open(file.toPath(), 3, 3);
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testMultiplyingMatrixAndVectorWithWrongDimensions() throws IOException {
+        MappedMatrix.write(folder.newFile().toPath(), matrix).mul(new Vector(2, 3));
+    }
+
+    /** @return a matrix holding 1, 2, 3, ... in row-major order. */
+    private static Matrix sequence(int rows, int columns) {
+        double[] values = new double[rows * columns];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i + 1;
+        }
+        return new Matrix(rows, columns, values);
+    }
+}
@@ -0,0 +1,60 @@
+package org.alltiny.math.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link Matrix3} is working correctly.
+ */
+public class Matrix3Test {
+
+    private static final Matrix3 M = new Matrix3(
+        2, -1, 0,
+        1, 3, 2,
+        0, 1, 4);
+
+    @Test
+    public void testMultiplicationMatchesMatrix() {
+        Matrix3 n = new Matrix3(new Vector3(1, 2, 3), new Vector3(0, -1, 5), new Vector3(2, 2, 2));
+        Assert.assertEquals("product should be", new Matrix3(M.toMatrix().mul(n.toMatrix())), M.mul(n));
+        Assert.assertEquals("vector product should be", new Vector3(M.toMatrix().mul(new Vector(1, -2, 3))), M.mul(new Vector3(1, -2, 3)));
+        Assert.assertEquals("sum should be", new Matrix3(M.toMatrix().add(n.toMatrix())), M.add(n));
+        Assert.assertEquals("transposed matrix should be", new Matrix3(M.toMatrix().transpose()), M.transpose());
+    }
+
+    @Test
+    public void testDeterminantAndInverse() {
+        Assert.assertEquals("determinant should be", 2 * 10 + 1 * 4, M.determinant(), 0.000001);
+        Matrix3 product = M.mul(M.inverse());
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                Assert.assertEquals("(" + row + "," + col + ") should be", Matrix3.IDENTITY.get(row, col), product.get(row, col), 0.000001);
+            }
+        }
+    }
+
+    @Test(expected = SingularMatrixException.class)
+    public void testInverseOfSingularMatrix() {
+        new Matrix3(1, 2, 3, 2, 4, 6, 0, 0, 1).inverse();
+    }
+
+    @Test
+    public void testTransform() {
+        // rotation by 90 degrees followed by a translation of (5, 1).
+        Matrix3 m = new Matrix3(0, -1, 5, 1, 0, 1, 0, 0, 1);
+        Assert.assertEquals("transformed point should be", new Vector2(3, 2), m.transformPoint(new Vector2(1, 2)));
+        Assert.assertEquals("transformed direction should be", new Vector2(-2, 1), m.transformDirection(new Vector2(1, 2)));
+    }
+
+    @Test
+    public void testInteroperatesWithMatrix() {
+        Assert.assertEquals("general matrix should be", new Matrix(new Vector(2, -1, 0), new Vector(1, 3, 2), new Vector(0, 1, 4)), M.toMatrix());
+        Assert.assertEquals("hash code should be as of general matrix", M.toMatrix().hashCode(), M.hashCode());
+        Assert.assertEquals("column should be", new Vector3(-1, 3, 1), M.getColumn(1));
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testRejectsMatrixWithOtherDimensions() {
+        new Matrix3(new Matrix(3, 4));
+    }
+}
@@ -0,0 +1,60 @@
+package org.alltiny.math.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link Matrix4} is working correctly.
+ */
+public class Matrix4Test {
+
+    private static final Matrix4 M = new Matrix4(
+        2, -1, 0, 3,
+        1, 3, 2, 0,
+        0, 1, 4, -2,
+        1, 0, 1, 1);
+
+    @Test
+    public void testMultiplicationMatchesMatrix() {
+        Matrix4 n = M.transpose().add(Matrix4.IDENTITY);
+        Assert.assertEquals("product should be", new Matrix4(M.toMatrix().mul(n.toMatrix())), M.mul(n));
+        Assert.assertEquals("vector product should be", new Vector4(M.toMatrix().mul(new Vector(1, -2, 3, 0.5))), M.mul(new Vector4(1, -2, 3, 0.5)));
+        Assert.assertEquals("transposed matrix should be", new Matrix4(M.toMatrix().transpose()), M.transpose());
+    }
+
+    @Test
+    public void testDeterminantAndInverse() {
+        Matrix4 product = M.mul(M.inverse());
+        Matrix4 reverse = M.inverse().mul(M);
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 4; col++) {
+                Assert.assertEquals("(" + row + "," + col + ") should be", Matrix4.IDENTITY.get(row, col), product.get(row, col), 0.000001);
+                Assert.assertEquals("(" + row + "," + col + ") should be", Matrix4.IDENTITY.get(row, col), reverse.get(row, col), 0.000001);
+            }
+        }
+        Assert.assertEquals("determinant of scaling should be", 24, Matrix4.scaling(new Vector3(2, 3, 4)).determinant(), 0.000001);
+        Assert.assertEquals("determinant of inverse should be reciprocal", 1 / M.determinant(), M.inverse().determinant(), 0.000001);
+    }
+
+    @Test(expected = SingularMatrixException.class)
+    public void testInverseOfSingularMatrix() {
+        Matrix4.scaling(new Vector3(1, 0, 1)).inverse();
+    }
+
+    @Test
+    public void testTransform() {
+        Matrix4 m = Matrix4.translation(new Vector3(1, 2, 3)).mul(Matrix4.scaling(new Vector3(2, 2, 2)));
+        Assert.assertEquals("transformed point should be", new Vector3(3, 4, 5), m.transformPoint(new Vector3(1, 1, 1)));
+        Assert.assertEquals("transformed direction should be", new Vector3(2, 2, 2), m.transformDirection(new Vector3(1, 1, 1)));
+        // a projection which copies z into w divides by the depth.
+        Matrix4 projection = new Matrix4(1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 1, 0);
+        Assert.assertEquals("projected point should be", new Vector3(1, 2, 1), projection.transformPoint(new Vector3(2, 4, 2)));
+    }
+
+    @Test
+    public void testInteroperatesWithMatrix() {
+        Assert.assertEquals("converted matrix should be", M, new Matrix4(M.toMatrix()));
+        Assert.assertEquals("hash code should be as of general matrix", M.toMatrix().hashCode(), M.hashCode());
+        Assert.assertEquals("row should be", new Vector4(0, 1, 4, -2), M.getRow(2));
+    }
+}
@@ -0,0 +1,48 @@
+package org.alltiny.math.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link MatrixExpression} is working correctly.
+ */
+public class MatrixExpressionTest {
+
+    @Test
+    public void testMaterializeMatchesEagerOperations() {
+        Matrix a = TestData.uniformMatrix(7, VectorExpression.CHUNK + 5, 1);
+        Matrix b = TestData.uniformMatrix(7, VectorExpression.CHUNK + 5, 2);
+        Assert.assertEquals("sum should be identical", a.add(b), a.lazy().add(b).materialize());
+        Assert.assertEquals("difference should be", a.add(b.lazy().scale(-1).materialize()), a.lazy().sub(b).materialize());
+    }
+
+    @Test
+    public void testTransposeIsPushedToOperands() {
+        Matrix a = TestData.uniformMatrix(30, 40, 3);
+        Matrix b = TestData.uniformMatrix(40, 30, 4);
+        Matrix c = TestData.uniformMatrix(30, 40, 5);
+        Matrix expected = a.add(b.transpose()).transpose().add(c.transpose());
+        Assert.assertEquals("result should be identical", expected, a.lazy().add(b.lazy().transpose()).transpose().add(c.lazy().transpose()).materialize());
+        Assert.assertEquals("double transpose should be identity", a, a.lazy().transpose().transpose().materialize());
+    }
+
+    @Test
+    public void testMultiplicationWithVector() {
+        Matrix a = TestData.uniformMatrix(20, 600, 6);
+        Matrix b = TestData.uniformMatrix(600, 20, 7);
+        Vector v = new Vector(600);
+        for (int i = 0; i < 600; i++) {
+            v.set(i, i % 3 - 1);
+        }
+        Vector expected = a.add(b.transpose()).mul(v);
+        Vector result = a.lazy().add(b.lazy().transpose()).mul(v);
+        for (int row = 0; row < 20; row++) {
+            Assert.assertEquals("row " + row + " should be", expected.get(row), result.get(row), 0.0000001);
+        }
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testRejectsUnequalDimensions() {
+        new Matrix(2, 3).lazy().add(new Matrix(3, 2));
+    }
+}
@@ -1,5 +1,7 @@
 package org.alltiny.math.vector;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -52,6 +54,51 @@ public class MatrixTest {
         Assert.assertEquals("column should be", new Vector(2,4), m.getColumn(1));
     }
 
+    @Test
+    public void testRowAndColumnAreViewsOntoTheMatrix() {
+        Matrix m = new Matrix(new Vector(1,2), new Vector(3,4));
+        m.getRow(1).set(0, 7);
+        Assert.assertEquals("value changed through row view should be", 7d, m.get(1,0), 0.000001);
+        m.getColumn(1).set(0, 9);
+        Assert.assertEquals("value changed through column view should be", 9d, m.get(0,1), 0.000001);
+        Assert.assertEquals("row should be", new Vector(1,9), m.getRow(0));
+    }
+
+    @Test
+    public void testMatrixCopiesGivenRowVectors() {
+        Vector row = new Vector(1,2);
+        Matrix m = new Matrix(row);
+        row.set(0, 5);
+        Assert.assertEquals("value on (0,0) should be unchanged", 1d, m.get(0,0), 0.000001);
+    }
+
+    @Test
+    public void testMatrixFromRowMajorValues() {
+        Matrix m = new Matrix(2, 3, 1, 2, 3, 4, 5, 6);
+        Assert.assertEquals("matrix should be", new Matrix(new Vector(1,2,3), new Vector(4,5,6)), m);
+        Assert.assertEquals("zero matrix should be", new Matrix(new Vector(0,0), new Vector(0,0)), new Matrix(2, 2));
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testMatrixRejectsWrongNumberOfRowMajorValues() {
+        new Matrix(2, 2, 1, 2, 3);
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testMatrixRejectsZeroColumns() {
+        new Matrix(2, 0);
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testMatrixRejectsSizeBeyondArrayLimit() {
+        new Matrix(65537, 65537);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testRowViewRejectsIndexOutsideTheRow() {
+        new Matrix(new Vector(1,2), new Vector(3,4)).getRow(0).get(2);
+    }
+
     @Test
     public void testSingleValueExtraction() {
         Matrix m = new Matrix(new Vector(1,2), new Vector(3,4));
@@ -93,6 +140,109 @@ public class MatrixTest {
         Assert.assertEquals("value on (1,0) should be", 2d, m.get(1,1), 0.000001);
     }
 
+    @Test
+    public void testMultiplyingLargeMatricesEqualsScalarProductsOfRowsAndColumns() {
+        // sizes are chosen to not be multiples of the kernel's blocking
+        Matrix a = TestData.uniformMatrix(67, 141, 1);
+        Matrix b = TestData.uniformMatrix(141, 263, 2);
+        Matrix m = a.mul(b);
+        for (int row = 0; row < a.getRows(); row++) {
+            for (int col = 0; col < b.getColumns(); col++) {
+                double expected = 0;
+                for (int k = 0; k < a.getColumns(); k++) {
+                    expected += a.get(row, k) * b.get(k, col);
+                }
+                Assert.assertEquals("value on (" + row + "," + col + ") should be", expected, m.get(row, col), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testMultiplyingStridedMatrixViews() {
+        // b is a column-major view, which forces the strided kernel
+        double[] values = {1, 0, 4, 2, 1, 0};
+        Matrix b = new Matrix(values, 0, 3, 2, 1, 3);
+        Matrix a = new Matrix(new Vector(3,2,1), new Vector(1,0,2));
+        Assert.assertEquals("product should be", new Matrix(new Vector(7,8), new Vector(9,2)), a.mul(b));
+    }
+
+    @Test
+    public void testTransposeViewSharesValues() {
+        Matrix a = new Matrix(2, 3, 1, 2, 3, 4, 5, 6);
+        Matrix view = a.transposeView();
+        Assert.assertEquals("view should equal the transposed copy", a.transpose(), view);
+        Assert.assertEquals("rows should be", 3, view.getRows());
+        Assert.assertEquals("columns should be", 2, view.getColumns());
+        a.getArray()[1] = 7;
+        Assert.assertEquals("change should be visible in the view", 7, view.get(1, 0), 0);
+        Assert.assertEquals("transpose of the view should be the matrix", a, view.transposeView());
+    }
+
+    @Test
+    public void testBlockedTransposeOfLargeMatrix() {
+        Matrix a = TestData.uniformMatrix(131, 77, 7);
+        Matrix transposed = a.transpose();
+        for (int row = 0; row < 131; row++) {
+            for (int col = 0; col < 77; col++) {
+                Assert.assertEquals("(" + col + "," + row + ") should be", a.get(row, col), transposed.get(col, row), 0);
+            }
+        }
+        Assert.assertEquals("transpose of the view should be", a, a.transposeView().transpose());
+    }
+
+    @Test
+    public void testOperationsOnTransposedViews() {
+        Matrix a = TestData.uniformMatrix(90, 70, 8);
+        Matrix b = TestData.uniformMatrix(90, 50, 9);
+        Matrix at = a.transpose();
+        Vector x = TestData.uniformMatrix(1, 90, 10).getRow(0);
+        assertEquals("A^T*x", at.mul(x), a.transposeView().mul(x));
+        assertEquals("A^T*B", at.mul(b), a.transposeView().mul(b));
+        assertEquals("B^T*A", b.transpose().mul(a), b.transposeView().mul(a));
+        assertEquals("A*B^T", TestData.uniformMatrix(40, 50, 11).mul(b.transpose()), TestData.uniformMatrix(40, 50, 11).mul(b.transposeView()));
+        assertEquals("A^T*C^T", at.mul(at.transpose()), a.transposeView().mul(a));
+        Matrix c = TestData.uniformMatrix(70, 90, 12);
+        Assert.assertEquals("sum with view should be", c.add(at), c.add(a.transposeView()));
+        Assert.assertEquals("sum of views should be", at.add(at), a.transposeView().add(a.transposeView()));
+    }
+
+    @Test
+    public void testParallelMultiplicationOfTransposedViewsIsBitIdentical() {
+        Matrix a = TestData.uniformMatrix(120, 80, 13);
+        Matrix b = TestData.uniformMatrix(60, 80, 14);
+        Parallelism parallelism = Parallelism.of(new ForkJoinPool(4)).withThreshold(0);
+        Assert.assertEquals("parallel product should be", a.mul(b.transposeView(), Parallelism.sequential()), a.mul(b.transposeView(), parallelism));
+        Vector x = TestData.uniformMatrix(1, 120, 15).getRow(0);
+        Assert.assertEquals("parallel product should be", a.transposeView().mul(x, Parallelism.sequential()), a.transposeView().mul(x, parallelism));
+    }
+
+    @Test
+    public void testParallelMultiplicationIsBitIdenticalToSequential() {
+        Matrix a = TestData.uniformMatrix(150, 90, 3);
+        Matrix b = TestData.uniformMatrix(90, 70, 4);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Parallelism parallelism = Parallelism.of(pool).withThreshold(0);
+            Assert.assertEquals("parallel product should be", a.mul(b, Parallelism.sequential()), a.mul(b, parallelism));
+            Vector v = TestData.uniformMatrix(1, 90, 5).getRow(0);
+            Assert.assertEquals("parallel product should be", a.mul(v, Parallelism.sequential()), a.mul(v, parallelism));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testDefaultParallelismIsUsedByMultiplication() {
+        Matrix a = TestData.uniformMatrix(64, 64, 6);
+        Matrix expected = a.mul(a, Parallelism.sequential());
+        Parallelism.setDefault(Parallelism.commonPool().withThreshold(0));
+        try {
+            Assert.assertEquals("product should be", expected, a.mul(a));
+        } finally {
+            Parallelism.setDefault(Parallelism.sequential());
+        }
+    }
+
     @Test(expected = IllegalDimensionException.class)
     public void testMultiplyingMatricesWithWrongDimensions() {
         Matrix a = new Matrix(new Vector(1,2,3), new Vector(4,5,6), new Vector(7,8,9));
@@ -110,6 +260,42 @@ public class MatrixTest {
         Assert.assertEquals("value for y should be", 13d, v.get(1), 0.000001);
     }
 
+    @Test
+    public void testMultiplyingMatrixWithVectorCompensated() {
+        Matrix a = new Matrix(new Vector(1e16, 1, -1e16), new Vector(1, 2, 3));
+        Vector v = a.mul(new Vector(1, 1, 1), Summation.COMPENSATED);
+        Assert.assertEquals("value for x should be", 1, v.get(0), 0);
+        Assert.assertEquals("value for y should be", 6, v.get(1), 0);
+        Assert.assertEquals("result should equal the fast one for the second row", a.mul(new Vector(1, 1, 1)).get(1), v.get(1), 0);
+    }
+
+    @Test
+    public void testApplyingMatrixWritesIntoOutputVector() {
+        Matrix a = new Matrix(new Vector(3,2,1), new Vector(1,0,2));
+        Vector out = new Vector(7, 7);
+        Assert.assertSame("output should be returned", out, a.apply(new Vector(3,4,5), out));
+        Assert.assertEquals("output should be", new Vector(22, 13), out);
+        // a transposed view takes the column path, which has to overwrite the output as well.
+        Matrix transposed = a.transpose().transposeView();
+        Assert.assertEquals("output of view should be", new Vector(22, 13), transposed.apply(new Vector(3,4,5), out));
+        Matrix strided = new Matrix(2, 2);
+        a.apply(new Vector(3,4,5), strided.getColumn(1));
+        Assert.assertEquals("strided output should be", new Vector(22, 13), strided.getColumn(1));
+        Assert.assertEquals("other column should be", new Vector(2), strided.getColumn(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testApplyingMatrixIntoInputVector() {
+        Vector v = new Vector(1, 2);
+        new Matrix(new Vector(1, 0), new Vector(0, 1)).apply(v, v);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testApplyingMatrixIntoItsOwnRow() {
+        Matrix m = new Matrix(new Vector(1, 2), new Vector(3, 4));
+        m.apply(new Vector(1, 1), m.getRow(0));
+    }
+
     @Test(expected = IllegalDimensionException.class)
     public void testMultiplyingMatrixAndVectorWithWrongDimensions() {
         new Matrix(new Vector(3,2,1), new Vector(7,6,5)).mul(new Vector(2,3));
@@ -154,4 +340,18 @@ public class MatrixTest {
     public void testToString() {
         Assert.assertEquals("toString should be", "Matrix[Vector[7.0, 3.0], Vector[8.0, 4.0]]", new Matrix(new Vector(7,3),new Vector(8,4)).toString());
     }
+
+    private static void assertEquals(String message, Vector expected, Vector actual) {
+        Assert.assertEquals(message + " should have dimension", expected.getDimension(), actual.getDimension());
+        for (int i = 0; i < expected.getDimension(); i++) {
+            Assert.assertEquals(message + " at " + i + " should be", expected.get(i), actual.get(i), 1e-12);
+        }
+    }
+
+    private static void assertEquals(String message, Matrix expected, Matrix actual) {
+        Assert.assertEquals(message + " should have rows", expected.getRows(), actual.getRows());
+        for (int row = 0; row < expected.getRows(); row++) {
+            assertEquals(message + " row " + row, expected.getRow(row), actual.getRow(row));
+        }
+    }
 }
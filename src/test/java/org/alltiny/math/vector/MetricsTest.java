@@ -0,0 +1,154 @@
+package org.alltiny.math.vector;
+
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link Metrics} are working correctly.
+ */
+public class MetricsTest {
+
+    @Test
+    public void testDisabledByDefault() {
+        Assert.assertEquals("metrics should follow the system property", Boolean.getBoolean(Metrics.PROPERTY), Metrics.isEnabled());
+        if (!Metrics.isEnabled()) {
+            Assert.assertFalse("disabled statistics should not be registered", Metrics.isRegistered());
+            Assert.assertNull("disabled statistics should not fail to register", Metrics.getRegistrationFailure());
+        }
+        Assert.assertEquals("statistics should follow the system property", Metrics.isEnabled(), Metrics.getStatistics().isEnabled());
+    }
+
+    @Test
+    public void testListenerReceivesRecords() {
+        final List<String> events = new ArrayList<String>();
+        MetricsListener listener = new MetricsListener() {
+            @Override
+            public void operation(Metrics.Operation operation, long elements, long flops, long nanos) {
+                events.add(operation + " " + elements + " " + flops + " " + (nanos >= 0));
+            }
+
+            @Override
+            public void allocation(Metrics.Operation operation, long bytes) {
+                events.add(operation + " " + bytes);
+            }
+        };
+        Metrics.addListener(listener);
+        try {
+            Metrics.allocated(Metrics.Operation.VECTOR_ADD, 3);
+            Metrics.record(Metrics.Operation.VECTOR_ADD, 6, 3, System.nanoTime());
+        } finally {
+            Metrics.removeListener(listener);
+        }
+        Metrics.record(Metrics.Operation.VECTOR_ADD, 6, 3, System.nanoTime());
+        Assert.assertEquals("events should be", "[VECTOR_ADD 24, VECTOR_ADD 6 3 true]", events.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullListenerIsRejected() {
+        Metrics.addListener(null);
+    }
+
+    @Test
+    public void testStatisticsAggregate() {
+        MetricsStatistics statistics = new MetricsStatistics(true);
+        statistics.operation(Metrics.Operation.MATRIX_MUL_MATRIX, 10, 20, 5);
+        statistics.operation(Metrics.Operation.MATRIX_MUL_MATRIX, 10, 20, 1000);
+        statistics.allocation(Metrics.Operation.MATRIX_MUL_MATRIX, 64);
+        Assert.assertEquals("calls should be", Long.valueOf(2), statistics.getCalls().get("MATRIX_MUL_MATRIX"));
+        Assert.assertEquals("elements should be", Long.valueOf(20), statistics.getElements().get("MATRIX_MUL_MATRIX"));
+        Assert.assertEquals("flops should be", Long.valueOf(40), statistics.getFlops().get("MATRIX_MUL_MATRIX"));
+        Assert.assertEquals("bytes should be", Long.valueOf(64), statistics.getAllocatedBytes().get("MATRIX_MUL_MATRIX"));
+        Assert.assertEquals("nanos should be", Long.valueOf(1005), statistics.getNanos().get("MATRIX_MUL_MATRIX"));
+        Assert.assertEquals("other operations should be", Long.valueOf(0), statistics.getCalls().get("VECTOR_ADD"));
+        long[] histogram = statistics.getTimeHistograms().get("MATRIX_MUL_MATRIX");
+        Assert.assertEquals("histogram should have buckets", MetricsStatistics.BUCKETS, histogram.length);
+        Assert.assertEquals("5ns should be in bucket 3", 1, histogram[3]);
+        Assert.assertEquals("1000ns should be in bucket 10", 1, histogram[10]);
+        statistics.reset();
+        Assert.assertEquals("calls after reset should be", Long.valueOf(0), statistics.getCalls().get("MATRIX_MUL_MATRIX"));
+        Assert.assertEquals("histogram after reset should be", 0, statistics.getTimeHistograms().get("MATRIX_MUL_MATRIX")[10]);
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        Assert.assertEquals("bucket of 0 should be", 0, MetricsStatistics.bucket(0));
+        Assert.assertEquals("bucket of 1 should be", 1, MetricsStatistics.bucket(1));
+        Assert.assertEquals("bucket of 2 should be", 2, MetricsStatistics.bucket(2));
+        Assert.assertEquals("bucket of 3 should be", 2, MetricsStatistics.bucket(3));
+        Assert.assertEquals("bucket of negative times should be", 0, MetricsStatistics.bucket(-1));
+        Assert.assertEquals("bucket of huge times should be", MetricsStatistics.BUCKETS - 1, MetricsStatistics.bucket(Long.MAX_VALUE));
+    }
+
+    /**
+     * The switch is read once when {@link Metrics} is loaded, so the library is loaded again in
+     * an own class loader with metrics enabled.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testOperationsAreRecordedWhenEnabled() throws Exception {
+        URL classes = Metrics.class.getProtectionDomain().getCodeSource().getLocation();
+        ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        // the statistics of this copy are registered already if the tests run with metrics enabled.
+        boolean registeredBefore = ManagementFactory.getPlatformMBeanServer().isRegistered(name);
+        String previous = System.setProperty(Metrics.PROPERTY, "true");
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {classes}, null)) {
+            Class<?> vectorClass = loader.loadClass(Vector.class.getName());
+            Class<?> matrixClass = loader.loadClass(Matrix.class.getName());
+            Class<?> metricsClass = loader.loadClass(Metrics.class.getName());
+            Class<?> statisticsClass = loader.loadClass(MetricsMXBean.class.getName());
+            Object statistics = metricsClass.getMethod("getStatistics").invoke(null);
+            statisticsClass.getMethod("reset").invoke(statistics);
+
+            Object a = vectorClass.getConstructor(double[].class).newInstance(new double[] {1, 2, 3});
+            Object b = vectorClass.getConstructor(double[].class).newInstance(new double[] {4, 5, 6});
+            vectorClass.getMethod("scalar", vectorClass).invoke(a, b);
+            vectorClass.getMethod("normalize").invoke(a);
+            Object matrix = matrixClass.getConstructor(int.class, int.class, double[].class).newInstance(2, 3, new double[] {1, 2, 3, 4, 5, 6});
+            matrixClass.getMethod("mul", vectorClass).invoke(matrix, a);
+            matrixClass.getMethod("transpose").invoke(matrix);
+
+            Assert.assertTrue("metrics should be enabled", (Boolean)metricsClass.getMethod("isEnabled").invoke(null));
+            Map<String, Long> calls = (Map<String, Long>)statisticsClass.getMethod("getCalls").invoke(statistics);
+            Map<String, Long> flops = (Map<String, Long>)statisticsClass.getMethod("getFlops").invoke(statistics);
+            Map<String, Long> bytes = (Map<String, Long>)statisticsClass.getMethod("getAllocatedBytes").invoke(statistics);
+            Assert.assertEquals("scalar calls should be", Long.valueOf(1), calls.get("VECTOR_SCALAR"));
+            Assert.assertEquals("scalar flops should be", Long.valueOf(6), flops.get("VECTOR_SCALAR"));
+            Assert.assertEquals("normalize calls should be", Long.valueOf(1), calls.get("VECTOR_NORMALIZE"));
+            Assert.assertEquals("normalize should report its nested length", Long.valueOf(1), calls.get("VECTOR_LENGTH"));
+            Assert.assertEquals("normalize bytes should be", Long.valueOf(24), bytes.get("VECTOR_NORMALIZE"));
+            Assert.assertEquals("mul calls should be", Long.valueOf(1), calls.get("MATRIX_MUL_VECTOR"));
+            Assert.assertEquals("mul flops should be", Long.valueOf(12), flops.get("MATRIX_MUL_VECTOR"));
+            Assert.assertEquals("mul bytes should be", Long.valueOf(16), bytes.get("MATRIX_MUL_VECTOR"));
+            Assert.assertEquals("transpose bytes should be", Long.valueOf(48), bytes.get("MATRIX_TRANSPOSE"));
+            Assert.assertEquals("untouched operations should be", Long.valueOf(0), calls.get("MATRIX_MUL_MATRIX"));
+            Assert.assertTrue("statistics should be registered", ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+            Assert.assertEquals("registration should be reported", !registeredBefore, metricsClass.getMethod("isRegistered").invoke(null));
+
+            // a second copy of the library can not publish its statistics under the same name.
+            try (URLClassLoader other = new URLClassLoader(new URL[] {classes}, null)) {
+                Class<?> otherMetrics = other.loadClass(Metrics.class.getName());
+                Assert.assertFalse("second copy should not be registered", (Boolean)otherMetrics.getMethod("isRegistered").invoke(null));
+                Assert.assertNotNull("failed registration should be recorded", otherMetrics.getMethod("getRegistrationFailure").invoke(null));
+            }
+        } finally {
+            // the statistics registered from the class loader would keep it alive.
+            if (!registeredBefore && ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            }
+            if (previous == null) {
+                System.clearProperty(Metrics.PROPERTY);
+            } else {
+                System.setProperty(Metrics.PROPERTY, previous);
+            }
+        }
+    }
+}
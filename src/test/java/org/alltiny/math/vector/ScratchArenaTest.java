@@ -0,0 +1,170 @@
+package org.alltiny.math.vector;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link ScratchArena} is working correctly.
+ */
+public class ScratchArenaTest {
+
+    @Test
+    public void testTemporariesAreClearedAndSeparate() {
+        try (ScratchArena arena = ScratchArena.open()) {
+            Vector a = arena.vector(3).set(0, 1).set(1, 2).set(2, 3);
+            Vector b = arena.vector(3);
+            Assert.assertEquals("new temporary should be", new Vector(3), b);
+            b.set(0, 5);
+            Assert.assertEquals("first temporary should be", new Vector(1, 2, 3), a);
+            Matrix m = arena.matrix(2, 2);
+            Assert.assertEquals("matrix should be", new Matrix(2, 2), m);
+        }
+    }
+
+    @Test
+    public void testSteadyStateReusesObjects() {
+        Vector first;
+        Matrix firstMatrix;
+        try (ScratchArena arena = ScratchArena.open()) {
+            first = arena.vector(4).set(1, 7);
+            firstMatrix = arena.matrix(2, 3);
+        }
+        try (ScratchArena arena = ScratchArena.open()) {
+            Vector second = arena.vector(4);
+            Assert.assertSame("vector should be reused", first, second);
+            Assert.assertEquals("reused vector should be cleared", new Vector(4), second);
+            Assert.assertSame("matrix should be reused", firstMatrix, arena.matrix(2, 3));
+        }
+        try (ScratchArena arena = ScratchArena.open()) {
+            Vector other = arena.vector(5);
+            Assert.assertNotSame("vector of another size should be new", first, other);
+            Assert.assertEquals("vector should have dimension", 5, other.getDimension());
+        }
+    }
+
+    @Test
+    public void testArenasAreReused() {
+        ScratchArena first = ScratchArena.open();
+        first.close();
+        try (ScratchArena second = ScratchArena.open()) {
+            Assert.assertSame("arena should be reused", first, second);
+        }
+    }
+
+    @Test
+    public void testNestedArenas() {
+        try (ScratchArena outer = ScratchArena.open()) {
+            Vector a = outer.vector(2).set(0, 1);
+            Vector inner1;
+            try (ScratchArena inner = ScratchArena.open()) {
+                inner1 = inner.vector(2).set(0, 2);
+                try {
+                    outer.vector(2);
+                    Assert.fail("outer arena should not hand out temporaries while an inner one is open");
+                } catch (IllegalStateException e) {
+                    // expected
+                }
+            }
+            Vector b = outer.vector(2);
+            Assert.assertEquals("outer temporary should be unchanged", new Vector(1, 0), a);
+            Assert.assertEquals("temporary after inner scope should be cleared", new Vector(2), b);
+            Assert.assertSame("memory of the inner scope should be reused", inner1.getArray(), b.getArray());
+            Assert.assertEquals("memory of the inner scope should be reused", inner1.getOffset(), b.getOffset());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosingOutOfOrder() {
+        ScratchArena outer = ScratchArena.open();
+        ScratchArena inner = ScratchArena.open();
+        try {
+            outer.close();
+        } finally {
+            inner.close();
+            outer.close();
+        }
+    }
+
+    @Test
+    public void testClosedArena() {
+        ScratchArena arena = ScratchArena.open();
+        arena.close();
+        arena.close();
+        try {
+            arena.vector(1);
+            Assert.fail("closed arena should not hand out temporaries");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testOtherThread() throws InterruptedException {
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        try (final ScratchArena arena = ScratchArena.open()) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        arena.vector(1);
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            });
+            thread.start();
+            thread.join();
+        }
+        Assert.assertTrue("other thread should fail", failure.get() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testLargeTemporaries() {
+        try (ScratchArena arena = ScratchArena.open()) {
+            Vector small = arena.vector(10);
+            Vector large = arena.vector(ScratchArena.CHUNK_DOUBLES + 1);
+            large.set(ScratchArena.CHUNK_DOUBLES, 1);
+            Assert.assertNotSame("large vector should get its own chunk", small.getArray(), large.getArray());
+            Assert.assertEquals("large vector should be usable", 1, large.get(ScratchArena.CHUNK_DOUBLES), 0);
+        }
+        ScratchArena.trim();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTrimWithOpenArena() {
+        ScratchArena arena = ScratchArena.open();
+        try {
+            ScratchArena.trim();
+        } finally {
+            arena.close();
+        }
+    }
+
+    @Test
+    public void testSmallTemporariesNeedSmallSlab() {
+        ScratchArena.trim();
+        try (ScratchArena arena = ScratchArena.open()) {
+            arena.vector(10);
+            arena.matrix(4, 4);
+        }
+        Assert.assertEquals("slab should hold the smallest chunk only", ScratchArena.MIN_CHUNK_DOUBLES, ScratchArena.retainedDoubles());
+        ScratchArena.trim();
+    }
+
+    @Test
+    public void testGrowingTemporariesReplaceChunks() {
+        ScratchArena.trim();
+        for (int length = 1000; length <= 100000; length += 1000) {
+            try (ScratchArena arena = ScratchArena.open()) {
+                Vector vector = arena.vector(length);
+                Assert.assertEquals("vector should have dimension", length, vector.getDimension());
+                Assert.assertTrue("slab should not keep undersized chunks, but holds " + ScratchArena.retainedDoubles() + " doubles",
+                    ScratchArena.retainedDoubles() <= 2 * length);
+            }
+        }
+        Assert.assertTrue("slab should give back memory above its limit", ScratchArena.retainedDoubles() <= ScratchArena.MAX_RETAINED_DOUBLES);
+        ScratchArena.trim();
+    }
+}
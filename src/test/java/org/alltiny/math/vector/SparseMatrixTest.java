@@ -0,0 +1,120 @@
+package org.alltiny.math.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link SparseMatrix} is working correctly.
+ */
+public class SparseMatrixTest {
+
+    private final Matrix dense = new Matrix(new Vector(1, 0, 2), new Vector(0, 0, 0), new Vector(0, 3, 0), new Vector(4, 0, 5));
+
+    @Test
+    public void testCreationFromDenseMatrix() {
+        SparseMatrix m = new SparseMatrix(dense);
+        Assert.assertEquals("rows should be", 4, m.getRows());
+        Assert.assertEquals("columns should be", 3, m.getColumns());
+        Assert.assertEquals("number of non-zeros should be", 5, m.getNonZeros());
+        Assert.assertEquals("value on (3,2) should be", 5, m.get(3, 2), 0.000001);
+        Assert.assertEquals("value on (1,1) should be", 0, m.get(1, 1), 0.000001);
+        Assert.assertEquals("dense matrix should be", dense, m.toMatrix());
+    }
+
+    @Test
+    public void testCreationFromCsrArrays() {
+        SparseMatrix m = new SparseMatrix(4, 3, new int[]{0, 2, 2, 3, 5}, new int[]{0, 2, 1, 0, 2}, new double[]{1, 2, 3, 4, 5});
+        Assert.assertEquals("matrix should be", new SparseMatrix(dense), m);
+    }
+
+    @Test
+    public void testCreationFromSparseRows() {
+        SparseMatrix m = new SparseMatrix(new SparseVector(new Vector(1, 0, 2)), new SparseVector(3), new SparseVector(new Vector(0, 3, 0)), new SparseVector(new Vector(4, 0, 5)));
+        Assert.assertEquals("matrix should be", dense, m.toMatrix());
+        Assert.assertEquals("row should be", new SparseVector(new Vector(4, 0, 5)), m.getRow(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsInvalidRowPointers() {
+        new SparseMatrix(2, 2, new int[]{0, 2, 1}, new int[]{0}, new double[]{1});
+    }
+
+    @Test
+    public void testMultiplyingWithDenseVector() {
+        Vector v = new Vector(1, 2, 3);
+        Assert.assertEquals("product should be", dense.mul(v), new SparseMatrix(dense).mul(v));
+    }
+
+    @Test
+    public void testApplyingToStridedOutput() {
+        Vector v = new Vector(1, 2, 3);
+        Matrix output = new Matrix(4, 2);
+        Vector column = output.getColumn(1);
+        Assert.assertSame("output should be returned", column, new SparseMatrix(dense).apply(v, column));
+        Assert.assertEquals("product should be", dense.mul(v), output.getColumn(1));
+        Assert.assertEquals("other column should be", new Vector(4), output.getColumn(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testApplyingIntoInput() {
+        Vector v = new Vector(1, 2, 3, 4);
+        new SparseMatrix(new Matrix(4, 4, new double[16])).apply(v, v);
+    }
+
+    @Test
+    public void testMultiplyingWithSparseVector() {
+        SparseVector v = new SparseVector(new Vector(0, 2, 3));
+        Assert.assertEquals("product should be", dense.mul(v.toVector()), new SparseMatrix(dense).mul(v));
+        Assert.assertEquals("product should be", dense.mul(v.toVector()), dense.mul(v));
+    }
+
+    @Test
+    public void testMultiplyingWithSparseVectorOfManyNonZeros() {
+        Matrix a = TestData.uniformMatrix(40, 60, 1);
+        Vector x = TestData.uniformVector(60, 2);
+        double[] values = a.getArray();
+        for (int i = 0; i < values.length; i++) {
+            if (i % 3 != 0) {
+                values[i] = 0;
+            }
+        }
+        for (int i = 0; i < 60; i += 4) {
+            x.set(i, 0);
+        }
+        Vector expected = a.mul(x);
+        Vector actual = new SparseMatrix(a).mul(new SparseVector(x));
+        for (int i = 0; i < 40; i++) {
+            Assert.assertEquals("element " + i + " should be", expected.get(i), actual.get(i), 1e-12);
+        }
+    }
+
+    @Test
+    public void testMultiplyingWithSparseVectorDoesNotDependOnDimension() {
+        // a dense temporary of this dimension would need 8GB.
+        final int dimension = 1 << 30;
+        SparseMatrix m = new SparseMatrix(
+            new SparseVector(dimension, new int[] {0, 5, dimension - 1}, new double[] {1, 2, 3}),
+            new SparseVector(dimension, new int[] {7, 1000000}, new double[] {4, 5}),
+            new SparseVector(dimension));
+        SparseVector v = new SparseVector(dimension, new int[] {5, 7, 999999, dimension - 1}, new double[] {10, 20, 30, 40});
+        Assert.assertEquals("product should be", new Vector(2 * 10 + 3 * 40, 4 * 20, 0), m.mul(v));
+        Assert.assertEquals("parallel product should be", new Vector(140, 80, 0), m.mul(v, Parallelism.commonPool().withThreshold(1)));
+        Assert.assertEquals("product with zero vector should be", new Vector(3), m.mul(new SparseVector(dimension)));
+    }
+
+    @Test
+    public void testMultiplyingWithDenseMatrix() {
+        Matrix b = new Matrix(new Vector(1, 2), new Vector(3, 4), new Vector(5, 6));
+        Assert.assertEquals("product should be", dense.mul(b), new SparseMatrix(dense).mul(b));
+    }
+
+    @Test
+    public void testTranspose() {
+        Assert.assertEquals("transposed matrix should be", dense.transpose(), new SparseMatrix(dense).transpose().toMatrix());
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testMultiplyingVectorWithWrongDimensions() {
+        new SparseMatrix(dense).mul(new Vector(1, 2));
+    }
+}
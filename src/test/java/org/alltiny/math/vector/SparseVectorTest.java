@@ -0,0 +1,84 @@
+package org.alltiny.math.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link SparseVector} is working correctly.
+ */
+public class SparseVectorTest {
+
+    @Test
+    public void testCreationFromDenseVector() {
+        SparseVector v = new SparseVector(new Vector(0, 3, 0, 0, 5));
+        Assert.assertEquals("dimension should be", 5, v.getDimension());
+        Assert.assertEquals("number of non-zeros should be", 2, v.getNonZeros());
+        Assert.assertEquals("value at 1 should be", 3, v.get(1), 0.000001);
+        Assert.assertEquals("value at 2 should be", 0, v.get(2), 0.000001);
+        Assert.assertEquals("dense vector should be", new Vector(0, 3, 0, 0, 5), v.toVector());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsUnsortedIndices() {
+        new SparseVector(5, new int[]{3, 1}, new double[]{1, 2});
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testRejectsIndexOutsideOfDimension() {
+        new SparseVector(3, new int[]{3}, new double[]{1});
+    }
+
+    @Test
+    public void testScalarWithDenseVector() {
+        SparseVector v = new SparseVector(4, new int[]{0, 3}, new double[]{2, 3});
+        Assert.assertEquals("scalar should be", 2 + 12, v.scalar(new Vector(1, 5, 5, 4)), 0.000001);
+        Assert.assertEquals("scalar should be", 2 + 12, new Vector(1, 5, 5, 4).scalar(v), 0.000001);
+    }
+
+    @Test
+    public void testScalarWithSparseVector() {
+        SparseVector a = new SparseVector(6, new int[]{0, 2, 5}, new double[]{1, 2, 3});
+        SparseVector b = new SparseVector(6, new int[]{2, 3, 5}, new double[]{4, 5, 6});
+        Assert.assertEquals("scalar should be", 8 + 18, a.scalar(b), 0.000001);
+    }
+
+    @Test
+    public void testAddAndSubSparseVectors() {
+        SparseVector a = new SparseVector(4, new int[]{0, 2}, new double[]{1, 2});
+        SparseVector b = new SparseVector(4, new int[]{2, 3}, new double[]{4, 5});
+        Assert.assertEquals("sum should be", new SparseVector(new Vector(1, 0, 6, 5)), a.add(b));
+        Assert.assertEquals("difference should be", new SparseVector(new Vector(1, 0, -2, -5)), a.sub(b));
+    }
+
+    @Test
+    public void testAddDenseVector() {
+        SparseVector a = new SparseVector(3, new int[]{1}, new double[]{2});
+        Assert.assertEquals("sum should be", new Vector(1, 3, 1), a.add(new Vector(1, 1, 1)));
+        Assert.assertEquals("sum should be", new Vector(1, 3, 1), new Vector(1, 1, 1).add(a));
+    }
+
+    @Test
+    public void testScaleAndLength() {
+        SparseVector a = new SparseVector(5, new int[]{1, 4}, new double[]{3, 4});
+        Assert.assertEquals("length should be", 5, a.getLength(), 0.000001);
+        Assert.assertEquals("scaled vector should be", new SparseVector(5, new int[]{1, 4}, new double[]{6, 8}), a.scale(2));
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testVectorsWithDifferentDimensionsCanNotBeUsedForScalar() {
+        new SparseVector(3).scalar(new Vector(1, 2));
+    }
+
+    @Test
+    public void testStoredZerosDoNotAffectEquality() {
+        SparseVector a = new SparseVector(3, new int[]{0, 1}, new double[]{1, 0});
+        SparseVector b = new SparseVector(3, new int[]{0}, new double[]{1});
+        Assert.assertEquals("vectors should be equal", a, b);
+        Assert.assertEquals("hashes should be equal", a.hashCode(), b.hashCode());
+    }
+
+    @Test
+    public void testToString() {
+        Assert.assertEquals("toString should be", "SparseVector[dimension=4, 1:2.0]", new SparseVector(4, new int[]{1}, new double[]{2}).toString());
+    }
+}
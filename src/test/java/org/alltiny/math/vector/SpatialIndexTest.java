@@ -0,0 +1,143 @@
+package org.alltiny.math.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This test ensures that {@link SpatialIndex} is working correctly.
+ */
+public class SpatialIndexTest {
+
+    @Test
+    public void testKdTreeMatchesLinearScan() {
+        VectorBatch points = randomBatch(2000, 3, 1);
+        assertMatchesLinearScan(SpatialIndex.kdTree(points), points, 2);
+    }
+
+    @Test
+    public void testVpTreeMatchesLinearScan() {
+        VectorBatch points = randomBatch(2000, 24, 3);
+        assertMatchesLinearScan(SpatialIndex.vpTree(points), points, 4);
+    }
+
+    @Test
+    public void testChoosesTreeByDimension() {
+        Assert.assertEquals("index should be", "KdTree[size=50, dimension=3]", SpatialIndex.of(randomBatch(50, 3, 5)).toString());
+        Assert.assertEquals("index should be", "VpTree[size=50, dimension=24]", SpatialIndex.of(randomBatch(50, 24, 5)).toString());
+    }
+
+    @Test
+    public void testDuplicatePoints() {
+        Vector[] vectors = new Vector[500];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = new Vector(i % 2, 0);
+        }
+        SpatialIndex index = SpatialIndex.of(vectors);
+        List<Neighbour> neighbours = index.withinRadius(new Vector(0, 0), 0.5);
+        Assert.assertEquals("number of neighbours should be", 250, neighbours.size());
+        for (Neighbour neighbour : neighbours) {
+            Assert.assertEquals("index " + neighbour.getIndex() + " should be even", 0, neighbour.getIndex() % 2);
+        }
+    }
+
+    @Test
+    public void testParallelBatchQueries() {
+        VectorBatch points = randomBatch(3000, 5, 6);
+        VectorBatch queries = randomBatch(200, 5, 7).toLayout(VectorBatch.Layout.SOA);
+        SpatialIndex index = SpatialIndex.of(points);
+        List<List<Neighbour>> nearest = index.nearest(queries, 5, Parallelism.of(new ForkJoinPool(4)).withThreshold(1));
+        List<List<Neighbour>> within = index.withinRadius(queries, 0.3, Parallelism.of(new ForkJoinPool(4)).withThreshold(1));
+        Assert.assertEquals("number of results should be", 200, nearest.size());
+        for (int i = 0; i < queries.size(); i++) {
+            Assert.assertEquals("nearest of query " + i + " should be", index.nearest(queries.getVector(i), 5), nearest.get(i));
+            Assert.assertEquals("radius result of query " + i + " should be", index.withinRadius(queries.getVector(i), 0.3), within.get(i));
+        }
+    }
+
+    @Test
+    public void testEmptyIndexAndSmallK() {
+        SpatialIndex empty = SpatialIndex.of(new VectorBatch(0, 3, VectorBatch.Layout.AOS));
+        Assert.assertTrue("result should be empty", empty.nearest(new Vector(1, 2, 3), 3).isEmpty());
+        SpatialIndex index = SpatialIndex.of(new Vector(0, 0), new Vector(3, 4));
+        List<Neighbour> all = index.nearest(new Vector(0, 0), 10);
+        Assert.assertEquals("number of neighbours should be", 2, all.size());
+        Assert.assertEquals("farthest neighbour should be", new Neighbour(1, 5), all.get(1));
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testRejectsQueryWithOtherDimension() {
+        SpatialIndex.of(new Vector(0, 0), new Vector(3, 4)).nearest(new Vector(1, 2, 3), 1);
+    }
+
+    @Test
+    public void testRejectsInvalidRadius() {
+        SpatialIndex index = SpatialIndex.of(new Vector(0, 0), new Vector(0.5, 0));
+        VectorBatch queries = new VectorBatch(1, 2, VectorBatch.Layout.AOS);
+        for (double radius : new double[] {-1, Double.NaN}) {
+            try {
+                index.withinRadius(new Vector(0, 0), radius);
+                Assert.fail("radius " + radius + " should be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            try {
+                index.withinRadius(queries, radius);
+                Assert.fail("radius " + radius + " should be rejected for batches");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        Assert.assertEquals("radius zero should find the query point", 1, index.withinRadius(new Vector(0, 0), 0).size());
+    }
+
+    private static void assertMatchesLinearScan(SpatialIndex index, VectorBatch points, long seed) {
+        Random random = new Random(seed);
+        for (int q = 0; q < 50; q++) {
+            Vector query = new Vector(points.getDimension());
+            for (int d = 0; d < query.getDimension(); d++) {
+                query.set(d, random.nextDouble());
+            }
+            List<Neighbour> expected = linearScan(points, query);
+            List<Neighbour> nearest = index.nearest(query, 10);
+            Assert.assertEquals("nearest neighbours should be", expected.subList(0, 10), nearest);
+            // a radius between two neighbours, so rounding can not decide about the boundary.
+            final double radius = (expected.get(30).getDistance() + expected.get(31).getDistance()) / 2;
+            Assert.assertEquals("neighbours within radius should be", expected.subList(0, 31), index.withinRadius(query, radius));
+        }
+    }
+
+    private static List<Neighbour> linearScan(VectorBatch points, Vector query) {
+        List<Neighbour> result = new ArrayList<Neighbour>();
+        for (int i = 0; i < points.size(); i++) {
+            double distanceSquare = 0;
+            for (int d = 0; d < points.getDimension(); d++) {
+                final double diff = points.get(i, d) - query.get(d);
+                distanceSquare += diff * diff;
+            }
+            result.add(new Neighbour(i, Math.sqrt(distanceSquare)));
+        }
+        Collections.sort(result, new Comparator<Neighbour>() {
+            @Override
+            public int compare(Neighbour a, Neighbour b) {
+                return Double.compare(a.getDistance(), b.getDistance());
+            }
+        });
+        return result;
+    }
+
+    private static VectorBatch randomBatch(int size, int dimension, long seed) {
+        Random random = new Random(seed);
+        double[] values = new double[size * dimension];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble();
+        }
+        return new VectorBatch(size, dimension, VectorBatch.Layout.AOS, values);
+    }
+}
@@ -0,0 +1,137 @@
+package org.alltiny.math.vector;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link StrassenMultiplier} is working correctly.
+ */
+public class StrassenMultiplierTest {
+
+    private static final double UNIT_ROUNDOFF = Math.pow(2, -53);
+
+    @Test
+    public void testSmallProductIsClassic() {
+        Matrix a = TestData.uniformMatrix(20, 30, 1);
+        Matrix b = TestData.uniformMatrix(30, 25, 2);
+        StrassenMultiplier multiplier = new StrassenMultiplier(20, Parallelism.sequential());
+        Assert.assertEquals("levels should be", 0, multiplier.getLevels(20, 30, 25));
+        Assert.assertEquals("product should be identical to the classic one", a.mul(b), multiplier.multiply(a, b));
+    }
+
+    @Test
+    public void testLevels() {
+        StrassenMultiplier multiplier = new StrassenMultiplier(16, Parallelism.sequential());
+        Assert.assertEquals("levels of 16 should be", 0, multiplier.getLevels(16, 100, 100));
+        Assert.assertEquals("levels of 17 should be", 1, multiplier.getLevels(17, 100, 100));
+        Assert.assertEquals("levels of 200 should be", 4, multiplier.getLevels(200, 200, 200));
+    }
+
+    @Test
+    public void testSquareProductIsWithinErrorBound() {
+        final int n = 200;
+        Matrix a = TestData.uniformMatrix(n, n, 3);
+        Matrix b = TestData.uniformMatrix(n, n, 4);
+        StrassenMultiplier multiplier = new StrassenMultiplier(16, Parallelism.sequential());
+        final int levels = multiplier.getLevels(n, n, n);
+        // 200 is padded to 208 = 2^4 * 13.
+        final int padded = 208;
+        final int n0 = padded >> levels;
+        final double bound = (Math.pow(1 << levels, Math.log(12) / Math.log(2)) * (n0 * n0 + 5 * n0) - 5 * padded)
+            * UNIT_ROUNDOFF * max(a) * max(b);
+        assertEquals("A*B", a.mul(b), multiplier.multiply(a, b), bound);
+    }
+
+    @Test
+    public void testRectangularProduct() {
+        Matrix a = TestData.uniformMatrix(37, 53, 5);
+        Matrix b = TestData.uniformMatrix(53, 29, 6);
+        StrassenMultiplier multiplier = new StrassenMultiplier(4, Parallelism.sequential());
+        Assert.assertEquals("levels should be", 3, multiplier.getLevels(37, 53, 29));
+        Matrix product = multiplier.multiply(a, b);
+        Assert.assertEquals("rows should be", 37, product.getRows());
+        Assert.assertEquals("columns should be", 29, product.getColumns());
+        assertEquals("A*B", a.mul(b), product, 1e-12);
+    }
+
+    @Test
+    public void testViewsAsOperands() {
+        Matrix a = TestData.uniformMatrix(40, 40, 7);
+        Matrix b = TestData.uniformMatrix(40, 40, 8);
+        StrassenMultiplier multiplier = new StrassenMultiplier(8, Parallelism.sequential());
+        assertEquals("A^T*B", a.transpose().mul(b), multiplier.multiply(a.transposeView(), b), 1e-12);
+    }
+
+    @Test
+    public void testParallelIsIdenticalToSequential() {
+        Matrix a = TestData.uniformMatrix(150, 130, 9);
+        Matrix b = TestData.uniformMatrix(130, 170, 10);
+        Parallelism parallel = Parallelism.of(new ForkJoinPool(4)).withThreshold(1);
+        Matrix sequential = new StrassenMultiplier(16, Parallelism.sequential()).multiply(a, b);
+        Assert.assertEquals("parallel product should be", sequential, new StrassenMultiplier(16, parallel).multiply(a, b));
+    }
+
+    @Test
+    public void testWorkspacesAreReused() {
+        Matrix a = TestData.uniformMatrix(64, 64, 11);
+        Matrix b = TestData.uniformMatrix(64, 64, 12);
+        StrassenMultiplier multiplier = new StrassenMultiplier(8, Parallelism.sequential());
+        Matrix first = multiplier.multiply(a, b);
+        // a smaller product runs on the larger buffers left behind.
+        Matrix c = TestData.uniformMatrix(20, 20, 13);
+        Matrix d = TestData.uniformMatrix(20, 20, 14);
+        assertEquals("smaller product", c.mul(d), multiplier.multiply(c, d), 1e-12);
+        Assert.assertEquals("repeated product should be", first, multiplier.multiply(a, b));
+        multiplier.clearWorkspaces();
+        Assert.assertEquals("product after clearing should be", first, multiplier.multiply(a, b));
+    }
+
+    @Test
+    public void testRepeatedProductDoesNotAllocateWorkspaces() {
+        Matrix a = TestData.uniformMatrix(64, 64, 15);
+        Matrix b = TestData.uniformMatrix(64, 64, 16);
+        StrassenMultiplier multiplier = new StrassenMultiplier(8, Parallelism.sequential());
+        multiplier.multiply(a, b);
+        final long kept = multiplier.getWorkspaceSize();
+        multiplier.multiply(a, b);
+        multiplier.multiply(a, b);
+        Assert.assertEquals("repeated products should reuse the kept workspaces", kept, multiplier.getWorkspaceSize());
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testProductExceedingArraySize() {
+        new StrassenMultiplier(1, Parallelism.sequential()).multiply(new Matrix(50000, 2), new Matrix(2, 50000));
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testMismatchingDimensions() {
+        new StrassenMultiplier().multiply(new Matrix(3, 4), new Matrix(3, 4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCrossover() {
+        new StrassenMultiplier(0, Parallelism.sequential());
+    }
+
+    private static double max(Matrix matrix) {
+        double max = 0;
+        for (int row = 0; row < matrix.getRows(); row++) {
+            for (int col = 0; col < matrix.getColumns(); col++) {
+                max = Math.max(max, Math.abs(matrix.get(row, col)));
+            }
+        }
+        return max;
+    }
+
+    private static void assertEquals(String message, Matrix expected, Matrix actual, double delta) {
+        Assert.assertEquals(message + " should have rows", expected.getRows(), actual.getRows());
+        Assert.assertEquals(message + " should have columns", expected.getColumns(), actual.getColumns());
+        for (int row = 0; row < expected.getRows(); row++) {
+            for (int col = 0; col < expected.getColumns(); col++) {
+                Assert.assertEquals(message + " at " + row + "," + col + " should be", expected.get(row, col), actual.get(row, col), delta);
+            }
+        }
+    }
+}
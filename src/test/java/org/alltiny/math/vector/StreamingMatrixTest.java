@@ -0,0 +1,133 @@
+package org.alltiny.math.vector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This test ensures that {@link StreamingMatrix} is working correctly.
+ */
+public class StreamingMatrixTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testFileMatchesMatrix() throws IOException {
+        Matrix matrix = TestData.gaussianMatrix(103, 9, 1);
+        File file = write(matrix);
+        StreamingMatrix streaming = StreamingMatrix.of(file.toPath(), 10);
+        Assert.assertEquals("columns should be", 9, streaming.getColumns());
+        Vector x = TestData.gaussianMatrix(1, 9, 2).getRow(0);
+        Vector y = TestData.gaussianMatrix(1, 103, 3).getRow(0);
+        assertEquals("A*x", matrix.mul(x), streaming.mul(x));
+        assertEquals("A^T*y", matrix.transpose().mul(y), streaming.mulTransposed(y));
+        Assert.assertEquals("A^T*A should be", matrix.transpose().mul(matrix), streaming.gram());
+        Matrix ys = TestData.gaussianMatrix(103, 4, 4);
+        Assert.assertEquals("A^T*Y should be", matrix.transpose().mul(ys), streaming.mulTransposed(ys));
+    }
+
+    @Test
+    public void testResultsDoNotDependOnBlocksOrParallelism() throws IOException {
+        Matrix matrix = TestData.gaussianMatrix(500, 40, 5);
+        File file = write(matrix);
+        Vector x = TestData.gaussianMatrix(1, 40, 6).getRow(0);
+        Vector y = TestData.gaussianMatrix(1, 500, 7).getRow(0);
+        StreamingMatrix whole = StreamingMatrix.of(file.toPath());
+        StreamingMatrix blocks = StreamingMatrix.of(file.toPath(), 3);
+        Parallelism parallel = Parallelism.of(new ForkJoinPool(4)).withThreshold(1);
+        Assert.assertEquals("A*x should be", whole.mul(x, Parallelism.sequential()), blocks.mul(x, parallel));
+        Assert.assertEquals("A^T*y should be", whole.mulTransposed(y, Parallelism.sequential()), blocks.mulTransposed(y, parallel));
+        Assert.assertEquals("A^T*A should be", whole.gram(Parallelism.sequential()), blocks.gram(parallel));
+    }
+
+    @Test
+    public void testIterableOfViews() throws IOException {
+        final Matrix matrix = TestData.gaussianMatrix(30, 5, 8);
+        final Matrix transposed = matrix.transpose();
+        List<Matrix> blocks = new ArrayList<Matrix>();
+        for (int row = 0; row < 30; row += 7) {
+            // blocks are strided views onto the transposed matrix.
+            blocks.add(new Matrix(transposed.getArray(), row, Math.min(7, 30 - row), 5, 1, 30));
+        }
+        StreamingMatrix streaming = StreamingMatrix.of(5, blocks);
+        Vector x = new Vector(1, -1, 2, 0.5, 3);
+        assertEquals("A*x", matrix.mul(x), streaming.mul(x));
+        assertEquals("A*x of second pass", matrix.mul(x), streaming.mul(x));
+        Matrix gram = matrix.transpose().mul(matrix);
+        Matrix streamed = streaming.gram();
+        for (int i = 0; i < 5; i++) {
+            assertEquals("row " + i + " of A^T*A", gram.getRow(i), streamed.getRow(i));
+        }
+    }
+
+    @Test
+    public void testChannelCanBeReadOnce() throws IOException {
+        Matrix matrix = TestData.gaussianMatrix(20, 3, 9);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFormat.write(matrix, BinaryFormat.ElementType.DOUBLE, out);
+        StreamingMatrix streaming = StreamingMatrix.of(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())), 6);
+        assertEquals("A*x", matrix.mul(new Vector(1, 2, 3)), streaming.mul(new Vector(1, 2, 3)));
+        try {
+            streaming.mul(new Vector(1, 2, 3));
+            Assert.fail("second pass over a channel should fail");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testTransposedMultiplicationWithWrongRows() throws IOException {
+        StreamingMatrix.of(write(TestData.gaussianMatrix(10, 3, 10)).toPath(), 4).mulTransposed(new Vector(9));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBlockExceedingArraySizeFails() throws IOException {
+        // only the header of a single row with almost Integer.MAX_VALUE columns.
+        ByteBuffer header = ByteBuffer.allocate(BinaryFormat.HEADER_BYTES);
+        header.putInt(BinaryFormat.MAGIC).put(BinaryFormat.VERSION).put((byte)1).put((byte)0).put((byte)0);
+        header.putInt(1).putInt(Integer.MAX_VALUE - 1);
+        StreamingMatrix.of(Channels.newChannel(new ByteArrayInputStream(header.array())), 1);
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedFileFails() throws IOException {
+        Matrix matrix = TestData.gaussianMatrix(10, 3, 11);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFormat.write(matrix, BinaryFormat.ElementType.DOUBLE, out);
+        File file = folder.newFile();
+        try (OutputStream stream = new FileOutputStream(file)) {
+            stream.write(out.toByteArray(), 0, out.size() - 8);
+        }
+        StreamingMatrix.of(file.toPath(), 4).mul(new Vector(3));
+    }
+
+    private File write(Matrix matrix) throws IOException {
+        File file = folder.newFile();
+        try (OutputStream stream = new FileOutputStream(file)) {
+            BinaryFormat.write(matrix, BinaryFormat.ElementType.DOUBLE, stream);
+        }
+        return file;
+    }
+
+    private static void assertEquals(String message, Vector expected, Vector actual) {
+        Assert.assertEquals(message + " should have dimension", expected.getDimension(), actual.getDimension());
+        for (int i = 0; i < expected.getDimension(); i++) {
+            Assert.assertEquals(message + " at " + i + " should be", expected.get(i), actual.get(i), 0.000000001);
+        }
+    }
+}
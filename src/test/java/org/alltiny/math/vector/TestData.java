@@ -0,0 +1,52 @@
+package org.alltiny.math.vector;
+
+import java.util.Random;
+
+/**
+ * Creates reproducible random matrices and vectors for the tests.
+ */
+final class TestData {
+
+    private TestData() {
+    }
+
+    /** @return a matrix with standard normally distributed values. */
+    static Matrix gaussianMatrix(int rows, int columns, long seed) {
+        Random random = new Random(seed);
+        double[] values = new double[rows * columns];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextGaussian();
+        }
+        return new Matrix(rows, columns, values);
+    }
+
+    /** @return a matrix with values uniformly distributed in [-1, 1). */
+    static Matrix uniformMatrix(int rows, int columns, long seed) {
+        Random random = new Random(seed);
+        double[] values = new double[rows * columns];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() * 2 - 1;
+        }
+        return new Matrix(rows, columns, values);
+    }
+
+    /** @return a vector with standard normally distributed values. */
+    static Vector gaussianVector(int dimension, long seed) {
+        Random random = new Random(seed);
+        Vector vector = new Vector(dimension);
+        for (int i = 0; i < dimension; i++) {
+            vector.set(i, random.nextGaussian());
+        }
+        return vector;
+    }
+
+    /** @return a vector with values uniformly distributed in [-1, 1). */
+    static Vector uniformVector(int dimension, long seed) {
+        Random random = new Random(seed);
+        Vector vector = new Vector(dimension);
+        for (int i = 0; i < dimension; i++) {
+            vector.set(i, random.nextDouble() * 2 - 1);
+        }
+        return vector;
+    }
+}
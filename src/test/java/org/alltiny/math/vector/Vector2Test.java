@@ -0,0 +1,43 @@
+package org.alltiny.math.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link Vector2} is working correctly.
+ */
+public class Vector2Test {
+
+    @Test
+    public void testOperations() {
+        Vector2 a = new Vector2(3, 4);
+        Vector2 b = new Vector2(1, -2);
+        Assert.assertEquals("length should be", 5, a.getLength(), 0.000001);
+        Assert.assertEquals("sum should be", new Vector2(4, 2), a.add(b));
+        Assert.assertEquals("difference should be", new Vector2(2, 6), a.sub(b));
+        Assert.assertEquals("scaled vector should be", new Vector2(6, 8), a.mul(2));
+        Assert.assertEquals("scalar should be", -5, a.scalar(b), 0.000001);
+        Assert.assertEquals("normalized vector should be", new Vector2(0.6, 0.8), a.normalize());
+    }
+
+    @Test
+    public void testProjection() {
+        Vector2 a = new Vector2(2, 0);
+        Vector2 b = new Vector2(3, 5);
+        Assert.assertEquals("projection should be", new Vector2(3, 0), a.project(b));
+        Assert.assertEquals("projection should be", new Vector2(3, 0), b.projectOn(a));
+    }
+
+    @Test
+    public void testInteroperatesWithVector() {
+        Vector2 a = new Vector2(1, -0.0);
+        Assert.assertEquals("general vector should be", new Vector(1, 0), a.toVector());
+        Assert.assertEquals("converted vector should be", a, new Vector2(new Vector(1, 0)));
+        Assert.assertEquals("hash code should be as of general vector", new Vector(1, 0).hashCode(), a.hashCode());
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testRejectsVectorWithOtherDimension() {
+        new Vector2(new Vector(1, 2, 3));
+    }
+}
@@ -0,0 +1,56 @@
+package org.alltiny.math.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link Vector3} is working correctly.
+ */
+public class Vector3Test {
+
+    @Test
+    public void testOperations() {
+        Vector3 a = new Vector3(1, 2, 2);
+        Vector3 b = new Vector3(-1, 0, 3);
+        Assert.assertEquals("length should be", 3, a.getLength(), 0.000001);
+        Assert.assertEquals("sum should be", new Vector3(0, 2, 5), a.add(b));
+        Assert.assertEquals("difference should be", new Vector3(2, 2, -1), a.sub(b));
+        Assert.assertEquals("scaled vector should be", new Vector3(2, 4, 4), a.scale(2));
+        Assert.assertEquals("scalar should be", 5, a.scalar(b), 0.000001);
+        Assert.assertEquals("normalized length should be", 1, a.normalize().getLength(), 0.000001);
+        Assert.assertEquals("value at 2 should be", 2, a.get(2), 0);
+    }
+
+    @Test
+    public void testCrossProductMatchesVector() {
+        Vector3 a = new Vector3(1.5, -2, 0.25);
+        Vector3 b = new Vector3(3, 4, -7);
+        Assert.assertEquals("cross product should be", new Vector3(a.toVector().cross(b.toVector())), a.cross(b));
+        Assert.assertEquals("cross product of x and y should be z", new Vector3(0, 0, 1), new Vector3(1, 0, 0).cross(new Vector3(0, 1, 0)));
+    }
+
+    @Test
+    public void testProjectionMatchesVector() {
+        Vector3 a = new Vector3(1, 2, 3);
+        Vector3 b = new Vector3(-2, 0.5, 4);
+        Vector expected = a.toVector().project(b.toVector());
+        Vector3 projection = a.project(b);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals("projection at " + i + " should be", expected.get(i), projection.get(i), 0.000001);
+        }
+    }
+
+    @Test
+    public void testInteroperatesWithVector() {
+        Vector3 a = new Vector3(1, 2, 3);
+        Assert.assertEquals("general vector should be", new Vector(1, 2, 3), a.toVector());
+        Assert.assertEquals("converted vector should be", a, new Vector3(new Vector(1, 2, 3)));
+        Assert.assertEquals("hash code should be as of general vector", new Vector(1, 2, 3).hashCode(), a.hashCode());
+        Assert.assertEquals("string should be", "Vector3[1.0, 2.0, 3.0]", a.toString());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfRange() {
+        new Vector3(1, 2, 3).get(3);
+    }
+}
@@ -0,0 +1,31 @@
+package org.alltiny.math.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link Vector4} is working correctly.
+ */
+public class Vector4Test {
+
+    @Test
+    public void testOperations() {
+        Vector4 a = new Vector4(1, 1, 1, 1);
+        Vector4 b = new Vector4(1, 2, 3, 4);
+        Assert.assertEquals("length should be", 2, a.getLength(), 0.000001);
+        Assert.assertEquals("sum should be", new Vector4(2, 3, 4, 5), a.add(b));
+        Assert.assertEquals("difference should be", new Vector4(0, -1, -2, -3), a.sub(b));
+        Assert.assertEquals("scaled vector should be", new Vector4(3, 6, 9, 12), b.mul(3));
+        Assert.assertEquals("scalar should be", 10, a.scalar(b), 0.000001);
+        Assert.assertEquals("normalized vector should be", new Vector4(0.5, 0.5, 0.5, 0.5), a.normalize());
+        Assert.assertEquals("projection should be", new Vector4(2.5, 2.5, 2.5, 2.5), a.project(b));
+    }
+
+    @Test
+    public void testInteroperatesWithVector() {
+        Vector4 a = new Vector4(1, 2, 3, 4);
+        Assert.assertEquals("general vector should be", new Vector(1, 2, 3, 4), a.toVector());
+        Assert.assertEquals("converted vector should be", a, new Vector4(new Vector(1, 2, 3, 4)));
+        Assert.assertEquals("hash code should be as of general vector", new Vector(1, 2, 3, 4).hashCode(), a.hashCode());
+    }
+}
@@ -0,0 +1,163 @@
+package org.alltiny.math.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link VectorBatch} is working correctly.
+ */
+public class VectorBatchTest {
+
+    private static final Vector[] VECTORS = {
+        new Vector(1, 2, 3),
+        new Vector(-4, 0, 2),
+        new Vector(0, 5, -1),
+        new Vector(3, 4, 0)
+    };
+
+    @Test
+    public void testLayouts() {
+        VectorBatch aos = new VectorBatch(VectorBatch.Layout.AOS, VECTORS);
+        VectorBatch soa = new VectorBatch(VectorBatch.Layout.SOA, VECTORS);
+        Assert.assertEquals("size should be", 4, soa.size());
+        Assert.assertEquals("dimension should be", 3, soa.getDimension());
+        Assert.assertArrayEquals("aos values should be", new double[]{1, 2, 3, -4, 0, 2, 0, 5, -1, 3, 4, 0}, aos.getArray(), 0);
+        Assert.assertArrayEquals("soa values should be", new double[]{1, -4, 0, 3, 2, 0, 5, 4, 3, 2, -1, 0}, soa.getArray(), 0);
+        Assert.assertEquals("batches with different layouts should be equal", aos, soa);
+        Assert.assertEquals("hash codes should be equal", aos.hashCode(), soa.hashCode());
+        Assert.assertEquals("converted batch should be", aos, soa.toLayout(VectorBatch.Layout.AOS));
+        Assert.assertEquals("converted layout should be", VectorBatch.Layout.AOS, soa.toLayout(VectorBatch.Layout.AOS).getLayout());
+        for (int i = 0; i < VECTORS.length; i++) {
+            Assert.assertEquals("aos vector " + i + " should be", VECTORS[i], aos.getVector(i));
+            Assert.assertEquals("soa vector " + i + " should be", VECTORS[i], soa.getVector(i));
+        }
+    }
+
+    @Test
+    public void testVectorIsView() {
+        VectorBatch batch = new VectorBatch(VectorBatch.Layout.SOA, VECTORS);
+        batch.getVector(2).set(1, 7);
+        Assert.assertEquals("value in batch should be", 7, batch.get(2, 1), 0);
+        batch.set(1, new Vector(9, 8, 7));
+        Assert.assertEquals("vector should be", new Vector(9, 8, 7), batch.getVector(1));
+        Assert.assertEquals("value in given vectors should be unchanged", -4, VECTORS[1].get(0), 0);
+    }
+
+    @Test
+    public void testWrapsArray() {
+        double[] values = {1, 2, 3, 4};
+        VectorBatch batch = new VectorBatch(2, 2, VectorBatch.Layout.SOA, values);
+        Assert.assertEquals("vector 0 should be", new Vector(1, 3), batch.getVector(0));
+        batch.set(1, 1, 0);
+        Assert.assertEquals("array should be changed", 0, values[3], 0);
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testRejectsWrongNumberOfValues() {
+        new VectorBatch(2, 3, VectorBatch.Layout.AOS, 1, 2, 3, 4, 5);
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testRejectsUnequalDimensions() {
+        new VectorBatch(VectorBatch.Layout.AOS, new Vector(1, 2), new Vector(1, 2, 3));
+    }
+
+    @Test
+    public void testAddAndScale() {
+        for (VectorBatch.Layout a : VectorBatch.Layout.values()) {
+            for (VectorBatch.Layout b : VectorBatch.Layout.values()) {
+                VectorBatch batch = new VectorBatch(a, VECTORS);
+                VectorBatch sum = batch.add(new VectorBatch(b, VECTORS).scale(2));
+                for (int i = 0; i < VECTORS.length; i++) {
+                    Assert.assertEquals(a + "+" + b + " vector " + i + " should be", VECTORS[i].mul(3), sum.getVector(i));
+                }
+                Assert.assertEquals("batch should be unchanged", new VectorBatch(a, VECTORS), batch);
+                batch.addInPlace(new VectorBatch(b, VECTORS)).scaleInPlace(0.5);
+                Assert.assertEquals("in place result should be", new VectorBatch(b, VECTORS), batch);
+            }
+        }
+    }
+
+    @Test
+    public void testNormalizeAndLength() {
+        for (VectorBatch.Layout layout : VectorBatch.Layout.values()) {
+            VectorBatch batch = new VectorBatch(layout, VECTORS);
+            double[] lengths = batch.getLength();
+            VectorBatch normalized = batch.normalize();
+            for (int i = 0; i < VECTORS.length; i++) {
+                Assert.assertEquals(layout + " length " + i + " should be", VECTORS[i].getLength(), lengths[i], 0.000001);
+                Assert.assertEquals(layout + " normalized vector " + i + " should be", VECTORS[i].normalize(), normalized.getVector(i));
+            }
+            Assert.assertArrayEquals("normalized lengths should be", new double[]{1, 1, 1, 1}, batch.normalizeInPlace().getLength(), 0.000001);
+        }
+    }
+
+    @Test
+    public void testScalar() {
+        Vector fixed = new Vector(2, -1, 0.5);
+        for (VectorBatch.Layout a : VectorBatch.Layout.values()) {
+            VectorBatch batch = new VectorBatch(a, VECTORS);
+            double[] withFixed = batch.scalar(fixed);
+            for (int i = 0; i < VECTORS.length; i++) {
+                Assert.assertEquals(a + " scalar " + i + " with fixed vector should be", VECTORS[i].scalar(fixed), withFixed[i], 0.000001);
+            }
+            for (VectorBatch.Layout b : VectorBatch.Layout.values()) {
+                VectorBatch other = new VectorBatch(b, VECTORS).scale(-2);
+                double[] pairwise = batch.scalar(other, new double[VECTORS.length]);
+                for (int i = 0; i < VECTORS.length; i++) {
+                    Assert.assertEquals(a + "*" + b + " scalar " + i + " should be", VECTORS[i].scalar(VECTORS[i].mul(-2)), pairwise[i], 0.000001);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCross() {
+        Vector[] others = {new Vector(0, 1, 0), new Vector(1, 1, 1), new Vector(2, 0, 0), new Vector(0, 0, 1)};
+        for (VectorBatch.Layout layout : VectorBatch.Layout.values()) {
+            VectorBatch batch = new VectorBatch(layout, VECTORS);
+            VectorBatch cross = batch.cross(new VectorBatch(VectorBatch.Layout.AOS, others));
+            for (int i = 0; i < VECTORS.length; i++) {
+                Assert.assertEquals(layout + " cross product " + i + " should be", VECTORS[i].cross(others[i]), cross.getVector(i));
+            }
+            // the result may be one of the operands.
+            batch.cross(new VectorBatch(layout, others), batch);
+            Assert.assertEquals("in place cross products should be", cross, batch);
+        }
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testCrossRequiresThreeDimensions() {
+        VectorBatch batch = new VectorBatch(2, 2, VectorBatch.Layout.AOS);
+        batch.cross(batch);
+    }
+
+    @Test
+    public void testMatrixMultiplication() {
+        Matrix matrix = new Matrix(new Vector(1, 0, 2), new Vector(0, -1, 1), new Vector(3, 1, 0), new Vector(1, 1, 1));
+        for (VectorBatch.Layout in : VectorBatch.Layout.values()) {
+            VectorBatch batch = new VectorBatch(in, VECTORS);
+            VectorBatch transformed = matrix.mul(batch);
+            Assert.assertEquals("layout should be kept", in, transformed.getLayout());
+            Assert.assertEquals("dimension should be", 4, transformed.getDimension());
+            for (VectorBatch.Layout out : VectorBatch.Layout.values()) {
+                VectorBatch result = matrix.mul(batch, new VectorBatch(VECTORS.length, 4, out));
+                for (int i = 0; i < VECTORS.length; i++) {
+                    Assert.assertEquals(in + "->" + out + " vector " + i + " should be", matrix.mul(VECTORS[i]), result.getVector(i));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMatrixMultiplicationRejectsAliasedResult() {
+        VectorBatch batch = new VectorBatch(VectorBatch.Layout.SOA, VECTORS);
+        new Matrix(new Vector(1, 0, 0), new Vector(0, 1, 0), new Vector(0, 0, 1)).mul(batch, batch);
+    }
+
+    @Test
+    public void testToString() {
+        Assert.assertEquals("string should be", "VectorBatch[Vector[1.0, 2.0], Vector[3.0, 4.0]]",
+            new VectorBatch(VectorBatch.Layout.SOA, new Vector(1, 2), new Vector(3, 4)).toString());
+    }
+}
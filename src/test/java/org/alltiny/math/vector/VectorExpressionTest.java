@@ -0,0 +1,58 @@
+package org.alltiny.math.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test ensures that {@link VectorExpression} is working correctly.
+ */
+public class VectorExpressionTest {
+
+    @Test
+    public void testMaterializeMatchesEagerOperations() {
+        // the dimension spans several chunks and ends with a partial one.
+        Vector a = TestData.uniformVector(VectorExpression.CHUNK * 3 + 17, 1);
+        Vector b = TestData.uniformVector(a.getDimension(), 2);
+        Vector c = TestData.uniformVector(a.getDimension(), 3);
+        Vector expected = a.add(b).sub(c).scale(0.75);
+        Assert.assertEquals("fused result should be identical", expected, a.lazy().add(b).sub(c).scale(0.75).materialize());
+        Assert.assertEquals("nested result should be identical", a.sub(b.add(c.mul(2))), a.lazy().sub(b.lazy().add(c.lazy().mul(2))).materialize());
+    }
+
+    @Test
+    public void testTerminalOperations() {
+        Vector a = TestData.uniformVector(1000, 4);
+        Vector b = TestData.uniformVector(1000, 5);
+        Vector d = TestData.uniformVector(1000, 6);
+        Vector eager = a.add(b).scale(3);
+        Assert.assertEquals("scalar should be", eager.scalar(d), a.lazy().add(b).scale(3).scalar(d), 0.0000001);
+        Assert.assertEquals("scalar with expression should be", eager.scalar(d.add(a)), a.lazy().add(b).scale(3).scalar(d.lazy().add(a)), 0.0000001);
+        Assert.assertEquals("length should be", eager.getLength(), a.lazy().add(b).scale(3).getLength(), 0.0000001);
+    }
+
+    @Test
+    public void testMaterializeIntoOperand() {
+        Vector a = new Vector(1, 2, 3);
+        a.lazy().add(new Vector(1, 1, 1)).scale(2).materialize(a);
+        Assert.assertEquals("vector should be", new Vector(4, 6, 8), a);
+    }
+
+    @Test
+    public void testExpressionReadsViews() {
+        Matrix m = new Matrix(new Vector(1, 2), new Vector(3, 4));
+        Assert.assertEquals("sum of columns should be", new Vector(3, 7), m.getColumn(0).lazy().add(m.getColumn(1)).materialize());
+    }
+
+    @Test
+    public void testOperandsAreReadOnEvaluation() {
+        Vector a = new Vector(1, 2);
+        VectorExpression expression = a.lazy().scale(2);
+        a.set(0, 5);
+        Assert.assertEquals("changed operand should be used", new Vector(10, 4), expression.materialize());
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testRejectsUnequalDimensions() {
+        new Vector(1, 2).lazy().add(new Vector(1, 2, 3));
+    }
+}
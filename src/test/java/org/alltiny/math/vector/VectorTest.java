@@ -1,5 +1,7 @@
 package org.alltiny.math.vector;
 
+import java.util.Arrays;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -203,4 +205,101 @@ public class VectorTest {
         Assert.assertEquals("x value on copy should be", 6, copy.get(0), 0.000001);
         Assert.assertEquals("x value on original should be unchanged", 9, original.get(0), 0.000001);
     }
+
+    @Test
+    public void testAddInPlace() {
+        Vector a = new Vector(3, 0, 1);
+        Assert.assertSame("in-place addition should return the vector itself", a, a.addInPlace(new Vector(0, 2, 1)));
+        Assert.assertEquals("vector should be", new Vector(3, 2, 2), a);
+    }
+
+    @Test
+    public void testSubInPlace() {
+        Vector a = new Vector(3, 0, 1);
+        Assert.assertSame("in-place subtraction should return the vector itself", a, a.subInPlace(new Vector(0, 2, 1)));
+        Assert.assertEquals("vector should be", new Vector(3, -2, 0), a);
+    }
+
+    @Test
+    public void testScaleInPlace() {
+        Vector a = new Vector(3, 2, -1);
+        Assert.assertSame("in-place scaling should return the vector itself", a, a.scaleInPlace(2));
+        Assert.assertEquals("vector should be", new Vector(6, 4, -2), a);
+    }
+
+    @Test
+    public void testNormalizeInPlace() {
+        Vector a = new Vector(3, 4);
+        Assert.assertSame("in-place normalization should return the vector itself", a, a.normalizeInPlace());
+        Assert.assertEquals("x coordinate should be", 0.6, a.get(0), 0.000001);
+        Assert.assertEquals("y coordinate should be", 0.8, a.get(1), 0.000001);
+    }
+
+    @Test
+    public void testAxpy() {
+        Vector y = new Vector(1, 1, 1);
+        Assert.assertSame("axpy should return the vector itself", y, y.axpy(2, new Vector(1, 2, 3)));
+        Assert.assertEquals("vector should be", new Vector(3, 5, 7), y);
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testAxpyRequiresVectorsWithSameDimensions() {
+        new Vector(1, 2).axpy(2, new Vector(1, 2, 3));
+    }
+
+    @Test
+    public void testOperationsWriteIntoResultVector() {
+        Vector a = new Vector(3, 0, 0);
+        Vector b = new Vector(0, 2, 0);
+        Vector result = new Vector(3);
+        Assert.assertSame("result vector should be returned", result, a.add(b, result));
+        Assert.assertEquals("sum should be", a.add(b), result);
+        Assert.assertSame("result vector should be returned", result, a.sub(b, result));
+        Assert.assertEquals("difference should be", a.sub(b), result);
+        Assert.assertSame("result vector should be returned", result, a.scale(3, result));
+        Assert.assertEquals("scaled vector should be", a.scale(3), result);
+        Assert.assertSame("result vector should be returned", result, a.mul(3, result));
+        Assert.assertEquals("multiplied vector should be", a.mul(3), result);
+        Assert.assertSame("result vector should be returned", result, a.normalize(result));
+        Assert.assertEquals("normalized vector should be", a.normalize(), result);
+        Assert.assertSame("result vector should be returned", result, a.cross(b, result));
+        Assert.assertEquals("cross product should be", a.cross(b), result);
+        Assert.assertSame("result vector should be returned", result, a.project(new Vector(1, 1, 1), result));
+        Assert.assertEquals("projection should be", a.project(new Vector(1, 1, 1)), result);
+        Assert.assertSame("result vector should be returned", result, a.projectOn(new Vector(1, 1, 1), result));
+        Assert.assertEquals("projection should be", a.projectOn(new Vector(1, 1, 1)), result);
+    }
+
+    @Test
+    public void testCrossProductIntoOneOfItsOperands() {
+        Vector a = new Vector(3, 0, 0);
+        a.cross(new Vector(0, 2, 0), a);
+        Assert.assertEquals("cross product should be", new Vector(0, 0, 6), a);
+    }
+
+    @Test(expected = IllegalDimensionException.class)
+    public void testResultVectorMustHaveTheSameDimension() {
+        new Vector(1, 2).add(new Vector(3, 4), new Vector(3));
+    }
+
+    @Test
+    public void testSummationOfLongVectors() {
+        double[] tenths = new double[1000000];
+        double[] ones = new double[tenths.length];
+        Arrays.fill(tenths, 0.1);
+        Arrays.fill(ones, 1);
+        Vector a = new Vector(tenths);
+        Vector b = new Vector(ones);
+        Assert.assertEquals("fast scalar product should be", 100000, a.scalar(b), 1e-8);
+        Assert.assertEquals("compensated scalar product should be", 100000, a.scalar(b, Summation.COMPENSATED), 0);
+        Assert.assertEquals("compensated length should be", Math.sqrt(b.getLengthSquare(Summation.COMPENSATED)), b.getLength(Summation.COMPENSATED), 0);
+        Assert.assertEquals("length should be", 1000, b.getLength(), 0);
+    }
+
+    @Test
+    public void testCompensatedScalarProductOfStridedVectors() {
+        Vector a = new Vector(new double[] {1e16, 0, 1, 0, -1e16}, 0, 2, 3);
+        Assert.assertEquals("compensated scalar product should be", 1, a.scalar(new Vector(1, 1, 1), Summation.COMPENSATED), 0);
+        Assert.assertEquals("compensated length square should be", 1e32 + 1e32 + 1, a.getLengthSquare(Summation.COMPENSATED), 0);
+    }
 }